@@ -0,0 +1,83 @@
+package fr.isae.mae.ss.y2024.orbitviewer.bench;
+
+import fr.isae.mae.ss.y2024.orbitviewer.JsonParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files (written with {@code -rf json}) and reports the benchmarks whose
+ * score got worse than a threshold. The exit status is 1 when a regression is found, so the
+ * comparison can gate a build.
+ * <p>
+ * Usage: {@code BenchmarkComparator <baseline.json> <current.json> [threshold percent, default 10]}
+ */
+public class BenchmarkComparator {
+
+    /**
+     * Main method, entry point of the comparison.
+     *
+     * @param args Command line arguments
+     * @throws IOException if a result file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparator <baseline.json> <current.json> [threshold percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.;
+        Map<String, double[]> baseline = read(args[0]);
+        Map<String, double[]> current = read(args[1]);
+
+        int regressions = 0;
+        for (Map.Entry<String, double[]> entry : new TreeMap<>(current).entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println(String.format(Locale.ROOT, "%-90s %12.3f  (new)", entry.getKey(), entry.getValue()[0]));
+                continue;
+            }
+            double[] after = entry.getValue();
+            // Positive change means slower, whatever the benchmark mode
+            double change = after[1] > 0 ? (after[0] - before[0]) / before[0] * 100 : (before[0] - after[0]) / before[0] * 100;
+            boolean regression = change > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.println(String.format(Locale.ROOT, "%-90s %12.3f -> %12.3f  %+7.1f%%%s",
+                    entry.getKey(), before[0], after[0], change, regression ? "  REGRESSION" : ""));
+        }
+        System.out.println(regressions + " regression(s) above " + threshold + "%");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    /**
+     * Reads a JMH JSON result file.
+     *
+     * @return For each benchmark and parameter set, the score and 1 if lower is better, -1 otherwise
+     */
+    private static Map<String, double[]> read(String file) throws IOException {
+        Object document = JsonParser.parse(new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8));
+        Map<String, double[]> scores = new LinkedHashMap<>();
+        for (Object item : (List<?>) document) {
+            Map<?, ?> result = (Map<?, ?>) item;
+            StringBuilder key = new StringBuilder(String.valueOf(result.get("benchmark")));
+            Object params = result.get("params");
+            if (params instanceof Map) {
+                key.append(new TreeMap<>((Map<?, ?>) params));
+            }
+            Map<?, ?> metric = (Map<?, ?>) result.get("primaryMetric");
+            double score = (Double) metric.get("score");
+            // Throughput is the only mode where higher is better
+            double lowerIsBetter = "thrpt".equals(result.get("mode")) ? -1 : 1;
+            scores.put(key.toString(), new double[] {score, lowerIsBetter});
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,37 @@
+package fr.isae.mae.ss.y2024.orbitviewer.bench;
+
+import fr.isae.mae.ss.y2024.orbitviewer.OrbitCatalog;
+import fr.isae.mae.ss.y2024.orbitviewer.OrbitElements;
+
+/**
+ * Reference orbits used by the benchmarks, in the units of the orbit input form.
+ */
+public final class BenchmarkOrbits {
+
+    private BenchmarkOrbits() {
+    }
+
+    /**
+     * Returns a reference orbit.
+     *
+     * @param name LEO, MEO, GEO or HEO
+     * @return The orbit elements
+     */
+    public static OrbitElements get(String name) {
+        switch (name) {
+            case "LEO":
+                // Sun-synchronous low Earth orbit
+                return OrbitCatalog.fromInputUnits(name, 7078., 0.001, 98.2, 0., 0., 0.);
+            case "MEO":
+                // GPS-like medium Earth orbit
+                return OrbitCatalog.fromInputUnits(name, 26560., 0.01, 55., 30., 0., 0.);
+            case "GEO":
+                return OrbitCatalog.fromInputUnits(name, 42164., 0., 0., 0., 0., 0.);
+            case "HEO":
+                // Molniya orbit
+                return OrbitCatalog.fromInputUnits(name, 26600., 0.74, 63.4, 0., 0., 270.);
+            default:
+                throw new IllegalArgumentException("Unknown orbit " + name);
+        }
+    }
+}
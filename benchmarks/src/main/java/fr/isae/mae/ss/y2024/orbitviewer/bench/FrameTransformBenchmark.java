@@ -0,0 +1,81 @@
+package fr.isae.mae.ss.y2024.orbitviewer.bench;
+
+import fr.cnes.sirius.patrius.bodies.BodyShape;
+import fr.cnes.sirius.patrius.bodies.GeodeticPoint;
+import fr.cnes.sirius.patrius.bodies.OneAxisEllipsoid;
+import fr.cnes.sirius.patrius.frames.Frame;
+import fr.cnes.sirius.patrius.frames.FramesFactory;
+import fr.cnes.sirius.patrius.frames.transformations.Transform;
+import fr.cnes.sirius.patrius.math.geometry.euclidean.threed.Vector3D;
+import fr.cnes.sirius.patrius.time.AbsoluteDate;
+import fr.cnes.sirius.patrius.time.TimeScalesFactory;
+import fr.cnes.sirius.patrius.utils.Constants;
+import fr.cnes.sirius.patrius.utils.exception.PatriusException;
+import fr.isae.mae.ss.y2024.orbitviewer.EarthRotation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-step cost of the frame computations of the Orbiter step handler, with PATRIUS
+ * and with the Earth rotation service.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FrameTransformBenchmark {
+
+    private Frame gcrf;
+    private BodyShape earth;
+    private AbsoluteDate date;
+    private Vector3D position;
+    private EarthRotation rotation;
+    private final double[] geodetic = new double[3];
+
+    @Setup
+    public void setUp() {
+        gcrf = FramesFactory.getGCRF();
+        earth = new OneAxisEllipsoid(Constants.WGS84_EARTH_EQUATORIAL_RADIUS, Constants.WGS84_EARTH_FLATTENING, gcrf);
+        date = new AbsoluteDate("2010-01-01T12:00:00.000", TimeScalesFactory.getTAI());
+        position = new Vector3D(4000e3, 3000e3, 4500e3);
+        rotation = EarthRotation.forEpoch(date);
+    }
+
+    /**
+     * Conversion of the inertial position to a geodetic point.
+     */
+    @Benchmark
+    public GeodeticPoint earthTransform() throws PatriusException {
+        return earth.transform(position, gcrf, date);
+    }
+
+    /**
+     * Conversion of the inertial position to geodetic coordinates on the rotating Earth, as now done
+     * by the Orbiter step handler.
+     */
+    @Benchmark
+    public double[] earthRotation() {
+        rotation.toGeodetic(600., position.getX(), position.getY(), position.getZ(), geodetic);
+        return geodetic;
+    }
+
+    /**
+     * Transform between the frame of the state and GCRF.
+     */
+    @Benchmark
+    public Transform frameTransform() throws PatriusException {
+        return gcrf.getTransformTo(gcrf, date);
+    }
+}
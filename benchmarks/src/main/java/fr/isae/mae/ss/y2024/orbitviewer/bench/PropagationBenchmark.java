@@ -0,0 +1,67 @@
+package fr.isae.mae.ss.y2024.orbitviewer.bench;
+
+import fr.isae.mae.ss.y2024.orbitviewer.OrbitElements;
+import fr.isae.mae.ss.y2024.orbitviewer.Orbiter;
+import fr.isae.mae.ss.y2024.orbitviewer.PropagationMode;
+import fr.isae.mae.ss.y2024.orbitviewer.PropagatorSettings;
+import fr.isae.mae.ss.y2024.orbitviewer.Trajectory;
+import gov.nasa.worldwind.geom.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the propagation of one period of the reference orbits with each propagation model.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PropagationBenchmark {
+
+    @Param({"LEO", "MEO", "GEO", "HEO"})
+    public String orbit;
+
+    @Param({"NUMERICAL", "ADAPTIVE", "KEPLERIAN", "J2_SECULAR", "SGP4"})
+    public String mode;
+
+    private OrbitElements elements;
+    private PropagatorSettings settings;
+
+    @Setup
+    public void setUp() {
+        elements = BenchmarkOrbits.get(orbit);
+        settings = PropagatorSettings.DEFAULT.withMode(PropagationMode.valueOf(mode));
+    }
+
+    /**
+     * Propagation into WorldWind positions, as done by the original viewer.
+     */
+    @Benchmark
+    public ArrayList<Position> runPropagation() {
+        return new Orbiter(settings).runPropagation(elements.getSma(), elements.getEcc(), elements.getInc(),
+                elements.getRaan(), elements.getAnm(), elements.getPa());
+    }
+
+    /**
+     * Propagation into a primitive trajectory.
+     */
+    @Benchmark
+    public Trajectory propagate() {
+        return new Orbiter(settings).propagate(elements.getSma(), elements.getEcc(), elements.getInc(),
+                elements.getRaan(), elements.getAnm(), elements.getPa(), null);
+    }
+}
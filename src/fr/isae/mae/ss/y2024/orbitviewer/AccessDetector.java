@@ -0,0 +1,122 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import fr.cnes.sirius.patrius.events.AbstractDetector;
+import fr.cnes.sirius.patrius.events.EventDetector;
+import fr.cnes.sirius.patrius.math.geometry.euclidean.threed.Vector3D;
+import fr.cnes.sirius.patrius.propagation.SpacecraftState;
+import fr.cnes.sirius.patrius.time.AbsoluteDate;
+
+import java.util.List;
+
+/**
+ * AccessDetector detects when a satellite rises above and sets below the minimum elevation of a
+ * ground station, and records the access windows in between. It is attached to the numerical
+ * propagator as a PATRIUS event detector, so the windows are found while the orbit is propagated.
+ * <p>
+ * The station is placed on the Earth of {@link EarthRotation}, like the displayed ground tracks,
+ * rather than in a topocentric frame of the ITRF, which would need Earth orientation data. The
+ * closed-form propagators have no event handling: they call {@link #crossing} themselves.
+ */
+public class AccessDetector extends AbstractDetector {
+    private static final long serialVersionUID = 1L;
+    // Accuracy of the start and end of the windows (s)
+    static final double THRESHOLD = 1e-3;
+
+    private final GroundStation station;
+    private final String satellite;
+    private final AbsoluteDate epoch;
+    private final EarthRotation rotation;
+    private final List<AccessWindow> windows;
+    // Start of the window in progress, NaN while the satellite is not visible
+    private double openedAt = Double.NaN;
+
+    /**
+     * Constructs a new AccessDetector.
+     *
+     * @param station   Ground station
+     * @param satellite Name of the satellite
+     * @param epoch     Epoch of the orbit
+     * @param rotation  Rotation of the Earth since the epoch
+     * @param maxCheck  Largest time between two checks of the elevation, shorter passes may be missed (s)
+     * @param windows   Receives the access windows
+     */
+    public AccessDetector(GroundStation station, String satellite, AbsoluteDate epoch, EarthRotation rotation, double maxCheck,
+                          List<AccessWindow> windows) {
+        super(maxCheck, THRESHOLD);
+        this.station = station;
+        this.satellite = satellite;
+        this.epoch = epoch;
+        this.rotation = rotation;
+        this.windows = windows;
+    }
+
+    /**
+     * Returns the elevation of the satellite above the minimum elevation of the station.
+     *
+     * @param time Time since the epoch (s)
+     * @param x    GCRF X coordinate of the satellite (m)
+     * @param y    GCRF Y coordinate of the satellite (m)
+     * @param z    GCRF Z coordinate of the satellite (m)
+     * @return Elevation margin, positive while the satellite is visible (rad)
+     */
+    public double g(double time, double x, double y, double z) {
+        return station.elevation(rotation, time, x, y, z) - station.getMinElevation();
+    }
+
+    @Override
+    public double g(SpacecraftState s) {
+        final Vector3D position = s.getPVCoordinates().getPosition();
+        return g(s.getDate().durationFrom(epoch), position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public void init(SpacecraftState s0, AbsoluteDate t) {
+        super.init(s0, t);
+        start(s0.getDate().durationFrom(epoch), g(s0));
+    }
+
+    @Override
+    public Action eventOccurred(SpacecraftState s, boolean increasing, boolean forward) {
+        crossing(s.getDate().durationFrom(epoch), increasing);
+        return Action.CONTINUE;
+    }
+
+    /**
+     * Starts the detection, opening a window if the satellite is visible at the first date.
+     *
+     * @param time Time of the first date since the epoch (s)
+     * @param g    Elevation margin at the first date (rad)
+     */
+    public void start(double time, double g) {
+        openedAt = g > 0 ? time : Double.NaN;
+    }
+
+    /**
+     * Opens or closes a window when the satellite crosses the minimum elevation.
+     *
+     * @param time   Time of the crossing since the epoch (s)
+     * @param rising Whether the satellite rises above the minimum elevation
+     */
+    public void crossing(double time, boolean rising) {
+        if (rising) {
+            openedAt = time;
+        } else if (!Double.isNaN(openedAt)) {
+            windows.add(new AccessWindow(station.getName(), satellite, openedAt, time));
+            openedAt = Double.NaN;
+        }
+    }
+
+    /**
+     * Closes the window still open at the end of the propagation.
+     *
+     * @param time Time of the end of the propagation since the epoch (s)
+     */
+    public void finish(double time) {
+        crossing(time, false);
+    }
+
+    @Override
+    public EventDetector copy() {
+        return new AccessDetector(station, satellite, epoch, rotation, getMaxCheckInterval(), windows);
+    }
+}
@@ -0,0 +1,83 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * AccessFrame lists the access windows of the ground stations and exports them to CSV.
+ */
+@SuppressWarnings("serial")
+public class AccessFrame extends JFrame implements ActionListener {
+    private final List<AccessWindow> windows; // Windows listed by the frame
+    private JButton exportButton; // Button to export the windows
+
+    /**
+     * Constructs a new AccessFrame.
+     *
+     * @param windows  Access windows of all the stations and satellites
+     * @param stations Number of ground stations
+     */
+    public AccessFrame(List<AccessWindow> windows, int stations) {
+        super("Access Windows");
+        this.windows = windows;
+        setSize(600, 300);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(null);
+
+        // Create the table of the windows, the values are not editable
+        DefaultTableModel tableModel = new DefaultTableModel(new String[]{"Station", "Satellite", "Start (s)", "End (s)", "Duration (s)"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column < 2 ? String.class : Double.class;
+            }
+        };
+        for (AccessWindow window : windows) {
+            tableModel.addRow(new Object[]{window.getStation(), window.getSatellite(), Math.round(window.getStart() * 10.) / 10.,
+                    Math.round(window.getEnd() * 10.) / 10., Math.round(window.getDuration() * 10.) / 10.});
+        }
+        JTable windowTable = new JTable(tableModel);
+        windowTable.setAutoCreateRowSorter(true);
+
+        // Create the bottom panel with the summary and the export button
+        exportButton = new JButton("Export CSV");
+        exportButton.addActionListener(this);
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(new JLabel(String.format(" %d windows for %d stations", windows.size(), stations)), BorderLayout.LINE_START);
+        bottomPanel.add(exportButton, BorderLayout.LINE_END);
+
+        // Add components to the frame
+        add(new JScrollPane(windowTable), BorderLayout.CENTER);
+        add(bottomPanel, BorderLayout.SOUTH);
+        setVisible(true);
+    }
+
+    /**
+     * Handles actions performed by the user.
+     *
+     * @param e The ActionEvent triggering the action
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (e.getSource() == exportButton) {
+            // Write the windows to the file chosen by the user
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    AccessWindow.writeCsv(chooser.getSelectedFile(), windows);
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * AccessWindow is a time interval during which a satellite is seen from a ground station above
+ * its minimum elevation. Instances are immutable.
+ */
+public class AccessWindow {
+    private final String station;
+    private final String satellite;
+    private final double start;
+    private final double end;
+
+    /**
+     * Constructs a new AccessWindow.
+     *
+     * @param station   Name of the ground station
+     * @param satellite Name of the satellite
+     * @param start     Start of the window, time since the epoch of the orbit (s)
+     * @param end       End of the window, time since the epoch of the orbit (s)
+     */
+    public AccessWindow(String station, String satellite, double start, double end) {
+        this.station = station;
+        this.satellite = satellite;
+        this.start = start;
+        this.end = end;
+    }
+
+    public String getStation() {
+        return station;
+    }
+
+    public String getSatellite() {
+        return satellite;
+    }
+
+    public double getStart() {
+        return start;
+    }
+
+    public double getEnd() {
+        return end;
+    }
+
+    public double getDuration() {
+        return end - start;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s - %s: %.1f s to %.1f s", station, satellite, start, end);
+    }
+
+    /**
+     * Writes access windows as CSV: station, satellite, start (s), end (s), duration (s).
+     *
+     * @param file    File to write
+     * @param windows Windows to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCsv(File file, List<AccessWindow> windows) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write("station,satellite,start,end,duration\n");
+            StringBuilder line = new StringBuilder(64);
+            for (AccessWindow window : windows) {
+                line.setLength(0);
+                line.append(window.station).append(',')
+                        .append(window.satellite).append(',')
+                        .append(window.start).append(',')
+                        .append(window.end).append(',')
+                        .append(window.getDuration()).append('\n');
+                out.append(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+/**
+ * Closed-form orbit model used by the analytical propagation modes: each position is computed
+ * directly from the time, without integrating the motion from the previous one.
+ */
+public interface AnalyticalPropagator {
+
+    /**
+     * Computes the position of the spacecraft in the inertial frame of the propagation.
+     *
+     * @param dt  Time elapsed since the start of the propagation (s)
+     * @param out Array of length 3 receiving the x, y and z coordinates (m)
+     * @return The out array
+     */
+    double[] positionAt(double dt, double[] out);
+}
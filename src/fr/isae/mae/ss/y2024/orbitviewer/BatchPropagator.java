@@ -0,0 +1,227 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BatchPropagator is the command line entry point propagating a catalog of orbits without any
+ * window, for batch jobs on headless servers. The orbits are propagated in parallel by a
+ * {@link PropagationEngine} and the trajectories are written to a single file in the output directory:
+ * a CSV, KML or CZML document ({@code trajectories.csv}, {@code .kml} or {@code .czml}) streamed
+ * by a {@link TrajectoryExport} while the orbits are propagated, or a binary ephemeris file
+ * ({@code trajectories.eph}). With a network of ground stations, the access windows of every
+ * station to every orbit are written to {@code access.csv}.
+ * <p>
+ * Usage: {@code BatchPropagator <catalog.csv|catalog.json|catalog.tle> <output directory> [--mode NUMERICAL|ADAPTIVE|KEPLERIAN|J2_SECULAR|SGP4] [--threads N] [--format csv|kml|czml|ephemeris]
+ * [--revolutions N | --days D] [--trail N] [--stations stations.csv]}
+ * <p>
+ * The trail, the number of latest samples kept for each orbit, only applies to the ephemeris file:
+ * the other formats stream every sample, so {@code --trail} is rejected with them.
+ */
+public class BatchPropagator {
+    private static final String USAGE = "Usage: BatchPropagator <catalog.csv|catalog.json|catalog.tle> <output directory>"
+            + " [--mode NUMERICAL|ADAPTIVE|KEPLERIAN|J2_SECULAR|SGP4] [--threads N] [--format csv|kml|czml|ephemeris]"
+            + " [--revolutions N | --days D] [--trail N] [--stations stations.csv]";
+
+    /**
+     * Main method, entry point of the batch mode.
+     *
+     * @param args Command line arguments
+     */
+    public static void main(String[] args) {
+        // Make sure no window can ever be opened
+        System.setProperty("java.awt.headless", "true");
+
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        File catalog = new File(args[0]);
+        File outputDir = new File(args[1]);
+        PropagatorSettings settings = PropagatorSettings.DEFAULT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExportFormat export = ExportFormat.CSV;
+        File stations = null;
+        boolean trail = false;
+        for (int i = 2; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                System.err.println("Missing value of option " + args[i]);
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+            try {
+                if (args[i].equals("--mode")) {
+                    settings = settings.withMode(PropagationMode.valueOf(args[i + 1].toUpperCase(Locale.ROOT)));
+                } else if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[i + 1]);
+                } else if (args[i].equals("--format")) {
+                    export = args[i + 1].equalsIgnoreCase("ephemeris") ? null
+                            : ExportFormat.valueOf(args[i + 1].toUpperCase(Locale.ROOT));
+                } else if (args[i].equals("--revolutions")) {
+                    settings = settings.withRevolutions(Double.parseDouble(args[i + 1]));
+                } else if (args[i].equals("--days")) {
+                    settings = settings.withDuration(Double.parseDouble(args[i + 1]) * 86400.);
+                } else if (args[i].equals("--trail")) {
+                    settings = settings.withTrailCapacity(Integer.parseInt(args[i + 1]));
+                    trail = true;
+                } else if (args[i].equals("--stations")) {
+                    stations = new File(args[i + 1]);
+                } else {
+                    System.err.println("Unknown option " + args[i]);
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+            } catch (IllegalArgumentException e) {
+                // Also thrown for numbers, as NumberFormatException
+                System.err.println("Invalid value " + args[i + 1] + " of option " + args[i]);
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+        }
+        if (trail && export != null) {
+            System.err.println("Option --trail only applies to --format ephemeris");
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        try {
+            int failures = run(catalog, outputDir, settings, threads, export, stations);
+            System.exit(failures == 0 ? 0 : 1);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Propagates every orbit of a catalog and writes the trajectories.
+     *
+     * @param catalog   CSV, JSON or TLE catalog
+     * @param outputDir Directory receiving the trajectories
+     * @param settings  Settings of the propagation
+     * @param threads   Number of propagation threads
+     * @param export    Format of the document the trajectories are streamed to, null to write an ephemeris file
+     * @return Number of orbits that could not be propagated or written
+     * @throws IOException if the catalog cannot be read or the output files cannot be created
+     */
+    public static int run(File catalog, File outputDir, PropagatorSettings settings, int threads, ExportFormat export) throws IOException {
+        return run(catalog, outputDir, settings, threads, export, null);
+    }
+
+    /**
+     * Propagates every orbit of a catalog, writes the trajectories and the access windows of a
+     * network of ground stations.
+     *
+     * @param catalog   CSV, JSON or TLE catalog
+     * @param outputDir Directory receiving the trajectories
+     * @param settings  Settings of the propagation
+     * @param threads   Number of propagation threads
+     * @param export    Format of the document the trajectories are streamed to, null to write an ephemeris file
+     * @param stations  CSV file of the ground stations, or null not to compute any access window
+     * @return Number of orbits that could not be propagated or written
+     * @throws IOException if the catalogs cannot be read or the output files cannot be created
+     */
+    public static int run(File catalog, File outputDir, PropagatorSettings settings, int threads, ExportFormat export, File stations)
+            throws IOException {
+        List<OrbitElements> orbits = OrbitCatalog.read(catalog);
+        List<GroundStation> network = stations == null ? Collections.emptyList() : StationCatalog.readCsv(stations);
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create output directory " + outputDir);
+        }
+        System.out.println("Propagating " + orbits.size() + " orbits with " + settings.getMode() + " on " + threads + " threads");
+
+        final AtomicLong samples = new AtomicLong();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger done = new AtomicInteger();
+        final long start = System.nanoTime();
+        final EphemerisWriter writer = export == null ? new EphemerisWriter(new File(outputDir, "trajectories.eph")) : null;
+        final TrajectoryExport document = export != null ? new TrajectoryExport(new File(outputDir, "trajectories" + export.getExtension()), export)
+                : null;
+
+        // The cache is not used in batch mode: every orbit is propagated once
+        PropagationEngine engine = new PropagationEngine(threads, null, PropagationMetrics.getInstance());
+        engine.setGroundStations(network);
+        // Documents are written from the samples as they are propagated, without keeping the trajectories
+        engine.setExport(document);
+        final List<AccessWindow> windows = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = engine.submit(orbits, settings, new PropagationListener() {
+            @Override
+            public void orbitProgress(int index, double fraction) {
+                // Only the completed orbits are reported
+            }
+
+            @Override
+            public void orbitAccess(int index, OrbitElements elements, List<AccessWindow> orbitWindows) {
+                windows.addAll(orbitWindows);
+            }
+
+            @Override
+            public void orbitCompleted(int index, OrbitElements elements, Trajectory trajectory, PropagationStats stats) {
+                try {
+                    if (writer != null) {
+                        writer.write(elements.getName(), trajectory);
+                    }
+                    samples.addAndGet(stats.getSamples());
+                } catch (IOException e) {
+                    failures.incrementAndGet();
+                    System.err.println("Cannot write " + elements.getName() + ": " + e.getMessage());
+                }
+                int count = done.incrementAndGet();
+                if (count % 1000 == 0) {
+                    System.out.println(count + " / " + orbits.size() + " orbits done");
+                }
+            }
+
+            @Override
+            public void orbitFailed(int index, OrbitElements elements, Throwable error) {
+                failures.incrementAndGet();
+                done.incrementAndGet();
+                System.err.println("Propagation of " + elements.getName() + " failed: " + error);
+            }
+        });
+
+        // Wait for every orbit
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                failures.incrementAndGet();
+                e.printStackTrace();
+            }
+        }
+        engine.shutdown();
+        if (writer != null) {
+            writer.close();
+        }
+        if (document != null) {
+            document.close();
+        }
+        if (!network.isEmpty()) {
+            // One block of windows per station, by start time
+            List<AccessWindow> sorted = new ArrayList<>(windows);
+            sorted.sort(Comparator.comparing(AccessWindow::getStation).thenComparingDouble(AccessWindow::getStart));
+            AccessWindow.writeCsv(new File(outputDir, "access.csv"), sorted);
+            System.out.println(sorted.size() + " access windows for " + network.size() + " stations");
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "%d orbits, %d samples in %.2f s: %.1f orbits/s, %.0f samples/s, %d failures",
+                orbits.size(), samples.get(), seconds, orbits.size() / seconds, samples.get() / seconds, failures.get()));
+        PropagationMetrics metrics = PropagationMetrics.getInstance();
+        System.out.println(String.format(Locale.ROOT, "%d integrator steps, %d handler calls, slowest orbit: %s",
+                metrics.getTotalIntegratorSteps(), metrics.getTotalHandlerCalls(), metrics.getSlowestOrbit()));
+        return failures.get();
+    }
+}
@@ -0,0 +1,47 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+/**
+ * Conjunction is a close approach between two screened trajectories. Instances are immutable.
+ */
+public class Conjunction {
+    private final int first;
+    private final int second;
+    private final double time;
+    private final double missDistance;
+
+    /**
+     * Constructs a new Conjunction.
+     *
+     * @param first        Index of the first trajectory in the screened list
+     * @param second       Index of the second trajectory in the screened list
+     * @param time         Time of closest approach since the epoch of the orbits (s)
+     * @param missDistance Distance between the two objects at the time of closest approach (m)
+     */
+    public Conjunction(int first, int second, double time, double missDistance) {
+        this.first = first;
+        this.second = second;
+        this.time = time;
+        this.missDistance = missDistance;
+    }
+
+    public int getFirst() {
+        return first;
+    }
+
+    public int getSecond() {
+        return second;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public double getMissDistance() {
+        return missDistance;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d-%d: TCA %.1f s, miss %.3f km", first, second, time, missDistance / 1000.);
+    }
+}
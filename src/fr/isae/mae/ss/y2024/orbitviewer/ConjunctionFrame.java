@@ -0,0 +1,64 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ConjunctionFrame lists the conjunctions found by a screening. Selecting a conjunction
+ * shows it on the globe.
+ */
+@SuppressWarnings("serial")
+public class ConjunctionFrame extends JFrame {
+    private JTable conjunctionTable; // Table of the conjunctions, sortable by any column
+
+    /**
+     * Constructs a new ConjunctionFrame.
+     *
+     * @param names        Names of the screened orbits
+     * @param conjunctions Conjunctions found by the screening
+     * @param threshold    Miss distance threshold of the screening (m)
+     * @param onSelect     Called with the conjunction selected in the table
+     */
+    public ConjunctionFrame(List<String> names, List<Conjunction> conjunctions, double threshold, Consumer<Conjunction> onSelect) {
+        super(String.format("Conjunctions closer than %.1f km", threshold / 1000.));
+        setSize(600, 300);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(null);
+
+        // Create the table of the conjunctions, the values are not editable
+        DefaultTableModel tableModel = new DefaultTableModel(new String[]{"Orbit A", "Orbit B", "TCA (s)", "Miss Distance (km)"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column < 2 ? String.class : Double.class;
+            }
+        };
+        for (Conjunction conjunction : conjunctions) {
+            tableModel.addRow(new Object[]{names.get(conjunction.getFirst()), names.get(conjunction.getSecond()),
+                    Math.round(conjunction.getTime() * 10.) / 10., Math.round(conjunction.getMissDistance()) / 1000.});
+        }
+        conjunctionTable = new JTable(tableModel);
+        conjunctionTable.setAutoCreateRowSorter(true);
+        conjunctionTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        conjunctionTable.getSelectionModel().addListSelectionListener(e -> {
+            int row = conjunctionTable.getSelectedRow();
+            if (!e.getValueIsAdjusting() && row >= 0) {
+                onSelect.accept(conjunctions.get(conjunctionTable.convertRowIndexToModel(row)));
+            }
+        });
+
+        JLabel summaryLabel = new JLabel(String.format(" %d conjunctions between %d orbits", conjunctions.size(), names.size()));
+
+        // Add components to the frame
+        add(summaryLabel, BorderLayout.NORTH);
+        add(new JScrollPane(conjunctionTable), BorderLayout.CENTER);
+        setVisible(true);
+    }
+}
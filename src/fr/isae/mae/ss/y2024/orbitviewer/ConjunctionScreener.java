@@ -0,0 +1,356 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * ConjunctionScreener finds the close approaches between propagated trajectories. Comparing every
+ * pair of orbits at every sample costs O(n²) per sample, so the samples are instead hashed into a
+ * uniform grid of Earth-fixed cells: only the orbits of neighbouring cells are compared, which
+ * brings the cost of a sample close to O(n) for orbits spread around the Earth.
+ * <p>
+ * The samples are split into time buckets screened in parallel. The cells of a bucket are sized
+ * from the largest motion between two samples, so that no approach closer than the threshold can
+ * fall between two samples unnoticed. The time of closest approach and the miss distance of each
+ * candidate pair are then refined on a cubic interpolation of the relative position.
+ * <p>
+ * The trajectories must be sampled at multiples of the same output step since the same epoch,
+ * which is the case of all the orbits propagated with the same settings.
+ */
+public class ConjunctionScreener {
+    // Number of consecutive samples screened by one task
+    private static final int BUCKET_SAMPLES = 64;
+    // Number of intervals evaluated on a step before refining the closest approach
+    private static final int SEARCH_POINTS = 8;
+    // Number of golden section iterations refining the closest approach
+    private static final int REFINE_ITERATIONS = 40;
+    private static final double GOLDEN = (Math.sqrt(5.) - 1.) / 2.;
+
+    private final double threshold;
+    private final double step;
+
+    /**
+     * Constructs a new ConjunctionScreener.
+     *
+     * @param threshold Largest miss distance reported (m)
+     * @param step      Time between two samples of the trajectories (s)
+     */
+    public ConjunctionScreener(double threshold, double step) {
+        this.threshold = threshold;
+        this.step = step;
+    }
+
+    /**
+     * Screens the trajectories for close approaches. An approach is reported once per pair, even if
+     * the two objects stay closer than the threshold over several samples.
+     *
+     * @param trajectories Trajectories to screen
+     * @return Conjunctions closer than the threshold, by time of closest approach
+     */
+    public List<Conjunction> screen(List<? extends TrajectoryView> trajectories) {
+        int n = trajectories.size();
+        // Index of the first sample of each trajectory, counted in output steps since the epoch
+        long[] offsets = new long[n];
+        long firstSample = Long.MAX_VALUE;
+        long lastSample = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            TrajectoryView trajectory = trajectories.get(i);
+            if (trajectory.size() > 0) {
+                offsets[i] = Math.round(trajectory.getTime(0) / step);
+                firstSample = Math.min(firstSample, offsets[i]);
+                lastSample = Math.max(lastSample, offsets[i] + trajectory.size() - 1);
+            }
+        }
+        if (firstSample >= lastSample) {
+            return new ArrayList<>();
+        }
+
+        // Screen the buckets in parallel, each one looks at its samples and at the first sample of the next one
+        final long first = firstSample;
+        final long last = lastSample;
+        int buckets = (int) ((last - first + BUCKET_SAMPLES - 1) / BUCKET_SAMPLES);
+        List<Encounter> encounters = IntStream.range(0, buckets).parallel()
+                .mapToObj(b -> screenBucket(trajectories, offsets, first + (long) b * BUCKET_SAMPLES,
+                        Math.min(first + (long) (b + 1) * BUCKET_SAMPLES, last)))
+                .flatMap(List::stream)
+                .sorted(Comparator.<Encounter>comparingInt(e -> e.first).thenComparingInt(e -> e.second)
+                        .thenComparingLong(e -> e.segment))
+                .collect(Collectors.toList());
+
+        // Merge the steps of a pair that follow each other into a single conjunction
+        List<Conjunction> conjunctions = new ArrayList<>();
+        Encounter closest = null;
+        long lastSegment = 0;
+        for (Encounter encounter : encounters) {
+            if (closest != null && (encounter.first != closest.first || encounter.second != closest.second
+                    || encounter.segment > lastSegment + 1)) {
+                conjunctions.add(new Conjunction(closest.first, closest.second, closest.time, closest.miss));
+                closest = null;
+            }
+            if (closest == null || encounter.miss < closest.miss) {
+                closest = encounter;
+            }
+            lastSegment = encounter.segment;
+        }
+        if (closest != null) {
+            conjunctions.add(new Conjunction(closest.first, closest.second, closest.time, closest.miss));
+        }
+        Collections.sort(conjunctions, Comparator.comparingDouble(Conjunction::getTime));
+        return conjunctions;
+    }
+
+    /**
+     * Screens the steps starting in a bucket of samples.
+     *
+     * @param trajectories Trajectories to screen
+     * @param offsets      Index of the first sample of each trajectory
+     * @param start        First sample of the bucket
+     * @param end          First sample of the next bucket
+     * @return Steps of the bucket on which two trajectories come closer than the threshold
+     */
+    private List<Encounter> screenBucket(List<? extends TrajectoryView> trajectories, long[] offsets, long start, long end) {
+        int n = trajectories.size();
+        // Earth-fixed positions from the sample before the bucket to the second sample after it,
+        // NaN where a trajectory has no sample
+        int count = (int) (end - start) + 3;
+        double[][] positions = new double[n][];
+        double[] point = new double[3];
+        double largestMotion = 0.;
+        for (int i = 0; i < n; i++) {
+            TrajectoryView trajectory = trajectories.get(i);
+            double[] xyz = null;
+            for (int l = 0; l < count; l++) {
+                long sample = start - 1 + l;
+                int s = (int) (sample - offsets[i]);
+                if (s < 0 || s >= trajectory.size() || Math.abs(trajectory.getTime(s) - sample * step) > 1e-3) {
+                    continue;
+                }
+                if (xyz == null) {
+                    xyz = new double[3 * count];
+                    Arrays.fill(xyz, Double.NaN);
+                }
+                EarthRotation.toEarthFixed(trajectory.getLatitude(s), trajectory.getLongitude(s), trajectory.getAltitude(s), point);
+                System.arraycopy(point, 0, xyz, 3 * l, 3);
+                if (l > 0 && !Double.isNaN(xyz[3 * l - 3])) {
+                    largestMotion = Math.max(largestMotion, distance(xyz, l - 1, xyz, l));
+                }
+            }
+            positions[i] = xyz;
+        }
+
+        // Two objects closer than the threshold between two samples are closer than this at one of them
+        double cellSize = threshold + largestMotion;
+        List<Encounter> encounters = new ArrayList<>();
+        HashMap<Long, Long> refined = new HashMap<>();
+        SpatialGrid grid = new SpatialGrid(n);
+        for (int l = 1; l < count - 1; l++) {
+            grid.clear();
+            for (int i = 0; i < n; i++) {
+                if (isValid(positions[i], l)) {
+                    grid.add(cellKey(positions[i], l, cellSize, 0, 0, 0), i);
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (!isValid(positions[i], l)) {
+                    continue;
+                }
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dz = -1; dz <= 1; dz++) {
+                            // Each pair of neighbouring cells is only visited from its lower cell
+                            int offset = 9 * dx + 3 * dy + dz;
+                            if (offset < 0) {
+                                continue;
+                            }
+                            for (int j = grid.first(cellKey(positions[i], l, cellSize, dx, dy, dz)); j >= 0; j = grid.next(j)) {
+                                if ((offset > 0 || j > i) && distance(positions[i], l, positions[j], l) <= cellSize) {
+                                    // Refine the steps before and after the sample, each one only once
+                                    int a = Math.min(i, j);
+                                    int b = Math.max(i, j);
+                                    Long previous = refined.put((long) a * n + b, (long) l);
+                                    if (previous == null || previous.longValue() != l - 1) {
+                                        refine(positions[a], positions[b], a, b, l - 1, start - 1, encounters);
+                                    }
+                                    refine(positions[a], positions[b], a, b, l, start - 1, encounters);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return encounters;
+    }
+
+    /**
+     * Finds the closest approach of two objects between two samples, and keeps it if it is closer
+     * than the threshold. The relative position is interpolated with a cubic Hermite spline whose
+     * tangents come from the neighbouring samples.
+     *
+     * @param a          Positions of the first object
+     * @param b          Positions of the second object
+     * @param first      Index of the first object
+     * @param second     Index of the second object
+     * @param l          Local index of the sample starting the step
+     * @param origin     Sample of local index 0
+     * @param encounters Receives the approach
+     */
+    private void refine(double[] a, double[] b, int first, int second, int l, long origin, List<Encounter> encounters) {
+        if (l < 0 || !isValid(a, l) || !isValid(a, l + 1) || !isValid(b, l) || !isValid(b, l + 1)) {
+            return;
+        }
+        double[] spline = new double[12];
+        for (int c = 0; c < 3; c++) {
+            double d0 = b[3 * l + c] - a[3 * l + c];
+            double d1 = b[3 * l + 3 + c] - a[3 * l + 3 + c];
+            // Use the chord as tangent at the ends of the trajectories
+            double before = isValid(a, l - 1) && isValid(b, l - 1) ? b[3 * l - 3 + c] - a[3 * l - 3 + c] : 2 * d0 - d1;
+            double after = isValid(a, l + 2) && isValid(b, l + 2) ? b[3 * l + 6 + c] - a[3 * l + 6 + c] : 2 * d1 - d0;
+            spline[4 * c] = d0;
+            spline[4 * c + 1] = d1;
+            spline[4 * c + 2] = (d1 - before) / 2.;
+            spline[4 * c + 3] = (after - d0) / 2.;
+        }
+
+        // Coarse search, then golden section search around the closest point
+        int best = 0;
+        for (int k = 1; k <= SEARCH_POINTS; k++) {
+            if (squaredNorm(spline, (double) k / SEARCH_POINTS) < squaredNorm(spline, (double) best / SEARCH_POINTS)) {
+                best = k;
+            }
+        }
+        double low = Math.max(0., (best - 1.) / SEARCH_POINTS);
+        double high = Math.min(1., (best + 1.) / SEARCH_POINTS);
+        for (int k = 0; k < REFINE_ITERATIONS; k++) {
+            double left = high - GOLDEN * (high - low);
+            double right = low + GOLDEN * (high - low);
+            if (squaredNorm(spline, left) < squaredNorm(spline, right)) {
+                high = right;
+            } else {
+                low = left;
+            }
+        }
+        double s = (low + high) / 2.;
+        double miss = Math.sqrt(squaredNorm(spline, s));
+        if (miss <= threshold) {
+            long segment = origin + l;
+            encounters.add(new Encounter(first, second, segment, (segment + s) * step, miss));
+        }
+    }
+
+    // Squared norm of the interpolated relative position, s being the fraction of the step
+    private static double squaredNorm(double[] spline, double s) {
+        double s2 = s * s;
+        double s3 = s2 * s;
+        double h00 = 2 * s3 - 3 * s2 + 1;
+        double h01 = -2 * s3 + 3 * s2;
+        double h10 = s3 - 2 * s2 + s;
+        double h11 = s3 - s2;
+        double sum = 0.;
+        for (int c = 0; c < 3; c++) {
+            double v = h00 * spline[4 * c] + h01 * spline[4 * c + 1] + h10 * spline[4 * c + 2] + h11 * spline[4 * c + 3];
+            sum += v * v;
+        }
+        return sum;
+    }
+
+    private static boolean isValid(double[] positions, int l) {
+        return positions != null && l >= 0 && 3 * l < positions.length && !Double.isNaN(positions[3 * l]);
+    }
+
+    private static double distance(double[] a, int la, double[] b, int lb) {
+        double dx = b[3 * lb] - a[3 * la];
+        double dy = b[3 * lb + 1] - a[3 * la + 1];
+        double dz = b[3 * lb + 2] - a[3 * la + 2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    // Key of the grid cell of a position, shifted by the given number of cells along each axis
+    private static long cellKey(double[] positions, int l, double cellSize, int dx, int dy, int dz) {
+        long x = (long) Math.floor(positions[3 * l] / cellSize) + dx;
+        long y = (long) Math.floor(positions[3 * l + 1] / cellSize) + dy;
+        long z = (long) Math.floor(positions[3 * l + 2] / cellSize) + dz;
+        return (x & 0x1FFFFF) << 42 | (y & 0x1FFFFF) << 21 | (z & 0x1FFFFF);
+    }
+
+    /**
+     * Hash table of the objects of each grid cell, held in primitive arrays so that filling it at
+     * each sample does not allocate anything. The objects of a cell are chained from the most
+     * recently added one.
+     */
+    private static class SpatialGrid {
+        private final long[] keys;
+        private final int[] heads;
+        private final int[] next;
+        private final int mask;
+        private final int shift;
+
+        SpatialGrid(int objects) {
+            // At most one slot in four is used, so that the probe sequences stay short
+            int capacity = Integer.highestOneBit(Math.max(objects, 1) * 4 - 1) << 1;
+            keys = new long[capacity];
+            heads = new int[capacity];
+            next = new int[objects];
+            mask = capacity - 1;
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+            clear();
+        }
+
+        void clear() {
+            Arrays.fill(heads, -1);
+        }
+
+        void add(long key, int object) {
+            int slot = slot(key);
+            if (heads[slot] < 0) {
+                keys[slot] = key;
+            }
+            next[object] = heads[slot];
+            heads[slot] = object;
+        }
+
+        // First object of a cell, -1 if the cell is empty
+        int first(long key) {
+            return heads[slot(key)];
+        }
+
+        // Next object of the same cell, -1 after the last one
+        int next(int object) {
+            return next[object];
+        }
+
+        // Slot of a cell, from the high bits of a multiplicative hash followed by linear probing
+        private int slot(long key) {
+            int slot = (int) (key * 0x9E3779B97F4A7C15L >>> shift);
+            while (heads[slot] >= 0 && keys[slot] != key) {
+                slot = slot + 1 & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Approach closer than the threshold on one step of a pair of trajectories.
+     */
+    private static class Encounter {
+        private final int first;
+        private final int second;
+        private final long segment;
+        private final double time;
+        private final double miss;
+
+        Encounter(int first, int second, long segment, double time, double miss) {
+            this.first = first;
+            this.second = second;
+            this.segment = segment;
+            this.time = time;
+            this.miss = miss;
+        }
+    }
+}
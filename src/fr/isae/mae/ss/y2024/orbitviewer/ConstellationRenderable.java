@@ -0,0 +1,557 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import gov.nasa.worldwind.avlist.AVKey;
+import gov.nasa.worldwind.avlist.AVListImpl;
+import gov.nasa.worldwind.cache.GpuResourceCache;
+import gov.nasa.worldwind.geom.Angle;
+import gov.nasa.worldwind.geom.Vec4;
+import gov.nasa.worldwind.globes.Globe;
+import gov.nasa.worldwind.pick.PickSupport;
+import gov.nasa.worldwind.render.DrawContext;
+import gov.nasa.worldwind.render.Renderable;
+import gov.nasa.worldwind.util.OGLStackHandler;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * ConstellationRenderable draws any number of orbits from a single vertex buffer. Each orbit has
+ * its own range of the buffer, holding the vertices of all its levels of detail along with one
+ * color per vertex, and the visible orbits are drawn with one multi-draw call per frame. Streamed
+ * orbits get ranges with room to grow, and only the vertices changed since the previous frame are
+ * uploaded, so the cost of a frame follows the new samples and not the size of the constellation.
+ * The buffer is compacted once the ranges no longer fit, leaving the ranges of the removed orbits
+ * and those outgrown behind. It only uses the fixed-function pipeline and vertex buffer objects
+ * (OpenGL 1.5), and falls back to client-side arrays when buffer objects are not available, so it
+ * also runs on software renderers such as Mesa.
+ * <p>
+ * While an orbit is streamed, only its most recent samples may be kept (see {@link TrailBuffer}), so
+ * that it shows a sliding window of its recent history. Each orbit is picked individually, and its
+ * name is shown as a tooltip. All methods are
+ * thread-safe; the orbits may be updated from any thread while the globe is drawn.
+ */
+public class ConstellationRenderable implements Renderable {
+    // Width of the orbit lines (pixels)
+    private static final float LINE_WIDTH = 2f;
+    // Smallest range reserved for a streamed orbit (vertices)
+    private static final int MIN_RANGE = 64;
+
+    /**
+     * One orbit of the constellation, also the object reported when the orbit is picked.
+     */
+    public static class Orbit extends AVListImpl {
+        private final Color color;
+        // Samples of the orbit, a trail while it is streamed
+        private TrajectoryView trajectory;
+        // Number of slots of the points, the points of the sample k being held in slot k % capacity
+        private int capacity = Integer.MAX_VALUE;
+        // Levels of detail, only known once the trajectory is complete
+        private TrajectoryLevels levels;
+        // Model coordinates of the samples, and number of samples already converted
+        private float[] points = new float[0];
+        private long converted;
+        // Range of the vertex buffer reserved for the orbit, first vertex and number of vertices
+        private int rangeFirst;
+        private int rangeCapacity;
+        // Vertices of the range changed since the last upload, relative to its first vertex
+        private int dirtyFrom = Integer.MAX_VALUE;
+        private int dirtyTo;
+        // Location of each level of detail in the range
+        private int[] levelFirst = new int[0];
+        private int[] levelCount = new int[0];
+
+        private Orbit(String name, Color color) {
+            this.color = color;
+            setValue(AVKey.DISPLAY_NAME, name);
+        }
+
+        public String getName() {
+            return getStringValue(AVKey.DISPLAY_NAME);
+        }
+
+        public Color getColor() {
+            return color;
+        }
+    }
+
+    private final ArrayList<Orbit> orbits = new ArrayList<>();
+    // Indices of the removed orbits, given to the next orbits added
+    private final ArrayDeque<Integer> freeIndices = new ArrayDeque<>();
+    private final Object vboKey = new Object();
+    private final PickSupport pickSupport = new PickSupport();
+    // Orbits drawn in the current frame, in the order of the draw ranges
+    private final ArrayList<Orbit> pickedOrbits = new ArrayList<>();
+
+    private Object globeStateKey;
+    private double verticalExaggeration;
+    // Vertices reserved by the ranges, from the start of the buffers
+    private int used;
+    // Whether the buffers must be uploaded whole, after being reallocated or compacted
+    private boolean vboDirty;
+    private FloatBuffer vertices = Buffers.newDirectFloatBuffer(0);
+    private ByteBuffer colors = Buffers.newDirectByteBuffer(0);
+    private IntBuffer drawFirst = Buffers.newDirectIntBuffer(0);
+    private IntBuffer drawCount = Buffers.newDirectIntBuffer(0);
+
+    /**
+     * Adds an orbit without any sample.
+     *
+     * @param name  Name of the orbit, shown as tooltip
+     * @param color Color of the orbit
+     * @return Index of the orbit
+     */
+    public int addOrbit(String name, Color color) {
+        return addOrbit(name, color, 0);
+    }
+
+    /**
+     * Adds an orbit without any sample, keeping only its most recent samples while it is streamed.
+     *
+     * @param name          Name of the orbit, shown as tooltip
+     * @param color         Color of the orbit
+     * @param trailCapacity Number of streamed samples kept, or 0 to keep them all
+     * @return Index of the orbit
+     */
+    public synchronized int addOrbit(String name, Color color, int trailCapacity) {
+        Orbit orbit = new Orbit(name, color);
+        orbit.capacity = trailCapacity > 0 ? trailCapacity : Integer.MAX_VALUE;
+        orbit.trajectory = new TrailBuffer(orbit.capacity);
+        Integer free = freeIndices.poll();
+        if (free != null) {
+            orbits.set(free, orbit);
+            return free;
+        }
+        orbits.add(orbit);
+        return orbits.size() - 1;
+    }
+
+    /**
+     * Appends samples to an orbit still being propagated.
+     *
+     * @param index Index of the orbit
+     * @param batch Samples to append
+     */
+    public synchronized void appendSamples(int index, TrajectoryView batch) {
+        Orbit orbit = orbits.get(index);
+        if (orbit == null || !(orbit.trajectory instanceof TrailBuffer)) {
+            return;
+        }
+        TrailBuffer trajectory = (TrailBuffer) orbit.trajectory;
+        for (int i = 0; i < batch.size(); i++) {
+            trajectory.add(batch.getTime(i), batch.getLatitude(i), batch.getLongitude(i), batch.getAltitude(i));
+        }
+    }
+
+    /**
+     * Replaces the samples of an orbit by its complete trajectory, displayed with levels of detail.
+     *
+     * @param index      Index of the orbit
+     * @param trajectory Complete trajectory of the orbit, which must not change afterwards
+     */
+    public void setTrajectory(int index, TrajectoryView trajectory) {
+        // The simplification is the expensive part, done before taking the lock
+        TrajectoryLevels levels = new TrajectoryLevels(trajectory);
+        synchronized (this) {
+            Orbit orbit = orbits.get(index);
+            if (orbit == null) {
+                return;
+            }
+            orbit.trajectory = trajectory;
+            orbit.levels = levels;
+            orbit.capacity = Integer.MAX_VALUE;
+            orbit.points = new float[0];
+            orbit.converted = 0;
+            orbit.levelFirst = new int[0];
+            orbit.levelCount = new int[0];
+        }
+    }
+
+    /**
+     * Removes an orbit. The indices of the other orbits do not change, and the index of the removed
+     * orbit is given to the next orbit added.
+     *
+     * @param index Index of the orbit
+     */
+    public synchronized void removeOrbit(int index) {
+        if (orbits.get(index) != null) {
+            orbits.set(index, null);
+            freeIndices.push(index);
+        }
+    }
+
+    /**
+     * Returns an orbit.
+     *
+     * @param index Index of the orbit
+     * @return The orbit, or null if it was removed
+     */
+    public synchronized Orbit getOrbit(int index) {
+        return orbits.get(index);
+    }
+
+    @Override
+    public synchronized void render(DrawContext dc) {
+        if (orbits.isEmpty()) {
+            return;
+        }
+        updateVertices(dc);
+        if (!selectLevels(dc)) {
+            return;
+        }
+
+        GL2 gl = dc.getGL().getGL2();
+        OGLStackHandler ogsh = new OGLStackHandler();
+        ogsh.pushAttrib(gl, GL2.GL_CURRENT_BIT | GL2.GL_LINE_BIT | GL2.GL_ENABLE_BIT | GL2.GL_DEPTH_BUFFER_BIT);
+        ogsh.pushClientAttrib(gl, GL2.GL_CLIENT_VERTEX_ARRAY_BIT);
+        dc.getView().pushReferenceCenter(dc, Vec4.ZERO);
+        try {
+            gl.glEnable(GL.GL_DEPTH_TEST);
+            gl.glLineWidth(LINE_WIDTH);
+            gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+
+            int[] vbo = dc.getGLRuntimeCapabilities().isUseVertexBufferObject() ? getVbo(dc, gl) : null;
+            if (vbo != null) {
+                gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vbo[0]);
+                gl.glVertexPointer(3, GL.GL_FLOAT, 0, 0);
+            } else {
+                gl.glVertexPointer(3, GL.GL_FLOAT, 0, vertices.rewind());
+            }
+
+            if (dc.isPickingMode()) {
+                pick(dc, gl);
+            } else {
+                gl.glEnableClientState(GL2.GL_COLOR_ARRAY);
+                if (vbo != null) {
+                    gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vbo[1]);
+                    gl.glColorPointer(3, GL.GL_UNSIGNED_BYTE, 0, 0);
+                } else {
+                    gl.glColorPointer(3, GL.GL_UNSIGNED_BYTE, 0, colors.rewind());
+                }
+                gl.glMultiDrawArrays(GL.GL_LINE_STRIP, drawFirst, drawCount, drawFirst.limit());
+            }
+            if (vbo != null) {
+                gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+            }
+        } finally {
+            dc.getView().popReferenceCenter(dc);
+            ogsh.pop(gl);
+        }
+    }
+
+    /**
+     * Draws every visible orbit in its own pick color and reports the orbit under the cursor.
+     */
+    private void pick(DrawContext dc, GL2 gl) {
+        pickSupport.clearPickList();
+        pickSupport.beginPicking(dc);
+        try {
+            for (int i = 0; i < drawFirst.limit(); i++) {
+                Orbit orbit = pickedOrbits.get(i);
+                Color pickColor = dc.getUniquePickColor();
+                pickSupport.addPickableObject(pickColor.getRGB(), orbit);
+                gl.glColor3ub((byte) pickColor.getRed(), (byte) pickColor.getGreen(), (byte) pickColor.getBlue());
+                gl.glDrawArrays(GL.GL_LINE_STRIP, drawFirst.get(i), drawCount.get(i));
+            }
+        } finally {
+            pickSupport.endPicking(dc);
+        }
+        pickSupport.resolvePick(dc, dc.getPickPoint(), dc.getCurrentLayer());
+    }
+
+    /**
+     * Converts the new samples to model coordinates and writes them to the ranges of their orbits,
+     * reserving larger ranges if needed.
+     */
+    private void updateVertices(DrawContext dc) {
+        Globe globe = dc.getGlobe();
+        Object stateKey = globe.getGlobeStateKey();
+        if (!stateKey.equals(globeStateKey) || dc.getVerticalExaggeration() != verticalExaggeration) {
+            // The shape of the globe changed, every point must be computed again
+            globeStateKey = stateKey;
+            verticalExaggeration = dc.getVerticalExaggeration();
+            for (Orbit orbit : orbits) {
+                if (orbit != null) {
+                    orbit.converted = 0;
+                }
+            }
+        }
+
+        for (Orbit orbit : orbits) {
+            if (orbit == null) {
+                continue;
+            }
+            int needed = verticesOf(orbit);
+            if (orbit.rangeCapacity < needed) {
+                reserve(orbit, needed);
+            }
+            convert(globe, orbit);
+        }
+    }
+
+    /**
+     * Returns the number of vertices of an orbit: the vertices of all its levels of detail, or the
+     * slots of its trail plus a copy of the first slot once the trail wraps around.
+     */
+    private static int verticesOf(Orbit orbit) {
+        if (orbit.levels != null) {
+            int total = 0;
+            for (int level = 0; level < orbit.levels.getLevelCount(); level++) {
+                total += orbit.levels.getIndices(level).length;
+            }
+            return total;
+        }
+        long count = countOf(orbit);
+        return count <= orbit.capacity ? (int) count : orbit.capacity + 1;
+    }
+
+    /**
+     * Reserves a new range for an orbit at the end of the buffers, or compacts the buffers if there
+     * is no room left, and writes the vertices already converted to it.
+     */
+    private void reserve(Orbit orbit, int needed) {
+        int capacity = needed;
+        if (orbit.levels == null) {
+            // Streamed orbits grow, the range is only reserved again after the headroom is used
+            long maxVertices = orbit.capacity == Integer.MAX_VALUE ? Integer.MAX_VALUE - 8 : orbit.capacity + 1L;
+            capacity = (int) Math.min(Math.max(needed + needed / 2, MIN_RANGE), maxVertices);
+        }
+        if (used + (long) capacity <= vertices.capacity() / 3) {
+            place(orbit, capacity);
+            return;
+        }
+
+        // The ranges of the removed orbits and the outgrown ranges are dropped
+        long live = capacity;
+        for (Orbit other : orbits) {
+            if (other != null && other != orbit) {
+                live += other.rangeCapacity;
+            }
+        }
+        if (2 * live > vertices.capacity() / 3) {
+            vertices = Buffers.newDirectFloatBuffer((int) (3 * 2 * live));
+            colors = Buffers.newDirectByteBuffer(vertices.capacity());
+        }
+        used = 0;
+        for (Orbit other : orbits) {
+            if (other != null) {
+                place(other, other == orbit ? capacity : other.rangeCapacity);
+            }
+        }
+        vboDirty = true;
+    }
+
+    /**
+     * Places the range of an orbit after the last range, then writes its colors and the vertices
+     * already converted.
+     */
+    private void place(Orbit orbit, int capacity) {
+        orbit.rangeFirst = used;
+        orbit.rangeCapacity = capacity;
+        used += capacity;
+        byte red = (byte) orbit.color.getRed();
+        byte green = (byte) orbit.color.getGreen();
+        byte blue = (byte) orbit.color.getBlue();
+        colors.position(3 * orbit.rangeFirst);
+        for (int i = 0; i < capacity; i++) {
+            colors.put(red).put(green).put(blue);
+        }
+        markDirty(orbit, 0, capacity);
+
+        if (orbit.levels != null) {
+            pack(orbit);
+        } else {
+            int size = (int) Math.min(orbit.converted, orbit.capacity);
+            putVertices(orbit, 0, 0, size);
+            if (orbit.converted > orbit.capacity) {
+                putVertices(orbit, orbit.capacity, 0, 1);
+            }
+        }
+    }
+
+    /**
+     * Converts the samples of an orbit not converted yet to model coordinates. The samples of a
+     * trail are written to their slot of the range as they are converted, the levels of detail of a
+     * complete trajectory once all its samples are converted.
+     */
+    private void convert(Globe globe, Orbit orbit) {
+        TrajectoryView trajectory = orbit.trajectory;
+        int size = trajectory.size();
+        long count = countOf(orbit);
+        if (orbit.converted == count) {
+            return;
+        }
+        if (orbit.points.length < 3 * size) {
+            orbit.points = Arrays.copyOf(orbit.points, Math.max(3 * size, (int) Math.min(3L * orbit.capacity, 2L * orbit.points.length)));
+        }
+        // Samples dropped from the trail before being converted are skipped
+        long first = count - size;
+        for (long k = Math.max(orbit.converted, first); k < count; k++) {
+            int i = (int) (k - first);
+            int slot = (int) (k % orbit.capacity);
+            Vec4 point = globe.computePointFromPosition(Angle.fromRadians(trajectory.getLatitude(i)),
+                    Angle.fromRadians(trajectory.getLongitude(i)), trajectory.getAltitude(i) * verticalExaggeration);
+            orbit.points[3 * slot] = (float) point.x;
+            orbit.points[3 * slot + 1] = (float) point.y;
+            orbit.points[3 * slot + 2] = (float) point.z;
+            if (orbit.levels == null) {
+                putVertices(orbit, slot, slot, 1);
+                if (slot == 0 && k > 0) {
+                    // The vertex after the last slot closes the ring
+                    putVertices(orbit, orbit.capacity, 0, 1);
+                }
+            }
+        }
+        orbit.converted = count;
+        if (orbit.levels != null) {
+            pack(orbit);
+        }
+    }
+
+    /**
+     * Returns the number of samples ever added to an orbit.
+     */
+    private static long countOf(Orbit orbit) {
+        return orbit.trajectory instanceof TrailBuffer ? ((TrailBuffer) orbit.trajectory).getCount() : orbit.trajectory.size();
+    }
+
+    /**
+     * Writes the levels of detail of a complete trajectory to the range of its orbit, once all its
+     * samples are converted.
+     */
+    private void pack(Orbit orbit) {
+        if (orbit.converted < orbit.trajectory.size()) {
+            return;
+        }
+        int levelCount = orbit.levels.getLevelCount();
+        orbit.levelFirst = new int[levelCount];
+        orbit.levelCount = new int[levelCount];
+        int vertex = 0;
+        for (int level = 0; level < levelCount; level++) {
+            int[] indices = orbit.levels.getIndices(level);
+            orbit.levelFirst[level] = vertex;
+            orbit.levelCount[level] = indices.length;
+            for (int i : indices) {
+                putVertices(orbit, vertex++, i, 1);
+            }
+        }
+    }
+
+    /**
+     * Copies points of an orbit to its range of the vertex buffer.
+     *
+     * @param vertex First vertex written, relative to the range
+     * @param point  First point copied
+     * @param count  Number of points
+     */
+    private void putVertices(Orbit orbit, int vertex, int point, int count) {
+        if (count == 0) {
+            return;
+        }
+        vertices.position(3 * (orbit.rangeFirst + vertex));
+        vertices.put(orbit.points, 3 * point, 3 * count);
+        markDirty(orbit, vertex, vertex + count);
+    }
+
+    private static void markDirty(Orbit orbit, int from, int to) {
+        orbit.dirtyFrom = Math.min(orbit.dirtyFrom, from);
+        orbit.dirtyTo = Math.max(orbit.dirtyTo, to);
+    }
+
+    /**
+     * Chooses the level of detail of each orbit for this frame. A trail which wraps around its
+     * range is drawn in two parts, from its oldest slot to the copy of the first slot, then from
+     * the first slot to its most recent one.
+     *
+     * @return true if there is anything to draw
+     */
+    private boolean selectLevels(DrawContext dc) {
+        if (drawFirst.capacity() < 2 * orbits.size()) {
+            drawFirst = Buffers.newDirectIntBuffer(orbits.size() * 4);
+            drawCount = Buffers.newDirectIntBuffer(orbits.size() * 4);
+        }
+        drawFirst.clear();
+        drawCount.clear();
+        pickedOrbits.clear();
+        for (Orbit orbit : orbits) {
+            if (orbit == null) {
+                continue;
+            }
+            if (orbit.levels != null) {
+                if (orbit.levelCount.length > 0) {
+                    int level = orbit.levels.levelFor(dc.getView());
+                    addDraw(orbit, orbit.levelFirst[level], orbit.levelCount[level]);
+                }
+            } else if (orbit.converted <= orbit.capacity) {
+                addDraw(orbit, 0, (int) orbit.converted);
+            } else {
+                int oldest = (int) (orbit.converted % orbit.capacity);
+                if (oldest == 0) {
+                    addDraw(orbit, 0, orbit.capacity);
+                } else {
+                    addDraw(orbit, oldest, orbit.capacity - oldest + 1);
+                    addDraw(orbit, 0, oldest);
+                }
+            }
+        }
+        drawFirst.flip();
+        drawCount.flip();
+        return drawFirst.limit() > 0;
+    }
+
+    private void addDraw(Orbit orbit, int vertex, int count) {
+        if (count < 2) {
+            return;
+        }
+        drawFirst.put(orbit.rangeFirst + vertex);
+        drawCount.put(count);
+        pickedOrbits.add(orbit);
+    }
+
+    /**
+     * Returns the vertex and color buffer objects, uploading the vertices changed since the last
+     * frame, or the whole buffers if they were reallocated or compacted. The buffers are kept in
+     * the GPU resource cache of the globe, which releases them.
+     */
+    private int[] getVbo(DrawContext dc, GL2 gl) {
+        GpuResourceCache cache = dc.getGpuResourceCache();
+        int[] vbo = (int[]) cache.get(vboKey);
+        if (vbo == null) {
+            vbo = new int[2];
+            gl.glGenBuffers(2, vbo, 0);
+            vboDirty = true;
+        }
+        if (vboDirty) {
+            gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vbo[0]);
+            gl.glBufferData(GL.GL_ARRAY_BUFFER, 4L * vertices.capacity(), vertices.rewind(), GL.GL_DYNAMIC_DRAW);
+            gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vbo[1]);
+            gl.glBufferData(GL.GL_ARRAY_BUFFER, colors.capacity(), colors.rewind(), GL.GL_DYNAMIC_DRAW);
+            cache.put(vboKey, vbo, GpuResourceCache.VBO_BUFFERS, 4L * vertices.capacity() + colors.capacity());
+        }
+        for (Orbit orbit : orbits) {
+            if (orbit == null || orbit.dirtyFrom >= orbit.dirtyTo) {
+                continue;
+            }
+            if (!vboDirty) {
+                int first = orbit.rangeFirst + orbit.dirtyFrom;
+                int count = orbit.dirtyTo - orbit.dirtyFrom;
+                gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vbo[0]);
+                gl.glBufferSubData(GL.GL_ARRAY_BUFFER, 12L * first, 12L * count, vertices.position(3 * first));
+                gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vbo[1]);
+                gl.glBufferSubData(GL.GL_ARRAY_BUFFER, 3L * first, 3L * count, colors.position(3 * first));
+            }
+            orbit.dirtyFrom = Integer.MAX_VALUE;
+            orbit.dirtyTo = 0;
+        }
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+        vboDirty = false;
+        return vbo;
+    }
+}
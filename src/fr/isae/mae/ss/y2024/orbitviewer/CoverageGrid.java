@@ -0,0 +1,400 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * CoverageGrid measures how a constellation covers the Earth. The Earth is divided into cells of
+ * equal latitude and longitude steps; a cell is seen by a satellite when its center lies in the
+ * footprint of a nadir pointing conical sensor, on a spherical Earth. For each cell the grid counts
+ * the passes over it (revisits) and the longest time without any satellite seeing it (maximum
+ * revisit gap, including the gaps at the start and at the end of the analysis).
+ * <p>
+ * The sub-satellite tracks are swept in time order, block of samples by block of samples. The
+ * footprints of a block are computed once, then latitude bands of the grid are updated in parallel:
+ * each band only writes its own cells, so the updates need neither locks nor allocations. The grid
+ * holds three ints per cell, whatever the number of satellites and the length of the span, and the
+ * tracks may be memory mapped from an ephemeris file.
+ * <p>
+ * The tracks must be sampled at multiples of the same output step since the same epoch. Sensors
+ * whose footprint is small compared to the distance flown in one step may miss cells between two
+ * samples.
+ */
+public class CoverageGrid {
+    // Radius of the spherical Earth (m)
+    private static final double EARTH_RADIUS = 6378137.;
+    // Budget of footprints computed per block, bounding the memory of the sweep
+    private static final int BLOCK_FOOTPRINTS = 1 << 18;
+    private static final int MAX_BLOCK_SAMPLES = 256;
+    // Largest side of the images, in pixels, so that fine grids still fit in a texture
+    private static final int MAX_IMAGE_SIZE = 4096;
+    // Bytes held per cell, and share of the heap the grids may take
+    private static final int CELL_BYTES = 3 * Integer.BYTES;
+    private static final double HEAP_SHARE = 0.5;
+
+    private final double cellDegrees;
+    private final int rows;
+    private final int columns;
+    // Sine and cosine of the latitude of the cell centers, by row
+    private final double[] sinLatitudes;
+    private final double[] cosLatitudes;
+    // Number of passes, last sample seeing the cell (-1 if never seen) and longest gap (samples), by cell
+    private final int[] revisits;
+    private final int[] lastSeen;
+    private final int[] maxGaps;
+    private double step;
+    private long samples;
+
+    /**
+     * Returns the smallest cell size of grids fitting in memory.
+     *
+     * @param grids Number of grids held at the same time
+     * @return Size of the cells (°), the grids taking at most half the maximum heap
+     */
+    public static double getMinCellDegrees(int grids) {
+        double cells = HEAP_SHARE * Runtime.getRuntime().maxMemory() / ((double) CELL_BYTES * grids);
+        return Math.sqrt(180. * 360. / cells);
+    }
+
+    /**
+     * Constructs an empty CoverageGrid.
+     *
+     * @param cellDegrees Size of the cells in latitude and longitude (°)
+     * @throws IllegalArgumentException if the grid does not fit in memory
+     */
+    public CoverageGrid(double cellDegrees) {
+        if (!(cellDegrees >= getMinCellDegrees(1))) {
+            throw new IllegalArgumentException(String.format("cells of %s° do not fit in memory, the smallest is %.3f°",
+                    cellDegrees, getMinCellDegrees(1)));
+        }
+        this.cellDegrees = cellDegrees;
+        this.rows = (int) Math.ceil(180. / cellDegrees);
+        this.columns = (int) Math.ceil(360. / cellDegrees);
+        sinLatitudes = new double[rows];
+        cosLatitudes = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            double latitude = Math.toRadians(Math.min(90., -90. + (row + 0.5) * cellDegrees));
+            sinLatitudes[row] = Math.sin(latitude);
+            cosLatitudes[row] = Math.cos(latitude);
+        }
+        revisits = new int[rows * columns];
+        lastSeen = new int[rows * columns];
+        maxGaps = new int[rows * columns];
+    }
+
+    /**
+     * Computes the coverage of a constellation, replacing the previous result.
+     *
+     * @param tracks    Sub-satellite tracks of the satellites
+     * @param step      Time between two samples of the tracks (s)
+     * @param halfAngle Half-angle of the sensor cone, from nadir (rad)
+     */
+    public void accumulate(List<? extends TrajectoryView> tracks, double step, double halfAngle) {
+        this.step = step;
+        Arrays.fill(revisits, 0);
+        Arrays.fill(lastSeen, -1);
+        Arrays.fill(maxGaps, 0);
+        int n = tracks.size();
+
+        // Index of the first sample of each track, counted in output steps since the epoch
+        long[] offsets = new long[n];
+        long firstSample = Long.MAX_VALUE;
+        long lastSample = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            TrajectoryView track = tracks.get(i);
+            if (track.size() > 0) {
+                offsets[i] = Math.round(track.getTime(0) / step);
+                firstSample = Math.min(firstSample, offsets[i]);
+                lastSample = Math.max(lastSample, offsets[i] + track.size() - 1);
+            }
+        }
+        if (firstSample > lastSample) {
+            samples = 0;
+            return;
+        }
+        samples = lastSample - firstSample + 1;
+
+        // Footprints of a block: latitude range, sub-satellite point and cosine of the footprint radius
+        int blockSamples = Math.max(1, Math.min(MAX_BLOCK_SAMPLES, BLOCK_FOOTPRINTS / Math.max(1, n)));
+        int footprints = blockSamples * n;
+        double[] minLatitudes = new double[footprints];
+        double[] maxLatitudes = new double[footprints];
+        double[] sinLats = new double[footprints];
+        double[] cosLats = new double[footprints];
+        double[] longitudes = new double[footprints];
+        double[] cosRadii = new double[footprints];
+        double sinHalfAngle = Math.sin(halfAngle);
+        int bands = Math.min(rows, 8 * Runtime.getRuntime().availableProcessors());
+
+        for (long blockStart = firstSample; blockStart <= lastSample; blockStart += blockSamples) {
+            final long start = blockStart;
+            final int startIndex = (int) (blockStart - firstSample);
+            final int count = (int) Math.min(blockSamples, lastSample - blockStart + 1);
+            IntStream.range(0, n).parallel().forEach(i -> {
+                TrajectoryView track = tracks.get(i);
+                for (int k = 0; k < count; k++) {
+                    int f = k * n + i;
+                    long sample = start + k - offsets[i];
+                    if (sample < 0 || sample >= track.size()) {
+                        minLatitudes[f] = Double.NaN;
+                        continue;
+                    }
+                    int s = (int) sample;
+                    double latitude = track.getLatitude(s);
+                    double radius = footprintRadius(track.getAltitude(s), sinHalfAngle, halfAngle);
+                    minLatitudes[f] = latitude - radius;
+                    maxLatitudes[f] = latitude + radius;
+                    sinLats[f] = Math.sin(latitude);
+                    cosLats[f] = Math.cos(latitude);
+                    longitudes[f] = track.getLongitude(s);
+                    cosRadii[f] = Math.cos(radius);
+                }
+            });
+            IntStream.range(0, bands).parallel().forEach(band -> {
+                int firstRow = (int) ((long) rows * band / bands);
+                int endRow = (int) ((long) rows * (band + 1) / bands);
+                double bandMin = Math.toRadians(-90. + firstRow * cellDegrees);
+                double bandMax = Math.toRadians(-90. + endRow * cellDegrees);
+                for (int k = 0; k < count; k++) {
+                    int sampleIndex = startIndex + k;
+                    for (int f = k * n; f < (k + 1) * n; f++) {
+                        // NaN latitudes, samples out of their track, fail both comparisons
+                        if (!(minLatitudes[f] < bandMax && maxLatitudes[f] > bandMin)) {
+                            continue;
+                        }
+                        int fromRow = Math.max(firstRow, (int) Math.floor((Math.toDegrees(minLatitudes[f]) + 90.) / cellDegrees));
+                        int toRow = Math.min(endRow - 1, (int) Math.floor((Math.toDegrees(maxLatitudes[f]) + 90.) / cellDegrees));
+                        for (int row = fromRow; row <= toRow; row++) {
+                            markRow(row, f, sinLats, cosLats, longitudes, cosRadii, sampleIndex);
+                        }
+                    }
+                }
+            });
+        }
+
+        // Gaps running until the end of the analysis, and cells never seen
+        int end = (int) (samples - 1);
+        for (int c = 0; c < lastSeen.length; c++) {
+            maxGaps[c] = Math.max(maxGaps[c], lastSeen[c] < 0 ? end : end - lastSeen[c]);
+        }
+    }
+
+    /**
+     * Marks the cells of a row within a footprint.
+     */
+    private void markRow(int row, int f, double[] sinLats, double[] cosLats, double[] longitudes, double[] cosRadii, int sample) {
+        // The cells of the row within the footprint span a longitude interval centered on the satellite
+        double denominator = cosLatitudes[row] * cosLats[f];
+        double halfWidth;
+        if (denominator < 1e-12) {
+            halfWidth = Math.PI;
+        } else {
+            double cosWidth = (cosRadii[f] - sinLatitudes[row] * sinLats[f]) / denominator;
+            if (cosWidth > 1.) {
+                return;
+            }
+            halfWidth = cosWidth <= -1. ? Math.PI : Math.acos(cosWidth);
+        }
+        int first;
+        int last;
+        if (halfWidth >= Math.PI) {
+            first = 0;
+            last = columns - 1;
+        } else {
+            double center = (Math.toDegrees(longitudes[f]) + 180.) / cellDegrees - 0.5;
+            double width = Math.toDegrees(halfWidth) / cellDegrees;
+            first = (int) Math.ceil(center - width);
+            last = (int) Math.floor(center + width);
+            if (last - first + 1 >= columns) {
+                first = 0;
+                last = columns - 1;
+            }
+        }
+        int base = row * columns;
+        for (int column = first; column <= last; column++) {
+            int cell = base + Math.floorMod(column, columns);
+            int seen = lastSeen[cell];
+            if (seen == sample) {
+                // Already seen by another satellite at this sample
+                continue;
+            }
+            if (seen < 0 || seen != sample - 1) {
+                // New pass, after a gap since the previous one or since the start
+                revisits[cell]++;
+                maxGaps[cell] = Math.max(maxGaps[cell], seen < 0 ? sample : sample - seen);
+            }
+            lastSeen[cell] = sample;
+        }
+    }
+
+    /**
+     * Returns the Earth central angle between the sub-satellite point and the edge of the footprint.
+     *
+     * @param altitude     Altitude of the satellite (m)
+     * @param sinHalfAngle Sine of the half-angle of the sensor
+     * @param halfAngle    Half-angle of the sensor (rad)
+     * @return Radius of the footprint (rad), limited by the horizon
+     */
+    static double footprintRadius(double altitude, double sinHalfAngle, double halfAngle) {
+        double ratio = (EARTH_RADIUS + Math.max(altitude, 0.)) / EARTH_RADIUS;
+        double cosElevation = ratio * sinHalfAngle;
+        if (cosElevation >= 1.) {
+            return Math.acos(1. / ratio);
+        }
+        return Math.PI / 2. - halfAngle - Math.acos(cosElevation);
+    }
+
+    public double getCellDegrees() {
+        return cellDegrees;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of passes over a cell.
+     *
+     * @param row    Row of the cell, from the south pole
+     * @param column Column of the cell, from the antimeridian eastwards
+     * @return Number of passes
+     */
+    public int getRevisits(int row, int column) {
+        return revisits[row * columns + column];
+    }
+
+    /**
+     * Returns the longest time a cell is not seen.
+     *
+     * @param row    Row of the cell, from the south pole
+     * @param column Column of the cell, from the antimeridian eastwards
+     * @return Longest revisit gap, the whole analysis span if the cell is never seen (s)
+     */
+    public double getMaxGap(int row, int column) {
+        return maxGaps[row * columns + column] * step;
+    }
+
+    /**
+     * Returns the span of the last analysis.
+     *
+     * @return Time between the first and the last sample (s)
+     */
+    public double getSpan() {
+        return Math.max(0, samples - 1) * step;
+    }
+
+    /**
+     * Returns the fraction of the Earth surface seen at least once, the cells weighted by their area.
+     *
+     * @return Covered fraction, between 0 and 1
+     */
+    public double getCoveredFraction() {
+        double covered = 0.;
+        double total = 0.;
+        for (int row = 0; row < rows; row++) {
+            int seen = 0;
+            for (int column = 0; column < columns; column++) {
+                if (revisits[row * columns + column] > 0) {
+                    seen++;
+                }
+            }
+            covered += seen * cosLatitudes[row];
+            total += columns * cosLatitudes[row];
+        }
+        return covered / total;
+    }
+
+    /**
+     * Draws the number of revisits as an image covering the whole globe, north up. Cells never seen
+     * are transparent, the others go from blue to red with the number of passes.
+     *
+     * @return Image of the revisits
+     */
+    public BufferedImage toRevisitImage() {
+        int max = 1;
+        for (int count : revisits) {
+            max = Math.max(max, count);
+        }
+        double scale = Math.log1p(max);
+        BufferedImage image = newImage();
+        for (int y = 0; y < image.getHeight(); y++) {
+            int row = rows - 1 - y * rows / image.getHeight();
+            for (int x = 0; x < image.getWidth(); x++) {
+                int count = revisits[row * columns + x * columns / image.getWidth()];
+                if (count > 0) {
+                    image.setRGB(x, y, color((float) (Math.log1p(count) / scale)));
+                }
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Draws the maximum revisit gaps as an image covering the whole globe, north up. Cells never seen
+     * are transparent, the others go from blue for short gaps to red for gaps as long as the span.
+     *
+     * @return Image of the gaps
+     */
+    public BufferedImage toGapImage() {
+        double span = Math.max(1, samples - 1);
+        BufferedImage image = newImage();
+        for (int y = 0; y < image.getHeight(); y++) {
+            int row = rows - 1 - y * rows / image.getHeight();
+            for (int x = 0; x < image.getWidth(); x++) {
+                int cell = row * columns + x * columns / image.getWidth();
+                if (revisits[cell] > 0) {
+                    image.setRGB(x, y, color((float) (maxGaps[cell] / span)));
+                }
+            }
+        }
+        return image;
+    }
+
+    private BufferedImage newImage() {
+        int width = Math.min(columns, MAX_IMAGE_SIZE);
+        int height = Math.max(1, (int) ((long) rows * width / columns));
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private static int color(float level) {
+        Color color = Color.getHSBColor(0.66f * (1f - level), 1f, 1f);
+        return 0xB0 << 24 | color.getRGB() & 0xFFFFFF;
+    }
+
+    /**
+     * Writes the grid as CSV: latitude and longitude of the cell center (°), revisits, maximum gap (s).
+     *
+     * @param file File to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCsv(File file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write("latitude,longitude,revisits,maxGap\n");
+            StringBuilder line = new StringBuilder(64);
+            for (int row = 0; row < rows; row++) {
+                double latitude = -90. + (row + 0.5) * cellDegrees;
+                for (int column = 0; column < columns; column++) {
+                    int cell = row * columns + column;
+                    line.setLength(0);
+                    line.append(latitude).append(',')
+                            .append(-180. + (column + 0.5) * cellDegrees).append(',')
+                            .append(revisits[cell]).append(',')
+                            .append(maxGaps[cell] * step).append('\n');
+                    out.append(line);
+                }
+            }
+        }
+    }
+}
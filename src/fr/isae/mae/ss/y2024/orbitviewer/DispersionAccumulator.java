@@ -0,0 +1,164 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * DispersionAccumulator aggregates the trajectories of a Monte Carlo dispersion as they are
+ * propagated, so that none of them has to be kept. It holds a density grid counting the samples
+ * falling in each latitude/longitude cell, and the mean Earth-fixed position and spread of the
+ * trajectories at each output step (Welford's running mean and variance). Its memory only depends
+ * on the grid and on the propagation span, not on the number of trajectories.
+ * <p>
+ * The trajectories must be sampled at multiples of the output step since the epoch. All methods
+ * are thread-safe, so the trajectories may be added from the propagation threads.
+ */
+public class DispersionAccumulator {
+    // Size of the cells of the density grid (°)
+    private static final double CELL_DEGREES = 0.5;
+    private static final int COLUMNS = (int) (360 / CELL_DEGREES);
+    private static final int ROWS = (int) (180 / CELL_DEGREES);
+
+    private final double step;
+    private final int[] density = new int[COLUMNS * ROWS];
+    private int maxDensity;
+    private int trajectories;
+    // Number of trajectories, mean Earth-fixed position and sum of the squared distances to the mean, per output step
+    private long[] counts = new long[0];
+    private double[] means = new double[0];
+    private double[] squares = new double[0];
+    private final double[] point = new double[3];
+
+    /**
+     * Constructs an empty DispersionAccumulator.
+     *
+     * @param step Time between two samples of the trajectories (s)
+     */
+    public DispersionAccumulator(double step) {
+        this.step = step;
+    }
+
+    /**
+     * Adds the samples of a trajectory.
+     *
+     * @param trajectory Trajectory of one perturbed orbit
+     */
+    public synchronized void add(TrajectoryView trajectory) {
+        for (int i = 0; i < trajectory.size(); i++) {
+            // Density of the ground track
+            double latitude = Math.toDegrees(trajectory.getLatitude(i));
+            double longitude = Math.toDegrees(trajectory.getLongitude(i));
+            int row = Math.min(ROWS - 1, Math.max(0, (int) ((latitude + 90.) / CELL_DEGREES)));
+            int column = Math.floorMod((int) Math.floor((longitude + 180.) / CELL_DEGREES), COLUMNS);
+            maxDensity = Math.max(maxDensity, ++density[row * COLUMNS + column]);
+
+            // Running mean and spread of the positions of this step
+            int k = (int) Math.round(trajectory.getTime(i) / step);
+            if (k < 0 || Math.abs(trajectory.getTime(i) - k * step) > 1e-3) {
+                continue;
+            }
+            if (k >= counts.length) {
+                grow(Math.max(k + 1, counts.length * 2));
+            }
+            EarthRotation.toEarthFixed(trajectory.getLatitude(i), trajectory.getLongitude(i), trajectory.getAltitude(i), point);
+            long n = ++counts[k];
+            double distance2 = 0.;
+            for (int c = 0; c < 3; c++) {
+                double delta = point[c] - means[3 * k + c];
+                means[3 * k + c] += delta / n;
+                distance2 += delta * (point[c] - means[3 * k + c]);
+            }
+            squares[k] += distance2;
+        }
+        trajectories++;
+    }
+
+    /**
+     * Returns the number of trajectories added.
+     *
+     * @return Number of trajectories
+     */
+    public synchronized int getTrajectoryCount() {
+        return trajectories;
+    }
+
+    /**
+     * Returns the root mean square distance of the positions to their mean at an output step.
+     *
+     * @param k Index of the output step
+     * @return Spread of the positions, 0 if there is no position at this step (m)
+     */
+    public synchronized double getSpread(int k) {
+        return k < counts.length && counts[k] > 0 ? Math.sqrt(squares[k] / counts[k]) : 0.;
+    }
+
+    /**
+     * Returns the largest spread of the positions over the propagation span.
+     *
+     * @return Largest root mean square distance of the positions to their mean (m)
+     */
+    public synchronized double getMaxSpread() {
+        double max = 0.;
+        for (int k = 0; k < counts.length; k++) {
+            max = Math.max(max, getSpread(k));
+        }
+        return max;
+    }
+
+    /**
+     * Returns the mean trajectory of the dispersion, with one sample per output step reached by
+     * at least one trajectory.
+     *
+     * @return Mean trajectory
+     */
+    public synchronized Trajectory getMeanTrajectory() {
+        Trajectory mean = new Trajectory(counts.length);
+        double[] geodetic = new double[3];
+        for (int k = 0; k < counts.length; k++) {
+            if (counts[k] > 0) {
+                EarthRotation.fromEarthFixed(means[3 * k], means[3 * k + 1], means[3 * k + 2], geodetic);
+                mean.add(k * step, geodetic[0], geodetic[1], geodetic[2]);
+            }
+        }
+        return mean;
+    }
+
+    /**
+     * Draws the density grid as an image covering the whole globe, north up. Empty cells are
+     * transparent, the others go from blue to red on a logarithmic scale.
+     *
+     * @return Image of {@code 360 / 0.5} by {@code 180 / 0.5} pixels
+     */
+    public synchronized BufferedImage toDensityImage() {
+        BufferedImage image = new BufferedImage(COLUMNS, ROWS, BufferedImage.TYPE_INT_ARGB);
+        double scale = Math.log1p(maxDensity);
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                int count = density[row * COLUMNS + column];
+                if (count > 0) {
+                    float level = (float) (Math.log1p(count) / scale);
+                    Color color = Color.getHSBColor(0.66f * (1f - level), 1f, 1f);
+                    int alpha = (int) (255 * (0.3 + 0.5 * level));
+                    image.setRGB(column, ROWS - 1 - row, alpha << 24 | color.getRGB() & 0xFFFFFF);
+                }
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Returns the memory retained by the accumulator.
+     *
+     * @return Size of the density grid and of the statistics of the output steps (bytes)
+     */
+    public synchronized long getRetainedBytes() {
+        return 4L * density.length + 5L * 8L * counts.length;
+    }
+
+    private void grow(int steps) {
+        counts = Arrays.copyOf(counts, steps);
+        means = Arrays.copyOf(means, 3 * steps);
+        squares = Arrays.copyOf(squares, steps);
+    }
+}
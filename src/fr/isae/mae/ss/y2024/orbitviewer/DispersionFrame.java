@@ -0,0 +1,109 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+/**
+ * Represents a frame for entering the injection errors of an orbit and running its Monte Carlo
+ * dispersion.
+ */
+@SuppressWarnings("serial")
+public class DispersionFrame extends JFrame implements ActionListener {
+    private GUI parentFrame;
+    private OrbitElements nominal;
+    private JTextField semiMajorAxisField, eccentricityField, inclinationField, raanField, meanAnomalyField, argPerigeeField, samplesField;
+    private JButton runButton;
+
+    /**
+     * Constructor for the DispersionFrame class.
+     * @param parentFrame The parent GUI frame.
+     * @param nominal     The elements of the orbit to disperse.
+     * @param previous    The last errors entered for this orbit, or null.
+     */
+    public DispersionFrame(GUI parentFrame, OrbitElements nominal, OrbitDispersion previous) {
+        super("Dispersion of " + nominal.getName());
+        this.parentFrame = parentFrame;
+        this.nominal = nominal;
+        setSize(400, 300);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(null);
+
+        // Create input panel with grid layout
+        JPanel inputPanel = new JPanel(new GridLayout(8, 2));
+        inputPanel.setBorder(new EmptyBorder(20, 20, 20, 20)); // Add margins
+
+        // Initialize text fields with the last errors, or with a typical launcher injection
+        if (previous == null) {
+            previous = new OrbitDispersion(1000., 1e-4, Math.toRadians(0.01), Math.toRadians(0.01), Math.toRadians(0.05),
+                    Math.toRadians(0.05));
+        }
+        semiMajorAxisField = new JTextField(String.valueOf(previous.getSma() / 1000.));
+        eccentricityField = new JTextField(String.valueOf(previous.getEcc()));
+        inclinationField = new JTextField(String.valueOf(Math.toDegrees(previous.getInc())));
+        raanField = new JTextField(String.valueOf(Math.toDegrees(previous.getRaan())));
+        meanAnomalyField = new JTextField(String.valueOf(Math.toDegrees(previous.getAnm())));
+        argPerigeeField = new JTextField(String.valueOf(Math.toDegrees(previous.getPa())));
+        samplesField = new JTextField("500");
+
+        // Add labels and text fields to the input panel
+        inputPanel.add(new JLabel("Sigma Semi-major Axis (km):"));
+        inputPanel.add(semiMajorAxisField);
+        inputPanel.add(new JLabel("Sigma Eccentricity:"));
+        inputPanel.add(eccentricityField);
+        inputPanel.add(new JLabel("Sigma Inclination (°):"));
+        inputPanel.add(inclinationField);
+        inputPanel.add(new JLabel("Sigma RAAN (°):"));
+        inputPanel.add(raanField);
+        inputPanel.add(new JLabel("Sigma Mean Anomaly (°):"));
+        inputPanel.add(meanAnomalyField);
+        inputPanel.add(new JLabel("Sigma Argument of Perigee (°):"));
+        inputPanel.add(argPerigeeField);
+        inputPanel.add(new JLabel("Samples:"));
+        inputPanel.add(samplesField);
+
+        // Add run button to the input panel
+        runButton = new JButton("Run");
+        runButton.addActionListener(this);
+        inputPanel.add(runButton);
+
+        add(inputPanel);
+        setVisible(true);
+    }
+
+    /**
+     * Invoked when the run button is clicked.
+     *
+     * @param e The action event
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (e.getSource() == runButton) {
+            OrbitDispersion dispersion;
+            int samples;
+            try {
+                dispersion = new OrbitDispersion(Double.parseDouble(semiMajorAxisField.getText()) * 1000, // Convert kilometers to meters
+                        Double.parseDouble(eccentricityField.getText()),
+                        Math.toRadians(Double.parseDouble(inclinationField.getText())),
+                        Math.toRadians(Double.parseDouble(raanField.getText())),
+                        Math.toRadians(Double.parseDouble(meanAnomalyField.getText())),
+                        Math.toRadians(Double.parseDouble(argPerigeeField.getText())));
+                samples = Integer.parseInt(samplesField.getText());
+                if (samples <= 0) {
+                    throw new NumberFormatException();
+                }
+            } catch (NumberFormatException ex) {
+                // Show error message if a field is not a number
+                JOptionPane.showMessageDialog(this, "Invalid dispersion parameters.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            // Close the input frame and run the dispersion in the viewer
+            dispose();
+            parentFrame.runDispersion(nominal, dispersion, samples);
+        }
+    }
+}
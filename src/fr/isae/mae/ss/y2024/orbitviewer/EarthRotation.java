@@ -0,0 +1,132 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import fr.cnes.sirius.patrius.time.AbsoluteDate;
+import fr.cnes.sirius.patrius.utils.Constants;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * EarthRotation converts inertial (GCRF) positions to geodetic coordinates on the rotating Earth
+ * without walking the PATRIUS frame tree at each step. The rotation of the Earth is given by the
+ * Earth Rotation Angle (IERS 2003), which is linear in UT1: the angle at the epoch of a propagation
+ * is computed once, and the angle at any time of the propagation then costs one multiply-add.
+ * Precession, nutation and polar motion are neglected: they move the ground tracks by less than
+ * 0.1 degree between 2000 and 2030.
+ * <p>
+ * Instances are immutable and shared by all the orbits and threads propagated from the same epoch.
+ */
+public final class EarthRotation {
+    // Rotation rate of the Earth relative to the celestial intermediate origin (rad/s)
+    static final double RATE = 2 * Math.PI * 1.00273781191135448 / 86400.;
+    // TT - UT1 used to place the epochs in UT1: 32.184 s plus TAI - UTC at the date of the orbits, DUT1
+    // neglected (s). The leap seconds since then, for the epochs of recent element sets, turn the Earth by
+    // less than 0.02 degree
+    private static final double TT_MINUS_UT1 = 32.184 + Orbiter.TAI_MINUS_UTC;
+
+    // WGS84 ellipsoid
+    private static final double A = Constants.WGS84_EARTH_EQUATORIAL_RADIUS;
+    private static final double F = Constants.WGS84_EARTH_FLATTENING;
+    private static final double B = A * (1. - F);
+    private static final double E2 = F * (2. - F);
+    private static final double EP2 = E2 / (1. - E2);
+
+    private static final Map<AbsoluteDate, EarthRotation> INSTANCES = new ConcurrentHashMap<>();
+
+    private final double angleAtEpoch;
+
+    private EarthRotation(double angleAtEpoch) {
+        this.angleAtEpoch = angleAtEpoch;
+    }
+
+    /**
+     * Returns the Earth rotation of a propagation epoch, computed on first use only.
+     *
+     * @param epoch Epoch of the propagation
+     * @return The shared Earth rotation of this epoch
+     */
+    public static EarthRotation forEpoch(AbsoluteDate epoch) {
+        return INSTANCES.computeIfAbsent(epoch, date -> {
+            // Days of UT1 since J2000.0
+            double days = (date.durationFrom(AbsoluteDate.J2000_EPOCH) - TT_MINUS_UT1) / 86400.;
+            double turns = 0.7790572732640 + 0.00273781191135448 * days + days;
+            return new EarthRotation(2 * Math.PI * (turns - Math.floor(turns)));
+        });
+    }
+
+    /**
+     * Returns the Earth Rotation Angle.
+     *
+     * @param time Time since the epoch (s)
+     * @return Angle between the Greenwich meridian and the GCRF X axis (rad)
+     */
+    public double angleAt(double time) {
+        return angleAtEpoch + RATE * time;
+    }
+
+    /**
+     * Converts a GCRF position to geodetic coordinates on the WGS84 ellipsoid.
+     *
+     * @param time Time since the epoch (s)
+     * @param x    GCRF X coordinate (m)
+     * @param y    GCRF Y coordinate (m)
+     * @param z    GCRF Z coordinate (m)
+     * @param out  Receives the latitude (rad), the longitude in [-PI, PI] (rad) and the altitude (m)
+     */
+    public void toGeodetic(double time, double x, double y, double z, double[] out) {
+        // Longitude of the position on the rotating Earth
+        double longitude = Math.IEEEremainder(Math.atan2(y, x) - angleAt(time), 2 * Math.PI);
+        geodetic(Math.sqrt(x * x + y * y), z, longitude, out);
+    }
+
+    /**
+     * Converts an Earth-fixed Cartesian position to geodetic coordinates on the WGS84 ellipsoid.
+     *
+     * @param x   Earth-fixed X coordinate (m)
+     * @param y   Earth-fixed Y coordinate (m)
+     * @param z   Earth-fixed Z coordinate (m)
+     * @param out Receives the latitude (rad), the longitude in [-PI, PI] (rad) and the altitude (m)
+     */
+    public static void fromEarthFixed(double x, double y, double z, double[] out) {
+        geodetic(Math.sqrt(x * x + y * y), z, Math.atan2(y, x), out);
+    }
+
+    // Geodetic coordinates from the distance to the polar axis, the Z coordinate and the longitude
+    private static void geodetic(double p, double z, double longitude, double[] out) {
+        // Latitude and altitude do not depend on the rotation, Bowring's method iterated twice
+        // is accurate to the millimeter from the ground up to the geostationary orbit
+        double reduced = Math.atan2(z * A, p * B);
+        double latitude = 0.;
+        for (int i = 0; i < 2; i++) {
+            double sin = Math.sin(reduced);
+            double cos = Math.cos(reduced);
+            latitude = Math.atan2(z + EP2 * B * sin * sin * sin, p - E2 * A * cos * cos * cos);
+            reduced = Math.atan((1. - F) * Math.tan(latitude));
+        }
+        double sinLat = Math.sin(latitude);
+        double cosLat = Math.cos(latitude);
+        double n = A / Math.sqrt(1. - E2 * sinLat * sinLat);
+        double altitude = Math.abs(cosLat) > 1e-3 ? p / cosLat - n : Math.abs(z) / Math.abs(sinLat) - n * (1. - E2);
+
+        out[0] = latitude;
+        out[1] = longitude;
+        out[2] = altitude;
+    }
+
+    /**
+     * Converts geodetic coordinates on the WGS84 ellipsoid to an Earth-fixed Cartesian position.
+     *
+     * @param latitude  Geodetic latitude (rad)
+     * @param longitude Longitude (rad)
+     * @param altitude  Altitude (m)
+     * @param out       Receives the Earth-fixed X, Y and Z coordinates (m)
+     */
+    public static void toEarthFixed(double latitude, double longitude, double altitude, double[] out) {
+        double sinLat = Math.sin(latitude);
+        double cosLat = Math.cos(latitude);
+        double n = A / Math.sqrt(1. - E2 * sinLat * sinLat);
+        out[0] = (n + altitude) * cosLat * Math.cos(longitude);
+        out[1] = (n + altitude) * cosLat * Math.sin(longitude);
+        out[2] = (n * (1. - E2) + altitude) * sinLat;
+    }
+}
@@ -0,0 +1,152 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * EphemerisFile gives read access to a binary ephemeris file written by {@link EphemerisWriter}.
+ * The file is memory mapped: trajectories are read straight from the OS page cache, without any
+ * parsing and without copying the samples to the heap.
+ * <p>
+ * Layout, little endian:
+ * <ul>
+ * <li>header (32 bytes): magic, version, orbit count, reserved, index offset, names offset;</li>
+ * <li>for each orbit, the columns of its samples: times (s), latitudes (rad), longitudes (rad), altitudes (m);</li>
+ * <li>the UTF-8 names of the orbits;</li>
+ * <li>the index (24 bytes per orbit): data offset, sample count, name offset, name length, reserved.</li>
+ * </ul>
+ */
+public class EphemerisFile implements Closeable {
+    static final int MAGIC = 0x4850454F; // "OEPH"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int INDEX_ENTRY_SIZE = 24;
+
+    private final FileChannel channel;
+    private final int orbitCount;
+    private final ByteBuffer index;
+    private final ByteBuffer names;
+
+    /**
+     * Opens an ephemeris file.
+     *
+     * @param file File to open
+     * @throws IOException if the file cannot be read or is not an ephemeris file
+     */
+    public EphemerisFile(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(file + " is not an ephemeris file");
+            }
+            orbitCount = header.getInt(8);
+            final long indexOffset = header.getLong(16);
+            final long namesOffset = header.getLong(24);
+            index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) orbitCount * INDEX_ENTRY_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            names = channel.map(FileChannel.MapMode.READ_ONLY, namesOffset, indexOffset - namesOffset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of orbits in the file.
+     *
+     * @return Number of orbits
+     */
+    public int getOrbitCount() {
+        return orbitCount;
+    }
+
+    /**
+     * Returns the name of an orbit.
+     *
+     * @param orbit Index of the orbit
+     * @return Name of the orbit
+     */
+    public String getName(int orbit) {
+        final int offset = index.getInt(orbit * INDEX_ENTRY_SIZE + 12);
+        final int length = index.getInt(orbit * INDEX_ENTRY_SIZE + 16);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = names.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the trajectory of an orbit. Only the region of the orbit is mapped, the samples
+     * are paged in by the OS when they are read.
+     *
+     * @param orbit Index of the orbit
+     * @return Trajectory backed by the file
+     * @throws IOException if the region cannot be mapped
+     */
+    public TrajectoryView getTrajectory(int orbit) throws IOException {
+        final long offset = index.getLong(orbit * INDEX_ENTRY_SIZE);
+        final int size = index.getInt(orbit * INDEX_ENTRY_SIZE + 8);
+        MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, offset, 32L * size);
+        DoubleBuffer columns = data.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        return new MappedTrajectory(columns, size);
+    }
+
+    /**
+     * Closes the file. Trajectories already returned stay readable until they are garbage collected.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Trajectory reading its samples from a mapped region.
+     */
+    private static class MappedTrajectory implements TrajectoryView {
+        private final DoubleBuffer columns;
+        private final int size;
+
+        MappedTrajectory(DoubleBuffer columns, int size) {
+            this.columns = columns;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public double getTime(int i) {
+            return columns.get(i);
+        }
+
+        @Override
+        public double getLatitude(int i) {
+            return columns.get(size + i);
+        }
+
+        @Override
+        public double getLongitude(int i) {
+            return columns.get(2 * size + i);
+        }
+
+        @Override
+        public double getAltitude(int i) {
+            return columns.get(3 * size + i);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EphemerisWriter writes trajectories to a binary ephemeris file, read back by {@link EphemerisFile}.
+ * Trajectories are appended one after the other as they are written, and the orbit index is
+ * written when the file is closed. Writing is thread safe, so the orbits of a parallel run
+ * can be written as soon as they complete.
+ */
+public class EphemerisWriter implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private final List<String> names = new ArrayList<>();
+    private final List<long[]> entries = new ArrayList<>();
+    private long position;
+
+    /**
+     * Creates a new ephemeris file, replacing any existing file.
+     *
+     * @param file File to write
+     * @throws IOException if the file cannot be created
+     */
+    public EphemerisWriter(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        // The header is written on close, once the index position is known
+        position = EphemerisFile.HEADER_SIZE;
+    }
+
+    /**
+     * Appends a trajectory to the file.
+     *
+     * @param name       Name of the orbit
+     * @param trajectory Trajectory of the orbit
+     * @throws IOException if the trajectory cannot be written
+     */
+    public synchronized void write(String name, TrajectoryView trajectory) throws IOException {
+        final int size = trajectory.size();
+        entries.add(new long[] {position, size});
+        names.add(name);
+        // One column after the other: times, latitudes, longitudes, altitudes
+        for (int column = 0; column < 4; column++) {
+            for (int i = 0; i < size; i++) {
+                if (buffer.remaining() < 8) {
+                    flush();
+                }
+                buffer.putDouble(value(trajectory, column, i));
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Writes the orbit index and the header, then closes the file.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            // Names, then index entries
+            final long namesOffset = position;
+            final int[] nameOffsets = new int[names.size()];
+            final int[] nameLengths = new int[names.size()];
+            int nameOffset = 0;
+            for (int i = 0; i < names.size(); i++) {
+                byte[] bytes = names.get(i).getBytes(StandardCharsets.UTF_8);
+                nameOffsets[i] = nameOffset;
+                nameLengths[i] = bytes.length;
+                nameOffset += bytes.length;
+                int written = 0;
+                while (written < bytes.length) {
+                    if (!buffer.hasRemaining()) {
+                        flush();
+                    }
+                    int chunk = Math.min(buffer.remaining(), bytes.length - written);
+                    buffer.put(bytes, written, chunk);
+                    written += chunk;
+                }
+            }
+            flush();
+            // Align the index on 8 bytes
+            final long indexOffset = (position + 7) & ~7L;
+            position = indexOffset;
+            for (int i = 0; i < entries.size(); i++) {
+                if (buffer.remaining() < EphemerisFile.INDEX_ENTRY_SIZE) {
+                    flush();
+                }
+                buffer.putLong(entries.get(i)[0]);
+                buffer.putInt((int) entries.get(i)[1]);
+                buffer.putInt(nameOffsets[i]);
+                buffer.putInt(nameLengths[i]);
+                buffer.putInt(0);
+            }
+            flush();
+
+            ByteBuffer header = ByteBuffer.allocate(EphemerisFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(EphemerisFile.MAGIC);
+            header.putInt(EphemerisFile.VERSION);
+            header.putInt(entries.size());
+            header.putInt(0);
+            header.putLong(indexOffset);
+            header.putLong(namesOffset);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static double value(TrajectoryView trajectory, int column, int i) {
+        switch (column) {
+            case 0:
+                return trajectory.getTime(i);
+            case 1:
+                return trajectory.getLatitude(i);
+            case 2:
+                return trajectory.getLongitude(i);
+            default:
+                return trajectory.getAltitude(i);
+        }
+    }
+
+    /**
+     * Writes the buffered bytes at the current position of the file.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+    }
+}
@@ -1,18 +1,18 @@
 package fr.isae.mae.ss.y2024.orbitviewer;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 /**
- * EraseOrbitFrame allows users to select and erase orbits from the main GUI.
+ * EraseOrbitFrame allows users to erase an orbit of the main GUI by its name. Several orbits
+ * can be erased at once by selecting their rows in the table before clicking "Erase Orbit".
  */
 @SuppressWarnings("serial")
 public class EraseOrbitFrame extends JFrame implements ActionListener {
     private GUI parentFrame; // Reference to the parent GUI frame
-    private JComboBox<String> orbitComboBox; // Combo box to select orbit for erasing
+    private JTextField orbitNameField; // Name of the orbit to erase
     private JButton eraseButton; // Button to trigger orbit erasing
 
     /**
@@ -27,17 +27,15 @@ public class EraseOrbitFrame extends JFrame implements ActionListener {
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setLocationRelativeTo(null);
 
-        JPanel panel = new JPanel(new GridLayout(2, 1));
+        JPanel panel = new JPanel(new GridLayout(3, 1));
 
-        // Create combo box to display available orbits
-        orbitComboBox = new JComboBox<>();
-        JTable orbitTable = parentFrame.getOrbitTable(); // Access orbitTable
-        for (int i = 0; i < orbitTable.getRowCount(); i++) {
-            orbitComboBox.addItem((String) orbitTable.getValueAt(i, 0)); // Add orbit names to combo box
-        }
-        panel.add(orbitComboBox);
-        
-        // Create button to erase selected orbit
+        // Create text field for the name of the orbit, the orbits are found by name without listing them
+        panel.add(new JLabel(" Orbit name:"));
+        orbitNameField = new JTextField();
+        orbitNameField.addActionListener(this);
+        panel.add(orbitNameField);
+
+        // Create button to erase the orbit
         eraseButton = new JButton("Erase Orbit");
         eraseButton.addActionListener(this);
         panel.add(eraseButton);
@@ -54,16 +52,12 @@ public class EraseOrbitFrame extends JFrame implements ActionListener {
      */
     @Override
     public void actionPerformed(ActionEvent e) {
-        if (e.getSource() == eraseButton) {
-            // Get the selected orbit to erase
-            String selectedOrbit = (String) orbitComboBox.getSelectedItem();
-            DefaultTableModel model = (DefaultTableModel) parentFrame.getOrbitTable().getModel();
-            // Find and remove the selected orbit from the table
-            for (int i = 0; i < model.getRowCount(); i++) {
-                if (model.getValueAt(i, 0).equals(selectedOrbit)) {
-                    model.removeRow(i);
-                    break;
-                }
+        if (e.getSource() == eraseButton || e.getSource() == orbitNameField) {
+            // Remove the orbit of this name from the table
+            String name = orbitNameField.getText().trim();
+            if (!parentFrame.getOrbitStore().remove(name)) {
+                JOptionPane.showMessageDialog(this, "No orbit named " + name + ".", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
             }
             // Close the erase orbit frame
             dispose();
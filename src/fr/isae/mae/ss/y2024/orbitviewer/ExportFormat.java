@@ -0,0 +1,42 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Document formats the trajectories can be exported to by a {@link TrajectoryExport}.
+ */
+public enum ExportFormat {
+    /** One {@code name,time,latitude,longitude,altitude} line per sample. */
+    CSV(".csv"),
+    /** Keyhole Markup Language, one line string per orbit, for Google Earth. */
+    KML(".kml"),
+    /** Cesium Language, one packet of sampled positions per orbit, for Cesium. */
+    CZML(".czml");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Chooses the format from the extension of a file.
+     *
+     * @param file Exported file
+     * @return The format, or null if the extension is not known
+     */
+    public static ExportFormat forFile(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        for (ExportFormat format : values()) {
+            if (name.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
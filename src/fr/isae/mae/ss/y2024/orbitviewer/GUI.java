@@ -1,9 +1,14 @@
 package fr.isae.mae.ss.y2024.orbitviewer;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
@@ -14,50 +19,114 @@ import java.net.URISyntaxException;
 @SuppressWarnings("serial")
 public class GUI extends JFrame implements ActionListener {
 	// Declaration of GUI components
-    private JButton newOrbitButton, eraseOrbitButton, startSimulationButton, readmeButton;
+    private JButton newOrbitButton, eraseOrbitButton, startSimulationButton, dispersionButton, openEphemerisButton, readmeButton;
+    private JButton openScenarioButton, saveScenarioButton, importCatalogButton, sweepButton;
+    private JComboBox<PropagationMode> propagationModeBox;
+    private JTextField absToleranceField, relToleranceField;
+    private JTextField spanField, trailField;
+    private JComboBox<String> spanUnitBox;
     private JTable orbitTable;
-    private DefaultTableModel tableModel;
-    private String[] orbitNames; // Added orbitNames array
+    private OrbitStore orbitStore;
+    private Orbitviewer.AppFrame viewer; // Viewer bound to the orbit table, open for the whole session
+    private final Map<String, OrbitDispersion> dispersions = new HashMap<>(); // Injection errors of the orbits, by name
+    private EphemerisFile scenarioTrajectories; // Trajectories saved with the opened scenario, read on demand
     private JLabel versionLabel;
+    // Listener showing the metrics of the propagated orbits in the table
+    private final Consumer<OrbitMetrics> metricsListener = metrics -> SwingUtilities.invokeLater(() -> orbitStore.setMetrics(metrics));
     
     // Constructor for the GUI class
     public GUI() {
     	// Set up the main frame
         super("Orbitas - An orbit visualization tool");
-        setSize(600, 400);
+        setSize(1000, 550);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         
         // Create panel for buttons
-        JPanel buttonPanel = new JPanel(new GridLayout(3, 1));
+        JPanel buttonPanel = new JPanel(new GridLayout(8, 1));
 
         // Initialize buttons and add action listeners
         newOrbitButton = new JButton("New Orbit");
         eraseOrbitButton = new JButton("Erase Orbit");
         startSimulationButton = new JButton("Start Simulation");
+        dispersionButton = new JButton("Dispersion (Monte Carlo)");
+        sweepButton = new JButton("Parameter Sweep");
+        openEphemerisButton = new JButton("Open Ephemeris");
+        openScenarioButton = new JButton("Open Scenario");
+        saveScenarioButton = new JButton("Save Scenario");
+        importCatalogButton = new JButton("Import Catalog");
         readmeButton = new JButton("Readme (GitHub)");
 
         newOrbitButton.addActionListener(this);
         eraseOrbitButton.addActionListener(this);
         startSimulationButton.addActionListener(this);
+        dispersionButton.addActionListener(this);
+        sweepButton.addActionListener(this);
+        openEphemerisButton.addActionListener(this);
+        openScenarioButton.addActionListener(this);
+        saveScenarioButton.addActionListener(this);
+        importCatalogButton.addActionListener(this);
         readmeButton.addActionListener(this);
 
         // Add buttons to button panel
         buttonPanel.add(newOrbitButton);
         buttonPanel.add(eraseOrbitButton);
         buttonPanel.add(startSimulationButton);
+        JPanel studyPanel = new JPanel(new GridLayout(1, 2));
+        studyPanel.add(dispersionButton);
+        studyPanel.add(sweepButton);
+        buttonPanel.add(studyPanel);
+        buttonPanel.add(openEphemerisButton);
+        JPanel scenarioPanel = new JPanel(new GridLayout(1, 3));
+        scenarioPanel.add(openScenarioButton);
+        scenarioPanel.add(saveScenarioButton);
+        scenarioPanel.add(importCatalogButton);
+        buttonPanel.add(scenarioPanel);
 
-        // Creatie table model and table
-        tableModel = new DefaultTableModel();
-        tableModel.addColumn("Name");
-        tableModel.addColumn("Semi-major Axis");
-        tableModel.addColumn("Eccentricity");
-        tableModel.addColumn("Inclination");
-        tableModel.addColumn("RAAN");
-        tableModel.addColumn("Mean Anomaly");
-        tableModel.addColumn("Argument of Perigee");
+        // Create the propagation model selector and the tolerances of the adaptive integrator
+        propagationModeBox = new JComboBox<>(PropagationMode.values());
+        absToleranceField = new JTextField(String.valueOf(PropagatorSettings.DEFAULT.getAbsoluteTolerance()), 6);
+        relToleranceField = new JTextField(String.valueOf(PropagatorSettings.DEFAULT.getRelativeTolerance()), 6);
+        propagationModeBox.addActionListener(e -> updateToleranceFields());
+        updateToleranceFields();
 
-        orbitTable = new JTable(tableModel);
+        JPanel tolerancePanel = new JPanel(new GridLayout(1, 4));
+        tolerancePanel.add(new JLabel(" Abs. tol:"));
+        tolerancePanel.add(absToleranceField);
+        tolerancePanel.add(new JLabel(" Rel. tol:"));
+        tolerancePanel.add(relToleranceField);
+
+        JPanel modePanel = new JPanel(new BorderLayout());
+        modePanel.add(new JLabel(" Propagator: "), BorderLayout.LINE_START);
+        modePanel.add(propagationModeBox, BorderLayout.CENTER);
+        modePanel.add(tolerancePanel, BorderLayout.LINE_END);
+        buttonPanel.add(modePanel);
+
+        // Create the propagation span and the length of the trails kept for long propagations
+        spanField = new JTextField("1", 6);
+        spanUnitBox = new JComboBox<>(new String[]{"revolutions", "hours", "days"});
+        trailField = new JTextField("0", 6);
+        trailField.setToolTipText("Number of most recent positions shown per orbit, 0 to show them all");
+
+        JPanel spanPanel = new JPanel(new GridLayout(1, 5));
+        spanPanel.add(new JLabel(" Span:"));
+        spanPanel.add(spanField);
+        spanPanel.add(spanUnitBox);
+        spanPanel.add(new JLabel(" Trail points:"));
+        spanPanel.add(trailField);
+        buttonPanel.add(spanPanel);
+
+        // Create the orbit store and the table showing it
+        orbitStore = new OrbitStore();
+        PropagationMetrics.getInstance().addListener(metricsListener);
+
+        orbitTable = new JTable(orbitStore);
+        orbitTable.setDefaultRenderer(Color.class, new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setBackground(value instanceof Color ? (Color) value : null);
+            }
+        });
 
         // Create scroll pane for table
         JScrollPane scrollPane = new JScrollPane(orbitTable);
@@ -91,40 +160,78 @@ public class GUI extends JFrame implements ActionListener {
             // Show the frame for entering orbit parameters
             new OrbitInputFrame(this);
         } else if (e.getSource() == eraseOrbitButton) {
-            // Handle erase orbit action
-            new EraseOrbitFrame(this);
+            // Erase the selected orbits at once, or ask for the name of the orbit to erase
+            int[] selection = orbitTable.getSelectedRows();
+            if (selection.length > 0) {
+                for (int i = 0; i < selection.length; i++) {
+                    selection[i] = orbitTable.convertRowIndexToModel(selection[i]);
+                }
+                orbitStore.removeRows(selection);
+            } else {
+                new EraseOrbitFrame(this);
+            }
         } else if (e.getSource() == startSimulationButton) {
-            // Retrieve orbit parameters from the table and populate the arrays
-            int rowCount = tableModel.getRowCount();
-            if (rowCount == 0) {
+            // The orbits of the store were checked when they were added
+            if (orbitStore.getRowCount() == 0) {
                 JOptionPane.showMessageDialog(this, "No orbits available to start simulation.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
 
-            // Prepare arrays to hold orbit parameters
-            double[] smas = new double[rowCount];
-            double[] eccs = new double[rowCount];
-            double[] incs = new double[rowCount];
-            double[] raans = new double[rowCount];
-            double[] anms = new double[rowCount];
-            double[] pas = new double[rowCount];
-            orbitNames = new String[rowCount]; // Initialize orbitNames array
-
-            // Populate arrays with orbit parameters
-            for (int i = 0; i < rowCount; i++) {
-                orbitNames[i] = (String) tableModel.getValueAt(i, 0); // Store orbit names
-                smas[i] = Double.parseDouble((String) tableModel.getValueAt(i, 1));
-                eccs[i] = Double.parseDouble((String) tableModel.getValueAt(i, 2));
-                incs[i] = Math.toRadians(Double.parseDouble((String) tableModel.getValueAt(i, 3)));
-                raans[i] = Math.toRadians(Double.parseDouble((String) tableModel.getValueAt(i, 4)));
-                anms[i] = Math.toRadians(Double.parseDouble((String) tableModel.getValueAt(i, 5)));
-                pas[i] = Math.toRadians(Double.parseDouble((String) tableModel.getValueAt(i, 6)));
-                System.out.println("sma:" + smas[i] + ", eccs:" + eccs[i] + ", incs:" + incs[i]);
+            // Create and start the simulation with the selected propagation model
+            PropagatorSettings settings = readSettings();
+            if (settings != null) {
+                openViewer(settings);
+            }
+        } else if (e.getSource() == dispersionButton) {
+            // Disperse the selected orbit around its elements
+            int row = orbitTable.getSelectedRow();
+            if (row < 0) {
+                JOptionPane.showMessageDialog(this, "Select the orbit to disperse in the table.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            OrbitElements nominal = orbitStore.getElements(orbitTable.convertRowIndexToModel(row));
+            new DispersionFrame(this, nominal, dispersions.get(nominal.getName()));
+        } else if (e.getSource() == sweepButton) {
+            // Sweep the elements of the selected orbit, or of a circular orbit if none is selected
+            PropagatorSettings settings = readSettings();
+            if (settings == null) {
+                return;
+            }
+            int row = orbitTable.getSelectedRow();
+            OrbitElements base = row >= 0 ? orbitStore.getElements(orbitTable.convertRowIndexToModel(row))
+                    : OrbitCatalog.fromInputUnits("Sweep", 7000., 0., 0., 0., 0., 0.);
+            new SweepFrame(base, settings);
+        } else if (e.getSource() == openEphemerisButton) {
+            // Display the trajectories of an ephemeris file written by the batch mode
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    new Orbitviewer.AppFrame(new EphemerisFile(chooser.getSelectedFile()));
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        } else if (e.getSource() == openScenarioButton) {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    openScenario(Scenario.read(chooser.getSelectedFile()));
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        } else if (e.getSource() == saveScenarioButton) {
+            saveScenario();
+        } else if (e.getSource() == importCatalogButton) {
+            // Add the orbits of a CSV, JSON or TLE catalog, parsed once here
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    orbitStore.addAll(OrbitCatalog.read(chooser.getSelectedFile()), null, null);
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
             }
-
-            // Create and start the simulation
-            @SuppressWarnings("unused")
-			Orbitviewer.AppFrame appFrame = new Orbitviewer.AppFrame(smas, eccs, incs, raans, anms, pas, orbitNames);
         } else if (e.getSource() == readmeButton) {
             // Open the README file in the default web browser
             try {
@@ -135,9 +242,156 @@ public class GUI extends JFrame implements ActionListener {
         }
     }
 
-    // Method to add a new orbit to the table
-    public void addOrbit(String[] data) {
-        tableModel.addRow(data);
+    // Method to read the propagator settings of the form, null after showing an error if they are invalid
+    private PropagatorSettings readSettings() {
+        PropagationMode mode = (PropagationMode) propagationModeBox.getSelectedItem();
+        PropagatorSettings settings = PropagatorSettings.DEFAULT.withMode(mode);
+        if (mode == PropagationMode.ADAPTIVE) {
+            try {
+                double absolute = Double.parseDouble(absToleranceField.getText());
+                double relative = Double.parseDouble(relToleranceField.getText());
+                // The step control divides by the tolerances
+                if (!(absolute > 0) || !(relative > 0)) {
+                    throw new NumberFormatException();
+                }
+                settings = settings.withTolerances(absolute, relative);
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "The integrator tolerances must be positive numbers.", "Error", JOptionPane.ERROR_MESSAGE);
+                return null;
+            }
+        }
+        try {
+            double span = Double.parseDouble(spanField.getText());
+            int trail = Integer.parseInt(trailField.getText());
+            if (span <= 0 || trail < 0) {
+                throw new NumberFormatException();
+            }
+            if (spanUnitBox.getSelectedIndex() == 0) {
+                settings = settings.withRevolutions(span);
+            } else {
+                settings = settings.withDuration(span * (spanUnitBox.getSelectedIndex() == 1 ? 3600. : 86400.));
+            }
+            return settings.withTrailCapacity(trail);
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Invalid propagation span or trail length.", "Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+    }
+
+    // Method to open the viewer bound to the table, or to bring it to the front with the given settings
+    private void openViewer(PropagatorSettings settings) {
+        // The viewer follows the table once open, it is only created again after being closed
+        if (viewer == null || !viewer.isDisplayable()) {
+            viewer = new Orbitviewer.AppFrame(orbitStore, settings);
+        } else {
+            viewer.setSettings(settings);
+            viewer.toFront();
+        }
+    }
+
+    // Method to propagate a Monte Carlo dispersion of an orbit in the viewer
+    public void runDispersion(OrbitElements nominal, OrbitDispersion dispersion, int samples) {
+        dispersions.put(nominal.getName(), dispersion);
+        PropagatorSettings settings = readSettings();
+        if (settings != null) {
+            openViewer(settings);
+            viewer.showDispersion(nominal, dispersion, samples);
+        }
+    }
+
+    // Method to replace the orbits of the table and the propagator settings by those of a scenario
+    private void openScenario(Scenario scenario) throws IOException {
+        // Only the index of the saved trajectories is read, each one is read when its orbit is shown
+        TrajectoryCache cache = TrajectoryCache.getInstance();
+        EphemerisFile trajectories = scenario.attachTrajectories(cache);
+        if (trajectories == null) {
+            cache.setStoredTrajectories(null, null);
+        }
+        if (scenarioTrajectories != null) {
+            scenarioTrajectories.close();
+        }
+        scenarioTrajectories = trajectories;
+
+        PropagatorSettings settings = scenario.getSettings();
+        propagationModeBox.setSelectedItem(settings.getMode());
+        absToleranceField.setText(String.valueOf(settings.getAbsoluteTolerance()));
+        relToleranceField.setText(String.valueOf(settings.getRelativeTolerance()));
+        if (settings.getDuration() <= 0) {
+            spanField.setText(String.valueOf(settings.getRevolutions()));
+            spanUnitBox.setSelectedIndex(0);
+        } else if (settings.getDuration() % 86400. == 0) {
+            spanField.setText(String.valueOf(settings.getDuration() / 86400.));
+            spanUnitBox.setSelectedIndex(2);
+        } else {
+            spanField.setText(String.valueOf(settings.getDuration() / 3600.));
+            spanUnitBox.setSelectedIndex(1);
+        }
+        trailField.setText(String.valueOf(settings.getTrailCapacity()));
+
+        // The orbits of the viewer are removed before the settings change, so they are not propagated again
+        orbitStore.clear();
+        if (viewer != null && viewer.isDisplayable()) {
+            viewer.setSettings(readSettings());
+        }
+
+        // The orbits are added at once, so the table and the viewer are only refreshed once
+        List<OrbitElements> orbits = new ArrayList<>(scenario.getOrbitCount());
+        Color[] colors = new Color[scenario.getOrbitCount()];
+        boolean[] shown = new boolean[scenario.getOrbitCount()];
+        for (int i = 0; i < scenario.getOrbitCount(); i++) {
+            orbits.add(scenario.getOrbit(i));
+            colors[i] = scenario.getColor(i);
+            shown[i] = scenario.isShown(i);
+        }
+        orbitStore.addAll(orbits, colors, shown);
+    }
+
+    // Method to save the orbits of the table, the propagator settings and optionally the trajectories
+    private void saveScenario() {
+        PropagatorSettings settings = readSettings();
+        if (settings == null) {
+            return;
+        }
+        List<OrbitElements> orbits = new ArrayList<>(orbitStore.getRowCount());
+        Color[] colors = new Color[orbitStore.getRowCount()];
+        boolean[] shown = new boolean[orbitStore.getRowCount()];
+        for (int i = 0; i < orbitStore.getRowCount(); i++) {
+            orbits.add(orbitStore.getElements(i));
+            colors[i] = orbitStore.getColor(i);
+            shown[i] = orbitStore.isShown(i);
+        }
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        int answer = JOptionPane.showConfirmDialog(this, "Save the propagated trajectories with the scenario?", "Save Scenario",
+                JOptionPane.YES_NO_CANCEL_OPTION);
+        if (answer == JOptionPane.CANCEL_OPTION || answer == JOptionPane.CLOSED_OPTION) {
+            return;
+        }
+        try {
+            new Scenario(settings, orbits, colors, shown)
+                    .write(chooser.getSelectedFile(), answer == JOptionPane.YES_OPTION ? TrajectoryCache.getInstance() : null);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Method to enable the tolerance fields only for the adaptive integrator
+    private void updateToleranceFields() {
+        boolean adaptive = propagationModeBox.getSelectedItem() == PropagationMode.ADAPTIVE;
+        absToleranceField.setEnabled(adaptive);
+        relToleranceField.setEnabled(adaptive);
+    }
+
+    // Method to add a new orbit to the table, shown with a random color; false if the name is already used
+    public boolean addOrbit(OrbitElements elements) {
+        return orbitStore.add(elements, Orbiter.randomOrbitColor(), true);
+    }
+
+    // Method to get the orbits of the table
+    public OrbitStore getOrbitStore() {
+        return orbitStore;
     }
 
     // Method to get the orbit table
@@ -147,6 +401,8 @@ public class GUI extends JFrame implements ActionListener {
 
     // Main method, entry point of the application
     public static void main(String[] args) {
+        // Load PATRIUS, the propagators and WorldWind while the user fills the orbit table
+        Startup.start();
         SwingUtilities.invokeLater(GUI::new);
     }
 }
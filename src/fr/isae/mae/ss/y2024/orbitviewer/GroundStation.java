@@ -0,0 +1,86 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+/**
+ * GroundStation is a site on the WGS84 ellipsoid that sees the satellites above a minimum
+ * elevation. Its Earth-fixed position and local vertical are computed once, so the elevation of
+ * a satellite costs a rotation and a few products. Instances are immutable.
+ */
+public class GroundStation {
+    private final String name;
+    private final double latitude;
+    private final double longitude;
+    private final double altitude;
+    private final double minElevation;
+    // Earth-fixed position (m) and local vertical of the station
+    private final double[] position = new double[3];
+    private final double[] zenith = new double[3];
+
+    /**
+     * Constructs a new GroundStation.
+     *
+     * @param name         Name of the station
+     * @param latitude     Geodetic latitude (rad)
+     * @param longitude    Longitude (rad)
+     * @param altitude     Altitude (m)
+     * @param minElevation Elevation above which the satellites are visible (rad)
+     */
+    public GroundStation(String name, double latitude, double longitude, double altitude, double minElevation) {
+        this.name = name;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.altitude = altitude;
+        this.minElevation = minElevation;
+        EarthRotation.toEarthFixed(latitude, longitude, altitude, position);
+        zenith[0] = Math.cos(latitude) * Math.cos(longitude);
+        zenith[1] = Math.cos(latitude) * Math.sin(longitude);
+        zenith[2] = Math.sin(latitude);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getAltitude() {
+        return altitude;
+    }
+
+    public double getMinElevation() {
+        return minElevation;
+    }
+
+    /**
+     * Returns the elevation of a satellite seen from the station.
+     *
+     * @param rotation Rotation of the Earth since the epoch of the orbit
+     * @param time     Time since the epoch (s)
+     * @param x        GCRF X coordinate of the satellite (m)
+     * @param y        GCRF Y coordinate of the satellite (m)
+     * @param z        GCRF Z coordinate of the satellite (m)
+     * @return Elevation above the local horizontal plane (rad)
+     */
+    public double elevation(EarthRotation rotation, double time, double x, double y, double z) {
+        // Line of sight in the Earth-fixed frame
+        double angle = rotation.angleAt(time);
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        double dx = cos * x + sin * y - position[0];
+        double dy = -sin * x + cos * y - position[1];
+        double dz = z - position[2];
+        double range = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        return Math.asin((dx * zenith[0] + dy * zenith[1] + dz * zenith[2]) / range);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%.4f°, %.4f°, %.0f m, mask %.1f°)", name, Math.toDegrees(latitude), Math.toDegrees(longitude),
+                altitude, Math.toDegrees(minElevation));
+    }
+}
@@ -0,0 +1,151 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import fr.cnes.sirius.patrius.math.util.FastMath;
+
+/**
+ * KeplerPropagator computes orbit positions in closed form, optionally adding the secular
+ * effect of the Earth oblateness (J2) on the RAAN, the argument of perigee and the mean anomaly.
+ * Each position costs a Kepler equation solve, instead of the hundreds of integration steps
+ * a numerical propagator needs to cover the same time span.
+ */
+public class KeplerPropagator implements AnalyticalPropagator {
+
+    // Second zonal harmonic of the WGS84 Earth gravity field
+    private static final double J2 = 1.08262668e-3;
+
+    // Tolerance and iteration limit of the Kepler equation solver
+    private static final double KEPLER_TOLERANCE = 1e-12;
+    private static final int KEPLER_MAX_ITERATIONS = 50;
+
+    private final double sma;
+    private final double ecc;
+    private final double raan0;
+    private final double pa0;
+    private final double anm0;
+    private final double sinInc;
+    private final double cosInc;
+    private final double raanRate;
+    private final double paRate;
+    private final double anmRate;
+
+    /**
+     * Constructs a new KeplerPropagator.
+     *
+     * @param sma    Semi-major axis (m)
+     * @param ecc    Eccentricity
+     * @param inc    Inclination (rad)
+     * @param raan   Right ascension of ascending node (rad)
+     * @param anm    Mean anomaly (rad)
+     * @param pa     Argument of perigee (rad)
+     * @param mu     Earth gravitational parameter (m^3/s^2)
+     * @param radius Earth equatorial radius (m)
+     * @param withJ2 Whether to add the J2 secular drift
+     * @throws IllegalArgumentException if the elements are not those of an elliptic orbit
+     */
+    public KeplerPropagator(double sma, double ecc, double inc, double raan, double anm, double pa,
+                            double mu, double radius, boolean withJ2) {
+        if (!(sma > 0) || !(ecc >= 0 && ecc < 1)) {
+            throw new IllegalArgumentException("Not an elliptic orbit: semi-major axis " + sma + " m, eccentricity " + ecc);
+        }
+        this.sma = sma;
+        this.ecc = ecc;
+        this.raan0 = raan;
+        this.pa0 = pa;
+        this.anm0 = anm;
+        this.sinInc = FastMath.sin(inc);
+        this.cosInc = FastMath.cos(inc);
+
+        // Mean motion
+        final double n = FastMath.sqrt(mu / (sma * sma * sma));
+
+        if (withJ2) {
+            // Secular rates due to J2 (Vallado, Fundamentals of Astrodynamics, 9.41)
+            final double p = sma * (1. - ecc * ecc);
+            final double k = 1.5 * J2 * (radius / p) * (radius / p);
+            final double cos2 = cosInc * cosInc;
+            this.raanRate = -k * n * cosInc;
+            this.paRate = 0.5 * k * n * (5. * cos2 - 1.);
+            this.anmRate = n * (1. + 0.5 * k * FastMath.sqrt(1. - ecc * ecc) * (3. * cos2 - 1.));
+        } else {
+            this.raanRate = 0.;
+            this.paRate = 0.;
+            this.anmRate = n;
+        }
+    }
+
+    /**
+     * Computes the position of the spacecraft in the inertial frame of the elements.
+     *
+     * @param dt  Time elapsed since the epoch of the elements (s)
+     * @param out Array of length 3 receiving the x, y and z coordinates (m)
+     * @return The out array
+     */
+    @Override
+    public double[] positionAt(double dt, double[] out) {
+        final double raan = raan0 + raanRate * dt;
+        final double pa = pa0 + paRate * dt;
+        final double eccAnomaly = solveKepler(anm0 + anmRate * dt);
+
+        // Position in the orbital plane, x axis towards the perigee
+        final double xp = sma * (FastMath.cos(eccAnomaly) - ecc);
+        final double yp = sma * FastMath.sqrt(1. - ecc * ecc) * FastMath.sin(eccAnomaly);
+
+        // Rotation from the orbital plane to the inertial frame
+        final double cosRaan = FastMath.cos(raan);
+        final double sinRaan = FastMath.sin(raan);
+        final double cosPa = FastMath.cos(pa);
+        final double sinPa = FastMath.sin(pa);
+
+        out[0] = (cosRaan * cosPa - sinRaan * sinPa * cosInc) * xp + (-cosRaan * sinPa - sinRaan * cosPa * cosInc) * yp;
+        out[1] = (sinRaan * cosPa + cosRaan * sinPa * cosInc) * xp + (-sinRaan * sinPa + cosRaan * cosPa * cosInc) * yp;
+        out[2] = sinPa * sinInc * xp + cosPa * sinInc * yp;
+        return out;
+    }
+
+    /**
+     * Returns the drift of the right ascension of ascending node.
+     *
+     * @return Secular rate (rad/s), 0 without J2
+     */
+    public double getRaanRate() {
+        return raanRate;
+    }
+
+    /**
+     * Returns the drift of the argument of perigee.
+     *
+     * @return Secular rate (rad/s), 0 without J2
+     */
+    public double getPaRate() {
+        return paRate;
+    }
+
+    /**
+     * Returns the rate of the mean anomaly, the mean motion corrected by J2.
+     *
+     * @return Secular rate (rad/s)
+     */
+    public double getAnmRate() {
+        return anmRate;
+    }
+
+    /**
+     * Solves Kepler's equation E - e sin(E) = M with Newton iterations.
+     *
+     * @param meanAnomaly Mean anomaly (rad)
+     * @return Eccentric anomaly (rad)
+     */
+    private double solveKepler(double meanAnomaly) {
+        // Reduce the mean anomaly to [-PI, PI] to keep the iterations well conditioned
+        final double m = meanAnomaly - 2 * FastMath.PI * FastMath.floor((meanAnomaly + FastMath.PI) / (2 * FastMath.PI));
+        double e = ecc < 0.8 ? m : FastMath.PI * FastMath.signum(m);
+        for (int i = 0; i < KEPLER_MAX_ITERATIONS; i++) {
+            final double delta = (e - ecc * FastMath.sin(e) - m) / (1. - ecc * FastMath.cos(e));
+            e -= delta;
+            if (FastMath.abs(delta) < KEPLER_TOLERANCE) {
+                break;
+            }
+        }
+        return e;
+    }
+}
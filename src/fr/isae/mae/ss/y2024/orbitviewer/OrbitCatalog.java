@@ -0,0 +1,189 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OrbitCatalog reads element sets from CSV, JSON or TLE files. The CSV and JSON formats use the
+ * units of the orbit input form: semi-major axis in kilometers and angles in degrees.
+ * <p>
+ * CSV lines are {@code name,sma,ecc,inc,raan,anm,pa}; an optional header line, blank lines and lines
+ * starting with {@code #} are ignored. JSON files hold an array of objects with the keys
+ * {@code name, sma, ecc, inc, raan, anm, pa}.
+ * <p>
+ * TLE files ({@code .tle}, {@code .3le} or {@code .txt}) hold Two-Line Element sets, each one
+ * optionally preceded by a name line as in the 3LE format. The orbits keep their element set for
+ * the SGP4 mode, and all of them start at the latest epoch of the file.
+ */
+public class OrbitCatalog {
+
+    private OrbitCatalog() {
+    }
+
+    /**
+     * Reads a catalog, choosing the format from the file extension.
+     *
+     * @param file CSV, JSON or TLE file
+     * @return The element sets, distances in meters and angles in radians
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static List<OrbitElements> read(File file) throws IOException {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".json")) {
+            return readJson(file);
+        }
+        if (name.endsWith(".tle") || name.endsWith(".3le") || name.endsWith(".txt")) {
+            return readTle(file);
+        }
+        return readCsv(file);
+    }
+
+    /**
+     * Reads a CSV catalog.
+     *
+     * @param file CSV file
+     * @return The element sets
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static List<OrbitElements> readCsv(File file) throws IOException {
+        List<OrbitElements> orbits = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length < 7) {
+                    throw new IOException(file + ":" + lineNumber + ": expected 7 fields");
+                }
+                try {
+                    orbits.add(fromInputUnits(fields[0].trim(), Double.parseDouble(fields[1].trim()), Double.parseDouble(fields[2].trim()),
+                            Double.parseDouble(fields[3].trim()), Double.parseDouble(fields[4].trim()),
+                            Double.parseDouble(fields[5].trim()), Double.parseDouble(fields[6].trim())));
+                } catch (NumberFormatException e) {
+                    // The header line is the only non numeric line allowed
+                    if (orbits.isEmpty() && lineNumber == 1) {
+                        continue;
+                    }
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        return orbits;
+    }
+
+    /**
+     * Reads a JSON catalog.
+     *
+     * @param file JSON file
+     * @return The element sets
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static List<OrbitElements> readJson(File file) throws IOException {
+        Object document;
+        try {
+            document = JsonParser.parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage());
+        }
+        if (!(document instanceof List)) {
+            throw new IOException(file + ": expected an array of orbits");
+        }
+        List<OrbitElements> orbits = new ArrayList<>();
+        for (Object item : (List<?>) document) {
+            if (!(item instanceof Map)) {
+                throw new IOException(file + ": expected an orbit object");
+            }
+            Map<?, ?> orbit = (Map<?, ?>) item;
+            orbits.add(fromInputUnits(String.valueOf(orbit.get("name")), number(orbit, "sma", file), number(orbit, "ecc", file),
+                    number(orbit, "inc", file), number(orbit, "raan", file), number(orbit, "anm", file), number(orbit, "pa", file)));
+        }
+        return orbits;
+    }
+
+    /**
+     * Reads a TLE catalog, in the 2LE or 3LE format. Orbits without a name line are named after
+     * their catalog number.
+     *
+     * @param file TLE file
+     * @return The element sets
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static List<OrbitElements> readTle(File file) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<TwoLineElements> sets = new ArrayList<>();
+        double latest = Double.NEGATIVE_INFINITY;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            String name = null;
+            String line1 = null;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line1 == null && line.startsWith("1 ")) {
+                    line1 = line;
+                } else if (line1 != null) {
+                    try {
+                        TwoLineElements tle = TwoLineElements.parse(line1, line);
+                        names.add(name != null ? name : String.format("%05d", tle.getSatelliteNumber()));
+                        sets.add(tle);
+                        latest = Math.max(latest, tle.getEpoch());
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException(file + ":" + lineNumber + ": " + e.getMessage());
+                    }
+                    name = null;
+                    line1 = null;
+                } else {
+                    // Name line of the 3LE format, prefixed with 0 in the catalogs of Space-Track
+                    name = line.startsWith("0 ") ? line.substring(2).trim() : line.trim();
+                }
+            }
+            if (line1 != null) {
+                throw new IOException(file + ":" + lineNumber + ": missing the second line of an element set");
+            }
+        }
+        List<OrbitElements> orbits = new ArrayList<>(sets.size());
+        for (int i = 0; i < sets.size(); i++) {
+            orbits.add(sets.get(i).startingAt(latest).toElements(names.get(i)));
+        }
+        return orbits;
+    }
+
+    /**
+     * Builds orbit elements from the units of the orbit input form.
+     *
+     * @param name  Name of the orbit
+     * @param smaKm Semi-major axis (km)
+     * @param ecc   Eccentricity
+     * @param inc   Inclination (°)
+     * @param raan  Right ascension of ascending node (°)
+     * @param anm   Mean anomaly (°)
+     * @param pa    Argument of perigee (°)
+     * @return The orbit elements in meters and radians
+     */
+    public static OrbitElements fromInputUnits(String name, double smaKm, double ecc, double inc, double raan, double anm, double pa) {
+        return new OrbitElements(name, smaKm * 1000, ecc, Math.toRadians(inc), Math.toRadians(raan),
+                Math.toRadians(anm), Math.toRadians(pa));
+    }
+
+    private static double number(Map<?, ?> orbit, String key, File file) throws IOException {
+        Object value = orbit.get(key);
+        if (!(value instanceof Double)) {
+            throw new IOException(file + ": missing or invalid \"" + key + "\" for orbit " + orbit.get("name"));
+        }
+        return (Double) value;
+    }
+}
@@ -0,0 +1,94 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.util.Random;
+
+/**
+ * OrbitDispersion holds the standard deviations of the injection errors on the elements of an
+ * orbit, and draws perturbed element sets from them. The errors are independent and Gaussian.
+ * Distances are in meters and angles in radians. Instances are immutable.
+ */
+public class OrbitDispersion {
+    private final double sma;
+    private final double ecc;
+    private final double inc;
+    private final double raan;
+    private final double anm;
+    private final double pa;
+
+    /**
+     * Constructs a new OrbitDispersion.
+     *
+     * @param sma  Standard deviation of the semi-major axis (m)
+     * @param ecc  Standard deviation of the eccentricity
+     * @param inc  Standard deviation of the inclination (rad)
+     * @param raan Standard deviation of the right ascension of ascending node (rad)
+     * @param anm  Standard deviation of the mean anomaly (rad)
+     * @param pa   Standard deviation of the argument of perigee (rad)
+     */
+    public OrbitDispersion(double sma, double ecc, double inc, double raan, double anm, double pa) {
+        this.sma = sma;
+        this.ecc = ecc;
+        this.inc = inc;
+        this.raan = raan;
+        this.anm = anm;
+        this.pa = pa;
+    }
+
+    public double getSma() {
+        return sma;
+    }
+
+    public double getEcc() {
+        return ecc;
+    }
+
+    public double getInc() {
+        return inc;
+    }
+
+    public double getRaan() {
+        return raan;
+    }
+
+    public double getAnm() {
+        return anm;
+    }
+
+    public double getPa() {
+        return pa;
+    }
+
+    /**
+     * Draws a perturbed element set. The eccentricity is kept in [0, 1) and the inclination in [0, PI].
+     * The perturbed orbit of a Two-Line Element set is an element set of the same epoch, start and
+     * drag term, so that it is propagated over the same dates as the nominal orbit.
+     *
+     * @param nominal Nominal elements
+     * @param random  Source of the errors
+     * @param name    Name of the perturbed orbit
+     * @return The perturbed elements
+     */
+    public OrbitElements sample(OrbitElements nominal, Random random, String name) {
+        double e = Math.min(Math.abs(nominal.getEcc() + ecc * random.nextGaussian()), 0.999);
+        double i = Math.abs(nominal.getInc() + inc * random.nextGaussian());
+        double a = nominal.getSma() + sma * random.nextGaussian();
+        double r = nominal.getRaan() + raan * random.nextGaussian();
+        double m = nominal.getAnm() + anm * random.nextGaussian();
+        double w = nominal.getPa() + pa * random.nextGaussian();
+        i = Math.min(i, 2 * Math.PI - i);
+        TwoLineElements tle = nominal.getTwoLineElements();
+        if (tle == null) {
+            return new OrbitElements(name, a, e, i, r, m, w);
+        }
+        // The mean motion follows the semi-major axis, n² a³ being constant
+        TwoLineElements perturbed = new TwoLineElements(tle.getSatelliteNumber(), tle.getEpoch(),
+                tle.getMeanMotion() * Math.pow(nominal.getSma() / a, 1.5), e, i, r, w, m, tle.getBstar()).startingAt(tle.getStart());
+        return new OrbitElements(name, a, e, i, r, m, w, perturbed);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OrbitDispersion[sma=%.1f m, ecc=%.2e, inc=%.4f°, raan=%.4f°, anm=%.4f°, pa=%.4f°]", sma, ecc,
+                Math.toDegrees(inc), Math.toDegrees(raan), Math.toDegrees(anm), Math.toDegrees(pa));
+    }
+}
@@ -0,0 +1,97 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+/**
+ * OrbitElements holds the Keplerian elements of one orbit, as read from the orbit table.
+ * Distances are in meters and angles in radians. Orbits imported from a TLE catalog also keep
+ * their element set, propagated by the SGP4 mode.
+ */
+public class OrbitElements {
+    private final String name;
+    private final double sma;
+    private final double ecc;
+    private final double inc;
+    private final double raan;
+    private final double anm;
+    private final double pa;
+    private final TwoLineElements tle;
+
+    /**
+     * Constructs a new set of orbit elements.
+     *
+     * @param name Name of the orbit
+     * @param sma  Semi-major axis (m)
+     * @param ecc  Eccentricity
+     * @param inc  Inclination (rad)
+     * @param raan Right ascension of ascending node (rad)
+     * @param anm  Mean anomaly (rad)
+     * @param pa   Argument of perigee (rad)
+     */
+    public OrbitElements(String name, double sma, double ecc, double inc, double raan, double anm, double pa) {
+        this(name, sma, ecc, inc, raan, anm, pa, null);
+    }
+
+    /**
+     * Constructs a new set of orbit elements with the element set they were derived from.
+     *
+     * @param name Name of the orbit
+     * @param sma  Semi-major axis (m)
+     * @param ecc  Eccentricity
+     * @param inc  Inclination (rad)
+     * @param raan Right ascension of ascending node (rad)
+     * @param anm  Mean anomaly (rad)
+     * @param pa   Argument of perigee (rad)
+     * @param tle  Two-Line Element set of the orbit, or null
+     */
+    public OrbitElements(String name, double sma, double ecc, double inc, double raan, double anm, double pa, TwoLineElements tle) {
+        this.name = name;
+        this.sma = sma;
+        this.ecc = ecc;
+        this.inc = inc;
+        this.raan = raan;
+        this.anm = anm;
+        this.pa = pa;
+        this.tle = tle;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getSma() {
+        return sma;
+    }
+
+    public double getEcc() {
+        return ecc;
+    }
+
+    public double getInc() {
+        return inc;
+    }
+
+    public double getRaan() {
+        return raan;
+    }
+
+    public double getAnm() {
+        return anm;
+    }
+
+    public double getPa() {
+        return pa;
+    }
+
+    /**
+     * Returns the Two-Line Element set of the orbit.
+     *
+     * @return The element set, or null if the orbit was not read from a TLE catalog
+     */
+    public TwoLineElements getTwoLineElements() {
+        return tle;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [sma=" + sma + ", ecc=" + ecc + ", inc=" + inc + ", raan=" + raan + ", anm=" + anm + ", pa=" + pa + "]";
+    }
+}
@@ -84,21 +84,28 @@ public class OrbitInputFrame extends JFrame implements ActionListener {
                 return;
             }
 
-            // Retrieve values from text fields
-            String name = nameField.getText();
-            String semiMajorAxisKm = semiMajorAxisField.getText();
-            String eccentricity = eccentricityField.getText();
-            String inclination = inclinationField.getText();
-            String raan = raanField.getText();
-            String meanAnomaly = meanAnomalyField.getText();
-            String argPerigee = argPerigeeField.getText();
+            // Parse the values of the text fields once, kilometers and degrees are converted to meters and radians
+            OrbitElements elements;
+            try {
+                elements = OrbitCatalog.fromInputUnits(nameField.getText().trim(),
+                        Double.parseDouble(semiMajorAxisField.getText()),
+                        Double.parseDouble(eccentricityField.getText()),
+                        Double.parseDouble(inclinationField.getText()),
+                        Double.parseDouble(raanField.getText()),
+                        Double.parseDouble(meanAnomalyField.getText()),
+                        Double.parseDouble(argPerigeeField.getText()));
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "Invalid orbit parameters.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
 
-            // Close the input frame
-            double semiMajorAxisMeters = Double.parseDouble(semiMajorAxisKm) * 1000; // Convert kilometers to meters
+            // Add the orbit to the parent frame, then close the input frame
+            if (!parentFrame.addOrbit(elements)) {
+                JOptionPane.showMessageDialog(this, "An orbit named " + elements.getName() + " already exists.", "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
             dispose();
-
-            // Add orbit data to the parent frame
-            parentFrame.addOrbit(new String[]{name, String.valueOf(semiMajorAxisMeters), eccentricity, inclination, raan, meanAnomaly, argPerigee});
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+/**
+ * OrbitMetrics holds the metrics of the last propagation of one orbit: the statistics of the
+ * propagation itself, the memory retained by its trajectory and the time spent building its path.
+ * Instances are immutable.
+ */
+public class OrbitMetrics {
+    private final String name;
+    private final PropagationStats stats;
+    private final long retainedBytes;
+    private final long renderNanos;
+
+    /**
+     * Constructs new orbit metrics.
+     *
+     * @param name          Name of the orbit
+     * @param stats         Statistics of the propagation
+     * @param retainedBytes Memory retained by the trajectory (bytes)
+     * @param renderNanos   Time spent building the render layer (ns), or -1 if the orbit was not rendered
+     */
+    public OrbitMetrics(String name, PropagationStats stats, long retainedBytes, long renderNanos) {
+        this.name = name;
+        this.stats = stats;
+        this.retainedBytes = retainedBytes;
+        this.renderNanos = renderNanos;
+    }
+
+    /**
+     * Returns a copy of these metrics with the given render time.
+     *
+     * @param nanos Time spent building the render layer (ns)
+     * @return The updated metrics
+     */
+    public OrbitMetrics withRenderTime(long nanos) {
+        return new OrbitMetrics(name, stats, retainedBytes, nanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PropagationStats getStats() {
+        return stats;
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    /**
+     * Returns the time spent building the render layer.
+     *
+     * @return Render time (ms), or -1 if the orbit was not rendered
+     */
+    public double getRenderMillis() {
+        return renderNanos < 0 ? -1 : renderNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s - %s, %d kB retained, render %.1f ms", name, stats, retainedBytes / 1024, getRenderMillis());
+    }
+}
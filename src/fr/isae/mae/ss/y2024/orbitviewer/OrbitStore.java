@@ -0,0 +1,378 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import javax.swing.table.AbstractTableModel;
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * OrbitStore holds the orbits of the main window and shows them as a table. The elements are kept
+ * in primitive columns, parsed once when the orbits are added, and the table only formats the cells
+ * that are displayed, so hundreds of thousands of orbits can be shown. Orbit names are unique; a
+ * name index finds the row of an orbit without scanning the table.
+ * <p>
+ * The table shows the semi-major axis in meters and the angles in degrees. The elements, the name
+ * and the visibility of an orbit can be edited in place; the metrics columns are filled from the
+ * {@link PropagationMetrics} of the orbits. Editing the elements of an orbit imported from a TLE
+ * catalog drops its element set, the SGP4 mode then starts from the edited elements.
+ */
+@SuppressWarnings("serial")
+public class OrbitStore extends AbstractTableModel {
+    // Index of the color and visibility columns, and of the first metrics column
+    static final int COLOR_COLUMN = 7;
+    static final int SHOWN_COLUMN = 8;
+    static final int METRICS_COLUMN = 9;
+    private static final String[] COLUMN_NAMES = {"Name", "Semi-major Axis", "Eccentricity", "Inclination", "RAAN", "Mean Anomaly",
+            "Argument of Perigee", "Color", "Shown", "Time (ms)", "Steps", "Handler Calls", "Samples", "Memory (kB)", "Render (ms)"};
+
+    private int size;
+    private String[] names = new String[16];
+    // Elements in meters and radians
+    private double[] smas = new double[16];
+    private double[] eccs = new double[16];
+    private double[] incs = new double[16];
+    private double[] raans = new double[16];
+    private double[] anms = new double[16];
+    private double[] pas = new double[16];
+    // Element set of the orbits imported from a TLE catalog
+    private TwoLineElements[] tles = new TwoLineElements[16];
+    private int[] colors = new int[16];
+    private boolean[] shown = new boolean[16];
+    private OrbitMetrics[] metrics = new OrbitMetrics[16];
+    // Row of each orbit, by name
+    private final HashMap<String, Integer> rows = new HashMap<>();
+
+    @Override
+    public int getRowCount() {
+        return size;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        if (column == 0 || column >= METRICS_COLUMN) {
+            return String.class;
+        }
+        return column == COLOR_COLUMN ? Color.class : column == SHOWN_COLUMN ? Boolean.class : Double.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column < COLOR_COLUMN || column == SHOWN_COLUMN;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0:
+                return names[row];
+            case 1:
+                return smas[row];
+            case 2:
+                return eccs[row];
+            case 3:
+                return Math.toDegrees(incs[row]);
+            case 4:
+                return Math.toDegrees(raans[row]);
+            case 5:
+                return Math.toDegrees(anms[row]);
+            case 6:
+                return Math.toDegrees(pas[row]);
+            case COLOR_COLUMN:
+                return new Color(colors[row]);
+            case SHOWN_COLUMN:
+                return shown[row];
+            default:
+                return formatMetrics(metrics[row], column - METRICS_COLUMN);
+        }
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (column == 0) {
+            String name = String.valueOf(value).trim();
+            if (name.isEmpty() || rows.containsKey(name)) {
+                return;
+            }
+            rows.remove(names[row]);
+            rows.put(name, row);
+            names[row] = name;
+            metrics[row] = null;
+        } else if (column == SHOWN_COLUMN) {
+            shown[row] = Boolean.TRUE.equals(value);
+        } else if (column < COLOR_COLUMN && value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            // Like a duplicate name, an edit that is not an elliptic orbit is ignored
+            if ((column == 1 && !(number > 0)) || (column == 2 && !(number >= 0 && number < 1))) {
+                return;
+            }
+            switch (column) {
+                case 1:
+                    smas[row] = number;
+                    break;
+                case 2:
+                    eccs[row] = number;
+                    break;
+                case 3:
+                    incs[row] = Math.toRadians(number);
+                    break;
+                case 4:
+                    raans[row] = Math.toRadians(number);
+                    break;
+                case 5:
+                    anms[row] = Math.toRadians(number);
+                    break;
+                default:
+                    pas[row] = Math.toRadians(number);
+                    break;
+            }
+            tles[row] = null;
+        } else {
+            return;
+        }
+        fireTableCellUpdated(row, column);
+    }
+
+    /**
+     * Returns the row of an orbit.
+     *
+     * @param name Name of the orbit
+     * @return Row of the orbit, or -1 if there is no orbit of this name
+     */
+    public int indexOf(String name) {
+        Integer row = rows.get(name);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * Returns the elements of an orbit.
+     *
+     * @param row Row of the orbit
+     * @return The elements, in meters and radians
+     */
+    public OrbitElements getElements(int row) {
+        return new OrbitElements(names[row], smas[row], eccs[row], incs[row], raans[row], anms[row], pas[row], tles[row]);
+    }
+
+    public Color getColor(int row) {
+        return new Color(colors[row]);
+    }
+
+    public boolean isShown(int row) {
+        return shown[row];
+    }
+
+    /**
+     * Adds an orbit at the end of the table.
+     *
+     * @param elements Elements of the orbit
+     * @param color    Color of the orbit
+     * @param visible  Whether the orbit is shown
+     * @return false if there is already an orbit of this name, nothing is added then
+     */
+    public boolean add(OrbitElements elements, Color color, boolean visible) {
+        if (rows.containsKey(elements.getName())) {
+            return false;
+        }
+        append(elements.getName(), elements, color, visible);
+        fireTableRowsInserted(size - 1, size - 1);
+        return true;
+    }
+
+    /**
+     * Adds orbits at the end of the table with a single table event. Orbits named like an orbit
+     * already present get a numbered name.
+     *
+     * @param orbits  Elements of the orbits
+     * @param colors  Color of each orbit, null or null entries for a random color
+     * @param visible Whether each orbit is shown, null to show them all
+     */
+    public void addAll(List<OrbitElements> orbits, Color[] colors, boolean[] visible) {
+        if (orbits.isEmpty()) {
+            return;
+        }
+        int first = size;
+        ensureCapacity(size + orbits.size());
+        for (int i = 0; i < orbits.size(); i++) {
+            OrbitElements elements = orbits.get(i);
+            String name = elements.getName();
+            for (int copy = 2; rows.containsKey(name); copy++) {
+                name = elements.getName() + " (" + copy + ")";
+            }
+            Color color = colors != null && colors[i] != null ? colors[i] : Orbiter.randomOrbitColor();
+            append(name, elements, color, visible == null || visible[i]);
+        }
+        fireTableRowsInserted(first, size - 1);
+    }
+
+    /**
+     * Removes an orbit.
+     *
+     * @param name Name of the orbit
+     * @return false if there is no orbit of this name
+     */
+    public boolean remove(String name) {
+        int row = indexOf(name);
+        if (row < 0) {
+            return false;
+        }
+        removeRows(new int[]{row});
+        return true;
+    }
+
+    /**
+     * Removes several orbits at once. The remaining rows are compacted in a single pass whatever
+     * the number of removed rows, and one table event is fired per block of consecutive rows.
+     *
+     * @param selection Rows to remove, in any order
+     */
+    public void removeRows(int[] selection) {
+        if (selection.length == 0) {
+            return;
+        }
+        int[] removed = selection.clone();
+        Arrays.sort(removed);
+        int target = removed[0];
+        int next = 0;
+        for (int row = removed[0]; row < size; row++) {
+            if (next < removed.length && removed[next] == row) {
+                rows.remove(names[row]);
+                while (next < removed.length && removed[next] == row) {
+                    next++;
+                }
+                continue;
+            }
+            move(row, target++);
+        }
+        int oldSize = size;
+        size = target;
+        Arrays.fill(names, size, oldSize, null);
+        Arrays.fill(tles, size, oldSize, null);
+        Arrays.fill(metrics, size, oldSize, null);
+
+        // Blocks of consecutive rows, from the last one so that the row numbers stay valid
+        int end = removed.length - 1;
+        while (end >= 0) {
+            int start = end;
+            while (start > 0 && removed[start - 1] >= removed[start] - 1) {
+                start--;
+            }
+            fireTableRowsDeleted(removed[start], removed[end]);
+            end = start - 1;
+        }
+    }
+
+    /**
+     * Removes all the orbits.
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        int oldSize = size;
+        size = 0;
+        rows.clear();
+        Arrays.fill(names, 0, oldSize, null);
+        Arrays.fill(tles, 0, oldSize, null);
+        Arrays.fill(metrics, 0, oldSize, null);
+        fireTableRowsDeleted(0, oldSize - 1);
+    }
+
+    /**
+     * Shows the metrics of the last propagation of an orbit in its row.
+     *
+     * @param orbitMetrics Metrics of the orbit
+     */
+    public void setMetrics(OrbitMetrics orbitMetrics) {
+        int row = indexOf(orbitMetrics.getName());
+        if (row < 0) {
+            return;
+        }
+        metrics[row] = orbitMetrics;
+        // One event per metrics column, the events of the other columns would propagate the orbit again
+        for (int column = METRICS_COLUMN; column < COLUMN_NAMES.length; column++) {
+            fireTableCellUpdated(row, column);
+        }
+    }
+
+    private static String formatMetrics(OrbitMetrics orbitMetrics, int index) {
+        if (orbitMetrics == null) {
+            return "";
+        }
+        PropagationStats stats = orbitMetrics.getStats();
+        switch (index) {
+            case 0:
+                return String.format("%.1f", stats.getWallTimeMillis());
+            case 1:
+                return String.valueOf(stats.getIntegratorSteps());
+            case 2:
+                return String.valueOf(stats.getHandlerCalls());
+            case 3:
+                return String.valueOf(stats.getSamples());
+            case 4:
+                return String.valueOf(orbitMetrics.getRetainedBytes() / 1024);
+            default:
+                return orbitMetrics.getRenderNanos() < 0 ? "" : String.format("%.1f", orbitMetrics.getRenderMillis());
+        }
+    }
+
+    private void append(String name, OrbitElements elements, Color color, boolean visible) {
+        ensureCapacity(size + 1);
+        names[size] = name;
+        smas[size] = elements.getSma();
+        eccs[size] = elements.getEcc();
+        incs[size] = elements.getInc();
+        raans[size] = elements.getRaan();
+        anms[size] = elements.getAnm();
+        pas[size] = elements.getPa();
+        tles[size] = elements.getTwoLineElements();
+        colors[size] = color.getRGB();
+        shown[size] = visible;
+        metrics[size] = null;
+        rows.put(name, size);
+        size++;
+    }
+
+    private void move(int from, int to) {
+        names[to] = names[from];
+        smas[to] = smas[from];
+        eccs[to] = eccs[from];
+        incs[to] = incs[from];
+        raans[to] = raans[from];
+        anms[to] = anms[from];
+        pas[to] = pas[from];
+        tles[to] = tles[from];
+        colors[to] = colors[from];
+        shown[to] = shown[from];
+        metrics[to] = metrics[from];
+        rows.put(names[to], to);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= names.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, names.length * 2);
+        names = Arrays.copyOf(names, newCapacity);
+        smas = Arrays.copyOf(smas, newCapacity);
+        eccs = Arrays.copyOf(eccs, newCapacity);
+        incs = Arrays.copyOf(incs, newCapacity);
+        raans = Arrays.copyOf(raans, newCapacity);
+        anms = Arrays.copyOf(anms, newCapacity);
+        pas = Arrays.copyOf(pas, newCapacity);
+        tles = Arrays.copyOf(tles, newCapacity);
+        colors = Arrays.copyOf(colors, newCapacity);
+        shown = Arrays.copyOf(shown, newCapacity);
+        metrics = Arrays.copyOf(metrics, newCapacity);
+    }
+}
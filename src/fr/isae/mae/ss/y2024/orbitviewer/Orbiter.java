@@ -1,13 +1,16 @@
 package fr.isae.mae.ss.y2024.orbitviewer;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.function.DoubleConsumer;
 
-import fr.cnes.sirius.patrius.bodies.GeodeticPoint;
-import fr.cnes.sirius.patrius.bodies.OneAxisEllipsoid;
-import fr.cnes.sirius.patrius.bodies.BodyShape;
 import fr.cnes.sirius.patrius.frames.Frame;
 import fr.cnes.sirius.patrius.frames.FramesFactory;
+import fr.cnes.sirius.patrius.math.geometry.euclidean.threed.Vector3D;
 import fr.cnes.sirius.patrius.math.util.FastMath;
 import fr.cnes.sirius.patrius.orbits.Orbit;
 import fr.cnes.sirius.patrius.orbits.OrbitType;
@@ -17,26 +20,58 @@ import fr.cnes.sirius.patrius.orbits.orbitalparameters.ApsisRadiusParameters;
 import fr.cnes.sirius.patrius.propagation.SpacecraftState;
 import fr.cnes.sirius.patrius.math.ode.FirstOrderIntegrator;
 import fr.cnes.sirius.patrius.math.ode.nonstiff.ClassicalRungeKuttaIntegrator;
+import fr.cnes.sirius.patrius.math.ode.nonstiff.DormandPrince853Integrator;
 import fr.cnes.sirius.patrius.propagation.numerical.NumericalPropagator;
 import fr.cnes.sirius.patrius.propagation.sampling.PatriusFixedStepHandler;
+import fr.cnes.sirius.patrius.propagation.sampling.PatriusStepHandler;
+import fr.cnes.sirius.patrius.propagation.sampling.PatriusStepInterpolator;
+import fr.cnes.sirius.patrius.propagation.sampling.PatriusStepNormalizer;
 import fr.cnes.sirius.patrius.time.AbsoluteDate;
 import fr.cnes.sirius.patrius.time.TimeScale;
 import fr.cnes.sirius.patrius.time.TimeScalesFactory;
 import fr.cnes.sirius.patrius.utils.Constants;
-import fr.cnes.sirius.patrius.utils.exception.PatriusException;
 import fr.cnes.sirius.patrius.utils.exception.PropagationException;
 import gov.nasa.worldwind.geom.Position;
-import gov.nasa.worldwind.WorldWind;
-import gov.nasa.worldwind.avlist.AVKey;
-import gov.nasa.worldwind.render.*;
 import java.awt.Color;
-import gov.nasa.worldwind.layers.RenderableLayer;
 
 
 /**
- * Orbiter class handles the propagation of orbits and rendering them.
+ * Orbiter class handles the propagation of orbits.
  */
 public class Orbiter {
+
+    // TAI - UTC at the date of the orbits, from the leap seconds table of the IERS (s)
+    static final double TAI_MINUS_UTC = 34.;
+    // Julian date (UTC) of the date of the orbits, 2010-01-01T12:00:00 TAI
+    private static final double JD_ORBIT_DATE = 2455198.0 - TAI_MINUS_UTC / 86400.;
+
+    // Settings of the propagation
+    private final PropagatorSettings settings;
+    // Statistics of the last propagation
+    private PropagationStats lastStats;
+    // Ground stations whose access windows are detected, and name given to the satellite in the windows
+    private List<GroundStation> stations = Collections.emptyList();
+    private String satellite;
+    // Access windows found by the last propagation
+    private List<AccessWindow> lastAccessWindows = Collections.emptyList();
+    // Element set propagated by the SGP4 mode, null to derive it from the Keplerian elements
+    private TwoLineElements tle;
+
+    /**
+     * Constructs a new Orbiter with the default, numerical, propagation settings.
+     */
+    public Orbiter() {
+        this(PropagatorSettings.DEFAULT);
+    }
+
+    /**
+     * Constructs a new Orbiter.
+     *
+     * @param settings Settings of the propagation
+     */
+    public Orbiter(PropagatorSettings settings) {
+        this.settings = settings;
+    }
 	
 	/**
      * Runs propagation for the given orbit parameters.
@@ -50,23 +85,162 @@ public class Orbiter {
      * @return ArrayList of positions
      */
 	public ArrayList<Position> runPropagation(double sma, double ecc, double inc, double raan, double anm, double pa) {
-	    ArrayList<Position> toreturn = new ArrayList<>();
+	    return runPropagation(sma, ecc, inc, raan, anm, pa, null);
+	}
+
+	/**
+     * Runs propagation for the given orbit parameters, reporting the progress of the propagation.
+     *
+     * @param sma Semi-major axis
+     * @param ecc Eccentricity
+     * @param inc Inclination
+     * @param raan Right ascension of ascending node
+     * @param anm Mean anomaly
+     * @param pa Argument of perigee
+     * @param progress Receives the propagated fraction of the period (between 0 and 1), may be null
+     * @return ArrayList of positions
+     */
+	public ArrayList<Position> runPropagation(double sma, double ecc, double inc, double raan, double anm, double pa,
+	        DoubleConsumer progress) {
+	    return propagate(sma, ecc, inc, raan, anm, pa, progress).toPositions();
+	}
+
+	/**
+     * Propagates the given orbit parameters into a compact trajectory.
+     *
+     * @param sma Semi-major axis
+     * @param ecc Eccentricity
+     * @param inc Inclination
+     * @param raan Right ascension of ascending node
+     * @param anm Mean anomaly
+     * @param pa Argument of perigee
+     * @param progress Receives the propagated fraction of the span (between 0 and 1), may be null
+     * @return Trajectory of the orbit, limited to the most recent positions if the settings have a trail capacity
+     * @throws IllegalArgumentException if the elements are not those of an elliptic orbit
+     */
+	public Trajectory propagate(double sma, double ecc, double inc, double raan, double anm, double pa,
+	        DoubleConsumer progress) {
+	    if (settings.getTrailCapacity() > 0) {
+	        // Only the end of long propagations is kept
+	        final TrailBuffer trail = new TrailBuffer(settings.getTrailCapacity());
+	        propagate(sma, ecc, inc, raan, anm, pa, progress, trail);
+	        return trail.toTrajectory();
+	    }
+	    // Size the trajectory for the whole span, so that it does not have to grow
+	    final Trajectory trajectory = new Trajectory(estimateSamples(sma));
+	    propagate(sma, ecc, inc, raan, anm, pa, progress, trajectory);
+	    trajectory.trimToSize();
+	    return trajectory;
+	}
+
+	/**
+     * Propagates the given orbit parameters, handing each sample over to a sink as soon as it is computed.
+     *
+     * @param sma Semi-major axis
+     * @param ecc Eccentricity
+     * @param inc Inclination
+     * @param raan Right ascension of ascending node
+     * @param anm Mean anomaly
+     * @param pa Argument of perigee
+     * @param progress Receives the propagated fraction of the span (between 0 and 1), may be null
+     * @param toreturn Sink receiving the samples
+     * @throws IllegalArgumentException if the elements are not those of an elliptic orbit
+     * @throws IllegalStateException if the propagation fails, the sink being left unfinished
+     */
+	public void propagate(double sma, double ecc, double inc, double raan, double anm, double pa,
+	        DoubleConsumer progress, SampleSink toreturn) {
+	    // The span of other orbits has no period, the propagation would never end
+	    if (!(sma > 0) || !(ecc >= 0 && ecc < 1)) {
+	        throw new IllegalArgumentException("Not an elliptic orbit: semi-major axis " + sma + " m, eccentricity " + ecc);
+	    }
+	    final long start = System.nanoTime();
+	    // Number of calls to the step handler and of samples handed over to the sink
+	    final long[] handlerCalls = new long[1];
+	    final long[] samples = new long[1];
 
 	    // Propagation 
 	    // Recovery of the UTC time scale using a "factory" (not to duplicate such unique object)
 	    final TimeScale TUC = TimeScalesFactory.getTAI();
 
-	    // Date of the orbit given in UTC time scale)
-	    final AbsoluteDate date = new AbsoluteDate("2010-01-01T12:00:00.000", TUC);
+	    // Date of the orbit given in UTC time scale), the start of the element set with SGP4
+	    final boolean sgp4 = settings.getMode() == PropagationMode.SGP4;
+	    final AbsoluteDate date = sgp4 && tle != null ? tle.getStartDate() : new AbsoluteDate("2010-01-01T12:00:00.000", TUC);
 
 	    // Getting the frame with which will defined the orbit parameters
 	    // As for time scale, we will use also a "factory".
 	    final Frame GCRF = FramesFactory.getGCRF();
 
+	    final double MU = Constants.WGS84_EARTH_MU;
+
+	    // Definition of the Earth ellipsoid
+	    final double AE = Constants.WGS84_EARTH_EQUATORIAL_RADIUS;
+
+	    // Rotation of the Earth over the propagation, shared by all the orbits of this date
+	    final EarthRotation rotation = EarthRotation.forEpoch(date);
+	    final double[] geodetic = new double[3];
+
+	    // Calculate the orbital period
+	    final double T = 2 * Math.PI * Math.sqrt(Math.pow(sma, 3) / MU);
+	    // Propagation span, a number of revolutions or a fixed duration
+	    final double span = settings.getSpan(T);
+
+	    final ProgressReporter reporter = new ProgressReporter(progress);
+
+	    // One detector per ground station, the elevation is checked at least at each output step
+	    final List<AccessWindow> windows = new ArrayList<>();
+	    final List<AccessDetector> detectors = new ArrayList<>(stations.size());
+	    for (GroundStation station : stations) {
+	        detectors.add(new AccessDetector(station, satellite, date, rotation, settings.getOutputStep(), windows));
+	    }
+
+	    // Closed-form models do not need the numerical propagator
+	    if (settings.getMode().isAnalytical()) {
+	        final AnalyticalPropagator kepler;
+	        if (sgp4) {
+	            // Without element set, the Keplerian elements are taken as mean elements at the date of the orbit, without drag
+	            final TwoLineElements elements = tle != null ? tle
+	                    : new TwoLineElements(0, JD_ORBIT_DATE, 60. * Math.sqrt(MU / (sma * sma * sma)), ecc, inc, raan, pa, anm, 0.);
+	            kepler = new Sgp4Propagator(elements, rotation.angleAt(0.));
+	        } else {
+	            kepler = new KeplerPropagator(sma, ecc, inc, raan, anm, pa, MU, AE, settings.getMode() == PropagationMode.J2_SECULAR);
+	        }
+	        final double step = settings.getOutputStep();
+	        final double[] xyz = new double[3];
+	        // Elevation margin of each station at the previous sample
+	        final double[] margins = new double[detectors.size()];
+	        double previous = 0.;
+	        for (double t = 0.; ; t += step) {
+	            final boolean isLast = t >= span;
+	            final double dt = isLast ? span : t;
+	            kepler.positionAt(dt, xyz);
+	            handlerCalls[0]++;
+	            addSample(toreturn, rotation, dt, xyz[0], xyz[1], xyz[2], geodetic);
+	            samples[0]++;
+	            for (int k = 0; k < detectors.size(); k++) {
+	                final AccessDetector detector = detectors.get(k);
+	                final double margin = detector.g(dt, xyz[0], xyz[1], xyz[2]);
+	                if (dt == 0.) {
+	                    detector.start(dt, margin);
+	                } else if ((margin > 0) != (margins[k] > 0)) {
+	                    detector.crossing(findCrossing(kepler, detector, previous, dt, margin > 0), margin > 0);
+	                }
+	                margins[k] = margin;
+	            }
+	            previous = dt;
+	            reporter.report(dt / span, isLast);
+	            if (isLast) {
+	                break;
+	            }
+	        }
+	        toreturn.finish();
+	        finishAccess(detectors, windows, span);
+	        lastStats = new PropagationStats(settings.getMode(), System.nanoTime() - start, handlerCalls[0], handlerCalls[0], samples[0]);
+	        return;
+	    }
+
 	    // Initial orbit
 	    final double per = sma * (1. - ecc);
 	    final double apo = sma * (1. + ecc);
-	    final double MU = Constants.WGS84_EARTH_MU;
 
 	    final ApsisRadiusParameters par = new ApsisRadiusParameters(per, apo, inc, pa, raan, anm, PositionAngle.MEAN, MU);
 	    final Orbit iniOrbit = new ApsisOrbit(par, GCRF, date);
@@ -74,13 +248,16 @@ public class Orbiter {
 	    // We create a spacecratftstate
 	    final SpacecraftState iniState = new SpacecraftState(iniOrbit);
 
-	    // Definition of the Earth ellipsoid
-	    final double AE = Constants.WGS84_EARTH_EQUATORIAL_RADIUS;
-	    final BodyShape EARTH = new OneAxisEllipsoid(AE, Constants.WGS84_EARTH_FLATTENING, GCRF);
-
-	    // Initialization of the Runge Kutta integrator with a 2 s step
-	    final double pasRk = 2.;
-	    final FirstOrderIntegrator integrator = new ClassicalRungeKuttaIntegrator(pasRk);
+	    final FirstOrderIntegrator integrator;
+	    if (settings.getMode() == PropagationMode.ADAPTIVE) {
+	        // Initialization of the Dormand-Prince 8(5,3) integrator, its step adapts to the requested tolerances
+	        integrator = new DormandPrince853Integrator(settings.getMinStep(), settings.getMaxStep(),
+	                settings.getAbsoluteTolerance(), settings.getRelativeTolerance());
+	    } else {
+	        // Initialization of the Runge Kutta integrator with a fixed step (2 s by default)
+	        final double pasRk = settings.getIntegrationStep();
+	        integrator = new ClassicalRungeKuttaIntegrator(pasRk);
+	    }
 
 	    // Initialization of the propagator
 	    final NumericalPropagator propagator = new NumericalPropagator(integrator);
@@ -91,92 +268,222 @@ public class Orbiter {
 
 	    // SPECIFIC
 	    // Creation of a fixed step handler
-	    final ArrayList<SpacecraftState> listOfStates = new ArrayList<SpacecraftState>();
 	    PatriusFixedStepHandler myStepHandler = new PatriusFixedStepHandler() {
 	        private static final long serialVersionUID = 1L;
 	        public void init(SpacecraftState s0, AbsoluteDate t) {
 	            // Nothing to do ...
 	        }
 	        public void handleStep(SpacecraftState currentState, boolean isLast) throws PropagationException {
-	            // Adding S/C to the list
-	            listOfStates.add(currentState);
-	            try {
-	                // Adjust position for Earth rotation
-	                final GeodeticPoint geodeticPoint = EARTH.transform(currentState.getPVCoordinates().getPosition(), GCRF, date);
-	                // Get the inertial frame of the spacecraft state
-	                final Frame inertialFrame = currentState.getFrame();
-	                // Get the rotation angle of the inertial frame relative to GCRF
-	                final double rotationAngle = inertialFrame.getTransformTo(GCRF, date).getRotation().getAngle();
-	                // Incorporate Earth rotation
-	                double longitude = geodeticPoint.getLongitude() + rotationAngle;
-	                // Ensure longitude is within [-PI, PI] range
-	                if (longitude > FastMath.PI) longitude -= 2 * FastMath.PI;
-	                else if (longitude < -FastMath.PI) longitude += 2 * FastMath.PI;
-	                toreturn.add(Position.fromRadians(geodeticPoint.getLatitude(), longitude, geodeticPoint.getAltitude()));
-	            } catch (PatriusException e) {
-	                e.printStackTrace();
-	            }
+	            handlerCalls[0]++;
+	            // Adding the S/C position to the trajectory, the states are in GCRF like the initial orbit
+	            final Vector3D position = currentState.getPVCoordinates().getPosition();
+	            addSample(toreturn, rotation, currentState.getDate().durationFrom(date), position.getX(), position.getY(),
+	                    position.getZ(), geodetic);
+	            samples[0]++;
+	            reporter.report(currentState.getDate().durationFrom(date) / span, isLast);
 	        }
 	    };
 
-	    // The handler frequency is set to 10S
-	    propagator.setMasterMode(10., myStepHandler);
+	    // The handler frequency is set to 10S by default, integrator steps are counted on the way
+	    final StepCounter stepCounter = new StepCounter(new PatriusStepNormalizer(settings.getOutputStep(), myStepHandler));
+	    propagator.setMasterMode(stepCounter);
 	    // SPECIFIC
 
-	    // Calculate the orbital period
-	    final double T = 2 * Math.PI * Math.sqrt(Math.pow(sma, 3) / MU);
-	    final AbsoluteDate finalDate = date.shiftedBy(T);
+	    // The access windows are found by the event detection of the propagator
+	    for (AccessDetector detector : detectors) {
+	        propagator.addEventDetector(detector);
+	    }
+
+	    final AbsoluteDate finalDate = date.shiftedBy(span);
 
-	    // Propagate for the calculated orbital period
-	    SpacecraftState finalState;
+	    // Propagate over the requested span (one orbital period by default)
 	    try {
-	        finalState = propagator.propagate(finalDate);
-	        System.out.println(finalState.getDate().toString(TUC) + " ; LV = " + FastMath.toDegrees(finalState.getLv()) + " deg");
+	        propagator.propagate(finalDate);
 	    } catch (PropagationException e) {
-	        e.printStackTrace();
+	        // A cancellation from the step handler is wrapped by the propagator
+	        if (e.getCause() instanceof CancellationException) {
+	            throw (CancellationException) e.getCause();
+	        }
+	        // The sink is not finished, the truncated trajectory must not be taken for a complete one
+	        throw new IllegalStateException("Propagation failed: " + e.getMessage(), e);
 	    }
+	    toreturn.finish();
+	    finishAccess(detectors, windows, span);
+	    lastStats = new PropagationStats(settings.getMode(), System.nanoTime() - start, stepCounter.steps, handlerCalls[0], samples[0]);
+	}
 
-	    // Return the list of positions
-	    return toreturn;
+	/**
+     * Estimates the number of samples produced for an orbit.
+     *
+     * @param sma Semi-major axis
+     * @return Number of samples over the propagation span, at most the trail capacity if there is one
+     */
+	public int estimateSamples(double sma) {
+	    final double T = 2 * Math.PI * Math.sqrt(Math.pow(sma, 3) / Constants.WGS84_EARTH_MU);
+	    final double samples = settings.getSpan(T) / settings.getOutputStep() + 2;
+	    return (int) (settings.getTrailCapacity() > 0 ? Math.min(samples, settings.getTrailCapacity()) : Math.min(samples, Integer.MAX_VALUE - 8));
 	}
-    
-    // Define some colors for orbits
-    private static final Color[] ORBIT_COLORS = {Color.RED, Color.GREEN, Color.BLUE, Color.ORANGE, Color.MAGENTA, Color.CYAN};
-	
-    /**
-     * Renders the orbit path on the globe.
+
+	/**
+     * Returns the date the propagation of an orbit starts from, the time of its samples being counted from it.
      *
-     * @param positions ArrayList of positions representing the orbit path
-     * @param orbitName Name of the orbit
-     * @return RenderableLayer containing the rendered orbit path
+     * @param mode Propagation mode
+     * @param tle Element set of the orbit, may be null
+     * @return Julian date (UTC), the start of the element set with SGP4, else the date of the orbits
      */
-    public RenderableLayer drawOrbit(ArrayList<Position> positions, String orbitName) {
-        RenderableLayer layer = new RenderableLayer();
+	public static double startJulianDate(PropagationMode mode, TwoLineElements tle) {
+	    return mode == PropagationMode.SGP4 && tle != null ? tle.getStart() : JD_ORBIT_DATE;
+	}
 
-        // Get a random color from the predefined array
-        Color orbitColor = ORBIT_COLORS[new Random().nextInt(ORBIT_COLORS.length)];
+	/**
+     * Sets the Two-Line Element set propagated by the SGP4 mode during the next propagations,
+     * instead of the Keplerian elements given to the propagation.
+     *
+     * @param tle Element set of the orbit, or null to derive it from the Keplerian elements
+     */
+	public void setTwoLineElements(TwoLineElements tle) {
+	    this.tle = tle;
+	}
 
-        // Create and set attributes for the orbit
-        ShapeAttributes attrs = new BasicShapeAttributes();
-        attrs.setOutlineMaterial(new Material(orbitColor));
-        attrs.setOutlineWidth(2d);
+	/**
+     * Sets the ground stations whose access windows are detected during the next propagations.
+     *
+     * @param stations Ground stations, empty not to detect any window
+     * @param satellite Name of the satellite given to the windows
+     */
+	public void setGroundStations(List<GroundStation> stations, String satellite) {
+	    this.stations = stations;
+	    this.satellite = satellite;
+	}
 
-        // Create a path for the orbit
-        Path path = new Path(positions);
-        path.setAttributes(attrs);
-        path.setVisible(true);
-        path.setAltitudeMode(WorldWind.RELATIVE_TO_GROUND);
-        path.setPathType(AVKey.GREAT_CIRCLE);
+	/**
+     * Returns the access windows of the ground stations found by the last propagation run by this Orbiter.
+     *
+     * @return The windows, by start time
+     */
+	public List<AccessWindow> getLastAccessWindows() {
+	    return lastAccessWindows;
+	}
 
-        // Set the name of the orbit as the display name
-        layer.setName(orbitName);
+	/**
+     * Closes the windows still open at the end of a propagation and keeps the windows of the propagation.
+     */
+	private void finishAccess(List<AccessDetector> detectors, List<AccessWindow> windows, double span) {
+	    for (AccessDetector detector : detectors) {
+	        detector.finish(span);
+	    }
+	    windows.sort(Comparator.comparingDouble(AccessWindow::getStart));
+	    lastAccessWindows = windows;
+	}
 
-        // Add tooltip with the orbit name
-        path.setValue(AVKey.DISPLAY_NAME, orbitName);
+	/**
+     * Finds by bisection the time at which a closed-form orbit crosses the minimum elevation of a station.
+     *
+     * @param kepler Closed-form propagator
+     * @param detector Detector of the station
+     * @param before Time before the crossing (s)
+     * @param after Time after the crossing (s)
+     * @param rising Whether the satellite rises above the minimum elevation
+     * @return Time of the crossing, to the accuracy of the detectors (s)
+     */
+	private static double findCrossing(AnalyticalPropagator kepler, AccessDetector detector, double before, double after, boolean rising) {
+	    final double[] xyz = new double[3];
+	    while (after - before > AccessDetector.THRESHOLD) {
+	        final double middle = (before + after) / 2.;
+	        kepler.positionAt(middle, xyz);
+	        if ((detector.g(middle, xyz[0], xyz[1], xyz[2]) > 0) == rising) {
+	            after = middle;
+	        } else {
+	            before = middle;
+	        }
+	    }
+	    return after;
+	}
+
+	/**
+     * Returns the statistics of the last propagation run by this Orbiter.
+     *
+     * @return The statistics, or null if no propagation was run
+     */
+	public PropagationStats getLastStats() {
+	    return lastStats;
+	}
+
+	/**
+     * Converts an inertial position to a geodetic position on the rotating Earth and adds it to the sink.
+     *
+     * @param sink Sink receiving the sample
+     * @param rotation Rotation of the Earth since the date of the orbit
+     * @param time Time since the date of the orbit (s)
+     * @param x GCRF X coordinate of the spacecraft (m)
+     * @param y GCRF Y coordinate of the spacecraft (m)
+     * @param z GCRF Z coordinate of the spacecraft (m)
+     * @param geodetic Work array of 3 elements
+     */
+	private static void addSample(SampleSink sink, EarthRotation rotation, double time, double x, double y, double z,
+	        double[] geodetic) {
+	    // A few flops instead of a walk through the frame tree
+	    rotation.toGeodetic(time, x, y, z, geodetic);
+	    sink.add(time, geodetic[0], geodetic[1], geodetic[2]);
+	}
+
+	/**
+     * Counts the steps taken by the integrator before handing them over to the fixed step handler.
+     */
+	private static class StepCounter implements PatriusStepHandler {
+	    private static final long serialVersionUID = 1L;
+	    private final PatriusStepHandler handler;
+	    private long steps;
+
+	    StepCounter(PatriusStepHandler handler) {
+	        this.handler = handler;
+	    }
+
+	    public void init(SpacecraftState s0, AbsoluteDate t) {
+	        steps = 0;
+	        handler.init(s0, t);
+	    }
 
-        // Add the orbit path to the layer
-        layer.addRenderable(path);
+	    public void handleStep(PatriusStepInterpolator interpolator, boolean isLast) throws PropagationException {
+	        steps++;
+	        handler.handleStep(interpolator, isLast);
+	    }
+	}
+
+	/**
+     * Forwards the propagation progress to a listener, only when it changes by at least one percent.
+     */
+	private static class ProgressReporter {
+	    private final DoubleConsumer progress;
+	    private int lastPercent = -1;
+
+	    ProgressReporter(DoubleConsumer progress) {
+	        this.progress = progress;
+	    }
+
+	    void report(double fraction, boolean isLast) {
+	        if (progress == null) {
+	            return;
+	        }
+	        final double clamped = isLast ? 1. : FastMath.min(1., fraction);
+	        final int percent = (int) (clamped * 100);
+	        if (percent != lastPercent || isLast) {
+	            lastPercent = percent;
+	            progress.accept(clamped);
+	        }
+	    }
+	}
+    
+    // Define some colors for orbits
+    private static final Color[] ORBIT_COLORS = {Color.RED, Color.GREEN, Color.BLUE, Color.ORANGE, Color.MAGENTA, Color.CYAN};
+    private static final Random RANDOM = new Random();
 
-        return layer;
+    /**
+     * Picks a random orbit color from the predefined array.
+     *
+     * @return Color of an orbit
+     */
+    public static Color randomOrbitColor() {
+        return ORBIT_COLORS[RANDOM.nextInt(ORBIT_COLORS.length)];
     }
 }
\ No newline at end of file
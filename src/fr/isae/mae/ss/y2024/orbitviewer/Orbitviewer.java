@@ -1,13 +1,49 @@
 package fr.isae.mae.ss.y2024.orbitviewer;
 
 import gov.nasa.worldwindx.examples.ApplicationTemplate;
-import gov.nasa.worldwind.geom.Position;
-import gov.nasa.worldwind.layers.RenderableLayer;
 
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
 import gov.nasa.worldwind.View;
+import gov.nasa.worldwind.WorldWind;
+import gov.nasa.worldwind.geom.Position;
+import gov.nasa.worldwind.geom.Sector;
+import gov.nasa.worldwind.layers.RenderableLayer;
+import gov.nasa.worldwind.render.BasicShapeAttributes;
+import gov.nasa.worldwind.render.Material;
+import gov.nasa.worldwind.render.Path;
+import gov.nasa.worldwind.render.PointPlacemark;
+import gov.nasa.worldwind.render.PointPlacemarkAttributes;
+import gov.nasa.worldwind.render.ShapeAttributes;
+import gov.nasa.worldwind.render.SurfaceImage;
 
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.GridLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -20,6 +56,8 @@ public class Orbitviewer extends ApplicationTemplate {
      */
     @SuppressWarnings("serial")
 	public static class AppFrame extends ApplicationTemplate.AppFrame {
+        // Largest number of conjunctions highlighted on the globe, the closest ones
+        private static final int MAX_HIGHLIGHTED_CONJUNCTIONS = 200;
 
     	// Arrays to hold orbit parameters
         private double[] smas;
@@ -29,6 +67,38 @@ public class Orbitviewer extends ApplicationTemplate {
         private double[] anms;
         private double[] pas;
         private String[] orbitNames;
+        private PropagatorSettings settings;
+
+        // Engine propagating the orbits in the background
+        private final PropagationEngine engine = new PropagationEngine();
+        // Orbits displayed, in the order of the rows of the orbit table when the frame is bound to it
+        private final ArrayList<LiveOrbit> orbits = new ArrayList<>();
+        // Panel holding one progress bar per orbit
+        private JPanel progressPanel;
+        // Orbit table followed by the frame, and the listener registered on it
+        private OrbitStore orbitStore;
+        private final TableModelListener tableListener = this::tableChanged;
+        // Renderer extending the orbit paths while they are propagated
+        private StreamingOrbitRenderer renderer;
+        // Ephemeris file displayed instead of propagated orbits
+        private EphemerisFile ephemeris;
+        // Layer highlighting the conjunctions of the last screening
+        private RenderableLayer conjunctionLayer;
+        // Engine finding the access windows of the ground stations, and the layer of the stations and contacts
+        private PropagationEngine accessEngine;
+        private RenderableLayer accessLayer;
+        // Engines propagating the Monte Carlo dispersions, and the layers of their envelopes by orbit name
+        private final List<PropagationEngine> dispersionEngines = Collections.synchronizedList(new ArrayList<>());
+        private final HashMap<String, RenderableLayer> dispersionLayers = new HashMap<>();
+        // Engine propagating the orbits of the coverage analysis, the file of their tracks and the layers of the coverage
+        private PropagationEngine coverageEngine;
+        private EphemerisWriter coverageWriter;
+        private File coverageFile;
+        private RenderableLayer revisitLayer;
+        private RenderableLayer gapLayer;
+        // Engine propagating the orbits exported to a document, and the document
+        private PropagationEngine exportEngine;
+        private TrajectoryExport exportDocument;
 
         /**
          * Constructs an instance of the AppFrame with orbit parameters.
@@ -42,6 +112,23 @@ public class Orbitviewer extends ApplicationTemplate {
          * @param orbitNames Names of the orbits
          */
         public AppFrame(double[] smas, double[] eccs, double[] incs, double[] raans, double[] anms, double[] pas, String[] orbitNames) {
+            this(smas, eccs, incs, raans, anms, pas, orbitNames, PropagatorSettings.DEFAULT);
+        }
+
+        /**
+         * Constructs an instance of the AppFrame with orbit parameters and propagator settings.
+         *
+         * @param smas       Semi-major axis values
+         * @param eccs       Eccentricity values
+         * @param incs       Inclination values
+         * @param raans      Right ascension of ascending node values
+         * @param anms       Mean anomaly values
+         * @param pas        Argument of perigee values
+         * @param orbitNames Names of the orbits
+         * @param settings   Settings of the propagation
+         */
+        public AppFrame(double[] smas, double[] eccs, double[] incs, double[] raans, double[] anms, double[] pas, String[] orbitNames,
+                        PropagatorSettings settings) {
         	// Call superclass constructor with parameters
             super(true, true, false);
 
@@ -57,13 +144,123 @@ public class Orbitviewer extends ApplicationTemplate {
             this.anms = anms;
             this.pas = pas;
             this.orbitNames = orbitNames;
+            this.settings = settings;
+
+            // Stop the propagations still running when the frame is closed
+            addCloseHandler();
             
             // Start the simulation
             startSimulation();
         }
 
+        /**
+         * Constructs an instance of the AppFrame displaying the trajectories of an ephemeris file,
+         * without propagating anything.
+         *
+         * @param ephemeris Ephemeris file, closed with the frame
+         */
+        public AppFrame(EphemerisFile ephemeris) {
+            // Call superclass constructor with parameters
+            super(true, true, false);
+
+            // Replace BasicOrbitView with CustomOrbitView
+            this.getWwd().setView(new CustomOrbitView());
+
+            this.ephemeris = ephemeris;
+            addCloseHandler();
+            showEphemeris();
+        }
+
+        /**
+         * Constructs an instance of the AppFrame bound to an orbit table. The orbits shown in the table
+         * are propagated, then every inserted, deleted, edited, shown or hidden row updates only its
+         * own orbit, so the frame can stay open for the whole session.
+         *
+         * @param orbitStore Orbits of the table
+         * @param settings   Settings of the propagation
+         */
+        public AppFrame(OrbitStore orbitStore, PropagatorSettings settings) {
+            // Call superclass constructor with parameters
+            super(true, true, false);
+
+            // Replace BasicOrbitView with CustomOrbitView
+            this.getWwd().setView(new CustomOrbitView());
+
+            this.orbitStore = orbitStore;
+            this.settings = settings;
+            addCloseHandler();
+            showViewer();
+
+            for (int row = 0; row < orbitStore.getRowCount(); row++) {
+                orbits.add(loadRow(row));
+            }
+            orbitStore.addTableModelListener(tableListener);
+        }
+
+        /**
+         * Releases the engine, the renderer, the orbit table and the ephemeris file when the frame is closed.
+         */
+        private void addCloseHandler() {
+            setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+            addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    if (orbitStore != null) {
+                        orbitStore.removeTableModelListener(tableListener);
+                    }
+                    engine.shutdown();
+                    if (accessEngine != null) {
+                        accessEngine.shutdown();
+                    }
+                    synchronized (dispersionEngines) {
+                        dispersionEngines.forEach(PropagationEngine::shutdown);
+                    }
+                    stopCoverage();
+                    try {
+                        stopExport();
+                    } catch (IOException ex) {
+                        // The window is gone, the document is left as it is
+                    }
+                    if (renderer != null) {
+                        renderer.stop();
+                    }
+                    if (ephemeris != null) {
+                        try {
+                            ephemeris.close();
+                        } catch (IOException ex) {
+                            ex.printStackTrace();
+                        }
+                    }
+                }
+            });
+        }
+
+        /**
+         * Adds the trajectories of the ephemeris file to a single constellation layer. The samples are
+         * read from the mapped file only to build the vertices.
+         */
+        private void showEphemeris() {
+            ConstellationRenderable constellation = new ConstellationRenderable();
+            for (int i = 0; i < ephemeris.getOrbitCount(); i++) {
+                try {
+                    int index = constellation.addOrbit(ephemeris.getName(i), Orbiter.randomOrbitColor());
+                    constellation.setTrajectory(index, ephemeris.getTrajectory(i));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            RenderableLayer layer = new RenderableLayer();
+            layer.setName("Orbits");
+            layer.addRenderable(constellation);
+            insertBeforeCompass(getWwd(), layer);
+            setTitle("Orbit Viewer");
+            setVisible(true);
+        }
+
         /**
          * Starts the simulation with the provided orbit parameters.
+         * The orbits are propagated in parallel in the background, and each orbit path is extended
+         * on the globe while its propagation runs.
          */
         public void startSimulation() {
             // Start the simulation with the provided orbit parameters
@@ -72,32 +269,936 @@ public class Orbitviewer extends ApplicationTemplate {
                 return;
             }
 
-            // Initialize a list to hold the renderable layers
-            ArrayList<RenderableLayer> renderableLayers = new ArrayList<>();
+            showViewer();
 
-            // Create and add Orbiter objects to the list based on the provided parameters
+            // Propagate the orbits in the background
             for (int i = 0; i < smas.length; i++) {
-                Orbiter orbiter = new Orbiter();
-                ArrayList<Position> positions = orbiter.runPropagation(smas[i], eccs[i], incs[i], raans[i], anms[i], pas[i]);
-                String orbitName = orbitNames[i];
-                RenderableLayer layer = orbiter.drawOrbit(positions, orbitName);
-                renderableLayers.add(layer);
+                orbits.add(addOrbit(new OrbitElements(orbitNames[i], smas[i], eccs[i], incs[i], raans[i], anms[i], pas[i]),
+                        Orbiter.randomOrbitColor()));
+            }
+        }
+
+        /**
+         * Changes the propagator settings. All the orbits are propagated again if the settings differ;
+         * the trajectory cache spares the ones already propagated with the new settings.
+         *
+         * @param newSettings Settings of the propagation
+         */
+        public void setSettings(PropagatorSettings newSettings) {
+            if (newSettings.equals(settings)) {
+                return;
+            }
+            settings = newSettings;
+            for (int i = 0; i < orbits.size(); i++) {
+                LiveOrbit orbit = orbits.get(i);
+                if (orbit.elements != null) {
+                    removeOrbit(orbit);
+                    orbits.set(i, addOrbit(orbit.elements, orbit.color));
+                }
+            }
+        }
+
+        /**
+         * Shows the frame with an empty progress panel and the layer of the orbits.
+         */
+        private void showViewer() {
+            // Show the frame right away, with the progress of each orbit
+            progressPanel = new JPanel();
+            progressPanel.setLayout(new BoxLayout(progressPanel, BoxLayout.Y_AXIS));
+            JPanel wrapper = new JPanel(new BorderLayout());
+            wrapper.add(progressPanel, BorderLayout.NORTH);
+            JButton screenButton = new JButton("Screen Conjunctions");
+            screenButton.addActionListener(e -> screenConjunctions());
+            JButton stationsButton = new JButton("Ground Stations");
+            stationsButton.addActionListener(e -> computeAccess());
+            JButton coverageButton = new JButton("Coverage");
+            coverageButton.addActionListener(e -> computeCoverage());
+            JButton exportButton = new JButton("Export");
+            exportButton.addActionListener(e -> exportTrajectories());
+            JPanel buttonPanel = new JPanel(new GridLayout(4, 1));
+            buttonPanel.add(screenButton);
+            buttonPanel.add(stationsButton);
+            buttonPanel.add(coverageButton);
+            buttonPanel.add(exportButton);
+            JPanel sidePanel = new JPanel(new BorderLayout());
+            sidePanel.add(buttonPanel, BorderLayout.NORTH);
+            sidePanel.add(new JScrollPane(wrapper), BorderLayout.CENTER);
+            getContentPane().add(sidePanel, BorderLayout.EAST);
+            setTitle("Orbit Viewer");
+            setVisible(true);
+
+            // Add the orbit layer right away, the orbits are filled as the samples arrive
+            renderer = new StreamingOrbitRenderer(getWwd(), new String[0]);
+            renderer.start();
+        }
+
+        /**
+         * Updates the orbits after a change of the orbit table. Only the inserted, deleted or edited
+         * rows are propagated again; changes of the metrics columns are ignored.
+         *
+         * @param e Event describing the change
+         */
+        private void tableChanged(TableModelEvent e) {
+            int first = e.getFirstRow();
+            int last = Math.min(e.getLastRow(), orbitStore.getRowCount() - 1);
+            if (e.getType() == TableModelEvent.INSERT) {
+                for (int row = first; row <= last; row++) {
+                    orbits.add(row, loadRow(row));
+                }
+            } else if (e.getType() == TableModelEvent.DELETE) {
+                for (int row = Math.min(e.getLastRow(), orbits.size() - 1); row >= first; row--) {
+                    removeOrbit(orbits.remove(row));
+                }
+            } else if (first == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE) {
+                // The whole table changed
+                for (LiveOrbit orbit : orbits) {
+                    removeOrbit(orbit);
+                }
+                orbits.clear();
+                for (int row = 0; row < orbitStore.getRowCount(); row++) {
+                    orbits.add(loadRow(row));
+                }
+            } else if (e.getColumn() == TableModelEvent.ALL_COLUMNS || e.getColumn() < OrbitStore.METRICS_COLUMN) {
+                for (int row = first; row <= last; row++) {
+                    removeOrbit(orbits.get(row));
+                    orbits.set(row, loadRow(row));
+                }
+            }
+        }
+
+        /**
+         * Reads an orbit from the table and starts its propagation if it is shown. The trajectories of
+         * the hidden orbits are neither propagated nor read from the cache.
+         *
+         * @param row Row of the orbit in the table
+         * @return The orbit, without elements if the row is hidden
+         */
+        private LiveOrbit loadRow(int row) {
+            if (!orbitStore.isShown(row)) {
+                return new LiveOrbit(null);
+            }
+            return addOrbit(orbitStore.getElements(row), orbitStore.getColor(row));
+        }
+
+        /**
+         * Adds an orbit to the globe and to the progress panel, then propagates it in the background.
+         *
+         * @param elements Elements of the orbit
+         * @param color    Color of the orbit path
+         * @return The added orbit
+         */
+        private LiveOrbit addOrbit(OrbitElements elements, Color color) {
+            LiveOrbit orbit = new LiveOrbit(elements);
+            orbit.color = color;
+            orbit.index = renderer.addOrbit(elements.getName(), color, settings.getTrailCapacity());
+
+            orbit.row = new JPanel(new GridLayout(2, 1));
+            orbit.row.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+            orbit.row.add(new JLabel(elements.getName()));
+            orbit.progressBar = new JProgressBar(0, 100);
+            orbit.progressBar.setStringPainted(true);
+            orbit.row.add(orbit.progressBar);
+            progressPanel.add(orbit.row);
+            progressPanel.revalidate();
+
+            engine.submit(Collections.singletonList(elements), settings, new PropagationListener() {
+                @Override
+                public void orbitProgress(int index, double fraction) {
+                    SwingUtilities.invokeLater(() -> orbit.progressBar.setValue((int) (fraction * 100)));
+                }
+
+                @Override
+                public void orbitSamples(int index, Trajectory batch) {
+                    renderer.publish(orbit.index, batch);
+                }
+
+                @Override
+                public void orbitCompleted(int index, OrbitElements elements, Trajectory trajectory, PropagationStats stats) {
+                    SwingUtilities.invokeLater(() -> {
+                        if (orbit.removed) {
+                            return;
+                        }
+                        orbit.trajectory = trajectory;
+                        orbit.progressBar.setValue(100);
+                        orbit.progressBar.setString(String.format("%d steps, %.0f ms", stats.getIntegratorSteps(), stats.getWallTimeMillis()));
+                        PropagationMetrics.getInstance().recordRenderTime(elements.getName(), renderer.complete(orbit.index, trajectory));
+                    });
+                }
+
+                @Override
+                public void orbitFailed(int index, OrbitElements elements, Throwable error) {
+                    SwingUtilities.invokeLater(() -> {
+                        // The reason is shown by the row of the orbit
+                        orbit.progressBar.setString("Failed");
+                        orbit.progressBar.setToolTipText(String.valueOf(error.getMessage()));
+                    });
+                }
+            });
+            return orbit;
+        }
+
+        /**
+         * Removes an orbit from the globe and from the progress panel. A propagation still running
+         * completes in the background, but its result is not displayed.
+         *
+         * @param orbit Orbit to remove
+         */
+        private void removeOrbit(LiveOrbit orbit) {
+            if (orbit.elements == null || orbit.removed) {
+                return;
+            }
+            orbit.removed = true;
+            renderer.removeOrbit(orbit.index);
+            progressPanel.remove(orbit.row);
+            progressPanel.revalidate();
+            progressPanel.repaint();
+        }
+
+        /**
+         * Screens the propagated orbits for conjunctions closer than a threshold asked to the user.
+         * The screening runs in the background, then the conjunctions are listed and highlighted.
+         */
+        private void screenConjunctions() {
+            String input = JOptionPane.showInputDialog(this, "Miss distance threshold (km):", "10");
+            if (input == null) {
+                return;
+            }
+            double threshold;
+            try {
+                threshold = Double.parseDouble(input) * 1000.;
+                if (threshold <= 0) {
+                    throw new NumberFormatException();
+                }
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(this, "Invalid miss distance threshold.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            // Only the orbits whose propagation completed are screened
+            List<OrbitElements> screened = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            List<Trajectory> trajectories = new ArrayList<>();
+            for (LiveOrbit orbit : orbits) {
+                if (orbit.trajectory != null && !orbit.removed) {
+                    screened.add(orbit.elements);
+                    names.add(orbit.elements.getName());
+                    trajectories.add(orbit.trajectory);
+                }
+            }
+            if (trajectories.size() < 2) {
+                JOptionPane.showMessageDialog(this, "At least two propagated orbits are needed to screen conjunctions.", "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (!haveCommonStart(screened, "Screening conjunctions")) {
+                return;
+            }
+
+            double step = settings.getOutputStep();
+            ForkJoinPool.commonPool().execute(() -> {
+                List<Conjunction> conjunctions;
+                try {
+                    conjunctions = new ConjunctionScreener(threshold, step).screen(trajectories);
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, "Screening conjunctions failed: " + e,
+                            "Error", JOptionPane.ERROR_MESSAGE));
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    highlightConjunctions(names, trajectories, conjunctions, step);
+                    new ConjunctionFrame(names, conjunctions, threshold,
+                            conjunction -> getWwd().getView().goTo(positionAt(trajectories.get(conjunction.getFirst()),
+                                    conjunction.getTime(), step), 4e6));
+                });
+            });
+        }
+
+        /**
+         * Checks that orbits analysed together start at the same date, since their samples are matched
+         * by their time from the start. With SGP4 the element sets start at their own start date, the
+         * other orbits at the date of the orbits; the user is told if the dates differ.
+         *
+         * @param elements Orbits analysed together
+         * @param analysis Name of the analysis, starting the message
+         * @return true if all the orbits start at the same date
+         */
+        private boolean haveCommonStart(List<OrbitElements> elements, String analysis) {
+            double first = Orbiter.startJulianDate(settings.getMode(), elements.get(0).getTwoLineElements());
+            for (OrbitElements orbit : elements) {
+                double start = Orbiter.startJulianDate(settings.getMode(), orbit.getTwoLineElements());
+                if (Math.abs(start - first) * 86400. > 1e-3) {
+                    JOptionPane.showMessageDialog(this, analysis + " needs orbits starting at the same date, but "
+                            + elements.get(0).getName() + " and " + orbit.getName() + " do not.\nWith SGP4, the imported element "
+                            + "sets start at the latest epoch of their catalog and the other orbits on 2010-01-01; hide the "
+                            + "orbits of the other dates first.", "Error", JOptionPane.ERROR_MESSAGE);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Highlights the closest conjunctions of a screening on the globe, replacing the previous ones.
+         * Each conjunction is drawn as a segment joining the two objects, labelled with their names.
+         *
+         * @param names        Names of the screened orbits
+         * @param trajectories Screened trajectories
+         * @param conjunctions Conjunctions found by the screening
+         * @param step         Time between two samples of the trajectories (s)
+         */
+        private void highlightConjunctions(List<String> names, List<Trajectory> trajectories, List<Conjunction> conjunctions, double step) {
+            if (conjunctionLayer == null) {
+                conjunctionLayer = new RenderableLayer();
+                conjunctionLayer.setName("Conjunctions");
+                insertBeforeCompass(getWwd(), conjunctionLayer);
+            }
+            conjunctionLayer.removeAllRenderables();
+
+            ShapeAttributes attrs = new BasicShapeAttributes();
+            attrs.setOutlineMaterial(new Material(Color.RED));
+            attrs.setOutlineWidth(4d);
+            PointPlacemarkAttributes placemarkAttrs = new PointPlacemarkAttributes();
+            placemarkAttrs.setUsePointAsDefaultImage(true);
+            placemarkAttrs.setLineMaterial(new Material(Color.RED));
+            placemarkAttrs.setLabelMaterial(new Material(Color.RED));
+            placemarkAttrs.setScale(6d);
+
+            List<Conjunction> closest = new ArrayList<>(conjunctions);
+            closest.sort((a, b) -> Double.compare(a.getMissDistance(), b.getMissDistance()));
+            for (Conjunction conjunction : closest.subList(0, Math.min(closest.size(), MAX_HIGHLIGHTED_CONJUNCTIONS))) {
+                Position first = positionAt(trajectories.get(conjunction.getFirst()), conjunction.getTime(), step);
+                Position second = positionAt(trajectories.get(conjunction.getSecond()), conjunction.getTime(), step);
+                ArrayList<Position> positions = new ArrayList<>();
+                positions.add(first);
+                positions.add(second);
+                Path path = new Path(positions);
+                path.setAttributes(attrs);
+                path.setAltitudeMode(WorldWind.ABSOLUTE);
+                conjunctionLayer.addRenderable(path);
+
+                PointPlacemark placemark = new PointPlacemark(first);
+                placemark.setAttributes(placemarkAttrs);
+                placemark.setAltitudeMode(WorldWind.ABSOLUTE);
+                placemark.setLabelText(String.format("%s / %s: %.2f km", names.get(conjunction.getFirst()),
+                        names.get(conjunction.getSecond()), conjunction.getMissDistance() / 1000.));
+                conjunctionLayer.addRenderable(placemark);
+            }
+            getWwd().redraw();
+        }
+
+        /**
+         * Computes the access windows of a network of ground stations, read from a CSV file chosen by
+         * the user, to the displayed orbits. The orbits are propagated again in the background with
+         * one elevation detector per station, then the stations, the contacts and the windows are shown.
+         */
+        private void computeAccess() {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Open Ground Stations");
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            List<GroundStation> stations;
+            try {
+                stations = StationCatalog.readCsv(chooser.getSelectedFile());
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            List<OrbitElements> elements = new ArrayList<>();
+            for (LiveOrbit orbit : orbits) {
+                if (orbit.elements != null && !orbit.removed) {
+                    elements.add(orbit.elements);
+                }
+            }
+            if (stations.isEmpty() || elements.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "No ground stations or orbits to compute access windows.", "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            // The orbits are propagated in parallel, each one with the detectors of all the stations
+            if (accessEngine != null) {
+                accessEngine.shutdown();
+            }
+            PropagationEngine stationEngine = new PropagationEngine(Runtime.getRuntime().availableProcessors(), null);
+            stationEngine.setGroundStations(stations);
+            accessEngine = stationEngine;
+            List<AccessWindow> windows = Collections.synchronizedList(new ArrayList<>());
+            Trajectory[] trajectories = new Trajectory[elements.size()];
+            AtomicInteger remaining = new AtomicInteger(elements.size());
+            List<String> failed = Collections.synchronizedList(new ArrayList<>());
+            stationEngine.submit(elements, settings, new PropagationListener() {
+                @Override
+                public void orbitProgress(int index, double fraction) {
+                    // Only the completed orbits are reported
+                }
+
+                @Override
+                public void orbitAccess(int index, OrbitElements elements, List<AccessWindow> orbitWindows) {
+                    windows.addAll(orbitWindows);
+                }
+
+                @Override
+                public void orbitCompleted(int index, OrbitElements elements, Trajectory trajectory, PropagationStats stats) {
+                    trajectories[index] = trajectory;
+                    orbitDone();
+                }
+
+                @Override
+                public void orbitFailed(int index, OrbitElements elements, Throwable error) {
+                    failed.add(elements.getName());
+                    orbitDone();
+                }
+
+                private void orbitDone() {
+                    if (remaining.decrementAndGet() == 0) {
+                        stationEngine.shutdown();
+                        SwingUtilities.invokeLater(() -> {
+                            showAccess(stations, elements, trajectories, new ArrayList<>(windows));
+                            if (!failed.isEmpty()) {
+                                JOptionPane.showMessageDialog(AppFrame.this, "The access windows of " + failed.size()
+                                        + " orbits could not be computed: " + String.join(", ", failed), "Error",
+                                        JOptionPane.ERROR_MESSAGE);
+                            }
+                        });
+                    }
+                }
+            });
+        }
+
+        /**
+         * Shows the ground stations and the contacts on the globe, replacing the previous ones, and
+         * lists the access windows. Each contact is drawn over the part of the orbit seen from the station.
+         *
+         * @param stations     Ground stations
+         * @param elements     Elements of the orbits
+         * @param trajectories Trajectories of the orbits, null for the orbits that failed
+         * @param windows      Access windows of all the stations
+         */
+        private void showAccess(List<GroundStation> stations, List<OrbitElements> elements, Trajectory[] trajectories,
+                                List<AccessWindow> windows) {
+            if (accessLayer == null) {
+                accessLayer = new RenderableLayer();
+                accessLayer.setName("Ground Stations");
+                insertBeforeCompass(getWwd(), accessLayer);
+            }
+            accessLayer.removeAllRenderables();
+
+            PointPlacemarkAttributes attrs = new PointPlacemarkAttributes();
+            attrs.setUsePointAsDefaultImage(true);
+            attrs.setLineMaterial(new Material(Color.YELLOW));
+            attrs.setLabelMaterial(new Material(Color.YELLOW));
+            attrs.setScale(8d);
+            for (GroundStation station : stations) {
+                PointPlacemark placemark = new PointPlacemark(Position.fromRadians(station.getLatitude(), station.getLongitude(),
+                        station.getAltitude()));
+                placemark.setAttributes(attrs);
+                placemark.setAltitudeMode(WorldWind.CLAMP_TO_GROUND);
+                placemark.setLabelText(station.getName());
+                accessLayer.addRenderable(placemark);
+            }
+
+            windows.sort(Comparator.comparingDouble(AccessWindow::getStart));
+            HashMap<String, Trajectory> trajectoriesByName = new HashMap<>();
+            for (int i = 0; i < elements.size(); i++) {
+                if (trajectories[i] != null) {
+                    trajectoriesByName.putIfAbsent(elements.get(i).getName(), trajectories[i]);
+                }
+            }
+            ConstellationRenderable contacts = new ConstellationRenderable();
+            for (AccessWindow window : windows) {
+                Trajectory trajectory = trajectoriesByName.get(window.getSatellite());
+                Trajectory arc = trajectory == null ? null : slice(trajectory, window.getStart(), window.getEnd());
+                if (arc != null && arc.size() > 1) {
+                    int index = contacts.addOrbit(window.getStation() + " - " + window.getSatellite(), Color.GREEN);
+                    contacts.setTrajectory(index, arc);
+                }
+            }
+            accessLayer.addRenderable(contacts);
+            getWwd().redraw();
+            new AccessFrame(windows, stations.size());
+        }
+
+        /**
+         * Propagates a Monte Carlo dispersion of an orbit in the background and shows its envelope.
+         * The perturbed orbits are propagated on all the cores, and each trajectory is added to a
+         * {@link DispersionAccumulator} then dropped, so the memory does not grow with the number of
+         * samples. The envelope is drawn as a density layer of the ground tracks with the mean track.
+         *
+         * @param nominal    Nominal elements of the orbit
+         * @param dispersion Standard deviations of the injection errors
+         * @param samples    Number of perturbed orbits
+         */
+        public void showDispersion(OrbitElements nominal, OrbitDispersion dispersion, int samples) {
+            List<OrbitElements> elements = new ArrayList<>(samples);
+            Random random = new Random();
+            for (int i = 0; i < samples; i++) {
+                elements.add(dispersion.sample(nominal, random, nominal.getName() + " #" + (i + 1)));
+            }
+
+            JPanel row = new JPanel(new GridLayout(2, 1));
+            row.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+            row.add(new JLabel("Dispersion of " + nominal.getName()));
+            JProgressBar progressBar = new JProgressBar(0, samples);
+            progressBar.setStringPainted(true);
+            row.add(progressBar);
+            progressPanel.add(row);
+            progressPanel.revalidate();
+
+            PropagationEngine dispersionEngine = new PropagationEngine(Runtime.getRuntime().availableProcessors(), null);
+            dispersionEngines.add(dispersionEngine);
+            DispersionAccumulator accumulator = new DispersionAccumulator(settings.getOutputStep());
+            AtomicInteger done = new AtomicInteger();
+            AtomicInteger failures = new AtomicInteger();
+            dispersionEngine.submit(elements, settings, new PropagationListener() {
+                @Override
+                public void orbitProgress(int index, double fraction) {
+                    // Only the completed orbits are reported
+                }
+
+                @Override
+                public void orbitCompleted(int index, OrbitElements elements, Trajectory trajectory, PropagationStats stats) {
+                    accumulator.add(trajectory);
+                    orbitDone();
+                }
+
+                @Override
+                public void orbitFailed(int index, OrbitElements elements, Throwable error) {
+                    failures.incrementAndGet();
+                    orbitDone();
+                }
+
+                private void orbitDone() {
+                    int count = done.incrementAndGet();
+                    SwingUtilities.invokeLater(() -> progressBar.setValue(count));
+                    if (count == samples) {
+                        dispersionEngine.shutdown();
+                        dispersionEngines.remove(dispersionEngine);
+                        String summary = String.format("%d samples, spread %.1f km max", accumulator.getTrajectoryCount(),
+                                accumulator.getMaxSpread() / 1000.) + (failures.get() > 0 ? ", " + failures + " failed" : "");
+                        SwingUtilities.invokeLater(() -> {
+                            progressBar.setString(summary);
+                            drawDispersion(nominal.getName(), accumulator);
+                        });
+                    }
+                }
+            });
+        }
+
+        /**
+         * Draws the envelope of a dispersion on the globe, replacing the previous one of the same orbit.
+         *
+         * @param name        Name of the dispersed orbit
+         * @param accumulator Aggregated trajectories of the dispersion
+         */
+        private void drawDispersion(String name, DispersionAccumulator accumulator) {
+            RenderableLayer layer = dispersionLayers.get(name);
+            if (layer == null) {
+                layer = new RenderableLayer();
+                layer.setName("Dispersion - " + name);
+                insertBeforeCompass(getWwd(), layer);
+                dispersionLayers.put(name, layer);
+            }
+            layer.removeAllRenderables();
+
+            SurfaceImage density = new SurfaceImage(accumulator.toDensityImage(), Sector.FULL_SPHERE);
+            density.setOpacity(0.8);
+            layer.addRenderable(density);
+            Trajectory mean = accumulator.getMeanTrajectory();
+            if (mean.size() > 1) {
+                ConstellationRenderable track = new ConstellationRenderable();
+                track.setTrajectory(track.addOrbit(name + " (mean)", Color.WHITE), mean);
+                layer.addRenderable(track);
+            }
+            getWwd().redraw();
+        }
+
+        /**
+         * Computes the coverage of the displayed orbits by a nadir pointing sensor, with the half-angle
+         * and the grid cell size given by the user. The orbits are propagated again in the background
+         * and each track is written to a temporary ephemeris file as soon as it completes, so long
+         * spans do not have to fit in memory. The revisits and the maximum revisit gaps are then
+         * accumulated on a {@link CoverageGrid} from the mapped file and shown as two surface layers.
+         */
+        private void computeCoverage() {
+            List<OrbitElements> elements = new ArrayList<>();
+            for (LiveOrbit orbit : orbits) {
+                if (orbit.elements != null && !orbit.removed) {
+                    elements.add(orbit.elements);
+                }
+            }
+            if (elements.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "No orbits to compute the coverage.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (!haveCommonStart(elements, "The coverage")) {
+                return;
+            }
+            JTextField halfAngleField = new JTextField("30");
+            JTextField cellField = new JTextField("1");
+            JPanel form = new JPanel(new GridLayout(2, 2));
+            form.add(new JLabel("Sensor half-angle (°)"));
+            form.add(halfAngleField);
+            form.add(new JLabel("Grid cell size (°)"));
+            form.add(cellField);
+            if (JOptionPane.showConfirmDialog(this, form, "Coverage", JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) {
+                return;
+            }
+            double halfAngle;
+            double cellDegrees;
+            try {
+                halfAngle = Math.toRadians(Double.parseDouble(halfAngleField.getText().trim()));
+                cellDegrees = Double.parseDouble(cellField.getText().trim());
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(this, "Invalid half-angle or cell size.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            // Finer grids would not fit in memory
+            double minCellDegrees = Math.max(0.01, Math.ceil(100. * CoverageGrid.getMinCellDegrees(1)) / 100.);
+            if (!(halfAngle > 0. && halfAngle < Math.PI / 2.) || !(cellDegrees >= minCellDegrees && cellDegrees <= 10.)) {
+                JOptionPane.showMessageDialog(this, String.format(
+                        "The half-angle must be between 0 and 90° and the cell size between %.2f and 10°.", minCellDegrees),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            EphemerisWriter writer;
+            File tracksFile;
+            try {
+                tracksFile = File.createTempFile("coverage", Scenario.EPHEMERIS_EXTENSION);
+                tracksFile.deleteOnExit();
+                writer = new EphemerisWriter(tracksFile);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            JPanel row = new JPanel(new GridLayout(2, 1));
+            row.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+            row.add(new JLabel("Coverage"));
+            JProgressBar progressBar = new JProgressBar(0, elements.size());
+            progressBar.setStringPainted(true);
+            row.add(progressBar);
+            progressPanel.add(row);
+            progressPanel.revalidate();
+
+            // The whole tracks are needed, whatever the trail kept by the viewer
+            stopCoverage();
+            PropagationEngine tracksEngine = new PropagationEngine(Runtime.getRuntime().availableProcessors(), null);
+            coverageEngine = tracksEngine;
+            coverageWriter = writer;
+            coverageFile = tracksFile;
+            PropagatorSettings coverageSettings = settings.withTrailCapacity(0);
+            AtomicInteger done = new AtomicInteger();
+            AtomicInteger failures = new AtomicInteger();
+            tracksEngine.submit(elements, coverageSettings, new PropagationListener() {
+                @Override
+                public void orbitProgress(int index, double fraction) {
+                    // Only the completed orbits are reported
+                }
+
+                @Override
+                public void orbitCompleted(int index, OrbitElements elements, Trajectory trajectory, PropagationStats stats) {
+                    try {
+                        writer.write(elements.getName(), trajectory);
+                    } catch (IOException e) {
+                        // Counted like a failed orbit, the missing tracks are reported with the coverage
+                        failures.incrementAndGet();
+                    }
+                    orbitDone();
+                }
+
+                @Override
+                public void orbitFailed(int index, OrbitElements elements, Throwable error) {
+                    failures.incrementAndGet();
+                    orbitDone();
+                }
+
+                private void orbitDone() {
+                    int count = done.incrementAndGet();
+                    SwingUtilities.invokeLater(() -> progressBar.setValue(count));
+                    // A stopped analysis already dropped its tracks
+                    if (count == elements.size() && !tracksEngine.isShutdown()) {
+                        tracksEngine.shutdown();
+                        accumulateCoverage(writer, tracksFile, coverageSettings.getOutputStep(), halfAngle, cellDegrees, progressBar,
+                                failures.get());
+                    }
+                }
+            });
+        }
+
+        /**
+         * Stops the coverage propagation still running, if any, and deletes the tracks it wrote.
+         */
+        private void stopCoverage() {
+            if (coverageEngine == null || coverageEngine.isShutdown()) {
+                return;
+            }
+            coverageEngine.shutdown();
+            try {
+                coverageWriter.close();
+            } catch (IOException e) {
+                // The file is deleted anyway
             }
+            coverageFile.delete();
+        }
 
-            // Use SwingUtilities.invokeLater() to execute GUI-related operations on the event dispatch thread
+        /**
+         * Accumulates the coverage of the tracks written by a coverage propagation, then shows it.
+         * Runs in the thread completing the last propagation.
+         *
+         * @param writer      Writer of the tracks, closed here
+         * @param tracksFile  Ephemeris file of the tracks, deleted here
+         * @param step        Time between two samples of the tracks (s)
+         * @param halfAngle   Half-angle of the sensor (rad)
+         * @param cellDegrees Size of the grid cells (°)
+         * @param progressBar Progress bar of the analysis
+         * @param failures    Number of orbits whose track is missing
+         */
+        private void accumulateCoverage(EphemerisWriter writer, File tracksFile, double step, double halfAngle, double cellDegrees,
+                                        JProgressBar progressBar, int failures) {
+            CoverageGrid grid;
+            try {
+                writer.close();
+                grid = new CoverageGrid(cellDegrees);
+                try (EphemerisFile tracks = new EphemerisFile(tracksFile)) {
+                    List<TrajectoryView> views = new ArrayList<>(tracks.getOrbitCount());
+                    for (int i = 0; i < tracks.getOrbitCount(); i++) {
+                        views.add(tracks.getTrajectory(i));
+                    }
+                    grid.accumulate(views, step, halfAngle);
+                }
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                SwingUtilities.invokeLater(() -> {
+                    progressBar.setString("Failed");
+                    JOptionPane.showMessageDialog(this, "Coverage analysis failed: " + e, "Error", JOptionPane.ERROR_MESSAGE);
+                });
+                return;
+            } finally {
+                // Otherwise deleted on exit
+                tracksFile.delete();
+            }
+            String summary = String.format("%.1f %% covered", 100. * grid.getCoveredFraction())
+                    + (failures > 0 ? String.format(", %d orbits failed", failures) : "");
             SwingUtilities.invokeLater(() -> {
-                // Add the renderable layers to the WorldWindow
-                for (RenderableLayer layer : renderableLayers) {
-                    insertBeforeCompass(getWwd(), layer);
+                progressBar.setString(summary);
+                drawCoverage(grid);
+            });
+        }
+
+        /**
+         * Shows a coverage grid as a layer of revisits and a layer of maximum revisit gaps, replacing the
+         * previous ones, and offers to export it.
+         *
+         * @param grid Coverage of the displayed orbits
+         */
+        private void drawCoverage(CoverageGrid grid) {
+            if (revisitLayer == null) {
+                revisitLayer = new RenderableLayer();
+                revisitLayer.setName("Coverage - revisits");
+                insertBeforeCompass(getWwd(), revisitLayer);
+                gapLayer = new RenderableLayer();
+                gapLayer.setName("Coverage - max gap");
+                gapLayer.setEnabled(false);
+                insertBeforeCompass(getWwd(), gapLayer);
+            }
+            revisitLayer.removeAllRenderables();
+            revisitLayer.addRenderable(new SurfaceImage(grid.toRevisitImage(), Sector.FULL_SPHERE));
+            gapLayer.removeAllRenderables();
+            gapLayer.addRenderable(new SurfaceImage(grid.toGapImage(), Sector.FULL_SPHERE));
+            getWwd().redraw();
+
+            String message = String.format("%.1f %% of the Earth seen over %.1f h.%nExport the grid as CSV?",
+                    100. * grid.getCoveredFraction(), grid.getSpan() / 3600.);
+            if (JOptionPane.showConfirmDialog(this, message, "Coverage", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+                return;
+            }
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Export Coverage");
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            try {
+                grid.writeCsv(chooser.getSelectedFile());
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+
+        /**
+         * Exports the displayed orbits to a CSV, KML or CZML document chosen by the user, the format
+         * following the extension of the file. The orbits are propagated again over the whole span,
+         * whatever the trail kept by the viewer, and their samples are written to the document as they
+         * are computed.
+         */
+        private void exportTrajectories() {
+            List<OrbitElements> elements = new ArrayList<>();
+            for (LiveOrbit orbit : orbits) {
+                if (orbit.elements != null && !orbit.removed) {
+                    elements.add(orbit.elements);
+                }
+            }
+            if (elements.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "No orbits to export.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Export Trajectories (.csv, .kml or .czml)");
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            File file = chooser.getSelectedFile();
+            ExportFormat format = ExportFormat.forFile(file);
+            if (format == null) {
+                JOptionPane.showMessageDialog(this, "The file must end with .csv, .kml or .czml.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            TrajectoryExport document;
+            try {
+                document = new TrajectoryExport(file, format);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            JPanel row = new JPanel(new GridLayout(2, 1));
+            row.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+            row.add(new JLabel("Export " + file.getName()));
+            JProgressBar progressBar = new JProgressBar(0, elements.size());
+            progressBar.setStringPainted(true);
+            row.add(progressBar);
+            progressPanel.add(row);
+            progressPanel.revalidate();
+
+            try {
+                stopExport();
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "The previous export could not be completed: " + e.getMessage(), "Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
+            PropagationEngine documentEngine = new PropagationEngine(Runtime.getRuntime().availableProcessors(), null);
+            exportEngine = documentEngine;
+            exportDocument = document;
+            documentEngine.setExport(document);
+            AtomicInteger done = new AtomicInteger();
+            AtomicInteger failures = new AtomicInteger();
+            documentEngine.submit(elements, settings.withTrailCapacity(0), new PropagationListener() {
+                @Override
+                public void orbitProgress(int index, double fraction) {
+                    // Only the completed orbits are reported
                 }
 
-                // Set the title of the frame
-                setTitle("Orbit Viewer");
+                @Override
+                public void orbitCompleted(int index, OrbitElements elements, Trajectory trajectory, PropagationStats stats) {
+                    orbitDone();
+                }
+
+                @Override
+                public void orbitFailed(int index, OrbitElements elements, Throwable error) {
+                    failures.incrementAndGet();
+                    orbitDone();
+                }
 
-                // Make the frame visible
-                setVisible(true);
+                private void orbitDone() {
+                    int count = done.incrementAndGet();
+                    SwingUtilities.invokeLater(() -> progressBar.setValue(count));
+                    if (count == elements.size()) {
+                        documentEngine.shutdown();
+                        String summary;
+                        try {
+                            document.close();
+                            summary = String.format("%.1f MB written", file.length() / 1e6)
+                                    + (failures.get() > 0 ? ", " + failures + " orbits missing" : "");
+                        } catch (IOException e) {
+                            summary = "Failed";
+                            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(AppFrame.this, "Export to " + file
+                                    + " failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE));
+                        }
+                        String result = summary;
+                        SwingUtilities.invokeLater(() -> progressBar.setString(result));
+                    }
+                }
             });
         }
 
+        /**
+         * Stops the running export, if any. Its document is closed with the orbits already written,
+         * and the spool files of the other orbits are deleted as their propagations stop.
+         *
+         * @throws IOException if the end of the document cannot be written
+         */
+        private void stopExport() throws IOException {
+            if (exportEngine == null) {
+                return;
+            }
+            exportEngine.shutdown();
+            exportEngine = null;
+            try {
+                exportDocument.close();
+            } finally {
+                exportDocument = null;
+            }
+        }
+
+        /**
+         * Copies the samples of a trajectory within a time interval.
+         *
+         * @param trajectory Trajectory, by increasing time
+         * @param start      Start of the interval (s)
+         * @param end        End of the interval (s)
+         * @return The samples of the interval
+         */
+        private static Trajectory slice(Trajectory trajectory, double start, double end) {
+            // First sample of the interval, by bisection
+            int low = 0;
+            int high = trajectory.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (trajectory.getTime(middle) < start) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            Trajectory arc = new Trajectory();
+            for (int i = low; i < trajectory.size() && trajectory.getTime(i) <= end; i++) {
+                arc.add(trajectory.getTime(i), trajectory.getLatitude(i), trajectory.getLongitude(i), trajectory.getAltitude(i));
+            }
+            return arc;
+        }
+
+        /**
+         * Returns the position of the sample of a trajectory nearest to the given time.
+         *
+         * @param trajectory Trajectory sampled at a fixed step
+         * @param time       Time since the epoch of the orbit (s)
+         * @param step       Time between two samples (s)
+         * @return Position of the sample
+         */
+        private static Position positionAt(Trajectory trajectory, double time, double step) {
+            int i = (int) Math.round((time - trajectory.getTime(0)) / step);
+            i = Math.max(0, Math.min(trajectory.size() - 1, i));
+            return Position.fromRadians(trajectory.getLatitude(i), trajectory.getLongitude(i), trajectory.getAltitude(i));
+        }
+
+        /**
+         * Orbit displayed by the frame.
+         */
+        private static class LiveOrbit {
+            private final OrbitElements elements;
+            private Color color;
+            // Index of the orbit in the renderer
+            private int index;
+            // Trajectory of the orbit once its propagation is completed
+            private Trajectory trajectory;
+            private JPanel row;
+            private JProgressBar progressBar;
+            private volatile boolean removed;
+
+            LiveOrbit(OrbitElements elements) {
+                this.elements = elements;
+            }
+        }
+
     }
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import fr.cnes.sirius.patrius.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ParameterSweep defines a trade study around a base orbit: two of its elements are varied over
+ * regular steps, and the sweep expands into the grid of element sets to propagate. The other
+ * elements keep the values of the base orbit. A sweep over a single element has one step on the
+ * second axis. Instances are immutable.
+ * <p>
+ * The bounds of the axes are given in the units of the orbit input form (kilometers and degrees),
+ * the expanded element sets are in meters and radians.
+ */
+public class ParameterSweep {
+
+    /**
+     * Element varied along an axis of the sweep.
+     */
+    public enum Parameter {
+        /** Altitude of the semi-major axis above the equatorial radius (km). */
+        ALTITUDE("Altitude", "km"),
+        SMA("Semi-major axis", "km"),
+        ECC("Eccentricity", ""),
+        INC("Inclination", "°"),
+        RAAN("RAAN", "°"),
+        ANM("Mean anomaly", "°"),
+        PA("Argument of perigee", "°");
+
+        private final String label;
+        private final String unit;
+
+        Parameter(String label, String unit) {
+            this.label = label;
+            this.unit = unit;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        /**
+         * Sets the value of this parameter in the elements of an orbit.
+         *
+         * @param elements Semi-major axis (m), eccentricity, inclination, RAAN, mean anomaly and argument of perigee (rad)
+         * @param value    Value of the parameter, in the units of the orbit input form
+         */
+        void apply(double[] elements, double value) {
+            switch (this) {
+                case ALTITUDE:
+                    elements[0] = Constants.WGS84_EARTH_EQUATORIAL_RADIUS + value * 1000.;
+                    break;
+                case SMA:
+                    elements[0] = value * 1000.;
+                    break;
+                case ECC:
+                    elements[1] = value;
+                    break;
+                default:
+                    elements[ordinal() - 1] = Math.toRadians(value);
+                    break;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return unit.isEmpty() ? label : label + " (" + unit + ")";
+        }
+    }
+
+    private final OrbitElements base;
+    private final Parameter xParameter;
+    private final double xFrom;
+    private final double xTo;
+    private final int xSteps;
+    private final Parameter yParameter;
+    private final double yFrom;
+    private final double yTo;
+    private final int ySteps;
+
+    /**
+     * Constructs a new ParameterSweep.
+     *
+     * @param base       Orbit whose elements are varied
+     * @param xParameter Element varied along the first axis
+     * @param xFrom      First value of the first axis
+     * @param xTo        Last value of the first axis
+     * @param xSteps     Number of values of the first axis
+     * @param yParameter Element varied along the second axis
+     * @param yFrom      First value of the second axis
+     * @param yTo        Last value of the second axis
+     * @param ySteps     Number of values of the second axis, 1 to sweep the first element only
+     * @throws IllegalArgumentException if an axis has no value or both axes vary the same element
+     */
+    public ParameterSweep(OrbitElements base, Parameter xParameter, double xFrom, double xTo, int xSteps, Parameter yParameter,
+                          double yFrom, double yTo, int ySteps) {
+        if (xSteps < 1 || ySteps < 1) {
+            throw new IllegalArgumentException("each axis needs at least one value");
+        }
+        boolean sameElement = xParameter == yParameter || (xParameter == Parameter.ALTITUDE && yParameter == Parameter.SMA)
+                || (xParameter == Parameter.SMA && yParameter == Parameter.ALTITUDE);
+        if (sameElement && ySteps > 1) {
+            throw new IllegalArgumentException("both axes vary the " + xParameter);
+        }
+        this.base = base;
+        this.xParameter = xParameter;
+        this.xFrom = xFrom;
+        this.xTo = xTo;
+        this.xSteps = xSteps;
+        this.yParameter = yParameter;
+        this.yFrom = yFrom;
+        this.yTo = yTo;
+        this.ySteps = ySteps;
+    }
+
+    /**
+     * Expands the sweep into its element sets, row by row: the point (i, j) of the grid is at
+     * index {@code j * getXSteps() + i}.
+     *
+     * @return The element sets of the grid
+     * @throws IllegalArgumentException if a point of the grid is not an elliptic orbit above the Earth
+     */
+    public List<OrbitElements> expand() {
+        List<OrbitElements> points = new ArrayList<>(xSteps * ySteps);
+        double[] elements = new double[6];
+        for (int j = 0; j < ySteps; j++) {
+            for (int i = 0; i < xSteps; i++) {
+                elements[0] = base.getSma();
+                elements[1] = base.getEcc();
+                elements[2] = base.getInc();
+                elements[3] = base.getRaan();
+                elements[4] = base.getAnm();
+                elements[5] = base.getPa();
+                // The second axis first, so that a single element swept on the first axis wins
+                yParameter.apply(elements, getY(j));
+                xParameter.apply(elements, getX(i));
+                if (!(elements[1] >= 0. && elements[1] < 1.)
+                        || elements[0] * (1. - elements[1]) <= Constants.WGS84_EARTH_EQUATORIAL_RADIUS) {
+                    throw new IllegalArgumentException(String.format("the point %s = %s, %s = %s is not an orbit above the Earth",
+                            xParameter, getX(i), yParameter, getY(j)));
+                }
+                points.add(new OrbitElements(String.format("%s sweep %d,%d", base.getName(), i, j), elements[0], elements[1],
+                        elements[2], elements[3], elements[4], elements[5]));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Returns a value of the first axis.
+     *
+     * @param i Index of the value, from 0 to {@link #getXSteps()} - 1
+     * @return The value, in the units of the orbit input form
+     */
+    public double getX(int i) {
+        return xSteps == 1 ? xFrom : xFrom + (xTo - xFrom) * i / (xSteps - 1);
+    }
+
+    /**
+     * Returns a value of the second axis.
+     *
+     * @param j Index of the value, from 0 to {@link #getYSteps()} - 1
+     * @return The value, in the units of the orbit input form
+     */
+    public double getY(int j) {
+        return ySteps == 1 ? yFrom : yFrom + (yTo - yFrom) * j / (ySteps - 1);
+    }
+
+    public OrbitElements getBase() {
+        return base;
+    }
+
+    public Parameter getXParameter() {
+        return xParameter;
+    }
+
+    public int getXSteps() {
+        return xSteps;
+    }
+
+    public Parameter getYParameter() {
+        return yParameter;
+    }
+
+    public int getYSteps() {
+        return ySteps;
+    }
+
+    public int getPointCount() {
+        return xSteps * ySteps;
+    }
+}
@@ -0,0 +1,278 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * PropagationEngine propagates orbits in parallel on a fork-join pool, away from the
+ * Swing event dispatch thread. Each orbit is an independent task, so throughput grows
+ * with the number of available cores.
+ */
+public class PropagationEngine {
+    // Number of samples published at once to the listeners while an orbit is propagated
+    private static final int BATCH_SIZE = 32;
+
+    private final ExecutorService executor;
+    private final TrajectoryCache cache;
+    private final PropagationMetrics metrics;
+    private volatile boolean cancelled;
+    // Ground stations whose access windows are detected while the orbits are propagated
+    private volatile List<GroundStation> stations = Collections.emptyList();
+    // Document the samples are written to instead of being kept, null to keep the trajectories
+    private volatile TrajectoryExport export;
+
+    /**
+     * Constructs a new PropagationEngine using one worker per available core, the shared trajectory
+     * cache and the shared metrics registry.
+     */
+    public PropagationEngine() {
+        this(Runtime.getRuntime().availableProcessors(), TrajectoryCache.getInstance(), PropagationMetrics.getInstance());
+    }
+
+    /**
+     * Constructs a new PropagationEngine that does not record its propagations, for the analyses
+     * propagating orbits again or other orbits than those of the table.
+     *
+     * @param parallelism Number of worker threads
+     * @param cache       Cache of the propagated trajectories, or null to always propagate
+     */
+    public PropagationEngine(int parallelism, TrajectoryCache cache) {
+        this(parallelism, cache, null);
+    }
+
+    /**
+     * Constructs a new PropagationEngine.
+     *
+     * @param parallelism Number of worker threads
+     * @param cache       Cache of the propagated trajectories, or null to always propagate
+     * @param metrics     Registry recording the metrics of each propagation, or null not to record them
+     */
+    public PropagationEngine(int parallelism, TrajectoryCache cache, PropagationMetrics metrics) {
+        this.executor = new ForkJoinPool(parallelism);
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the ground stations whose access windows are detected during the propagations submitted
+     * afterwards. The windows are found by the propagations themselves, so the trajectory cache is
+     * not read while there are stations; each orbit row of the station × satellite matrix is
+     * evaluated by its own task.
+     *
+     * @param stations Ground stations, empty not to detect any window
+     */
+    public void setGroundStations(List<GroundStation> stations) {
+        this.stations = new ArrayList<>(stations);
+    }
+
+    /**
+     * Sets the document the samples of the propagations submitted afterwards are written to. The
+     * trajectories are then streamed to the document as they are propagated, and neither kept nor
+     * cached: {@link PropagationListener#orbitCompleted} receives a null trajectory and no batch of
+     * samples is published.
+     *
+     * @param export Document receiving the samples, null to keep the trajectories again
+     */
+    public void setExport(TrajectoryExport export) {
+        this.export = export;
+    }
+
+    /**
+     * Submits the given orbits for propagation. The method returns immediately; results are
+     * delivered to the listener as soon as each orbit finishes.
+     *
+     * @param orbits   Orbits to propagate
+     * @param settings Settings of the propagation
+     * @param listener Listener notified of progress and results
+     * @return Futures of the submitted tasks, in the order of the orbits
+     */
+    public List<Future<?>> submit(List<OrbitElements> orbits, PropagatorSettings settings, PropagationListener listener) {
+        List<Future<?>> futures = new ArrayList<>(orbits.size());
+        for (int i = 0; i < orbits.size(); i++) {
+            final int index = i;
+            final OrbitElements elements = orbits.get(i);
+            final List<GroundStation> orbitStations = stations;
+            final TrajectoryExport orbitExport = export;
+            futures.add(executor.submit(() -> {
+                if (orbitExport != null) {
+                    export(index, elements, settings, orbitStations, orbitExport, listener);
+                } else {
+                    propagate(index, elements, settings, orbitStations, listener);
+                }
+            }));
+        }
+        return futures;
+    }
+
+    /**
+     * Stops the engine. Orbits still waiting are dropped and running propagations are
+     * interrupted at their next step.
+     */
+    public void shutdown() {
+        cancelled = true;
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns whether the engine was stopped.
+     *
+     * @return true once {@link #shutdown()} was called
+     */
+    public boolean isShutdown() {
+        return cancelled;
+    }
+
+    /**
+     * Propagates a single orbit and reports the outcome to the listener.
+     */
+    private void propagate(int index, OrbitElements elements, PropagatorSettings settings, List<GroundStation> stations,
+                           PropagationListener listener) {
+        if (cancelled) {
+            return;
+        }
+        try {
+            // Unchanged orbits are taken from the cache, unless their access windows are needed
+            final long start = System.nanoTime();
+            final String key = cache == null ? null : TrajectoryCache.keyOf(elements, settings);
+            Trajectory cached = cache == null || !stations.isEmpty() ? null : cache.get(key);
+            if (cached != null) {
+                PropagationStats stats = new PropagationStats(settings.getMode(), System.nanoTime() - start, 0, 0, cached.size(), true);
+                if (metrics != null) {
+                    metrics.recordPropagation(elements.getName(), stats, cached.getRetainedBytes());
+                }
+                listener.orbitProgress(index, 1.);
+                listener.orbitCompleted(index, elements, cached, stats);
+                return;
+            }
+
+            Orbiter orbiter = new Orbiter(settings);
+            orbiter.setGroundStations(stations, elements.getName());
+            orbiter.setTwoLineElements(elements.getTwoLineElements());
+            // Long propagations only keep their most recent samples when a trail capacity is set
+            TrailBuffer trail = settings.getTrailCapacity() > 0 ? new TrailBuffer(settings.getTrailCapacity()) : null;
+            Trajectory trajectory = trail != null ? null : new Trajectory(orbiter.estimateSamples(elements.getSma()));
+            orbiter.propagate(elements.getSma(), elements.getEcc(), elements.getInc(),
+                    elements.getRaan(), elements.getAnm(), elements.getPa(), fraction -> {
+                        // Abort the propagation as soon as the engine is shut down
+                        if (cancelled) {
+                            throw new CancellationException();
+                        }
+                        listener.orbitProgress(index, fraction);
+                    }, new StreamingSink(index, trail != null ? trail : trajectory, listener));
+            if (trail != null) {
+                trajectory = trail.toTrajectory();
+            } else {
+                trajectory.trimToSize();
+            }
+            if (cache != null) {
+                cache.put(key, trajectory);
+            }
+            if (metrics != null) {
+                metrics.recordPropagation(elements.getName(), orbiter.getLastStats(), trajectory.getRetainedBytes());
+            }
+            if (!stations.isEmpty()) {
+                listener.orbitAccess(index, elements, orbiter.getLastAccessWindows());
+            }
+            listener.orbitCompleted(index, elements, trajectory, orbiter.getLastStats());
+        } catch (CancellationException e) {
+            // The engine was shut down, nothing to report
+        } catch (RuntimeException e) {
+            listener.orbitFailed(index, elements, e);
+        }
+    }
+
+    /**
+     * Propagates a single orbit into an export document and reports the outcome to the listener.
+     */
+    private void export(int index, OrbitElements elements, PropagatorSettings settings, List<GroundStation> stations,
+                        TrajectoryExport export, PropagationListener listener) {
+        if (cancelled) {
+            return;
+        }
+        TrajectoryExport.OrbitStream stream = null;
+        try {
+            stream = export.openOrbit(elements.getName(),
+                    Orbiter.startJulianDate(settings.getMode(), elements.getTwoLineElements()), null);
+            Orbiter orbiter = new Orbiter(settings);
+            orbiter.setGroundStations(stations, elements.getName());
+            orbiter.setTwoLineElements(elements.getTwoLineElements());
+            orbiter.propagate(elements.getSma(), elements.getEcc(), elements.getInc(),
+                    elements.getRaan(), elements.getAnm(), elements.getPa(), fraction -> {
+                        if (cancelled) {
+                            throw new CancellationException();
+                        }
+                        listener.orbitProgress(index, fraction);
+                    }, stream);
+            if (metrics != null) {
+                metrics.recordPropagation(elements.getName(), orbiter.getLastStats(), 0);
+            }
+            if (!stations.isEmpty()) {
+                listener.orbitAccess(index, elements, orbiter.getLastAccessWindows());
+            }
+            listener.orbitCompleted(index, elements, null, orbiter.getLastStats());
+        } catch (CancellationException e) {
+            // The engine was shut down, possibly before the orbit was opened
+            if (stream != null) {
+                try {
+                    stream.discard();
+                } catch (UncheckedIOException ex) {
+                    listener.orbitFailed(index, elements, ex);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (stream != null) {
+                try {
+                    stream.discard();
+                } catch (UncheckedIOException ex) {
+                    e.addSuppressed(ex);
+                }
+            }
+            listener.orbitFailed(index, elements, e);
+        }
+    }
+
+    /**
+     * Stores the samples of an orbit and publishes them to the listener by batches.
+     */
+    private static class StreamingSink implements SampleSink {
+        private final int index;
+        private final SampleSink trajectory;
+        private final PropagationListener listener;
+        private Trajectory batch = new Trajectory(BATCH_SIZE);
+
+        StreamingSink(int index, SampleSink trajectory, PropagationListener listener) {
+            this.index = index;
+            this.trajectory = trajectory;
+            this.listener = listener;
+        }
+
+        @Override
+        public void add(double time, double latitude, double longitude, double altitude) {
+            trajectory.add(time, latitude, longitude, altitude);
+            batch.add(time, latitude, longitude, altitude);
+            if (batch.size() == BATCH_SIZE) {
+                publish();
+            }
+        }
+
+        @Override
+        public void finish() {
+            if (batch.size() > 0) {
+                publish();
+            }
+        }
+
+        private void publish() {
+            // The batch is handed over to the listener, start a new one
+            listener.orbitSamples(index, batch);
+            batch = new Trajectory(BATCH_SIZE);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.util.List;
+
+/**
+ * Receives the progress and results of orbits propagated by a {@link PropagationEngine}.
+ * Callbacks are made from the engine worker threads, so implementations that touch Swing
+ * components must hand the work over to the event dispatch thread.
+ */
+public interface PropagationListener {
+
+    /**
+     * Called when the propagation of an orbit advances.
+     *
+     * @param index    Index of the orbit in the submitted list
+     * @param fraction Fraction of the propagation span already covered, between 0 and 1
+     */
+    void orbitProgress(int index, double fraction);
+
+    /**
+     * Called with each batch of samples while an orbit is being propagated, so that it can be
+     * displayed before the propagation is over. Orbits taken from the cache are not streamed.
+     *
+     * @param index Index of the orbit in the submitted list
+     * @param batch Samples produced since the previous batch
+     */
+    default void orbitSamples(int index, Trajectory batch) {
+        // Streaming is optional
+    }
+
+    /**
+     * Called once an orbit has been propagated.
+     *
+     * @param index      Index of the orbit in the submitted list
+     * @param elements   Elements of the propagated orbit
+     * @param trajectory Trajectory of the propagated orbit, null if the engine exports the samples
+     * @param stats      Cost of the propagation
+     */
+    void orbitCompleted(int index, OrbitElements elements, Trajectory trajectory, PropagationStats stats);
+
+    /**
+     * Called once an orbit has been propagated, before {@link #orbitCompleted}, with its access windows
+     * if the engine has ground stations.
+     *
+     * @param index    Index of the orbit in the submitted list
+     * @param elements Elements of the propagated orbit
+     * @param windows  Access windows of all the ground stations, by start time
+     */
+    default void orbitAccess(int index, OrbitElements elements, List<AccessWindow> windows) {
+        // Access windows are optional
+    }
+
+    /**
+     * Called when the propagation of an orbit fails.
+     *
+     * @param index    Index of the orbit in the submitted list
+     * @param elements Elements of the orbit
+     * @param error    Cause of the failure
+     */
+    void orbitFailed(int index, OrbitElements elements, Throwable error);
+}
@@ -0,0 +1,251 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * PropagationMetrics is the registry of the propagation metrics. It keeps the metrics of the last
+ * propagation of each orbit, by name, along with totals over all propagations. The registry is
+ * published as an MBean so that it can be inspected with any JMX console (jconsole, VisualVM), and
+ * listeners are notified of each update. All methods are thread-safe.
+ * <p>
+ * In the GUI, the shared registry is only fed by the engine of the viewer, whose orbits are the rows
+ * of the table and have unique names; the access, coverage, dispersion, export and sweep engines
+ * do not record their propagations, which would replace the metrics of the rows.
+ * <p>
+ * The number of orbits tracked individually is bounded by the {@code orbitas.metrics.maxOrbits}
+ * system property (10000 by default); the oldest are dropped first but still count in the totals.
+ */
+public class PropagationMetrics implements PropagationMetricsMBean {
+    /** Name under which the registry is published to the platform MBean server. */
+    public static final String OBJECT_NAME = "fr.isae.mae.ss.y2024.orbitviewer:type=PropagationMetrics";
+
+    private static PropagationMetrics instance;
+
+    private final Map<String, OrbitMetrics> orbits;
+    private final List<Consumer<OrbitMetrics>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong propagationCount = new AtomicLong();
+    private final AtomicLong cacheHitCount = new AtomicLong();
+    private final AtomicLong wallTimeNanos = new AtomicLong();
+    private final AtomicLong integratorSteps = new AtomicLong();
+    private final AtomicLong handlerCalls = new AtomicLong();
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+
+    /**
+     * Constructs a new, unpublished, registry.
+     *
+     * @param maxOrbits Maximum number of orbits tracked individually
+     */
+    public PropagationMetrics(final int maxOrbits) {
+        this.orbits = new LinkedHashMap<String, OrbitMetrics>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OrbitMetrics> eldest) {
+                return size() > maxOrbits;
+            }
+        };
+    }
+
+    /**
+     * Returns the shared registry, published to the platform MBean server on first use.
+     *
+     * @return The shared registry
+     */
+    public static synchronized PropagationMetrics getInstance() {
+        if (instance == null) {
+            instance = new PropagationMetrics(Integer.getInteger("orbitas.metrics.maxOrbits", 10000));
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                // The metrics stay available in the application
+                e.printStackTrace();
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Records the propagation of an orbit.
+     *
+     * @param name          Name of the orbit
+     * @param stats         Statistics of the propagation
+     * @param retainedBytes Memory retained by the trajectory (bytes)
+     */
+    public void recordPropagation(String name, PropagationStats stats, long retainedBytes) {
+        propagationCount.incrementAndGet();
+        if (stats.isCacheHit()) {
+            cacheHitCount.incrementAndGet();
+        }
+        wallTimeNanos.addAndGet(stats.getWallTimeNanos());
+        integratorSteps.addAndGet(stats.getIntegratorSteps());
+        handlerCalls.addAndGet(stats.getHandlerCalls());
+        samples.addAndGet(stats.getSamples());
+        OrbitMetrics metrics = new OrbitMetrics(name, stats, retainedBytes, -1);
+        synchronized (orbits) {
+            // Re-inserted so that the orbit becomes the most recent one
+            orbits.remove(name);
+            orbits.put(name, metrics);
+        }
+        notifyListeners(metrics);
+    }
+
+    /**
+     * Records the time spent building the render layer of an orbit. Orbits without a recorded
+     * propagation are ignored.
+     *
+     * @param name  Name of the orbit
+     * @param nanos Time spent building the render layer (ns)
+     */
+    public void recordRenderTime(String name, long nanos) {
+        renderNanos.addAndGet(nanos);
+        OrbitMetrics metrics;
+        synchronized (orbits) {
+            metrics = orbits.get(name);
+            if (metrics == null) {
+                return;
+            }
+            metrics = metrics.withRenderTime(nanos);
+            orbits.put(name, metrics);
+        }
+        notifyListeners(metrics);
+    }
+
+    /**
+     * Returns the metrics of an orbit.
+     *
+     * @param name Name of the orbit
+     * @return The metrics of the last propagation of the orbit, or null if it is not tracked
+     */
+    public OrbitMetrics get(String name) {
+        synchronized (orbits) {
+            return orbits.get(name);
+        }
+    }
+
+    /**
+     * Returns the metrics of all the tracked orbits.
+     *
+     * @return The metrics, oldest first
+     */
+    public List<OrbitMetrics> getAll() {
+        synchronized (orbits) {
+            return new ArrayList<>(orbits.values());
+        }
+    }
+
+    /**
+     * Adds a listener notified of each update of the metrics of an orbit. Listeners are called on
+     * the thread making the update.
+     *
+     * @param listener Listener to add
+     */
+    public void addListener(Consumer<OrbitMetrics> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener Listener to remove
+     */
+    public void removeListener(Consumer<OrbitMetrics> listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(OrbitMetrics metrics) {
+        for (Consumer<OrbitMetrics> listener : listeners) {
+            listener.accept(metrics);
+        }
+    }
+
+    @Override
+    public long getPropagationCount() {
+        return propagationCount.get();
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    @Override
+    public double getTotalWallTimeMillis() {
+        return wallTimeNanos.get() / 1e6;
+    }
+
+    @Override
+    public long getTotalIntegratorSteps() {
+        return integratorSteps.get();
+    }
+
+    @Override
+    public long getTotalHandlerCalls() {
+        return handlerCalls.get();
+    }
+
+    @Override
+    public long getTotalSamples() {
+        return samples.get();
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        long bytes = 0;
+        for (OrbitMetrics metrics : getAll()) {
+            bytes += metrics.getRetainedBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public double getTotalRenderTimeMillis() {
+        return renderNanos.get() / 1e6;
+    }
+
+    @Override
+    public String getSlowestOrbit() {
+        OrbitMetrics slowest = null;
+        for (OrbitMetrics metrics : getAll()) {
+            if (slowest == null || metrics.getStats().getWallTimeNanos() > slowest.getStats().getWallTimeNanos()) {
+                slowest = metrics;
+            }
+        }
+        return slowest == null ? null : slowest.getName();
+    }
+
+    @Override
+    public String[] getOrbitReport() {
+        List<OrbitMetrics> all = getAll();
+        all.sort(Comparator.comparingLong((OrbitMetrics m) -> m.getStats().getWallTimeNanos()).reversed());
+        String[] report = new String[all.size()];
+        for (int i = 0; i < report.length; i++) {
+            report[i] = all.get(i).toString();
+        }
+        return report;
+    }
+
+    @Override
+    public void reset() {
+        synchronized (orbits) {
+            orbits.clear();
+        }
+        propagationCount.set(0);
+        cacheHitCount.set(0);
+        wallTimeNanos.set(0);
+        integratorSteps.set(0);
+        handlerCalls.set(0);
+        samples.set(0);
+        renderNanos.set(0);
+    }
+}
@@ -0,0 +1,62 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+/**
+ * Management interface of {@link PropagationMetrics}, exposed through JMX.
+ */
+public interface PropagationMetricsMBean {
+
+    /**
+     * @return Number of propagations recorded since the start or the last reset
+     */
+    long getPropagationCount();
+
+    /**
+     * @return Number of propagations served by the trajectory cache
+     */
+    long getCacheHitCount();
+
+    /**
+     * @return Total wall time of the propagations (ms)
+     */
+    double getTotalWallTimeMillis();
+
+    /**
+     * @return Total number of integrator steps
+     */
+    long getTotalIntegratorSteps();
+
+    /**
+     * @return Total number of calls to the step handlers
+     */
+    long getTotalHandlerCalls();
+
+    /**
+     * @return Total number of samples produced
+     */
+    long getTotalSamples();
+
+    /**
+     * @return Memory retained by the trajectories of the tracked orbits (bytes)
+     */
+    long getRetainedBytes();
+
+    /**
+     * @return Total time spent building render layers (ms)
+     */
+    double getTotalRenderTimeMillis();
+
+    /**
+     * @return Name of the tracked orbit with the longest propagation, or null if none
+     */
+    String getSlowestOrbit();
+
+    /**
+     * @return One line of metrics per tracked orbit, most expensive first
+     */
+    String[] getOrbitReport();
+
+    /**
+     * Clears all the metrics.
+     */
+    void reset();
+}
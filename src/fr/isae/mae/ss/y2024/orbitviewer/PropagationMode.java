@@ -0,0 +1,37 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+/**
+ * Propagation models available to the Orbiter.
+ */
+public enum PropagationMode {
+    /** Numerical integration with a fixed step Runge Kutta integrator (high fidelity). */
+    NUMERICAL("Numerical (RK4)"),
+    /** Numerical integration with an adaptive step Dormand-Prince 8(5,3) integrator and user tolerances. */
+    ADAPTIVE("Numerical adaptive (DOP853)"),
+    /** Closed-form two-body Kepler motion. */
+    KEPLERIAN("Analytical Kepler"),
+    /** Closed-form Kepler motion with the secular drift of RAAN, perigee and mean anomaly due to J2. */
+    J2_SECULAR("Analytical J2 secular"),
+    /** SGP4/SDP4 model of the Two-Line Element sets, with drag and, for deep space orbits, lunar and solar perturbations. */
+    SGP4("Analytical SGP4/SDP4");
+
+    private final String label;
+
+    PropagationMode(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Tells whether the mode uses a closed-form model instead of numerical integration.
+     *
+     * @return true for analytical modes
+     */
+    public boolean isAnalytical() {
+        return this == KEPLERIAN || this == J2_SECULAR || this == SGP4;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
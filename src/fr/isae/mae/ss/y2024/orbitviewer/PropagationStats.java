@@ -0,0 +1,88 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+/**
+ * PropagationStats records the cost of the propagation of one orbit.
+ */
+public class PropagationStats {
+    private final PropagationMode mode;
+    private final long wallTimeNanos;
+    private final long integratorSteps;
+    private final long handlerCalls;
+    private final long samples;
+    private final boolean cacheHit;
+
+    /**
+     * Constructs new statistics of a propagation that was run.
+     *
+     * @param mode            Propagation model used
+     * @param wallTimeNanos   Wall time of the propagation (ns)
+     * @param integratorSteps Number of steps taken by the integrator, or of closed-form evaluations
+     * @param handlerCalls    Number of calls to the fixed step handler
+     * @param samples         Number of positions produced
+     */
+    public PropagationStats(PropagationMode mode, long wallTimeNanos, long integratorSteps, long handlerCalls, long samples) {
+        this(mode, wallTimeNanos, integratorSteps, handlerCalls, samples, false);
+    }
+
+    /**
+     * Constructs new propagation statistics.
+     *
+     * @param mode            Propagation model used
+     * @param wallTimeNanos   Wall time of the propagation, or of the cache lookup (ns)
+     * @param integratorSteps Number of steps taken by the integrator, or of closed-form evaluations
+     * @param handlerCalls    Number of calls to the fixed step handler
+     * @param samples         Number of positions produced
+     * @param cacheHit        Whether the trajectory was taken from the cache instead of being propagated
+     */
+    public PropagationStats(PropagationMode mode, long wallTimeNanos, long integratorSteps, long handlerCalls, long samples,
+                            boolean cacheHit) {
+        this.mode = mode;
+        this.wallTimeNanos = wallTimeNanos;
+        this.integratorSteps = integratorSteps;
+        this.handlerCalls = handlerCalls;
+        this.samples = samples;
+        this.cacheHit = cacheHit;
+    }
+
+    public PropagationMode getMode() {
+        return mode;
+    }
+
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    /**
+     * Returns the wall time of the propagation.
+     *
+     * @return Wall time (ms)
+     */
+    public double getWallTimeMillis() {
+        return wallTimeNanos / 1e6;
+    }
+
+    public long getIntegratorSteps() {
+        return integratorSteps;
+    }
+
+    public long getHandlerCalls() {
+        return handlerCalls;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    @Override
+    public String toString() {
+        if (cacheHit) {
+            return String.format("%s: %d samples from the cache in %.1f ms", mode, samples, getWallTimeMillis());
+        }
+        return String.format("%s: %d steps, %d handler calls, %d samples in %.1f ms", mode, integratorSteps, handlerCalls, samples,
+                getWallTimeMillis());
+    }
+}
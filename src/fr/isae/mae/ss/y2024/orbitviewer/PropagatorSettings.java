@@ -0,0 +1,229 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.util.Objects;
+
+/**
+ * PropagatorSettings groups the options used by the Orbiter to propagate an orbit.
+ * Instances are immutable; the {@code with...} methods return modified copies.
+ */
+public class PropagatorSettings {
+
+    /** Settings matching the original behavior: numerical RK4 with a 2 s step, sampled every 10 s. */
+    public static final PropagatorSettings DEFAULT = new PropagatorSettings(PropagationMode.NUMERICAL, 2., 10.);
+
+    private final PropagationMode mode;
+    private final double integrationStep;
+    private final double outputStep;
+    private final double absoluteTolerance;
+    private final double relativeTolerance;
+    private final double minStep;
+    private final double maxStep;
+    private final double revolutions;
+    private final double duration;
+    private final int trailCapacity;
+
+    /**
+     * Constructs new propagator settings with the default tolerances of the adaptive integrator.
+     *
+     * @param mode            Propagation model
+     * @param integrationStep Step of the fixed step integrator (s)
+     * @param outputStep      Time between two output positions (s)
+     */
+    public PropagatorSettings(PropagationMode mode, double integrationStep, double outputStep) {
+        this(mode, integrationStep, outputStep, 1e-3, 1e-10, 1e-3, 1000.);
+    }
+
+    /**
+     * Constructs new propagator settings.
+     *
+     * @param mode              Propagation model
+     * @param integrationStep   Step of the fixed step integrator (s)
+     * @param outputStep        Time between two output positions (s)
+     * @param absoluteTolerance Absolute tolerance of the adaptive integrator (m, m/s)
+     * @param relativeTolerance Relative tolerance of the adaptive integrator
+     * @param minStep           Minimum step of the adaptive integrator (s)
+     * @param maxStep           Maximum step of the adaptive integrator (s)
+     */
+    public PropagatorSettings(PropagationMode mode, double integrationStep, double outputStep,
+                              double absoluteTolerance, double relativeTolerance, double minStep, double maxStep) {
+        this(mode, integrationStep, outputStep, absoluteTolerance, relativeTolerance, minStep, maxStep, 1., 0., 0);
+    }
+
+    /**
+     * Constructs new propagator settings with a propagation span.
+     *
+     * @param mode              Propagation model
+     * @param integrationStep   Step of the fixed step integrator (s)
+     * @param outputStep        Time between two output positions (s)
+     * @param absoluteTolerance Absolute tolerance of the adaptive integrator (m, m/s)
+     * @param relativeTolerance Relative tolerance of the adaptive integrator
+     * @param minStep           Minimum step of the adaptive integrator (s)
+     * @param maxStep           Maximum step of the adaptive integrator (s)
+     * @param revolutions       Number of orbital periods to propagate, used when the duration is 0
+     * @param duration          Duration of the propagation (s), or 0 to propagate a number of revolutions
+     * @param trailCapacity     Number of most recent positions kept per orbit, or 0 to keep them all
+     * @throws IllegalArgumentException if a step, a tolerance or the span is not positive, or the trail capacity is negative
+     */
+    public PropagatorSettings(PropagationMode mode, double integrationStep, double outputStep,
+                              double absoluteTolerance, double relativeTolerance, double minStep, double maxStep,
+                              double revolutions, double duration, int trailCapacity) {
+        if (!(integrationStep > 0) || !(outputStep > 0)) {
+            throw new IllegalArgumentException("the integration and output steps must be positive");
+        }
+        if (!(absoluteTolerance > 0) || !(relativeTolerance > 0) || !(minStep > 0) || !(maxStep >= minStep)) {
+            throw new IllegalArgumentException("the tolerances and the minimum step must be positive, and the maximum step "
+                    + "at least the minimum step");
+        }
+        if (!(duration >= 0) || (duration == 0 && !(revolutions > 0))) {
+            throw new IllegalArgumentException("the propagation duration or number of revolutions must be positive");
+        }
+        if (trailCapacity < 0) {
+            throw new IllegalArgumentException("the trail capacity must not be negative");
+        }
+        this.mode = mode;
+        this.integrationStep = integrationStep;
+        this.outputStep = outputStep;
+        this.absoluteTolerance = absoluteTolerance;
+        this.relativeTolerance = relativeTolerance;
+        this.minStep = minStep;
+        this.maxStep = maxStep;
+        this.revolutions = revolutions;
+        this.duration = duration;
+        this.trailCapacity = trailCapacity;
+    }
+
+    public PropagationMode getMode() {
+        return mode;
+    }
+
+    public double getIntegrationStep() {
+        return integrationStep;
+    }
+
+    public double getOutputStep() {
+        return outputStep;
+    }
+
+    public double getAbsoluteTolerance() {
+        return absoluteTolerance;
+    }
+
+    public double getRelativeTolerance() {
+        return relativeTolerance;
+    }
+
+    public double getMinStep() {
+        return minStep;
+    }
+
+    public double getMaxStep() {
+        return maxStep;
+    }
+
+    public double getRevolutions() {
+        return revolutions;
+    }
+
+    public double getDuration() {
+        return duration;
+    }
+
+    public int getTrailCapacity() {
+        return trailCapacity;
+    }
+
+    /**
+     * Returns the propagation span of an orbit.
+     *
+     * @param period Orbital period (s)
+     * @return The duration if set, otherwise the number of revolutions times the period (s)
+     */
+    public double getSpan(double period) {
+        return duration > 0 ? duration : revolutions * period;
+    }
+
+    /**
+     * Returns a copy of these settings using another propagation model.
+     *
+     * @param newMode Propagation model
+     * @return The modified settings
+     */
+    public PropagatorSettings withMode(PropagationMode newMode) {
+        return new PropagatorSettings(newMode, integrationStep, outputStep, absoluteTolerance, relativeTolerance, minStep, maxStep,
+                revolutions, duration, trailCapacity);
+    }
+
+    /**
+     * Returns a copy of these settings using other tolerances for the adaptive integrator.
+     *
+     * @param absolute Absolute tolerance (m, m/s)
+     * @param relative Relative tolerance
+     * @return The modified settings
+     */
+    public PropagatorSettings withTolerances(double absolute, double relative) {
+        return new PropagatorSettings(mode, integrationStep, outputStep, absolute, relative, minStep, maxStep,
+                revolutions, duration, trailCapacity);
+    }
+
+    /**
+     * Returns a copy of these settings propagating a number of orbital periods.
+     *
+     * @param newRevolutions Number of revolutions
+     * @return The modified settings
+     */
+    public PropagatorSettings withRevolutions(double newRevolutions) {
+        return new PropagatorSettings(mode, integrationStep, outputStep, absoluteTolerance, relativeTolerance, minStep, maxStep,
+                newRevolutions, 0., trailCapacity);
+    }
+
+    /**
+     * Returns a copy of these settings propagating a fixed duration, whatever the orbital period.
+     *
+     * @param newDuration Duration of the propagation (s)
+     * @return The modified settings
+     */
+    public PropagatorSettings withDuration(double newDuration) {
+        return new PropagatorSettings(mode, integrationStep, outputStep, absoluteTolerance, relativeTolerance, minStep, maxStep,
+                revolutions, newDuration, trailCapacity);
+    }
+
+    /**
+     * Returns a copy of these settings keeping only the most recent positions of each orbit.
+     *
+     * @param capacity Number of positions kept per orbit, or 0 to keep them all
+     * @return The modified settings
+     */
+    public PropagatorSettings withTrailCapacity(int capacity) {
+        return new PropagatorSettings(mode, integrationStep, outputStep, absoluteTolerance, relativeTolerance, minStep, maxStep,
+                revolutions, duration, capacity);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PropagatorSettings)) {
+            return false;
+        }
+        PropagatorSettings other = (PropagatorSettings) obj;
+        return mode == other.mode && integrationStep == other.integrationStep && outputStep == other.outputStep
+                && absoluteTolerance == other.absoluteTolerance && relativeTolerance == other.relativeTolerance
+                && minStep == other.minStep && maxStep == other.maxStep && revolutions == other.revolutions
+                && duration == other.duration && trailCapacity == other.trailCapacity;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mode, integrationStep, outputStep, absoluteTolerance, relativeTolerance, minStep, maxStep, revolutions,
+                duration, trailCapacity);
+    }
+
+    @Override
+    public String toString() {
+        return mode + " [integrationStep=" + integrationStep + ", outputStep=" + outputStep
+                + ", absoluteTolerance=" + absoluteTolerance + ", relativeTolerance=" + relativeTolerance
+                + ", minStep=" + minStep + ", maxStep=" + maxStep + ", revolutions=" + revolutions
+                + ", duration=" + duration + ", trailCapacity=" + trailCapacity + "]";
+    }
+}
@@ -0,0 +1,24 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+/**
+ * Receives the samples of an orbit as they are produced by the Orbiter step handler.
+ */
+public interface SampleSink {
+
+    /**
+     * Receives one sample of the orbit.
+     *
+     * @param time      Time since the epoch of the orbit (s)
+     * @param latitude  Geodetic latitude (rad)
+     * @param longitude Longitude (rad)
+     * @param altitude  Altitude (m)
+     */
+    void add(double time, double latitude, double longitude, double altitude);
+
+    /**
+     * Called once the propagation is over and no more samples will be added.
+     */
+    default void finish() {
+        // Nothing to do by default
+    }
+}
@@ -0,0 +1,320 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.awt.Color;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scenario is a set of orbits saved with the propagator settings used to show them. It is stored
+ * as a JSON file holding the settings and the orbits, in the units of the orbit input form like
+ * the JSON catalogs of {@link OrbitCatalog}, with the color of each orbit and whether it is shown.
+ * The trajectories can be saved with it in an ephemeris file next to the JSON file; they are only
+ * read when their orbit is shown, through the trajectory cache.
+ * <p>
+ * Layout of the JSON file:
+ * <pre>
+ * {"settings": {"mode": "NUMERICAL", "integrationStep": 2, ...},
+ *  "ephemeris": "scenario.eph",
+ *  "orbits": [{"name": "ISS", "sma": 6778, "ecc": 0.001, "inc": 51.6, "raan": 0, "anm": 0, "pa": 0,
+ *              "color": "#ff0000", "shown": true, "trajectory": 0}, ...]}
+ * </pre>
+ * The ephemeris file and the trajectory index of each orbit are only present when trajectories
+ * were saved. Orbits imported from a TLE catalog also hold their two lines as {@code "tle"} and
+ * the Julian date their propagation starts from as {@code "tleStart"}.
+ */
+public class Scenario {
+    // Extension of the ephemeris file of the trajectories, replacing the extension of the scenario file
+    static final String EPHEMERIS_EXTENSION = ".eph";
+
+    private final PropagatorSettings settings;
+    private final List<OrbitElements> orbits;
+    private final Color[] colors;
+    private final boolean[] shown;
+    // Index of the trajectory of each orbit in the ephemeris file, -1 if it was not saved
+    private final int[] trajectories;
+    private final File ephemeris;
+
+    /**
+     * Constructs a new Scenario without trajectories.
+     *
+     * @param settings Settings of the propagation
+     * @param orbits   Elements of the orbits
+     * @param colors   Color of each orbit, null entries for the orbits without color
+     * @param shown    Whether each orbit is shown
+     */
+    public Scenario(PropagatorSettings settings, List<OrbitElements> orbits, Color[] colors, boolean[] shown) {
+        this(settings, orbits, colors, shown, null, null);
+    }
+
+    private Scenario(PropagatorSettings settings, List<OrbitElements> orbits, Color[] colors, boolean[] shown, int[] trajectories,
+                     File ephemeris) {
+        this.settings = settings;
+        this.orbits = orbits;
+        this.colors = colors;
+        this.shown = shown;
+        this.trajectories = trajectories;
+        this.ephemeris = ephemeris;
+    }
+
+    public PropagatorSettings getSettings() {
+        return settings;
+    }
+
+    public int getOrbitCount() {
+        return orbits.size();
+    }
+
+    public OrbitElements getOrbit(int i) {
+        return orbits.get(i);
+    }
+
+    public Color getColor(int i) {
+        return colors[i];
+    }
+
+    public boolean isShown(int i) {
+        return shown[i];
+    }
+
+    /**
+     * Opens the ephemeris file of the scenario and hands its trajectories to a trajectory cache,
+     * which reads each one the first time it is requested. The trajectories are found by the
+     * elements of their orbit and the settings of the scenario, so an orbit edited afterwards is
+     * propagated again.
+     *
+     * @param cache Cache reading the trajectories
+     * @return The ephemeris file, to be closed once the scenario is no longer used, or null if
+     *         the scenario has no trajectories
+     * @throws IOException if the ephemeris file cannot be opened
+     */
+    public EphemerisFile attachTrajectories(TrajectoryCache cache) throws IOException {
+        if (ephemeris == null) {
+            return null;
+        }
+        EphemerisFile file = new EphemerisFile(ephemeris);
+        Map<String, Integer> stored = new HashMap<>();
+        for (int i = 0; i < orbits.size(); i++) {
+            if (trajectories[i] >= 0 && trajectories[i] < file.getOrbitCount()) {
+                stored.put(TrajectoryCache.keyOf(orbits.get(i), settings), trajectories[i]);
+            }
+        }
+        cache.setStoredTrajectories(file, stored);
+        return file;
+    }
+
+    /**
+     * Writes a scenario. The files are written aside then moved in place, so an ephemeris file
+     * still opened by the application is not overwritten while it is read.
+     *
+     * @param file  JSON file to write
+     * @param cache Cache holding the trajectories to save, or null to save only the orbits
+     * @throws IOException if the files cannot be written
+     */
+    public void write(File file, TrajectoryCache cache) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        int[] saved = new int[orbits.size()];
+        Arrays.fill(saved, -1);
+        File ephemerisFile = null;
+        if (cache != null) {
+            ephemerisFile = new File(directory, baseName(file) + EPHEMERIS_EXTENSION);
+            File tmp = File.createTempFile(baseName(file), ".tmp", directory);
+            int count = 0;
+            try (EphemerisWriter writer = new EphemerisWriter(tmp)) {
+                for (int i = 0; i < orbits.size(); i++) {
+                    Trajectory trajectory = cache.get(TrajectoryCache.keyOf(orbits.get(i), settings));
+                    if (trajectory != null) {
+                        writer.write(orbits.get(i).getName(), trajectory);
+                        saved[i] = count++;
+                    }
+                }
+            }
+            if (count > 0) {
+                Files.move(tmp.toPath(), ephemerisFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.delete(tmp.toPath());
+                ephemerisFile = null;
+            }
+        }
+
+        File tmp = File.createTempFile(baseName(file), ".tmp", directory);
+        try (BufferedWriter out = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            out.write("{\"settings\": {");
+            out.write("\"mode\": " + quote(settings.getMode().name()));
+            out.write(", \"integrationStep\": " + settings.getIntegrationStep());
+            out.write(", \"outputStep\": " + settings.getOutputStep());
+            out.write(", \"absoluteTolerance\": " + settings.getAbsoluteTolerance());
+            out.write(", \"relativeTolerance\": " + settings.getRelativeTolerance());
+            out.write(", \"minStep\": " + settings.getMinStep());
+            out.write(", \"maxStep\": " + settings.getMaxStep());
+            out.write(", \"revolutions\": " + settings.getRevolutions());
+            out.write(", \"duration\": " + settings.getDuration());
+            out.write(", \"trailCapacity\": " + settings.getTrailCapacity());
+            out.write("},\n");
+            if (ephemerisFile != null) {
+                out.write(" \"ephemeris\": " + quote(ephemerisFile.getName()) + ",\n");
+            }
+            out.write(" \"orbits\": [");
+            StringBuilder line = new StringBuilder(256);
+            for (int i = 0; i < orbits.size(); i++) {
+                OrbitElements orbit = orbits.get(i);
+                line.setLength(0);
+                line.append(i == 0 ? "\n  " : ",\n  ")
+                        .append("{\"name\": ").append(quote(orbit.getName()))
+                        .append(", \"sma\": ").append(orbit.getSma() / 1000.)
+                        .append(", \"ecc\": ").append(orbit.getEcc())
+                        .append(", \"inc\": ").append(Math.toDegrees(orbit.getInc()))
+                        .append(", \"raan\": ").append(Math.toDegrees(orbit.getRaan()))
+                        .append(", \"anm\": ").append(Math.toDegrees(orbit.getAnm()))
+                        .append(", \"pa\": ").append(Math.toDegrees(orbit.getPa()));
+                if (colors[i] != null) {
+                    line.append(", \"color\": \"").append(String.format("#%06x", colors[i].getRGB() & 0xFFFFFF)).append('"');
+                }
+                line.append(", \"shown\": ").append(shown[i]);
+                TwoLineElements tle = orbit.getTwoLineElements();
+                if (tle != null && tle.getLine1() != null) {
+                    line.append(", \"tle\": [").append(quote(tle.getLine1())).append(", ").append(quote(tle.getLine2()))
+                            .append("], \"tleStart\": ").append(tle.getStart());
+                }
+                if (saved[i] >= 0) {
+                    line.append(", \"trajectory\": ").append(saved[i]);
+                }
+                line.append('}');
+                out.append(line);
+            }
+            out.write("\n ]}\n");
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a scenario. Only the JSON file is read, the trajectories are read when they are used.
+     *
+     * @param file JSON file
+     * @return The scenario
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static Scenario read(File file) throws IOException {
+        Object document;
+        try {
+            document = JsonParser.parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage());
+        }
+        if (!(document instanceof Map) || !(((Map<?, ?>) document).get("orbits") instanceof List)) {
+            throw new IOException(file + ": expected a scenario object with an array of orbits");
+        }
+        Map<?, ?> scenario = (Map<?, ?>) document;
+
+        PropagatorSettings settings = PropagatorSettings.DEFAULT;
+        if (scenario.get("settings") instanceof Map) {
+            Map<?, ?> values = (Map<?, ?>) scenario.get("settings");
+            PropagationMode mode;
+            try {
+                mode = PropagationMode.valueOf(String.valueOf(values.get("mode")));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ": unknown propagation mode " + values.get("mode"));
+            }
+            try {
+                settings = new PropagatorSettings(mode,
+                        number(values, "integrationStep", file), number(values, "outputStep", file),
+                        number(values, "absoluteTolerance", file), number(values, "relativeTolerance", file),
+                        number(values, "minStep", file), number(values, "maxStep", file),
+                        number(values, "revolutions", file), number(values, "duration", file),
+                        (int) number(values, "trailCapacity", file));
+            } catch (IllegalArgumentException e) {
+                // Settings rejected by their own validation
+                throw new IOException(file + ": invalid propagator settings, " + e.getMessage());
+            }
+        }
+
+        List<?> items = (List<?>) scenario.get("orbits");
+        List<OrbitElements> orbits = new ArrayList<>(items.size());
+        Color[] colors = new Color[items.size()];
+        boolean[] shown = new boolean[items.size()];
+        int[] trajectories = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            if (!(items.get(i) instanceof Map)) {
+                throw new IOException(file + ": expected an orbit object");
+            }
+            Map<?, ?> orbit = (Map<?, ?>) items.get(i);
+            if (orbit.get("tle") instanceof List) {
+                orbits.add(twoLineElements(orbit, file).toElements(String.valueOf(orbit.get("name"))));
+            } else {
+                orbits.add(OrbitCatalog.fromInputUnits(String.valueOf(orbit.get("name")), number(orbit, "sma", file),
+                        number(orbit, "ecc", file), number(orbit, "inc", file), number(orbit, "raan", file),
+                        number(orbit, "anm", file), number(orbit, "pa", file)));
+            }
+            if (orbit.get("color") instanceof String) {
+                try {
+                    colors[i] = Color.decode((String) orbit.get("color"));
+                } catch (NumberFormatException e) {
+                    throw new IOException(file + ": invalid color " + orbit.get("color") + " for orbit " + orbit.get("name"));
+                }
+            }
+            shown[i] = !Boolean.FALSE.equals(orbit.get("shown"));
+            trajectories[i] = orbit.get("trajectory") instanceof Double ? ((Double) orbit.get("trajectory")).intValue() : -1;
+        }
+
+        File ephemeris = null;
+        if (scenario.get("ephemeris") instanceof String) {
+            ephemeris = new File(file.getAbsoluteFile().getParentFile(), (String) scenario.get("ephemeris"));
+            if (!ephemeris.isFile()) {
+                System.out.println("Trajectories of " + file + " not found, the orbits will be propagated: " + ephemeris);
+                ephemeris = null;
+            }
+        }
+        return new Scenario(settings, orbits, colors, shown, trajectories, ephemeris);
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static TwoLineElements twoLineElements(Map<?, ?> orbit, File file) throws IOException {
+        List<?> lines = (List<?>) orbit.get("tle");
+        if (lines.size() != 2 || !(lines.get(0) instanceof String) || !(lines.get(1) instanceof String)) {
+            throw new IOException(file + ": expected the two lines of the element set of orbit " + orbit.get("name"));
+        }
+        try {
+            TwoLineElements tle = TwoLineElements.parse((String) lines.get(0), (String) lines.get(1));
+            return orbit.get("tleStart") instanceof Double ? tle.startingAt((Double) orbit.get("tleStart")) : tle;
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage() + " for orbit " + orbit.get("name"));
+        }
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static double number(Map<?, ?> values, String key, File file) throws IOException {
+        Object value = values.get(key);
+        if (!(value instanceof Double)) {
+            throw new IOException(file + ": missing or invalid \"" + key + "\""
+                    + (values.containsKey("name") ? " for orbit " + values.get("name") : " in the settings"));
+        }
+        return (Double) value;
+    }
+}
@@ -0,0 +1,888 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import fr.cnes.sirius.patrius.math.util.FastMath;
+
+/**
+ * Sgp4Propagator computes the positions of an object from its Two-Line Element set with the
+ * SGP4 model, or the SDP4 model for the deep space orbits whose period exceeds 225 minutes. It
+ * follows the revised implementation of Vallado et al. ("Revisiting Spacetrack Report #3", AIAA
+ * 2006-6753) with the WGS72 constants the element sets are fitted with, including the lunar and
+ * solar perturbations and the 12 h and 24 h resonances of the deep space orbits.
+ * <p>
+ * SGP4 positions are given in the True Equator Mean Equinox frame (TEME). They are rotated about the
+ * pole to the frame whose Greenwich meridian is given by the Earth rotation angle of the
+ * propagation, so that {@link EarthRotation} places them on the ground like the other models.
+ * <p>
+ * The resonance terms are integrated from the epoch with a 720 min step, and the integration
+ * state is kept from one position to the next: an instance serves a single propagation thread.
+ */
+public class Sgp4Propagator implements AnalyticalPropagator {
+
+    // WGS72 constants of the element sets: Earth radius (km), gravitational parameter (km^3/s^2) and zonal harmonics
+    private static final double RE = 6378.135;
+    private static final double MU = 398600.8;
+    private static final double XKE = 60. / FastMath.sqrt(RE * RE * RE / MU);
+    private static final double J2 = 0.001082616;
+    private static final double J3 = -0.00000253881;
+    private static final double J4 = -0.00000165597;
+    private static final double J3OJ2 = J3 / J2;
+    private static final double X2O3 = 2. / 3.;
+    private static final double TWO_PI = 2. * FastMath.PI;
+    private static final double TEMP4 = 1.5e-12;
+
+    // Lunar and solar constants of the deep space model
+    private static final double ZES = 0.01675;
+    private static final double ZEL = 0.05490;
+    private static final double ZNS = 1.19459e-5;
+    private static final double ZNL = 1.5835218e-4;
+    // Rotation rate of the Earth (rad/min) and resonance integration steps
+    private static final double RPTIM = 4.37526908801129966e-3;
+    private static final double STEP = 720.;
+    private static final double STEP2 = 259200.;
+
+    // Rotation from the TEME to the frame of the propagation, and time from the epoch to the start (min)
+    private final double cosFrame;
+    private final double sinFrame;
+    private final double startOffset;
+
+    // Mean elements at epoch, the mean motion un-Kozai'd (rad/min)
+    private final double ecco;
+    private final double inclo;
+    private final double nodeo;
+    private final double argpo;
+    private final double mo;
+    private final double no;
+    private final double bstar;
+
+    // Near earth model
+    private final boolean deepSpace;
+    private boolean isimp;
+    private double aycof;
+    private double con41;
+    private double cc1;
+    private double cc4;
+    private double cc5;
+    private double d2;
+    private double d3;
+    private double d4;
+    private double delmo;
+    private double eta;
+    private double argpdot;
+    private double omgcof;
+    private double sinmao;
+    private double t2cof;
+    private double t3cof;
+    private double t4cof;
+    private double t5cof;
+    private double x1mth2;
+    private double x7thm1;
+    private double mdot;
+    private double nodedot;
+    private double xlcof;
+    private double xmcof;
+    private double nodecf;
+
+    // Deep space model: lunar and solar periodics, secular rates and resonance terms
+    private final double gsto;
+    private double e3;
+    private double ee2;
+    private double se2;
+    private double se3;
+    private double sgh2;
+    private double sgh3;
+    private double sgh4;
+    private double sh2;
+    private double sh3;
+    private double si2;
+    private double si3;
+    private double sl2;
+    private double sl3;
+    private double sl4;
+    private double xgh2;
+    private double xgh3;
+    private double xgh4;
+    private double xh2;
+    private double xh3;
+    private double xi2;
+    private double xi3;
+    private double xl2;
+    private double xl3;
+    private double xl4;
+    private double zmol;
+    private double zmos;
+    private int irez;
+    private double d2201;
+    private double d2211;
+    private double d3210;
+    private double d3222;
+    private double d4410;
+    private double d4422;
+    private double d5220;
+    private double d5232;
+    private double d5421;
+    private double d5433;
+    private double dedt;
+    private double didt;
+    private double dmdt;
+    private double dnodt;
+    private double domdt;
+    private double del1;
+    private double del2;
+    private double del3;
+    private double xfact;
+    private double xlamo;
+    // Resonance integration state: last integrated time (min), longitude, mean motion and their rates
+    private double atime;
+    private double xli;
+    private double xni;
+    private double xldot;
+    private double xndt;
+    private double xnddt;
+    // Work array of the lunar and solar periodics
+    private final double[] periodics = new double[5];
+
+    /**
+     * Constructs a new Sgp4Propagator.
+     *
+     * @param tle        Element set of the object
+     * @param startAngle Earth rotation angle at the start of the propagation (rad), giving the orientation of the output frame
+     */
+    public Sgp4Propagator(TwoLineElements tle, double startAngle) {
+        this.startOffset = (tle.getStart() - tle.getEpoch()) * 1440.;
+        // The TEME X axis is at the Greenwich sidereal time from the Greenwich meridian
+        final double frame = startAngle - gstime(tle.getStart());
+        this.cosFrame = FastMath.cos(frame);
+        this.sinFrame = FastMath.sin(frame);
+
+        final double epoch = tle.getEpoch1950();
+        this.ecco = tle.getEcc();
+        this.inclo = tle.getInc();
+        this.nodeo = tle.getRaan();
+        this.argpo = tle.getPa();
+        this.mo = tle.getAnm();
+        this.bstar = tle.getBstar();
+
+        // Recover the original mean motion and semi-major axis from the Kozai mean motion of the elements
+        final double eccsq = ecco * ecco;
+        final double omeosq = 1. - eccsq;
+        final double rteosq = FastMath.sqrt(omeosq);
+        final double cosio = FastMath.cos(inclo);
+        final double cosio2 = cosio * cosio;
+        this.no = brouwerMeanMotion(tle.getMeanMotion(), ecco, inclo);
+        final double ao = FastMath.pow(XKE / no, X2O3);
+        final double sinio = FastMath.sin(inclo);
+        final double po = ao * omeosq;
+        final double con42 = 1. - 5. * cosio2;
+        this.con41 = -con42 - cosio2 - cosio2;
+        final double posq = po * po;
+        final double rp = ao * (1. - ecco);
+        this.gsto = gstime(tle.getEpoch());
+
+        if (omeosq < 0. || no <= 0.) {
+            throw new IllegalArgumentException("Invalid SGP4 elements: eccentricity " + ecco + ", mean motion " + no);
+        }
+        // Perigees below 220 km only keep the first order drag terms
+        isimp = rp < 220. / RE + 1.;
+        double sfour = 78. / RE + 1.;
+        double qzms24 = FastMath.pow((120. - 78.) / RE, 4);
+        final double perige = (rp - 1.) * RE;
+        if (perige < 156.) {
+            sfour = perige < 98. ? 20. : perige - 78.;
+            qzms24 = FastMath.pow((120. - sfour) / RE, 4);
+            sfour = sfour / RE + 1.;
+        }
+        final double pinvsq = 1. / posq;
+        final double tsi = 1. / (ao - sfour);
+        this.eta = ao * ecco * tsi;
+        final double etasq = eta * eta;
+        final double eeta = ecco * eta;
+        final double psisq = FastMath.abs(1. - etasq);
+        final double coef = qzms24 * FastMath.pow(tsi, 4);
+        final double coef1 = coef / FastMath.pow(psisq, 3.5);
+        final double cc2 = coef1 * no * (ao * (1. + 1.5 * etasq + eeta * (4. + etasq))
+                + 0.375 * J2 * tsi / psisq * con41 * (8. + 3. * etasq * (8. + etasq)));
+        this.cc1 = bstar * cc2;
+        double cc3 = 0.;
+        if (ecco > 1e-4) {
+            cc3 = -2. * coef * tsi * J3OJ2 * no * sinio / ecco;
+        }
+        this.x1mth2 = 1. - cosio2;
+        this.cc4 = 2. * no * coef1 * ao * omeosq * (eta * (2. + 0.5 * etasq) + ecco * (0.5 + 2. * etasq)
+                - J2 * tsi / (ao * psisq) * (-3. * con41 * (1. - 2. * eeta + etasq * (1.5 - 0.5 * eeta))
+                + 0.75 * x1mth2 * (2. * etasq - eeta * (1. + etasq)) * FastMath.cos(2. * argpo)));
+        this.cc5 = 2. * coef1 * ao * omeosq * (1. + 2.75 * (etasq + eeta) + eeta * etasq);
+        final double cosio4 = cosio2 * cosio2;
+        final double temp1 = 1.5 * J2 * pinvsq * no;
+        final double temp2 = 0.5 * temp1 * J2 * pinvsq;
+        final double temp3 = -0.46875 * J4 * pinvsq * pinvsq * no;
+        this.mdot = no + 0.5 * temp1 * rteosq * con41 + 0.0625 * temp2 * rteosq * (13. - 78. * cosio2 + 137. * cosio4);
+        this.argpdot = -0.5 * temp1 * con42 + 0.0625 * temp2 * (7. - 114. * cosio2 + 395. * cosio4)
+                + temp3 * (3. - 36. * cosio2 + 49. * cosio4);
+        final double xhdot1 = -temp1 * cosio;
+        this.nodedot = xhdot1 + (0.5 * temp2 * (4. - 19. * cosio2) + 2. * temp3 * (3. - 7. * cosio2)) * cosio;
+        final double xpidot = argpdot + nodedot;
+        this.omgcof = bstar * cc3 * FastMath.cos(argpo);
+        this.xmcof = ecco > 1e-4 ? -X2O3 * coef * bstar / eeta : 0.;
+        this.nodecf = 3.5 * omeosq * xhdot1 * cc1;
+        this.t2cof = 1.5 * cc1;
+        this.xlcof = longPeriodCoefficient(sinio, cosio);
+        this.aycof = -0.5 * J3OJ2 * sinio;
+        final double delmotemp = 1. + eta * FastMath.cos(mo);
+        this.delmo = delmotemp * delmotemp * delmotemp;
+        this.sinmao = FastMath.sin(mo);
+        this.x7thm1 = 7. * cosio2 - 1.;
+
+        // Deep space orbits, period of 225 min or more
+        this.deepSpace = TWO_PI / no >= 225.;
+        if (deepSpace) {
+            isimp = true;
+            initDeepSpace(epoch, eccsq, xpidot);
+        }
+
+        if (!isimp) {
+            final double cc1sq = cc1 * cc1;
+            this.d2 = 4. * ao * tsi * cc1sq;
+            final double temp = d2 * tsi * cc1 / 3.;
+            this.d3 = (17. * ao + sfour) * temp;
+            this.d4 = 0.5 * temp * ao * tsi * (221. * ao + 31. * sfour) * cc1;
+            this.t3cof = d2 + 2. * cc1sq;
+            this.t4cof = 0.25 * (3. * d3 + cc1 * (12. * d2 + 10. * cc1sq));
+            this.t5cof = 0.2 * (3. * d4 + 12. * cc1 * d3 + 6. * d2 * d2 + 15. * cc1sq * (2. * d2 + cc1sq));
+        }
+    }
+
+    /**
+     * Computes the position of the object.
+     *
+     * @param dt  Time elapsed since the start of the propagation (s)
+     * @param out Array of length 3 receiving the x, y and z coordinates (m)
+     * @return The out array
+     * @throws IllegalStateException if the model fails, for instance once the object has decayed
+     */
+    @Override
+    public double[] positionAt(double dt, double[] out) {
+        final double t = startOffset + dt / 60.;
+
+        // Secular gravity and atmospheric drag
+        final double xmdf = mo + mdot * t;
+        final double argpdf = argpo + argpdot * t;
+        final double nodedf = nodeo + nodedot * t;
+        double argpm = argpdf;
+        double mm = xmdf;
+        final double t2 = t * t;
+        double nodem = nodedf + nodecf * t2;
+        double tempa = 1. - cc1 * t;
+        double tempe = bstar * cc4 * t;
+        double templ = t2cof * t2;
+        if (!isimp) {
+            final double delomg = omgcof * t;
+            final double delmtemp = 1. + eta * FastMath.cos(xmdf);
+            final double delm = xmcof * (delmtemp * delmtemp * delmtemp - delmo);
+            final double temp = delomg + delm;
+            mm = xmdf + temp;
+            argpm = argpdf - temp;
+            final double t3 = t2 * t;
+            final double t4 = t3 * t;
+            tempa = tempa - d2 * t2 - d3 * t3 - d4 * t4;
+            tempe = tempe + bstar * cc5 * (FastMath.sin(mm) - sinmao);
+            templ = templ + t3cof * t3 + t4 * (t4cof + t * t5cof);
+        }
+
+        double nm = no;
+        double em = ecco;
+        double inclm = inclo;
+        if (deepSpace) {
+            // Secular lunar and solar effects and resonances
+            final double theta = (gsto + t * RPTIM) % TWO_PI;
+            em += dedt * t;
+            inclm += didt * t;
+            argpm += domdt * t;
+            nodem += dnodt * t;
+            mm += dmdt * t;
+            if (irez != 0) {
+                nm = integrateResonance(t);
+                final double ft = t - atime;
+                final double xl = resonanceLongitude(ft);
+                mm = irez != 1 ? xl - 2. * nodem + 2. * theta : xl - nodem - argpm + theta;
+            }
+        }
+        if (nm <= 0.) {
+            throw new IllegalStateException("SGP4 mean motion is negative at " + t + " min");
+        }
+        final double am = FastMath.pow(XKE / nm, X2O3) * tempa * tempa;
+        nm = XKE / FastMath.pow(am, 1.5);
+        em -= tempe;
+        if (em >= 1. || em < -0.001) {
+            throw new IllegalStateException("SGP4 eccentricity out of range at " + t + " min: " + em);
+        }
+        if (em < 1e-6) {
+            em = 1e-6;
+        }
+        mm += no * templ;
+        double xlm = mm + argpm + nodem;
+        nodem %= TWO_PI;
+        argpm %= TWO_PI;
+        xlm %= TWO_PI;
+        mm = (xlm - argpm - nodem) % TWO_PI;
+
+        // Lunar and solar periodics
+        double ep = em;
+        double xincp = inclm;
+        double argpp = argpm;
+        double nodep = nodem;
+        double mp = mm;
+        double sinip = FastMath.sin(inclm);
+        double cosip = FastMath.cos(inclm);
+        double lcof = xlcof;
+        double ycof = aycof;
+        double c41 = con41;
+        double x1m = x1mth2;
+        double x7 = x7thm1;
+        if (deepSpace) {
+            periodics[0] = ep;
+            periodics[1] = xincp;
+            periodics[2] = nodep;
+            periodics[3] = argpp;
+            periodics[4] = mp;
+            lunarSolarPeriodics(t, periodics);
+            ep = periodics[0];
+            xincp = periodics[1];
+            nodep = periodics[2];
+            argpp = periodics[3];
+            mp = periodics[4];
+            if (xincp < 0.) {
+                xincp = -xincp;
+                nodep += FastMath.PI;
+                argpp -= FastMath.PI;
+            }
+            if (ep < 0. || ep > 1.) {
+                throw new IllegalStateException("SGP4 eccentricity out of range at " + t + " min: " + ep);
+            }
+            sinip = FastMath.sin(xincp);
+            cosip = FastMath.cos(xincp);
+            ycof = -0.5 * J3OJ2 * sinip;
+            lcof = longPeriodCoefficient(sinip, cosip);
+            final double cosisq = cosip * cosip;
+            c41 = 3. * cosisq - 1.;
+            x1m = 1. - cosisq;
+            x7 = 7. * cosisq - 1.;
+        }
+
+        // Long period periodics
+        final double axnl = ep * FastMath.cos(argpp);
+        double temp = 1. / (am * (1. - ep * ep));
+        final double aynl = ep * FastMath.sin(argpp) + temp * ycof;
+        final double xl = mp + argpp + nodep + temp * lcof * axnl;
+
+        // Kepler's equation for the eccentric longitude
+        final double u = (xl - nodep) % TWO_PI;
+        double eo1 = u;
+        double tem5 = 9999.9;
+        double sineo1 = 0.;
+        double coseo1 = 0.;
+        for (int ktr = 1; FastMath.abs(tem5) >= 1e-12 && ktr <= 10; ktr++) {
+            sineo1 = FastMath.sin(eo1);
+            coseo1 = FastMath.cos(eo1);
+            tem5 = 1. - coseo1 * axnl - sineo1 * aynl;
+            tem5 = (u - aynl * coseo1 + axnl * sineo1 - eo1) / tem5;
+            if (FastMath.abs(tem5) >= 0.95) {
+                tem5 = tem5 > 0. ? 0.95 : -0.95;
+            }
+            eo1 += tem5;
+        }
+
+        // Short period periodics
+        final double ecose = axnl * coseo1 + aynl * sineo1;
+        final double esine = axnl * sineo1 - aynl * coseo1;
+        final double el2 = axnl * axnl + aynl * aynl;
+        final double pl = am * (1. - el2);
+        if (pl < 0.) {
+            throw new IllegalStateException("SGP4 semi-latus rectum is negative at " + t + " min");
+        }
+        final double rl = am * (1. - ecose);
+        final double betal = FastMath.sqrt(1. - el2);
+        temp = esine / (1. + betal);
+        final double sinu = am / rl * (sineo1 - aynl - axnl * temp);
+        final double cosu = am / rl * (coseo1 - axnl + aynl * temp);
+        double su = FastMath.atan2(sinu, cosu);
+        final double sin2u = (cosu + cosu) * sinu;
+        final double cos2u = 1. - 2. * sinu * sinu;
+        temp = 1. / pl;
+        final double temp1 = 0.5 * J2 * temp;
+        final double temp2 = temp1 * temp;
+
+        final double mrt = rl * (1. - 1.5 * temp2 * betal * c41) + 0.5 * temp1 * x1m * cos2u;
+        if (mrt < 1.) {
+            throw new IllegalStateException("SGP4 object decayed at " + t + " min");
+        }
+        su -= 0.25 * temp2 * x7 * sin2u;
+        final double xnode = nodep + 1.5 * temp2 * cosip * sin2u;
+        final double xinc = xincp + 1.5 * temp2 * cosip * sinip * cos2u;
+
+        // Orientation vectors, position in the TEME then in the frame of the propagation
+        final double sinsu = FastMath.sin(su);
+        final double cossu = FastMath.cos(su);
+        final double snod = FastMath.sin(xnode);
+        final double cnod = FastMath.cos(xnode);
+        final double sini = FastMath.sin(xinc);
+        final double cosi = FastMath.cos(xinc);
+        final double r = mrt * RE * 1000.;
+        final double x = r * (-snod * cosi * sinsu + cnod * cossu);
+        final double y = r * (cnod * cosi * sinsu + snod * cossu);
+        out[0] = cosFrame * x - sinFrame * y;
+        out[1] = sinFrame * x + cosFrame * y;
+        out[2] = r * sini * sinsu;
+        return out;
+    }
+
+    /**
+     * Returns the semi-major axis of an element set, from the mean motion recovered by SGP4.
+     *
+     * @param meanMotion Kozai mean motion of the element set (rad/min)
+     * @param ecc        Eccentricity
+     * @param inc        Inclination (rad)
+     * @return Semi-major axis (m)
+     */
+    static double semiMajorAxis(double meanMotion, double ecc, double inc) {
+        return FastMath.pow(XKE / brouwerMeanMotion(meanMotion, ecc, inc), X2O3) * RE * 1000.;
+    }
+
+    /**
+     * Recovers the original mean motion from the Kozai mean motion of an element set.
+     */
+    private static double brouwerMeanMotion(double kozai, double ecc, double inc) {
+        final double omeosq = 1. - ecc * ecc;
+        final double cosio = FastMath.cos(inc);
+        final double ak = FastMath.pow(XKE / kozai, X2O3);
+        final double d1 = 0.75 * J2 * (3. * cosio * cosio - 1.) / (FastMath.sqrt(omeosq) * omeosq);
+        double del = d1 / (ak * ak);
+        final double adel = ak * (1. - del * del - del * (1. / 3. + 134. * del * del / 81.));
+        del = d1 / (adel * adel);
+        return kozai / (1. + del);
+    }
+
+    /**
+     * Returns the Greenwich mean sidereal time (IAU 1982), which orients the TEME frame.
+     *
+     * @param jdut1 Julian date (UT1)
+     * @return Greenwich mean sidereal time (rad)
+     */
+    static double gstime(double jdut1) {
+        final double tut1 = (jdut1 - 2451545.) / 36525.;
+        double temp = -6.2e-6 * tut1 * tut1 * tut1 + 0.093104 * tut1 * tut1
+                + (876600. * 3600. + 8640184.812866) * tut1 + 67310.54841;
+        // Seconds of time to radians
+        temp = (temp * FastMath.PI / 180. / 240.) % TWO_PI;
+        return temp < 0. ? temp + TWO_PI : temp;
+    }
+
+    private static double longPeriodCoefficient(double sinio, double cosio) {
+        // Avoids a division by zero for an inclination of 180°
+        final double divisor = FastMath.abs(cosio + 1.) > TEMP4 ? 1. + cosio : TEMP4;
+        return -0.25 * J3OJ2 * sinio * (3. + 5. * cosio) / divisor;
+    }
+
+    /**
+     * Initializes the lunar and solar terms and the resonances of a deep space orbit (dscom and dsinit
+     * of the reference implementation).
+     */
+    private void initDeepSpace(double epoch, double eccsq, double xpidot) {
+        final double c1ss = 2.9864797e-6;
+        final double c1l = 4.7968065e-7;
+        final double zsinis = 0.39785416;
+        final double zcosis = 0.91744867;
+        final double zcosgs = 0.1945905;
+        final double zsings = -0.98088458;
+
+        final double nm = no;
+        final double em = ecco;
+        final double snodm = FastMath.sin(nodeo);
+        final double cnodm = FastMath.cos(nodeo);
+        final double sinomm = FastMath.sin(argpo);
+        final double cosomm = FastMath.cos(argpo);
+        final double sinim = FastMath.sin(inclo);
+        final double cosim = FastMath.cos(inclo);
+        final double emsq = em * em;
+        final double betasq = 1. - emsq;
+        final double rtemsq = FastMath.sqrt(betasq);
+
+        // Position of the Moon
+        final double day = epoch + 18261.5;
+        final double xnodce = (4.5236020 - 9.2422029e-4 * day) % TWO_PI;
+        final double stem = FastMath.sin(xnodce);
+        final double ctem = FastMath.cos(xnodce);
+        final double zcosil = 0.91375164 - 0.03568096 * ctem;
+        final double zsinil = FastMath.sqrt(1. - zcosil * zcosil);
+        final double zsinhl = 0.089683511 * stem / zsinil;
+        final double zcoshl = FastMath.sqrt(1. - zsinhl * zsinhl);
+        final double gam = 5.8351514 + 0.0019443680 * day;
+        double zx = 0.39785416 * stem / zsinil;
+        final double zy = zcoshl * ctem + 0.91744867 * zsinhl * stem;
+        zx = FastMath.atan2(zx, zy);
+        zx = gam + zx - xnodce;
+        final double zcosgl = FastMath.cos(zx);
+        final double zsingl = FastMath.sin(zx);
+
+        // Solar terms first, then lunar terms
+        double zcosg = zcosgs;
+        double zsing = zsings;
+        double zcosi = zcosis;
+        double zsini = zsinis;
+        double zcosh = cnodm;
+        double zsinh = snodm;
+        double cc = c1ss;
+        final double xnoi = 1. / nm;
+        final double[][] s = new double[2][7];
+        final double[][] z = new double[2][12];
+        for (int lsflg = 0; lsflg < 2; lsflg++) {
+            final double a1 = zcosg * zcosh + zsing * zcosi * zsinh;
+            final double a3 = -zsing * zcosh + zcosg * zcosi * zsinh;
+            final double a7 = -zcosg * zsinh + zsing * zcosi * zcosh;
+            final double a8 = zsing * zsini;
+            final double a9 = zsing * zsinh + zcosg * zcosi * zcosh;
+            final double a10 = zcosg * zsini;
+            final double a2 = cosim * a7 + sinim * a8;
+            final double a4 = cosim * a9 + sinim * a10;
+            final double a5 = -sinim * a7 + cosim * a8;
+            final double a6 = -sinim * a9 + cosim * a10;
+
+            final double x1 = a1 * cosomm + a2 * sinomm;
+            final double x2 = a3 * cosomm + a4 * sinomm;
+            final double x3 = -a1 * sinomm + a2 * cosomm;
+            final double x4 = -a3 * sinomm + a4 * cosomm;
+            final double x5 = a5 * sinomm;
+            final double x6 = a6 * sinomm;
+            final double x7 = a5 * cosomm;
+            final double x8 = a6 * cosomm;
+
+            final double z31 = 12. * x1 * x1 - 3. * x3 * x3;
+            final double z32 = 24. * x1 * x2 - 6. * x3 * x4;
+            final double z33 = 12. * x2 * x2 - 3. * x4 * x4;
+            double z1 = 3. * (a1 * a1 + a2 * a2) + z31 * emsq;
+            double z2 = 6. * (a1 * a3 + a2 * a4) + z32 * emsq;
+            double z3 = 3. * (a3 * a3 + a4 * a4) + z33 * emsq;
+            final double z11 = -6. * a1 * a5 + emsq * (-24. * x1 * x7 - 6. * x3 * x5);
+            final double z12 = -6. * (a1 * a6 + a3 * a5) + emsq * (-24. * (x2 * x7 + x1 * x8) - 6. * (x3 * x6 + x4 * x5));
+            final double z13 = -6. * a3 * a6 + emsq * (-24. * x2 * x8 - 6. * x4 * x6);
+            final double z21 = 6. * a2 * a5 + emsq * (24. * x1 * x5 - 6. * x3 * x7);
+            final double z22 = 6. * (a4 * a5 + a2 * a6) + emsq * (24. * (x2 * x5 + x1 * x6) - 6. * (x4 * x7 + x3 * x8));
+            final double z23 = 6. * a4 * a6 + emsq * (24. * x2 * x6 - 6. * x4 * x8);
+            z1 = z1 + z1 + betasq * z31;
+            z2 = z2 + z2 + betasq * z32;
+            z3 = z3 + z3 + betasq * z33;
+            final double s3 = cc * xnoi;
+            final double s2 = -0.5 * s3 / rtemsq;
+            final double s4 = s3 * rtemsq;
+            final double s1 = -15. * em * s4;
+            s[lsflg] = new double[] {s1, s2, s3, s4, x1 * x3 + x2 * x4, x2 * x3 + x1 * x4, x2 * x4 - x1 * x3};
+            z[lsflg] = new double[] {z1, z2, z3, z11, z12, z13, z21, z22, z23, z31, z32, z33};
+
+            zcosg = zcosgl;
+            zsing = zsingl;
+            zcosi = zcosil;
+            zsini = zsinil;
+            zcosh = zcoshl * cnodm + zsinhl * snodm;
+            zsinh = snodm * zcoshl - cnodm * zsinhl;
+            cc = c1l;
+        }
+        zmol = (4.7199672 + 0.22997150 * day - gam) % TWO_PI;
+        zmos = (6.2565837 + 0.017201977 * day) % TWO_PI;
+
+        // Amplitudes of the periodics, z[][] holds z1 z2 z3 z11 z12 z13 z21 z22 z23 z31 z32 z33
+        final double[] ss = s[0];
+        final double[] sz = z[0];
+        se2 = 2. * ss[0] * ss[5];
+        se3 = 2. * ss[0] * ss[6];
+        si2 = 2. * ss[1] * sz[4];
+        si3 = 2. * ss[1] * (sz[5] - sz[3]);
+        sl2 = -2. * ss[2] * sz[1];
+        sl3 = -2. * ss[2] * (sz[2] - sz[0]);
+        sl4 = -2. * ss[2] * (-21. - 9. * emsq) * ZES;
+        sgh2 = 2. * ss[3] * sz[10];
+        sgh3 = 2. * ss[3] * (sz[11] - sz[9]);
+        sgh4 = -18. * ss[3] * ZES;
+        sh2 = -2. * ss[1] * sz[7];
+        sh3 = -2. * ss[1] * (sz[8] - sz[6]);
+        final double[] sl = s[1];
+        final double[] zl = z[1];
+        ee2 = 2. * sl[0] * sl[5];
+        e3 = 2. * sl[0] * sl[6];
+        xi2 = 2. * sl[1] * zl[4];
+        xi3 = 2. * sl[1] * (zl[5] - zl[3]);
+        xl2 = -2. * sl[2] * zl[1];
+        xl3 = -2. * sl[2] * (zl[2] - zl[0]);
+        xl4 = -2. * sl[2] * (-21. - 9. * emsq) * ZEL;
+        xgh2 = 2. * sl[3] * zl[10];
+        xgh3 = 2. * sl[3] * (zl[11] - zl[9]);
+        xgh4 = -18. * sl[3] * ZEL;
+        xh2 = -2. * sl[1] * zl[7];
+        xh3 = -2. * sl[1] * (zl[8] - zl[6]);
+
+        // Secular rates of the lunar and solar perturbations
+        final boolean equatorial = inclo < 5.2359877e-2 || inclo > FastMath.PI - 5.2359877e-2;
+        final double ses = ss[0] * ZNS * ss[4];
+        final double sis = ss[1] * ZNS * (sz[3] + sz[5]);
+        final double sls = -ZNS * ss[2] * (sz[0] + sz[2] - 14. - 6. * emsq);
+        final double sghs = ss[3] * ZNS * (sz[9] + sz[11] - 6.);
+        double shs = equatorial ? 0. : -ZNS * ss[1] * (sz[6] + sz[8]);
+        if (sinim != 0.) {
+            shs /= sinim;
+        }
+        final double sgs = sghs - cosim * shs;
+        dedt = ses + sl[0] * ZNL * sl[4];
+        didt = sis + sl[1] * ZNL * (zl[3] + zl[5]);
+        dmdt = sls - ZNL * sl[2] * (zl[0] + zl[2] - 14. - 6. * emsq);
+        final double sghl = sl[3] * ZNL * (zl[9] + zl[11] - 6.);
+        final double shll = equatorial ? 0. : -ZNL * sl[1] * (zl[6] + zl[8]);
+        domdt = sgs + sghl;
+        dnodt = shs;
+        if (sinim != 0.) {
+            domdt -= cosim / sinim * shll;
+            dnodt += shll / sinim;
+        }
+
+        // Resonances: 24 h (geosynchronous) and 12 h (Molniya-like) orbits
+        irez = 0;
+        if (nm < 0.0052359877 && nm > 0.0034906585) {
+            irez = 1;
+        }
+        if (nm >= 8.26e-3 && nm <= 9.24e-3 && em >= 0.5) {
+            irez = 2;
+        }
+        if (irez == 0) {
+            return;
+        }
+        final double theta = gsto % TWO_PI;
+        final double aonv = FastMath.pow(nm / XKE, X2O3);
+        if (irez == 2) {
+            final double cosisq = cosim * cosim;
+            final double eoc = em * eccsq;
+            final double g201 = -0.306 - (em - 0.64) * 0.440;
+            final double g211;
+            final double g310;
+            final double g322;
+            final double g410;
+            final double g422;
+            final double g520;
+            if (em <= 0.65) {
+                g211 = 3.616 - 13.2470 * em + 16.2900 * eccsq;
+                g310 = -19.302 + 117.3900 * em - 228.4190 * eccsq + 156.5910 * eoc;
+                g322 = -18.9068 + 109.7927 * em - 214.6334 * eccsq + 146.5816 * eoc;
+                g410 = -41.122 + 242.6940 * em - 471.0940 * eccsq + 313.9530 * eoc;
+                g422 = -146.407 + 841.8800 * em - 1629.014 * eccsq + 1083.4350 * eoc;
+                g520 = -532.114 + 3017.977 * em - 5740.032 * eccsq + 3708.2760 * eoc;
+            } else {
+                g211 = -72.099 + 331.819 * em - 508.738 * eccsq + 266.724 * eoc;
+                g310 = -346.844 + 1582.851 * em - 2415.925 * eccsq + 1246.113 * eoc;
+                g322 = -342.585 + 1554.908 * em - 2366.899 * eccsq + 1215.972 * eoc;
+                g410 = -1052.797 + 4758.686 * em - 7193.992 * eccsq + 3651.957 * eoc;
+                g422 = -3581.690 + 16178.110 * em - 24462.770 * eccsq + 12422.520 * eoc;
+                g520 = em > 0.715 ? -5149.66 + 29936.92 * em - 54087.36 * eccsq + 31324.56 * eoc
+                        : 1464.74 - 4664.75 * em + 3763.64 * eccsq;
+            }
+            final double g533;
+            final double g521;
+            final double g532;
+            if (em < 0.7) {
+                g533 = -919.22770 + 4988.6100 * em - 9064.7700 * eccsq + 5542.21 * eoc;
+                g521 = -822.71072 + 4568.6173 * em - 8491.4146 * eccsq + 5337.524 * eoc;
+                g532 = -853.66600 + 4690.2500 * em - 8624.7700 * eccsq + 5341.4 * eoc;
+            } else {
+                g533 = -37995.780 + 161616.52 * em - 229838.20 * eccsq + 109377.94 * eoc;
+                g521 = -51752.104 + 218913.95 * em - 309468.16 * eccsq + 146349.42 * eoc;
+                g532 = -40023.880 + 170470.89 * em - 242699.48 * eccsq + 115605.82 * eoc;
+            }
+            final double sini2 = sinim * sinim;
+            final double f220 = 0.75 * (1. + 2. * cosim + cosisq);
+            final double f221 = 1.5 * sini2;
+            final double f321 = 1.875 * sinim * (1. - 2. * cosim - 3. * cosisq);
+            final double f322 = -1.875 * sinim * (1. + 2. * cosim - 3. * cosisq);
+            final double f441 = 35. * sini2 * f220;
+            final double f442 = 39.3750 * sini2 * sini2;
+            final double f522 = 9.84375 * sinim * (sini2 * (1. - 2. * cosim - 5. * cosisq)
+                    + 0.33333333 * (-2. + 4. * cosim + 6. * cosisq));
+            final double f523 = sinim * (4.92187512 * sini2 * (-2. - 4. * cosim + 10. * cosisq)
+                    + 6.56250012 * (1. + 2. * cosim - 3. * cosisq));
+            final double f542 = 29.53125 * sinim * (2. - 8. * cosim + cosisq * (-12. + 8. * cosim + 10. * cosisq));
+            final double f543 = 29.53125 * sinim * (-2. - 8. * cosim + cosisq * (12. + 8. * cosim - 10. * cosisq));
+            final double xno2 = nm * nm;
+            final double ainv2 = aonv * aonv;
+            double temp1 = 3. * xno2 * ainv2;
+            double temp = temp1 * 1.7891679e-6;
+            d2201 = temp * f220 * g201;
+            d2211 = temp * f221 * g211;
+            temp1 *= aonv;
+            temp = temp1 * 3.7393792e-7;
+            d3210 = temp * f321 * g310;
+            d3222 = temp * f322 * g322;
+            temp1 *= aonv;
+            temp = 2. * temp1 * 7.3636953e-9;
+            d4410 = temp * f441 * g410;
+            d4422 = temp * f442 * g422;
+            temp1 *= aonv;
+            temp = temp1 * 1.1428639e-7;
+            d5220 = temp * f522 * g520;
+            d5232 = temp * f523 * g532;
+            temp = 2. * temp1 * 2.1765803e-9;
+            d5421 = temp * f542 * g521;
+            d5433 = temp * f543 * g533;
+            xlamo = (mo + nodeo + nodeo - theta - theta) % TWO_PI;
+            xfact = mdot + dmdt + 2. * (nodedot + dnodt - RPTIM) - no;
+        } else {
+            final double g200 = 1. + emsq * (-2.5 + 0.8125 * emsq);
+            final double g310 = 1. + 2. * emsq;
+            final double g300 = 1. + emsq * (-6. + 6.60937 * emsq);
+            final double f220 = 0.75 * (1. + cosim) * (1. + cosim);
+            final double f311 = 0.9375 * sinim * sinim * (1. + 3. * cosim) - 0.75 * (1. + cosim);
+            double f330 = 1. + cosim;
+            f330 = 1.875 * f330 * f330 * f330;
+            del1 = 3. * nm * nm * aonv * aonv;
+            del2 = 2. * del1 * f220 * g200 * 1.7891679e-6;
+            del3 = 3. * del1 * f330 * g300 * 2.2123015e-7 * aonv;
+            del1 = del1 * f311 * g310 * 2.1460748e-6 * aonv;
+            xlamo = (mo + nodeo + argpo - theta) % TWO_PI;
+            xfact = mdot + xpidot - RPTIM + dmdt + domdt + dnodt - no;
+        }
+        xli = xlamo;
+        xni = no;
+        atime = 0.;
+    }
+
+    /**
+     * Integrates the resonance terms up to a time, from the last integrated time when possible
+     * (dspace of the reference implementation).
+     *
+     * @param t Time since epoch (min)
+     * @return Mean motion at this time (rad/min)
+     */
+    private double integrateResonance(double t) {
+        // Restart from the epoch when going backwards or across it
+        if (atime == 0. || t * atime <= 0. || FastMath.abs(t) < FastMath.abs(atime)) {
+            atime = 0.;
+            xni = no;
+            xli = xlamo;
+        }
+        final double delt = t > 0. ? STEP : -STEP;
+        while (FastMath.abs(t - atime) >= STEP) {
+            resonanceRates();
+            xli += xldot * delt + xndt * STEP2;
+            xni += xndt * delt + xnddt * STEP2;
+            atime += delt;
+        }
+        resonanceRates();
+        final double ft = t - atime;
+        return xni + xndt * ft + xnddt * ft * ft * 0.5;
+    }
+
+    private double resonanceLongitude(double ft) {
+        return xli + xldot * ft + xndt * ft * ft * 0.5;
+    }
+
+    private void resonanceRates() {
+        final double fasx2 = 0.13130908;
+        final double fasx4 = 2.8843198;
+        final double fasx6 = 0.37448087;
+        final double g22 = 5.7686396;
+        final double g32 = 0.95240898;
+        final double g44 = 1.8014998;
+        final double g52 = 1.0508330;
+        final double g54 = 4.4108898;
+        if (irez != 2) {
+            // Synchronous resonance
+            xndt = del1 * FastMath.sin(xli - fasx2) + del2 * FastMath.sin(2. * (xli - fasx4)) + del3 * FastMath.sin(3. * (xli - fasx6));
+            xldot = xni + xfact;
+            xnddt = (del1 * FastMath.cos(xli - fasx2) + 2. * del2 * FastMath.cos(2. * (xli - fasx4))
+                    + 3. * del3 * FastMath.cos(3. * (xli - fasx6))) * xldot;
+        } else {
+            // Geopotential resonance of the 12 h orbits
+            final double xomi = argpo + argpdot * atime;
+            final double x2omi = xomi + xomi;
+            final double x2li = xli + xli;
+            xndt = d2201 * FastMath.sin(x2omi + xli - g22) + d2211 * FastMath.sin(xli - g22)
+                    + d3210 * FastMath.sin(xomi + xli - g32) + d3222 * FastMath.sin(-xomi + xli - g32)
+                    + d4410 * FastMath.sin(x2omi + x2li - g44) + d4422 * FastMath.sin(x2li - g44)
+                    + d5220 * FastMath.sin(xomi + xli - g52) + d5232 * FastMath.sin(-xomi + xli - g52)
+                    + d5421 * FastMath.sin(xomi + x2li - g54) + d5433 * FastMath.sin(-xomi + x2li - g54);
+            xldot = xni + xfact;
+            xnddt = (d2201 * FastMath.cos(x2omi + xli - g22) + d2211 * FastMath.cos(xli - g22)
+                    + d3210 * FastMath.cos(xomi + xli - g32) + d3222 * FastMath.cos(-xomi + xli - g32)
+                    + d5220 * FastMath.cos(xomi + xli - g52) + d5232 * FastMath.cos(-xomi + xli - g52)
+                    + 2. * (d4410 * FastMath.cos(x2omi + x2li - g44) + d4422 * FastMath.cos(x2li - g44)
+                    + d5421 * FastMath.cos(xomi + x2li - g54) + d5433 * FastMath.cos(-xomi + x2li - g54))) * xldot;
+        }
+    }
+
+    /**
+     * Adds the lunar and solar periodics to the mean elements (dpper of the reference implementation).
+     *
+     * @param t        Time since epoch (min)
+     * @param elements Eccentricity, inclination, RAAN, argument of perigee and mean anomaly, updated in place
+     */
+    private void lunarSolarPeriodics(double t, double[] elements) {
+        // Solar terms
+        double zm = zmos + ZNS * t;
+        double zf = zm + 2. * ZES * FastMath.sin(zm);
+        double sinzf = FastMath.sin(zf);
+        double f2 = 0.5 * sinzf * sinzf - 0.25;
+        double f3 = -0.5 * sinzf * FastMath.cos(zf);
+        final double ses = se2 * f2 + se3 * f3;
+        final double sis = si2 * f2 + si3 * f3;
+        final double sls = sl2 * f2 + sl3 * f3 + sl4 * sinzf;
+        final double sghs = sgh2 * f2 + sgh3 * f3 + sgh4 * sinzf;
+        final double shs = sh2 * f2 + sh3 * f3;
+        // Lunar terms
+        zm = zmol + ZNL * t;
+        zf = zm + 2. * ZEL * FastMath.sin(zm);
+        sinzf = FastMath.sin(zf);
+        f2 = 0.5 * sinzf * sinzf - 0.25;
+        f3 = -0.5 * sinzf * FastMath.cos(zf);
+        final double sel = ee2 * f2 + e3 * f3;
+        final double sil = xi2 * f2 + xi3 * f3;
+        final double sll = xl2 * f2 + xl3 * f3 + xl4 * sinzf;
+        final double sghl = xgh2 * f2 + xgh3 * f3 + xgh4 * sinzf;
+        final double shll = xh2 * f2 + xh3 * f3;
+
+        final double pe = ses + sel;
+        final double pinc = sis + sil;
+        final double pl = sls + sll;
+        double pgh = sghs + sghl;
+        double ph = shs + shll;
+
+        final double inclp = elements[1] + pinc;
+        double nodep = elements[2];
+        double argpp = elements[3];
+        double mp = elements[4];
+        elements[0] += pe;
+        elements[1] = inclp;
+        final double sinip = FastMath.sin(inclp);
+        final double cosip = FastMath.cos(inclp);
+        if (inclp >= 0.2) {
+            ph /= sinip;
+            pgh -= cosip * ph;
+            argpp += pgh;
+            nodep += ph;
+            mp += pl;
+        } else {
+            // Lyddane modification for the low inclinations
+            final double sinop = FastMath.sin(nodep);
+            final double cosop = FastMath.cos(nodep);
+            double alfdp = sinip * sinop;
+            double betdp = sinip * cosop;
+            alfdp += ph * cosop + pinc * cosip * sinop;
+            betdp += -ph * sinop + pinc * cosip * cosop;
+            nodep %= TWO_PI;
+            double xls = mp + argpp + cosip * nodep;
+            xls += pl + pgh - pinc * nodep * sinip;
+            final double xnoh = nodep;
+            nodep = FastMath.atan2(alfdp, betdp);
+            if (FastMath.abs(xnoh - nodep) > FastMath.PI) {
+                nodep += nodep < xnoh ? TWO_PI : -TWO_PI;
+            }
+            mp += pl;
+            argpp = xls - mp - cosip * nodep;
+        }
+        elements[2] = nodep;
+        elements[3] = argpp;
+        elements[4] = mp;
+    }
+}
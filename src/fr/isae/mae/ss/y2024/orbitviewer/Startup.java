@@ -0,0 +1,98 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import com.jogamp.opengl.GLProfile;
+import fr.cnes.sirius.patrius.frames.FramesFactory;
+import fr.cnes.sirius.patrius.time.TimeScalesFactory;
+import gov.nasa.worldwind.WorldWind;
+import gov.nasa.worldwind.avlist.AVKey;
+
+/**
+ * Startup warms the application up in the background while the user is still filling the orbit
+ * table, so that the first simulation only pays for the propagation itself. It loads the PATRIUS
+ * time scales and frames, runs a short propagation with each propagation model so that the
+ * propagators are loaded and compiled by the JIT, then initializes the OpenGL profiles and the
+ * WorldWind model used by the viewer.
+ * <p>
+ * The warm-up is disabled with the system property {@code orbitas.warmup=false}, and its duration is
+ * printed with {@code orbitas.warmup.verbose=true}. Running this class
+ * on its own performs the warm-up then exits, which makes it a training run for a class data
+ * sharing archive:
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=orbitas.jsa -cp ... fr.isae.mae.ss.y2024.orbitviewer.Startup
+ * java -XX:SharedArchiveFile=orbitas.jsa -cp ... fr.isae.mae.ss.y2024.orbitviewer.GUI
+ * </pre>
+ */
+public class Startup {
+    // Span of the warm-up propagations (s), a few hundred integration steps
+    private static final double WARMUP_DURATION = 1200.;
+
+    private static Thread thread;
+
+    private Startup() {
+    }
+
+    /**
+     * Starts the warm-up in a background thread, once per application run. The thread runs with a
+     * lower priority than the event dispatch thread and does not keep the application alive.
+     */
+    public static synchronized void start() {
+        if (thread != null || !Boolean.parseBoolean(System.getProperty("orbitas.warmup", "true"))) {
+            return;
+        }
+        thread = new Thread(Startup::warmUp, "orbitas-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * Runs the warm-up in the calling thread. Each step is independent, a failing step is skipped
+     * and the next ones still run: the same failure is reported when the application reaches it.
+     */
+    public static void warmUp() {
+        long start = System.nanoTime();
+        try {
+            // Time scales and frames are loaded from the PATRIUS data on first use
+            TimeScalesFactory.getTAI();
+            FramesFactory.getGCRF();
+        } catch (Exception e) {
+            // Reported by the first propagation
+        }
+        long data = System.nanoTime();
+
+        // The propagations are not cached nor recorded in the metrics, they only load and compile the code
+        for (PropagationMode mode : PropagationMode.values()) {
+            try {
+                Orbiter orbiter = new Orbiter(PropagatorSettings.DEFAULT.withMode(mode).withDuration(WARMUP_DURATION));
+                orbiter.propagate(7000e3, 0.001, Math.toRadians(51.6), 0., 0., 0., null, new Trajectory());
+            } catch (Exception e) {
+                // Reported by the first propagation with this mode
+            }
+        }
+        long propagation = System.nanoTime();
+
+        try {
+            // Probing the OpenGL profiles opens the native libraries and a context, the slowest part of the first viewer
+            GLProfile.initSingleton();
+            WorldWind.createConfigurationComponent(AVKey.MODEL_CLASS_NAME);
+        } catch (Exception | LinkageError e) {
+            // Reported by the first viewer
+        }
+        long end = System.nanoTime();
+
+        if (Boolean.getBoolean("orbitas.warmup.verbose")) {
+            System.out.println(String.format("Warm-up in %.0f ms: PATRIUS data %.0f ms, propagators %.0f ms, WorldWind %.0f ms",
+                    (end - start) / 1e6, (data - start) / 1e6, (propagation - data) / 1e6, (end - propagation) / 1e6));
+        }
+    }
+
+    /**
+     * Runs the warm-up then exits, for instance to record a class data sharing archive.
+     *
+     * @param args Unused
+     */
+    public static void main(String[] args) {
+        warmUp();
+        System.exit(0);
+    }
+}
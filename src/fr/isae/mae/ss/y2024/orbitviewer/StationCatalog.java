@@ -0,0 +1,60 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StationCatalog reads ground station networks from CSV files. Lines are
+ * {@code name,latitude,longitude,altitude,minElevation} with angles in degrees and the altitude in
+ * meters; the minimum elevation may be left out and defaults to 0°. An optional header line, blank
+ * lines and lines starting with {@code #} are ignored.
+ */
+public class StationCatalog {
+
+    private StationCatalog() {
+    }
+
+    /**
+     * Reads a CSV station network.
+     *
+     * @param file CSV file
+     * @return The stations, angles in radians
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static List<GroundStation> readCsv(File file) throws IOException {
+        List<GroundStation> stations = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length < 4) {
+                    throw new IOException(file + ":" + lineNumber + ": expected at least 4 fields");
+                }
+                try {
+                    double minElevation = fields.length > 4 ? Double.parseDouble(fields[4].trim()) : 0.;
+                    stations.add(new GroundStation(fields[0].trim(), Math.toRadians(Double.parseDouble(fields[1].trim())),
+                            Math.toRadians(Double.parseDouble(fields[2].trim())), Double.parseDouble(fields[3].trim()),
+                            Math.toRadians(minElevation)));
+                } catch (NumberFormatException e) {
+                    // The header line is the only non numeric line allowed
+                    if (stations.isEmpty() && lineNumber == 1) {
+                        continue;
+                    }
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        return stations;
+    }
+}
@@ -0,0 +1,196 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import gov.nasa.worldwind.WorldWindow;
+import gov.nasa.worldwind.layers.RenderableLayer;
+import gov.nasa.worldwindx.examples.ApplicationTemplate;
+
+import javax.swing.Timer;
+import java.awt.Color;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * StreamingOrbitRenderer displays orbits while they are still being propagated. The propagation
+ * threads publish batches of samples, and a Swing timer appends them to the orbits at a fixed
+ * frame budget, so that the globe is redrawn at most once per frame whatever the number of orbits.
+ * All the orbits are drawn by a single {@link ConstellationRenderable} in one layer, and orbits can
+ * be added or removed at any time. All methods but {@link #publish} must be called on the event
+ * dispatch thread.
+ */
+public class StreamingOrbitRenderer {
+    // Minimum time between two redraws of the globe (ms)
+    private static final int FRAME_BUDGET_MILLIS = 40;
+
+    private final WorldWindow wwd;
+    private final ConstellationRenderable constellation = new ConstellationRenderable();
+    // Streams by index of their orbit, the indices are never reused so late samples of a removed
+    // orbit cannot reach the orbit given its slot of the constellation
+    private final Map<Integer, OrbitStream> streams = new ConcurrentHashMap<>();
+    private final Timer timer;
+    private int nextIndex;
+
+    /**
+     * State of the samples of one orbit.
+     */
+    private static class OrbitStream {
+        private final ConcurrentLinkedQueue<Trajectory> pending = new ConcurrentLinkedQueue<>();
+        // Index of the orbit in the constellation
+        private final int index;
+        private boolean completed;
+        // Time spent building the orbit vertices (ns)
+        private long buildNanos;
+
+        OrbitStream(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * Constructs a new StreamingOrbitRenderer and adds the layer of the orbits to the globe.
+     * The orbits are numbered from 0 in the order of their names.
+     *
+     * @param wwd        WorldWindow displaying the orbits
+     * @param orbitNames Names of the orbits
+     */
+    public StreamingOrbitRenderer(WorldWindow wwd, String[] orbitNames) {
+        this.wwd = wwd;
+        for (String orbitName : orbitNames) {
+            addOrbit(orbitName);
+        }
+        RenderableLayer layer = new RenderableLayer();
+        layer.setName("Orbits");
+        layer.addRenderable(constellation);
+        ApplicationTemplate.insertBeforeCompass(wwd, layer);
+        this.timer = new Timer(FRAME_BUDGET_MILLIS, e -> flush());
+    }
+
+    /**
+     * Returns the renderable drawing the orbits.
+     *
+     * @return The constellation renderable
+     */
+    public ConstellationRenderable getConstellation() {
+        return constellation;
+    }
+
+    /**
+     * Adds an orbit without any sample.
+     *
+     * @param orbitName Name of the orbit
+     * @return Index of the orbit
+     */
+    public int addOrbit(String orbitName) {
+        return addOrbit(orbitName, 0);
+    }
+
+    /**
+     * Adds an orbit without any sample, showing only its most recent samples while it is streamed.
+     *
+     * @param orbitName     Name of the orbit
+     * @param trailCapacity Number of streamed samples shown, or 0 to show them all
+     * @return Index of the orbit
+     */
+    public int addOrbit(String orbitName, int trailCapacity) {
+        return addOrbit(orbitName, Orbiter.randomOrbitColor(), trailCapacity);
+    }
+
+    /**
+     * Adds an orbit of the given color without any sample, showing only its most recent samples
+     * while it is streamed.
+     *
+     * @param orbitName     Name of the orbit
+     * @param color         Color of the orbit path
+     * @param trailCapacity Number of streamed samples shown, or 0 to show them all
+     * @return Index of the orbit
+     */
+    public int addOrbit(String orbitName, Color color, int trailCapacity) {
+        int index = nextIndex++;
+        streams.put(index, new OrbitStream(constellation.addOrbit(orbitName, color, trailCapacity)));
+        return index;
+    }
+
+    /**
+     * Removes an orbit from the globe. Samples still published for it are ignored.
+     *
+     * @param index Index of the orbit
+     */
+    public void removeOrbit(int index) {
+        OrbitStream stream = streams.remove(index);
+        if (stream != null) {
+            constellation.removeOrbit(stream.index);
+            wwd.redraw();
+        }
+    }
+
+    /**
+     * Starts appending the published samples to the orbits.
+     */
+    public void start() {
+        timer.start();
+    }
+
+    /**
+     * Stops updating the orbits.
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    /**
+     * Publishes a batch of samples of an orbit. This method may be called from any thread.
+     *
+     * @param index Index of the orbit
+     * @param batch Samples to append to the orbit
+     */
+    public void publish(int index, Trajectory batch) {
+        OrbitStream stream = streams.get(index);
+        if (stream != null) {
+            stream.pending.add(batch);
+        }
+    }
+
+    /**
+     * Replaces the streamed samples of an orbit by the levels of detail of its complete trajectory.
+     *
+     * @param index      Index of the orbit
+     * @param trajectory Complete trajectory of the orbit
+     * @return Total time spent building the vertices of the orbit, streamed batches included (ns),
+     *         or -1 if the orbit was removed
+     */
+    public long complete(int index, TrajectoryView trajectory) {
+        long start = System.nanoTime();
+        OrbitStream stream = streams.get(index);
+        if (stream == null) {
+            return -1;
+        }
+        stream.completed = true;
+        stream.pending.clear();
+        constellation.setTrajectory(stream.index, trajectory);
+        stream.buildNanos += System.nanoTime() - start;
+        wwd.redraw();
+        return stream.buildNanos;
+    }
+
+    /**
+     * Appends the pending batches to the orbits, then redraws the globe once.
+     */
+    private void flush() {
+        boolean changed = false;
+        for (OrbitStream stream : streams.values()) {
+            if (stream.completed || stream.pending.isEmpty()) {
+                continue;
+            }
+            long start = System.nanoTime();
+            Trajectory batch;
+            while ((batch = stream.pending.poll()) != null) {
+                constellation.appendSamples(stream.index, batch);
+            }
+            stream.buildNanos += System.nanoTime() - start;
+            changed = true;
+        }
+        if (changed) {
+            wwd.redraw();
+        }
+    }
+}
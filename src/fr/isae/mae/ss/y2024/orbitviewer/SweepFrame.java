@@ -0,0 +1,360 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Represents a frame for defining a parameter sweep around an orbit, running it and showing one
+ * of its metrics as a heatmap. Running a sweep again with the same results file resumes it.
+ */
+@SuppressWarnings("serial")
+public class SweepFrame extends JFrame implements ActionListener {
+    private final OrbitElements base;
+    private final PropagatorSettings settings;
+    private JComboBox<ParameterSweep.Parameter> xParameterBox, yParameterBox;
+    private JTextField xFromField, xToField, xStepsField, yFromField, yToField, yStepsField;
+    private JTextField spanField, halfAngleField, cellField, resultsField;
+    private JButton browseButton, runButton, cancelButton;
+    private JComboBox<SweepRunner.Metric> metricBox;
+    private JProgressBar progressBar;
+    private HeatmapPanel heatmap;
+    private SweepRunner runner;
+
+    /**
+     * Constructor for the SweepFrame class.
+     * @param base     The orbit whose elements are swept.
+     * @param settings The settings of the propagation of the points.
+     */
+    public SweepFrame(OrbitElements base, PropagatorSettings settings) {
+        super("Parameter sweep around " + base.getName());
+        this.base = base;
+        this.settings = settings;
+        setSize(800, 700);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(null);
+
+        // Create input panel with grid layout, one row per axis
+        JPanel inputPanel = new JPanel(new GridLayout(6, 4));
+        inputPanel.setBorder(new EmptyBorder(10, 10, 10, 10)); // Add margins
+
+        xParameterBox = new JComboBox<>(ParameterSweep.Parameter.values());
+        xParameterBox.setSelectedItem(ParameterSweep.Parameter.ALTITUDE);
+        xFromField = new JTextField("400");
+        xToField = new JTextField("1200");
+        xStepsField = new JTextField("17");
+        yParameterBox = new JComboBox<>(ParameterSweep.Parameter.values());
+        yParameterBox.setSelectedItem(ParameterSweep.Parameter.INC);
+        yFromField = new JTextField("0");
+        yToField = new JTextField("98");
+        yStepsField = new JTextField("15");
+        spanField = new JTextField("1");
+        halfAngleField = new JTextField("30");
+        cellField = new JTextField("2");
+        resultsField = new JTextField(new File(System.getProperty("user.home"), "orbit-sweep.csv").getPath());
+        browseButton = new JButton("...");
+        browseButton.addActionListener(this);
+
+        inputPanel.add(new JLabel("Axis"));
+        inputPanel.add(new JLabel("From"));
+        inputPanel.add(new JLabel("To"));
+        inputPanel.add(new JLabel("Steps"));
+        inputPanel.add(xParameterBox);
+        inputPanel.add(xFromField);
+        inputPanel.add(xToField);
+        inputPanel.add(xStepsField);
+        inputPanel.add(yParameterBox);
+        inputPanel.add(yFromField);
+        inputPanel.add(yToField);
+        inputPanel.add(yStepsField);
+        inputPanel.add(new JLabel("Span (days):"));
+        inputPanel.add(spanField);
+        inputPanel.add(new JLabel("Sensor half-angle (°):"));
+        inputPanel.add(halfAngleField);
+        inputPanel.add(new JLabel("Grid cell size (°):"));
+        inputPanel.add(cellField);
+        inputPanel.add(new JLabel("Results file:"));
+        JPanel resultsPanel = new JPanel(new BorderLayout());
+        resultsPanel.add(resultsField, BorderLayout.CENTER);
+        resultsPanel.add(browseButton, BorderLayout.LINE_END);
+        inputPanel.add(resultsPanel);
+
+        // Add run and cancel buttons to the input panel
+        runButton = new JButton("Run / Resume");
+        runButton.addActionListener(this);
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(this);
+        cancelButton.setEnabled(false);
+        inputPanel.add(new JLabel());
+        inputPanel.add(new JLabel());
+        inputPanel.add(runButton);
+        inputPanel.add(cancelButton);
+
+        // Metric shown by the heatmap and progress of the sweep
+        metricBox = new JComboBox<>(SweepRunner.Metric.values());
+        metricBox.setSelectedItem(SweepRunner.Metric.COVERAGE);
+        metricBox.addActionListener(e -> heatmap.repaint());
+        progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.setBorder(new EmptyBorder(5, 10, 5, 10));
+        statusPanel.add(metricBox, BorderLayout.LINE_START);
+        statusPanel.add(progressBar, BorderLayout.CENTER);
+
+        heatmap = new HeatmapPanel();
+        add(inputPanel, BorderLayout.NORTH);
+        add(heatmap, BorderLayout.CENTER);
+        add(statusPanel, BorderLayout.SOUTH);
+
+        // Stop the propagations with the frame
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                if (runner != null) {
+                    runner.cancel();
+                }
+            }
+        });
+        setVisible(true);
+    }
+
+    /**
+     * Invoked when a button is clicked.
+     *
+     * @param e The action event
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (e.getSource() == browseButton) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new File(resultsField.getText().trim()));
+            if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                resultsField.setText(chooser.getSelectedFile().getPath());
+            }
+        } else if (e.getSource() == cancelButton) {
+            if (runner != null) {
+                runner.cancel();
+            }
+            cancelButton.setEnabled(false);
+            runButton.setEnabled(true);
+            progressBar.setString("Cancelled, run again to resume");
+        } else if (e.getSource() == runButton) {
+            runSweep();
+        }
+    }
+
+    /**
+     * Reads the sweep definition and starts it, replacing the previous sweep of the frame.
+     */
+    private void runSweep() {
+        ParameterSweep sweep;
+        double days;
+        double halfAngle;
+        double cellDegrees;
+        try {
+            sweep = new ParameterSweep(base, (ParameterSweep.Parameter) xParameterBox.getSelectedItem(),
+                    Double.parseDouble(xFromField.getText().trim()), Double.parseDouble(xToField.getText().trim()),
+                    Integer.parseInt(xStepsField.getText().trim()), (ParameterSweep.Parameter) yParameterBox.getSelectedItem(),
+                    Double.parseDouble(yFromField.getText().trim()), Double.parseDouble(yToField.getText().trim()),
+                    Integer.parseInt(yStepsField.getText().trim()));
+            days = Double.parseDouble(spanField.getText().trim());
+            halfAngle = Math.toRadians(Double.parseDouble(halfAngleField.getText().trim()));
+            cellDegrees = Double.parseDouble(cellField.getText().trim());
+            sweep.expand();
+        } catch (NumberFormatException ex) {
+            // Show error message if a field is not a number
+            JOptionPane.showMessageDialog(this, "Invalid sweep parameters.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, "Invalid sweep: " + ex.getMessage() + ".", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        // Each propagation thread holds a coverage grid, finer grids would not fit in memory
+        double minCellDegrees = Math.max(0.01,
+                Math.ceil(100. * CoverageGrid.getMinCellDegrees(Runtime.getRuntime().availableProcessors())) / 100.);
+        if (!(days > 0.) || !(halfAngle > 0. && halfAngle < Math.PI / 2.) || !(cellDegrees >= minCellDegrees && cellDegrees <= 10.)) {
+            JOptionPane.showMessageDialog(this, String.format("The span must be positive, the half-angle between 0 and 90° and the "
+                    + "cell size between %.2f and 10°.", minCellDegrees), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        if (runner != null) {
+            runner.cancel();
+        }
+        SweepRunner sweepRunner = new SweepRunner(sweep, settings.withDuration(days * 86400.), halfAngle, cellDegrees,
+                new File(resultsField.getText().trim()));
+        runner = sweepRunner;
+        progressBar.setMaximum(sweep.getPointCount());
+        progressBar.setValue(0);
+        progressBar.setString(null);
+        runButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        heatmap.repaint();
+        try {
+            sweepRunner.start(() -> SwingUtilities.invokeLater(() -> sweepUpdated(sweepRunner)));
+        } catch (IOException ex) {
+            sweepRunner.cancel();
+            runButton.setEnabled(true);
+            cancelButton.setEnabled(false);
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Shows the progress of a sweep, on the event dispatch thread.
+     */
+    private void sweepUpdated(SweepRunner sweepRunner) {
+        if (sweepRunner != runner || sweepRunner.isCancelled()) {
+            return;
+        }
+        int count = sweepRunner.getDoneCount();
+        progressBar.setValue(count);
+        if (count == sweepRunner.getSweep().getPointCount()) {
+            String status = sweepRunner.getFailureCount() == 0 ? "Done" : sweepRunner.getFailureCount() + " points failed";
+            if (sweepRunner.getUnsavedCount() > 0) {
+                status += ", " + sweepRunner.getUnsavedCount() + " results not saved";
+            }
+            progressBar.setString(status);
+            runButton.setEnabled(true);
+            cancelButton.setEnabled(false);
+        }
+        heatmap.repaint();
+    }
+
+    /**
+     * Paints the selected metric of each point of the sweep, the first axis horizontally and the
+     * second one vertically, with a color scale between the smallest and the largest value.
+     */
+    private class HeatmapPanel extends JPanel {
+        // Margins around the grid, for the axes and the color scale
+        private static final int LEFT = 70;
+        private static final int RIGHT = 90;
+        private static final int TOP = 25;
+        private static final int BOTTOM = 40;
+
+        HeatmapPanel() {
+            setBackground(Color.WHITE);
+            // Registers the panel so that it shows the values of the points
+            setToolTipText("");
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            SweepRunner sweepRunner = runner;
+            if (sweepRunner == null) {
+                g.setColor(Color.GRAY);
+                g.drawString("Run a sweep to show its metrics.", LEFT, TOP + 20);
+                return;
+            }
+            ParameterSweep sweep = sweepRunner.getSweep();
+            SweepRunner.Metric metric = (SweepRunner.Metric) metricBox.getSelectedItem();
+            int columns = sweep.getXSteps();
+            int rows = sweep.getYSteps();
+            int width = getWidth() - LEFT - RIGHT;
+            int height = getHeight() - TOP - BOTTOM;
+            if (width <= 0 || height <= 0) {
+                return;
+            }
+
+            // Range of the metric over the computed points
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int p = 0; p < sweep.getPointCount(); p++) {
+                double value = sweepRunner.getValue(metric, p);
+                if (!Double.isNaN(value)) {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+
+            // Cells, the first row of the second axis at the bottom
+            for (int j = 0; j < rows; j++) {
+                int y0 = TOP + height - (j + 1) * height / rows;
+                int y1 = TOP + height - j * height / rows;
+                for (int i = 0; i < columns; i++) {
+                    int p = j * columns + i;
+                    double value = sweepRunner.getValue(metric, p);
+                    if (!sweepRunner.isDone(p)) {
+                        g.setColor(new Color(235, 235, 235));
+                    } else if (Double.isNaN(value)) {
+                        g.setColor(Color.DARK_GRAY);
+                    } else {
+                        g.setColor(color(max > min ? (value - min) / (max - min) : 1.));
+                    }
+                    int x0 = LEFT + i * width / columns;
+                    int x1 = LEFT + (i + 1) * width / columns;
+                    g.fillRect(x0, y0, x1 - x0, y1 - y0);
+                }
+            }
+
+            // Axes, with the bounds of each axis
+            g.setColor(Color.BLACK);
+            g.drawRect(LEFT, TOP, width, height);
+            FontMetrics font = g.getFontMetrics();
+            String xLabel = sweep.getXParameter().toString();
+            g.drawString(xLabel, LEFT + (width - font.stringWidth(xLabel)) / 2, TOP + height + 2 * font.getHeight());
+            g.drawString(format(sweep.getX(0)), LEFT, TOP + height + font.getHeight());
+            String xLast = format(sweep.getX(columns - 1));
+            g.drawString(xLast, LEFT + width - font.stringWidth(xLast), TOP + height + font.getHeight());
+            g.drawString(sweep.getYParameter().toString(), 4, TOP - font.getDescent() - 4);
+            g.drawString(format(sweep.getY(0)), LEFT - font.stringWidth(format(sweep.getY(0))) - 4, TOP + height);
+            String yLast = format(sweep.getY(rows - 1));
+            g.drawString(yLast, LEFT - font.stringWidth(yLast) - 4, TOP + font.getAscent());
+
+            // Color scale
+            int scaleX = LEFT + width + 20;
+            for (int k = 0; k < height; k++) {
+                g.setColor(color(1. - (double) k / height));
+                g.drawLine(scaleX, TOP + k, scaleX + 15, TOP + k);
+            }
+            g.setColor(Color.BLACK);
+            if (min <= max) {
+                g.drawString(format(max), scaleX + 18, TOP + font.getAscent());
+                g.drawString(format(min), scaleX + 18, TOP + height);
+            }
+        }
+
+        @Override
+        public String getToolTipText(MouseEvent event) {
+            SweepRunner sweepRunner = runner;
+            int width = getWidth() - LEFT - RIGHT;
+            int height = getHeight() - TOP - BOTTOM;
+            if (sweepRunner == null || width <= 0 || height <= 0) {
+                return null;
+            }
+            ParameterSweep sweep = sweepRunner.getSweep();
+            int i = (event.getX() - LEFT) * sweep.getXSteps() / width;
+            int j = (TOP + height - event.getY()) * sweep.getYSteps() / height;
+            if (event.getX() < LEFT || event.getY() > TOP + height || i >= sweep.getXSteps() || j >= sweep.getYSteps()) {
+                return null;
+            }
+            int p = j * sweep.getXSteps() + i;
+            StringBuilder text = new StringBuilder("<html>").append(sweep.getXParameter()).append(" = ").append(format(sweep.getX(i)))
+                    .append("<br>").append(sweep.getYParameter()).append(" = ").append(format(sweep.getY(j)));
+            for (SweepRunner.Metric metric : SweepRunner.Metric.values()) {
+                double value = sweepRunner.getValue(metric, p);
+                text.append("<br>").append(metric).append(": ")
+                        .append(!sweepRunner.isDone(p) ? "pending" : Double.isNaN(value) ? "none" : format(value));
+            }
+            return text.append("</html>").toString();
+        }
+
+        private Color color(double level) {
+            // Same scale as the coverage layers, from blue to red
+            return Color.getHSBColor(0.66f * (1f - (float) level), 1f, 1f);
+        }
+
+        private String format(double value) {
+            return String.format("%.4g", value);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import fr.cnes.sirius.patrius.utils.Constants;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SweepRunner propagates the points of a {@link ParameterSweep} in parallel and computes their
+ * summary metrics: the nodal period and the ground-track repeat cycle, from the J2 secular rates,
+ * and the fraction of the Earth covered by a nadir pointing sensor over the propagation span, from
+ * the propagated track.
+ * <p>
+ * Points with identical elements are propagated once. Each result is appended to a results file
+ * as soon as it is known, keyed like the trajectory cache by the elements and the settings, plus
+ * the sensor and the grid of the coverage. A sweep run again with the same results file only
+ * propagates the points not found in it, so a cancelled sweep resumes where it stopped, and
+ * overlapping sweeps share their common points.
+ */
+public class SweepRunner {
+    // Longest repeat cycle searched, in nodal days
+    private static final int MAX_REPEAT_DAYS = 30;
+    // Largest shift of the ground track at the equator after a cycle for it to repeat (m)
+    private static final double REPEAT_TOLERANCE = 10000.;
+    private static final String HEADER = "key,sma,ecc,inc,raan,anm,pa,nodalPeriod,repeatDays,repeatRevolutions,coverage";
+
+    /**
+     * Summary metrics of a point of the sweep.
+     */
+    public enum Metric {
+        NODAL_PERIOD("Nodal period (min)"),
+        REPEAT_DAYS("Ground-track repeat (days)"),
+        REPEAT_REVOLUTIONS("Revolutions per repeat cycle"),
+        COVERAGE("Coverage (%)");
+
+        private final String label;
+
+        Metric(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final ParameterSweep sweep;
+    private final PropagatorSettings settings;
+    private final double halfAngle;
+    private final double cellDegrees;
+    private final File resultsFile;
+    // Metrics of each point, by metric then point, NaN until known or if there is none
+    private final double[][] values;
+    private final boolean[] done;
+    private int doneCount;
+    private int failures;
+    // Number of results that could not be appended to the results file
+    private int unsaved;
+    private PropagationEngine engine;
+    private BufferedWriter results;
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a new SweepRunner.
+     *
+     * @param sweep       Sweep to run
+     * @param settings    Settings of the propagation of each point, the span being the span of the coverage
+     * @param halfAngle   Half-angle of the sensor cone (rad)
+     * @param cellDegrees Size of the cells of the coverage grid (°)
+     * @param resultsFile File of the results, read to resume a previous run and appended to
+     */
+    public SweepRunner(ParameterSweep sweep, PropagatorSettings settings, double halfAngle, double cellDegrees, File resultsFile) {
+        this.sweep = sweep;
+        this.settings = settings.withTrailCapacity(0);
+        this.halfAngle = halfAngle;
+        this.cellDegrees = cellDegrees;
+        this.resultsFile = resultsFile;
+        this.values = new double[Metric.values().length][sweep.getPointCount()];
+        for (double[] metric : values) {
+            Arrays.fill(metric, Double.NaN);
+        }
+        this.done = new boolean[sweep.getPointCount()];
+    }
+
+    /**
+     * Starts the sweep. The points found in the results file are filled at once, the others are
+     * propagated in the background.
+     *
+     * @param onUpdate Called after each point and once the sweep is over, from the propagation threads
+     * @throws IOException if the results file cannot be read or written
+     */
+    public void start(Runnable onUpdate) throws IOException {
+        List<OrbitElements> points = sweep.expand();
+        Map<String, double[]> previous = readResults(resultsFile);
+        // Points still to propagate, grouped by key so that identical points are propagated once
+        Map<String, List<Integer>> pending = new LinkedHashMap<>();
+        for (int p = 0; p < points.size(); p++) {
+            String key = keyOf(points.get(p));
+            double[] metrics = previous.get(key);
+            if (metrics != null) {
+                setPoint(p, metrics);
+            } else {
+                pending.computeIfAbsent(key, k -> new ArrayList<>()).add(p);
+            }
+        }
+        boolean newFile = !resultsFile.isFile() || resultsFile.length() == 0;
+        boolean cutLine = !newFile && lastByte(resultsFile) != '\n';
+        results = Files.newBufferedWriter(resultsFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        if (newFile) {
+            results.write(HEADER + "\n");
+            results.flush();
+        } else if (cutLine) {
+            // The last line was cut by a crash, the next results start on a line of their own
+            results.write("\n");
+            results.flush();
+        }
+        if (pending.isEmpty()) {
+            finish(onUpdate);
+            return;
+        }
+
+        final List<String> keys = new ArrayList<>(pending.keySet());
+        final List<OrbitElements> orbits = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            orbits.add(points.get(pending.get(key).get(0)));
+        }
+        engine = new PropagationEngine(Runtime.getRuntime().availableProcessors(), null);
+        engine.submit(orbits, settings, new PropagationListener() {
+            @Override
+            public void orbitProgress(int index, double fraction) {
+                // Only the completed points are reported
+            }
+
+            @Override
+            public void orbitCompleted(int index, OrbitElements elements, Trajectory trajectory, PropagationStats stats) {
+                double[] metrics = computeMetrics(elements, trajectory);
+                pointDone(keys.get(index), elements, metrics, pending.get(keys.get(index)), onUpdate);
+            }
+
+            @Override
+            public void orbitFailed(int index, OrbitElements elements, Throwable error) {
+                synchronized (SweepRunner.this) {
+                    failures++;
+                }
+                pointDone(null, elements, null, pending.get(keys.get(index)), onUpdate);
+            }
+        });
+    }
+
+    /**
+     * Stops the sweep. The points already computed are kept in the results file, so that the
+     * sweep can be resumed.
+     */
+    public void cancel() {
+        cancelled = true;
+        if (engine != null) {
+            engine.shutdown();
+        }
+        closeResults();
+    }
+
+    /**
+     * Returns a metric of a point of the sweep.
+     *
+     * @param metric Metric
+     * @param point  Index of the point, {@code j * xSteps + i}
+     * @return The value, NaN if the point is not computed yet or has no such metric (no repeat cycle)
+     */
+    public synchronized double getValue(Metric metric, int point) {
+        return values[metric.ordinal()][point];
+    }
+
+    public synchronized boolean isDone(int point) {
+        return done[point];
+    }
+
+    public synchronized int getDoneCount() {
+        return doneCount;
+    }
+
+    public synchronized int getFailureCount() {
+        return failures;
+    }
+
+    public synchronized int getUnsavedCount() {
+        return unsaved;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public ParameterSweep getSweep() {
+        return sweep;
+    }
+
+    /**
+     * Computes the ground-track repeat cycle of an orbit from the J2 secular rates: the shortest
+     * number of nodal days after which the track comes back over the same longitudes, within a
+     * tolerance at the equator.
+     *
+     * @param sma Semi-major axis (m)
+     * @param ecc Eccentricity
+     * @param inc Inclination (rad)
+     * @return The length of the cycle (days) and the number of revolutions in it, NaN if the
+     * track does not repeat within 30 nodal days
+     */
+    public static double[] repeatCycle(double sma, double ecc, double inc) {
+        final double radius = Constants.WGS84_EARTH_EQUATORIAL_RADIUS;
+        KeplerPropagator j2 = new KeplerPropagator(sma, ecc, inc, 0., 0., 0., Constants.WGS84_EARTH_MU, radius, true);
+        // Revolutions per nodal day, the time the Earth takes to turn once relative to the drifting node
+        final double nodalRate = j2.getAnmRate() + j2.getPaRate();
+        final double earthRate = EarthRotation.RATE - j2.getRaanRate();
+        final double revolutionsPerDay = nodalRate / earthRate;
+        for (int days = 1; days <= MAX_REPEAT_DAYS; days++) {
+            final double revolutions = revolutionsPerDay * days;
+            final long closest = Math.round(revolutions);
+            // Shift of the track at the equator, the tracks of two revolutions being 2 PI / revolutionsPerDay apart
+            final double shift = Math.abs(revolutions - closest) * 2 * Math.PI / revolutionsPerDay * radius;
+            if (closest > 0 && shift <= REPEAT_TOLERANCE) {
+                return new double[] {days * 2 * Math.PI / earthRate / 86400., closest};
+            }
+        }
+        return new double[] {Double.NaN, Double.NaN};
+    }
+
+    /**
+     * Computes the metrics of a propagated point, in the order of {@link Metric}.
+     */
+    private double[] computeMetrics(OrbitElements elements, Trajectory trajectory) {
+        KeplerPropagator j2 = new KeplerPropagator(elements.getSma(), elements.getEcc(), elements.getInc(), 0., 0., 0.,
+                Constants.WGS84_EARTH_MU, Constants.WGS84_EARTH_EQUATORIAL_RADIUS, true);
+        double[] repeat = repeatCycle(elements.getSma(), elements.getEcc(), elements.getInc());
+        CoverageGrid grid = new CoverageGrid(cellDegrees);
+        grid.accumulate(Collections.singletonList(trajectory), settings.getOutputStep(), halfAngle);
+        return new double[] {2 * Math.PI / (j2.getAnmRate() + j2.getPaRate()) / 60., repeat[0], repeat[1],
+                100. * grid.getCoveredFraction()};
+    }
+
+    /**
+     * Records the metrics of the points sharing a key, null if their propagation failed.
+     */
+    private void pointDone(String key, OrbitElements elements, double[] metrics, List<Integer> points, Runnable onUpdate) {
+        boolean last;
+        synchronized (this) {
+            for (int p : points) {
+                if (metrics != null) {
+                    setPoint(p, metrics);
+                } else {
+                    done[p] = true;
+                    doneCount++;
+                }
+            }
+            if (metrics != null && results != null) {
+                try {
+                    results.write(String.format(Locale.ROOT, "%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s%n", key, elements.getSma() / 1000.,
+                            elements.getEcc(), Math.toDegrees(elements.getInc()), Math.toDegrees(elements.getRaan()),
+                            Math.toDegrees(elements.getAnm()), Math.toDegrees(elements.getPa()), metrics[0], metrics[1], metrics[2],
+                            metrics[3]));
+                    // Flushed at once, so that a cancelled or crashed sweep can be resumed from it
+                    results.flush();
+                } catch (IOException e) {
+                    unsaved++;
+                }
+            }
+            last = doneCount == done.length;
+        }
+        if (last) {
+            engine.shutdown();
+            finish(onUpdate);
+        } else {
+            onUpdate.run();
+        }
+    }
+
+    private void finish(Runnable onUpdate) {
+        closeResults();
+        onUpdate.run();
+    }
+
+    private synchronized void setPoint(int point, double[] metrics) {
+        for (int m = 0; m < metrics.length; m++) {
+            values[m][point] = metrics[m];
+        }
+        if (!done[point]) {
+            done[point] = true;
+            doneCount++;
+        }
+    }
+
+    private synchronized void closeResults() {
+        if (results == null) {
+            return;
+        }
+        try {
+            results.close();
+        } catch (IOException e) {
+            // Nothing is lost, every result was flushed when written
+        }
+        results = null;
+    }
+
+    private static int lastByte(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            input.seek(input.length() - 1);
+            return input.read();
+        }
+    }
+
+    private String keyOf(OrbitElements point) {
+        return TrajectoryCache.keyOf(point, settings) + ":" + halfAngle + ":" + cellDegrees;
+    }
+
+    /**
+     * Reads the metrics saved by previous runs, by key. Malformed lines, such as a line cut by a
+     * crash, are skipped.
+     */
+    private static Map<String, double[]> readResults(File file) throws IOException {
+        Map<String, double[]> metrics = new HashMap<>();
+        if (!file.isFile()) {
+            return metrics;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length != 11 || line.startsWith("key,")) {
+                    continue;
+                }
+                try {
+                    double[] values = new double[Metric.values().length];
+                    for (int m = 0; m < values.length; m++) {
+                        values[m] = Double.parseDouble(fields[7 + m]);
+                    }
+                    metrics.put(fields[0], values);
+                } catch (NumberFormatException e) {
+                    // Propagated again
+                }
+            }
+        }
+        return metrics;
+    }
+}
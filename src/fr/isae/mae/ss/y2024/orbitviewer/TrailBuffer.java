@@ -0,0 +1,143 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.util.Arrays;
+
+/**
+ * TrailBuffer keeps the most recent samples of an orbit in a ring of fixed capacity: once full,
+ * each new sample overwrites the oldest one, so the memory used stays flat however long the
+ * orbit is propagated. The columns grow like those of {@link Trajectory} until the capacity is
+ * reached. Samples are indexed from the oldest to the most recent.
+ */
+public class TrailBuffer implements SampleSink, TrajectoryView {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int capacity;
+    private double[] times;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] altitudes;
+    // Slot of the oldest sample, number of samples held and number of samples ever added
+    private int head;
+    private int size;
+    private long count;
+
+    /**
+     * Constructs an empty trail.
+     *
+     * @param capacity Maximum number of samples kept
+     */
+    public TrailBuffer(int capacity) {
+        this.capacity = Math.max(capacity, 1);
+        int initial = Math.min(this.capacity, INITIAL_CAPACITY);
+        times = new double[initial];
+        latitudes = new double[initial];
+        longitudes = new double[initial];
+        altitudes = new double[initial];
+    }
+
+    /**
+     * Adds a sample, dropping the oldest one if the trail is full.
+     *
+     * @param time      Time since the epoch of the orbit (s)
+     * @param latitude  Geodetic latitude (rad)
+     * @param longitude Longitude (rad)
+     * @param altitude  Altitude (m)
+     */
+    @Override
+    public void add(double time, double latitude, double longitude, double altitude) {
+        int slot;
+        if (size < capacity) {
+            if (size == times.length) {
+                grow((int) Math.min(capacity, 2L * size));
+            }
+            slot = size++;
+        } else {
+            slot = head;
+            head = head + 1 == capacity ? 0 : head + 1;
+        }
+        times[slot] = time;
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        altitudes[slot] = altitude;
+        count++;
+    }
+
+    /**
+     * Returns the maximum number of samples kept.
+     *
+     * @return Capacity of the trail
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of samples added since the trail was created, dropped ones included.
+     * The sample added in position {@code k} (from 0) is held in slot {@code k % capacity}.
+     *
+     * @return Number of samples added
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double getTime(int i) {
+        return times[slot(i)];
+    }
+
+    @Override
+    public double getLatitude(int i) {
+        return latitudes[slot(i)];
+    }
+
+    @Override
+    public double getLongitude(int i) {
+        return longitudes[slot(i)];
+    }
+
+    @Override
+    public double getAltitude(int i) {
+        return altitudes[slot(i)];
+    }
+
+    /**
+     * Copies the samples held into a compact trajectory.
+     *
+     * @return Trajectory of the samples, oldest first
+     */
+    public Trajectory toTrajectory() {
+        Trajectory trajectory = new Trajectory(size);
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            trajectory.add(times[slot], latitudes[slot], longitudes[slot], altitudes[slot]);
+        }
+        return trajectory;
+    }
+
+    /**
+     * Returns the memory retained by the sample columns.
+     *
+     * @return Size of the columns (bytes)
+     */
+    public long getRetainedBytes() {
+        return 4L * 8L * times.length;
+    }
+
+    private int slot(int i) {
+        int slot = head + i;
+        return slot >= capacity ? slot - capacity : slot;
+    }
+
+    private void grow(int newCapacity) {
+        times = Arrays.copyOf(times, newCapacity);
+        latitudes = Arrays.copyOf(latitudes, newCapacity);
+        longitudes = Arrays.copyOf(longitudes, newCapacity);
+        altitudes = Arrays.copyOf(altitudes, newCapacity);
+    }
+}
@@ -0,0 +1,109 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.util.Arrays;
+
+/**
+ * Trajectory stores the samples of a propagated orbit in primitive columns (time, latitude,
+ * longitude and altitude). Adding a sample does not allocate any object: the columns grow by
+ * doubling their capacity. WorldWind positions are only created when the trajectory is rendered.
+ */
+public class Trajectory implements SampleSink, TrajectoryView {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private double[] times;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] altitudes;
+    private int size;
+
+    /**
+     * Constructs an empty trajectory.
+     */
+    public Trajectory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty trajectory able to hold the given number of samples without growing.
+     *
+     * @param capacity Initial capacity
+     */
+    public Trajectory(int capacity) {
+        capacity = Math.max(capacity, 1);
+        times = new double[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        altitudes = new double[capacity];
+    }
+
+    /**
+     * Adds a sample at the end of the trajectory.
+     *
+     * @param time      Time since the epoch of the orbit (s)
+     * @param latitude  Geodetic latitude (rad)
+     * @param longitude Longitude (rad)
+     * @param altitude  Altitude (m)
+     */
+    @Override
+    public void add(double time, double latitude, double longitude, double altitude) {
+        if (size == times.length) {
+            grow(size * 2);
+        }
+        times[size] = time;
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        altitudes[size] = altitude;
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double getTime(int i) {
+        return times[i];
+    }
+
+    @Override
+    public double getLatitude(int i) {
+        return latitudes[i];
+    }
+
+    @Override
+    public double getLongitude(int i) {
+        return longitudes[i];
+    }
+
+    @Override
+    public double getAltitude(int i) {
+        return altitudes[i];
+    }
+
+    /**
+     * Releases the unused capacity of the columns, once no more samples will be added.
+     */
+    public void trimToSize() {
+        if (size < times.length) {
+            grow(size);
+        }
+    }
+
+    /**
+     * Returns the memory retained by the sample columns.
+     *
+     * @return Size of the columns (bytes)
+     */
+    public long getRetainedBytes() {
+        return 4L * 8L * times.length;
+    }
+
+    private void grow(int capacity) {
+        capacity = Math.max(capacity, 1);
+        times = Arrays.copyOf(times, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        altitudes = Arrays.copyOf(altitudes, capacity);
+    }
+}
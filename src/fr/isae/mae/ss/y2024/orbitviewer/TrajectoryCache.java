@@ -0,0 +1,374 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * TrajectoryCache keeps propagated trajectories so that unchanged orbits do not have to be
+ * propagated again. Entries are addressed by a digest of the orbital elements and of the
+ * propagator settings. The cache has an in-memory LRU tier bounded by the total number of
+ * samples, and an optional on-disk tier that survives restarts. The trajectories saved with an
+ * opened {@link Scenario} are also found here, and read from its ephemeris file on first use.
+ * <p>
+ * The disk tier is bounded by the size of its files: beyond it, the least recently used
+ * entries are deleted. It is turned off, for the rest of the session, at its first read or
+ * write error, which is reported once on the standard error.
+ * <p>
+ * The shared instance is configured with the system properties {@code orbitas.cache.maxSamples}
+ * (memory bound, in samples), {@code orbitas.cache.dir} (directory of the disk tier, the
+ * disk tier is disabled when it is not set) and {@code orbitas.cache.maxBytes} (disk bound, in
+ * bytes, 1 GB by default).
+ */
+public class TrajectoryCache {
+
+    // Bump when the propagation output changes, so that stale disk entries are not reused
+    private static final int FORMAT_VERSION = 3;
+    private static final int MAGIC = 0x4F524254; // "ORBT"
+
+    private static TrajectoryCache instance;
+
+    private final long maxSamples;
+    private final File directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Trajectory> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long samples;
+    // Trajectories of the opened scenario, by key, and the ephemeris file holding them
+    private Map<String, Integer> stored = Collections.emptyMap();
+    private EphemerisFile storedFile;
+    // Size of the files of the disk tier, and whether the disk tier was turned off by an error
+    private long diskBytes;
+    private volatile boolean diskFailed;
+
+    /**
+     * Constructs a new TrajectoryCache whose disk tier is not bounded.
+     *
+     * @param maxSamples Maximum number of samples kept in memory
+     * @param directory  Directory of the disk tier, or null to keep the cache in memory only
+     */
+    public TrajectoryCache(long maxSamples, File directory) {
+        this(maxSamples, directory, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a new TrajectoryCache.
+     *
+     * @param maxSamples Maximum number of samples kept in memory
+     * @param directory  Directory of the disk tier, or null to keep the cache in memory only
+     * @param maxBytes   Maximum size of the files of the disk tier
+     */
+    public TrajectoryCache(long maxSamples, File directory, long maxBytes) {
+        this.maxSamples = maxSamples;
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        if (directory == null) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            disableDisk(new IOException("Cannot create directory " + directory));
+            return;
+        }
+        for (File file : entryFiles()) {
+            diskBytes += file.length();
+        }
+    }
+
+    /**
+     * Returns the cache shared by the application.
+     *
+     * @return The shared cache
+     */
+    public static synchronized TrajectoryCache getInstance() {
+        if (instance == null) {
+            String dir = System.getProperty("orbitas.cache.dir");
+            long max = Long.getLong("orbitas.cache.maxSamples", 1000000L);
+            long maxBytes = Long.getLong("orbitas.cache.maxBytes", 1000000000L);
+            instance = new TrajectoryCache(max, dir == null ? null : new File(dir), maxBytes);
+        }
+        return instance;
+    }
+
+    /**
+     * Computes the key of a trajectory.
+     *
+     * @param elements Elements of the orbit (the name is not part of the key)
+     * @param settings Settings of the propagation
+     * @return Hexadecimal digest identifying the trajectory
+     */
+    public static String keyOf(OrbitElements elements, PropagatorSettings settings) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 16 * 8);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putDouble(elements.getSma()).putDouble(elements.getEcc()).putDouble(elements.getInc())
+                .putDouble(elements.getRaan()).putDouble(elements.getAnm()).putDouble(elements.getPa());
+        buffer.putDouble(settings.getMode().ordinal()).putDouble(settings.getIntegrationStep()).putDouble(settings.getOutputStep())
+                .putDouble(settings.getAbsoluteTolerance()).putDouble(settings.getRelativeTolerance())
+                .putDouble(settings.getMinStep()).putDouble(settings.getMaxStep())
+                .putDouble(settings.getRevolutions()).putDouble(settings.getDuration()).putDouble(settings.getTrailCapacity());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(buffer.array());
+            digest.update(settings.getMode().name().getBytes(StandardCharsets.UTF_8));
+            // SGP4 propagates the element set rather than the elements shown in the table
+            TwoLineElements tle = elements.getTwoLineElements();
+            if (tle != null && tle.getLine1() != null) {
+                digest.update(tle.getLine1().getBytes(StandardCharsets.UTF_8));
+                digest.update(tle.getLine2().getBytes(StandardCharsets.UTF_8));
+                digest.update(ByteBuffer.allocate(8).putDouble(tle.getStart()).array());
+            }
+            // Keys are computed for every orbit of a scenario, so the digest is not formatted byte by byte
+            byte[] bytes = digest.digest();
+            char[] key = new char[2 * bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                key[2 * i] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+                key[2 * i + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+            }
+            return new String(key);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is available on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sets the trajectories stored in the ephemeris file of a scenario, replacing the previous ones.
+     * They are only read when they are looked up.
+     *
+     * @param file    Ephemeris file, or null to remove the stored trajectories
+     * @param orbits  Index of the trajectory in the file, by key
+     */
+    public synchronized void setStoredTrajectories(EphemerisFile file, Map<String, Integer> orbits) {
+        storedFile = file;
+        stored = file == null ? Collections.<String, Integer>emptyMap() : new HashMap<>(orbits);
+    }
+
+    /**
+     * Looks up a trajectory, first in memory, then in the opened scenario, then on disk.
+     *
+     * @param key Key of the trajectory
+     * @return The trajectory, or null if it is not cached
+     */
+    public Trajectory get(String key) {
+        synchronized (this) {
+            Trajectory trajectory = entries.get(key);
+            if (trajectory != null) {
+                return trajectory;
+            }
+        }
+        Trajectory trajectory = readStored(key);
+        if (trajectory == null) {
+            trajectory = readFromDisk(key);
+        }
+        if (trajectory != null) {
+            putInMemory(key, trajectory);
+        }
+        return trajectory;
+    }
+
+    /**
+     * Stores a trajectory.
+     *
+     * @param key        Key of the trajectory
+     * @param trajectory Trajectory, it must not be modified afterwards
+     */
+    public void put(String key, Trajectory trajectory) {
+        putInMemory(key, trajectory);
+        writeToDisk(key, trajectory);
+    }
+
+    /**
+     * Empties the in-memory tier.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        samples = 0;
+    }
+
+    /**
+     * Adds an entry to the memory tier and evicts the least recently used ones beyond the bound.
+     */
+    private synchronized void putInMemory(String key, Trajectory trajectory) {
+        Trajectory previous = entries.put(key, trajectory);
+        if (previous != null) {
+            samples -= previous.size();
+        }
+        samples += trajectory.size();
+        Iterator<Map.Entry<String, Trajectory>> it = entries.entrySet().iterator();
+        while (samples > maxSamples && it.hasNext()) {
+            Map.Entry<String, Trajectory> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            samples -= eldest.getValue().size();
+            it.remove();
+        }
+    }
+
+    private File fileOf(String key) {
+        return new File(directory, key + ".traj");
+    }
+
+    private File[] entryFiles() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".traj"));
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * Turns the disk tier off, reporting the first error only.
+     */
+    private synchronized void disableDisk(IOException e) {
+        if (!diskFailed) {
+            diskFailed = true;
+            System.err.println("Trajectory cache: the disk tier in " + directory + " is turned off: " + e);
+        }
+    }
+
+    /**
+     * Copies a trajectory from the ephemeris file of the opened scenario.
+     */
+    private Trajectory readStored(String key) {
+        Integer orbit;
+        EphemerisFile file;
+        synchronized (this) {
+            orbit = stored.get(key);
+            file = storedFile;
+        }
+        if (orbit == null) {
+            return null;
+        }
+        try {
+            TrajectoryView view = file.getTrajectory(orbit);
+            Trajectory trajectory = new Trajectory(view.size());
+            for (int i = 0; i < view.size(); i++) {
+                trajectory.add(view.getTime(i), view.getLatitude(i), view.getLongitude(i), view.getAltitude(i));
+            }
+            return trajectory;
+        } catch (IOException e) {
+            // The file of the scenario is not read again, its orbits are propagated instead
+            synchronized (this) {
+                if (storedFile == file) {
+                    setStoredTrajectories(null, null);
+                    System.err.println("Trajectory cache: the trajectories of the scenario are no longer read: " + e);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads a trajectory from the disk tier.
+     */
+    private Trajectory readFromDisk(String key) {
+        if (directory == null || diskFailed) {
+            return null;
+        }
+        File file = fileOf(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int count = in.readInt();
+            Trajectory trajectory = new Trajectory(count);
+            for (int i = 0; i < count; i++) {
+                double time = in.readDouble();
+                double lat = in.readDouble();
+                double lon = in.readDouble();
+                double alt = in.readDouble();
+                trajectory.add(time, lat, lon, alt);
+            }
+            // The least recently used entries are the first evicted
+            file.setLastModified(System.currentTimeMillis());
+            return trajectory;
+        } catch (EOFException e) {
+            // A truncated entry is replaced when the orbit is propagated again
+            return null;
+        } catch (IOException e) {
+            disableDisk(e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes a trajectory to the disk tier. The file is written aside then moved in place, so
+     * that concurrent readers never see a partial entry.
+     */
+    private void writeToDisk(String key, Trajectory trajectory) {
+        if (directory == null || diskFailed) {
+            return;
+        }
+        File file = fileOf(key);
+        try {
+            File tmp = File.createTempFile(key, ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(trajectory.size());
+                for (int i = 0; i < trajectory.size(); i++) {
+                    out.writeDouble(trajectory.getTime(i));
+                    out.writeDouble(trajectory.getLatitude(i));
+                    out.writeDouble(trajectory.getLongitude(i));
+                    out.writeDouble(trajectory.getAltitude(i));
+                }
+            }
+            long replaced = file.length();
+            long length = tmp.length();
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            boolean full;
+            synchronized (this) {
+                diskBytes += length - replaced;
+                full = diskBytes > maxBytes;
+            }
+            if (full) {
+                trimDisk();
+            }
+        } catch (IOException e) {
+            disableDisk(e);
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries of the disk tier until it is back under its bound.
+     * It is trimmed to 90% of the bound, so that the directory is not listed again at every write.
+     */
+    private synchronized void trimDisk() {
+        File[] files = entryFiles();
+        long[] used = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        diskBytes = 0;
+        for (int i = 0; i < files.length; i++) {
+            used[i] = files[i].lastModified();
+            order[i] = i;
+            diskBytes += files[i].length();
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> used[i]));
+        long target = maxBytes / 10 * 9;
+        for (int i = 0; i < order.length && diskBytes > target; i++) {
+            File file = files[order[i]];
+            long length = file.length();
+            if (file.delete()) {
+                diskBytes -= length;
+            }
+        }
+    }
+}
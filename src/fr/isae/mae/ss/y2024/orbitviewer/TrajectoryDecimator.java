@@ -0,0 +1,109 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.util.Arrays;
+
+/**
+ * TrajectoryDecimator simplifies trajectories with the Douglas-Peucker algorithm. The samples are
+ * compared in Cartesian coordinates on a spherical Earth, so the tolerance is the largest distance
+ * in meters between a dropped sample and the chord replacing it.
+ */
+public final class TrajectoryDecimator {
+    // Mean Earth radius used to place the samples in space (m)
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private TrajectoryDecimator() {
+    }
+
+    /**
+     * Simplifies a trajectory. The first and last samples are always kept.
+     *
+     * @param trajectory Trajectory to simplify
+     * @param tolerance  Largest distance between a dropped sample and the simplified path (m)
+     * @return Indices of the kept samples, in increasing order
+     */
+    public static int[] simplify(TrajectoryView trajectory, double tolerance) {
+        final int n = trajectory.size();
+        if (n <= 2 || tolerance <= 0) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        // Cartesian coordinates of the samples
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        final double[] z = new double[n];
+        for (int i = 0; i < n; i++) {
+            final double r = EARTH_RADIUS + trajectory.getAltitude(i);
+            final double cosLat = Math.cos(trajectory.getLatitude(i));
+            x[i] = r * cosLat * Math.cos(trajectory.getLongitude(i));
+            y[i] = r * cosLat * Math.sin(trajectory.getLongitude(i));
+            z[i] = r * Math.sin(trajectory.getLatitude(i));
+        }
+
+        // The segments still to split are kept on an explicit stack, so that long trajectories
+        // do not overflow the call stack
+        final boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        final double tolerance2 = tolerance * tolerance;
+        int kept = 2;
+        while (top > 0) {
+            final int last = stack[--top];
+            final int first = stack[--top];
+            double worst = -1;
+            int worstIndex = -1;
+            for (int i = first + 1; i < last; i++) {
+                final double d2 = distanceToSegment2(x, y, z, first, last, i);
+                if (d2 > worst) {
+                    worst = d2;
+                    worstIndex = i;
+                }
+            }
+            if (worst > tolerance2) {
+                keep[worstIndex] = true;
+                kept++;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = first;
+                stack[top++] = worstIndex;
+                stack[top++] = worstIndex;
+                stack[top++] = last;
+            }
+        }
+
+        final int[] indices = new int[kept];
+        for (int i = 0, j = 0; i < n; i++) {
+            if (keep[i]) {
+                indices[j++] = i;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Computes the squared distance between a sample and the segment joining two others.
+     */
+    private static double distanceToSegment2(double[] x, double[] y, double[] z, int a, int b, int p) {
+        final double dx = x[b] - x[a];
+        final double dy = y[b] - y[a];
+        final double dz = z[b] - z[a];
+        final double px = x[p] - x[a];
+        final double py = y[p] - y[a];
+        final double pz = z[p] - z[a];
+        final double length2 = dx * dx + dy * dy + dz * dz;
+        double t = length2 == 0 ? 0 : (px * dx + py * dy + pz * dz) / length2;
+        t = Math.max(0, Math.min(1, t));
+        final double ex = px - t * dx;
+        final double ey = py - t * dy;
+        final double ez = pz - t * dz;
+        return ex * ex + ey * ey + ez * ez;
+    }
+}
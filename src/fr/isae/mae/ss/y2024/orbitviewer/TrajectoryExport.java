@@ -0,0 +1,455 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import java.awt.Color;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TrajectoryExport writes trajectories to a CSV, KML or CZML document as they are propagated,
+ * so that other tools can read them. Each orbit is a {@link SampleSink} handed to the Orbiter:
+ * its samples are formatted straight into a byte buffer and written to a file channel whenever
+ * the buffer is full. The whole trajectories are never held in memory and no object is created
+ * per sample, so the export runs at the speed of the disk.
+ * <p>
+ * The samples of an orbit must be kept together in the document, while the orbits of a parallel
+ * run are propagated at the same time. The first orbit opened writes directly into the document;
+ * orbits opened while it runs are spooled to a temporary file each, appended to the document once
+ * the orbit writing into it is finished. The channel of a spool is closed as soon as its orbit is
+ * finished, so thousands of orbits waiting for a long one do not hold a file descriptor each.
+ * Opening and finishing orbits is thread safe.
+ * <p>
+ * Times are written in seconds since the start of the propagation of each orbit, with the
+ * millisecond as resolution, angles in degrees to 1e-7° and altitudes in meters to the millimeter.
+ */
+public class TrajectoryExport implements Closeable {
+    // Size of the buffer of each orbit, and room left for the name and one sample when it is flushed
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int SAMPLE_BYTES = 128;
+    private static final double JD_UNIX = 2440587.5;
+    private static final DateTimeFormatter ISO_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+            .withZone(ZoneOffset.UTC);
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L};
+    // Largest value written digit by digit, above it the value would overflow once scaled
+    private static final double MAX_FIXED = 1e11;
+
+    private final ExportFormat format;
+    private final FileChannel channel;
+    // Orbit writing directly into the document, null if none
+    private OrbitStream owner;
+    // Spooled orbits finished while another orbit was writing into the document
+    private final List<OrbitStream> pending = new ArrayList<>();
+    private int orbitCount;
+    private boolean closed;
+
+    /**
+     * Creates a new document, replacing any existing file.
+     *
+     * @param file   File to write
+     * @param format Format of the document
+     * @throws IOException if the file cannot be created
+     */
+    public TrajectoryExport(File file, ExportFormat format) throws IOException {
+        this.format = format;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        switch (format) {
+            case CSV:
+                write("name,time,latitude,longitude,altitude\n");
+                break;
+            case KML:
+                write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<kml xmlns=\"http://www.opengis.net/kml/2.2\">\n<Document>\n<name>"
+                        + escapeXml(file.getName()) + "</name>\n");
+                break;
+            default:
+                write("[{\"id\": \"document\", \"name\": " + quoteJson(file.getName()) + ", \"version\": \"1.0\"}");
+                break;
+        }
+    }
+
+    /**
+     * Opens the stream of an orbit. The orbit is added to the document when its stream is
+     * finished, and dropped if the stream is discarded.
+     *
+     * @param name  Name of the orbit
+     * @param epoch Start of the propagation of the orbit, Julian date (UTC)
+     * @param color Color of the orbit, or null for the default color of the viewer
+     * @return The stream receiving the samples of the orbit
+     * @throws IOException if the spool file of the orbit cannot be created
+     */
+    public synchronized OrbitStream openOrbit(String name, double epoch, Color color) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("export already closed");
+        }
+        OrbitStream stream;
+        if (owner == null) {
+            stream = new OrbitStream(channel, null);
+            owner = stream;
+        } else {
+            File spool = File.createTempFile("export", format.getExtension());
+            spool.deleteOnExit();
+            stream = new OrbitStream(FileChannel.open(spool.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE), spool);
+        }
+        stream.begin(name, epoch, color, orbitCount++);
+        return stream;
+    }
+
+    /**
+     * Writes the end of the document, then closes it. Orbits still open are dropped, so an export
+     * stopped before its end is closed with the orbits already finished.
+     *
+     * @throws IOException if the document cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (owner != null) {
+                // Cut the part of the orbit still running written into the document
+                channel.truncate(owner.startPosition);
+                channel.position(owner.startPosition);
+                owner = null;
+            }
+            for (OrbitStream stream : pending) {
+                append(stream);
+            }
+            pending.clear();
+            switch (format) {
+                case CSV:
+                    break;
+                case KML:
+                    write("</Document>\n</kml>\n");
+                    break;
+                default:
+                    write("\n]\n");
+                    break;
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void write(String text) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * Copies a finished spooled orbit at the end of the document and deletes its spool file.
+     */
+    private void append(OrbitStream stream) throws IOException {
+        try (FileChannel spool = FileChannel.open(stream.spool.toPath(), StandardOpenOption.READ)) {
+            long size = spool.size();
+            long copied = 0;
+            while (copied < size) {
+                copied += spool.transferTo(copied, size - copied, channel);
+            }
+        } finally {
+            stream.spool.delete();
+        }
+    }
+
+    /**
+     * Called under the lock of the export once the orbit writing into the document is finished or
+     * discarded, to append the spooled orbits that were waiting for it.
+     */
+    private void release() throws IOException {
+        owner = null;
+        try {
+            for (OrbitStream stream : pending) {
+                append(stream);
+            }
+        } finally {
+            pending.clear();
+        }
+    }
+
+    /**
+     * Receives the samples of one orbit of the document.
+     */
+    public final class OrbitStream implements SampleSink {
+        private final FileChannel target;
+        // Spool file of the orbit, null if it writes directly into the document
+        private final File spool;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private byte[] name;
+        private long startPosition;
+        private boolean first = true;
+        private boolean done;
+
+        private OrbitStream(FileChannel target, File spool) {
+            this.target = target;
+            this.spool = spool;
+        }
+
+        private void begin(String orbitName, double epoch, Color color, int index) throws IOException {
+            startPosition = target.position();
+            switch (format) {
+                case CSV:
+                    name = quoteCsv(orbitName).getBytes(StandardCharsets.UTF_8);
+                    break;
+                case KML:
+                    StringBuilder placemark = new StringBuilder("<Placemark>\n<name>").append(escapeXml(orbitName)).append("</name>\n");
+                    if (color != null) {
+                        // KML colors are aabbggrr
+                        placemark.append(String.format("<Style><LineStyle><color>ff%02x%02x%02x</color></LineStyle></Style>%n",
+                                color.getBlue(), color.getGreen(), color.getRed()));
+                    }
+                    placemark.append("<LineString>\n<altitudeMode>absolute</altitudeMode>\n<coordinates>\n");
+                    putText(placemark.toString());
+                    break;
+                default:
+                    StringBuilder packet = new StringBuilder(",\n{\"id\": \"").append(index).append("\", \"name\": ")
+                            .append(quoteJson(orbitName));
+                    if (color != null) {
+                        packet.append(", \"path\": {\"material\": {\"solidColor\": {\"color\": {\"rgba\": [").append(color.getRed())
+                                .append(", ").append(color.getGreen()).append(", ").append(color.getBlue()).append(", 255]}}}}");
+                    } else {
+                        packet.append(", \"path\": {}");
+                    }
+                    packet.append(", \"position\": {\"epoch\": \"")
+                            .append(ISO_FORMAT.format(Instant.ofEpochMilli(Math.round((epoch - JD_UNIX) * 86400000.))))
+                            .append("\", \"cartographicDegrees\": [");
+                    putText(packet.toString());
+                    break;
+            }
+        }
+
+        @Override
+        public void add(double time, double latitude, double longitude, double altitude) {
+            int needed = SAMPLE_BYTES + (name == null ? 0 : name.length);
+            if (buffer.remaining() < needed) {
+                flush();
+            }
+            switch (format) {
+                case CSV:
+                    buffer.put(name).put((byte) ',');
+                    putNumber(time, 3);
+                    buffer.put((byte) ',');
+                    putNumber(Math.toDegrees(latitude), 7);
+                    buffer.put((byte) ',');
+                    putNumber(Math.toDegrees(longitude), 7);
+                    buffer.put((byte) ',');
+                    putNumber(altitude, 3);
+                    buffer.put((byte) '\n');
+                    break;
+                case KML:
+                    putNumber(Math.toDegrees(longitude), 7);
+                    buffer.put((byte) ',');
+                    putNumber(Math.toDegrees(latitude), 7);
+                    buffer.put((byte) ',');
+                    putNumber(altitude, 3);
+                    buffer.put((byte) '\n');
+                    break;
+                default:
+                    if (!first) {
+                        buffer.put((byte) ',');
+                    }
+                    putNumber(time, 3);
+                    buffer.put((byte) ',');
+                    putNumber(Math.toDegrees(longitude), 7);
+                    buffer.put((byte) ',');
+                    putNumber(Math.toDegrees(latitude), 7);
+                    buffer.put((byte) ',');
+                    putNumber(altitude, 3);
+                    break;
+            }
+            first = false;
+        }
+
+        /**
+         * Ends the orbit and adds it to the document.
+         *
+         * @throws UncheckedIOException if the orbit cannot be written
+         */
+        @Override
+        public void finish() {
+            if (done) {
+                return;
+            }
+            switch (format) {
+                case CSV:
+                    break;
+                case KML:
+                    putText("</coordinates>\n</LineString>\n</Placemark>\n");
+                    break;
+                default:
+                    putText("]}}");
+                    break;
+            }
+            flush();
+            synchronized (TrajectoryExport.this) {
+                done = true;
+                try {
+                    if (spool != null) {
+                        // Opened again for the copy into the document
+                        target.close();
+                    }
+                    if (closed) {
+                        drop();
+                    } else if (owner == this) {
+                        release();
+                    } else if (owner == null) {
+                        append(this);
+                    } else {
+                        pending.add(this);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        /**
+         * Drops the orbit, for instance when its propagation failed. Does nothing once the orbit is finished.
+         *
+         * @throws UncheckedIOException if the orbit cannot be removed from the document or its spool file deleted
+         */
+        public void discard() {
+            synchronized (TrajectoryExport.this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                try {
+                    if (owner == this) {
+                        // Cut what was already written into the document
+                        channel.truncate(startPosition);
+                        channel.position(startPosition);
+                        release();
+                    } else {
+                        drop();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void drop() throws IOException {
+            if (spool != null) {
+                target.close();
+                spool.delete();
+            }
+        }
+
+        private void flush() {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        /**
+         * Writes bytes to the target of the orbit. The bytes of the orbit writing into the document
+         * are dropped once the export is closed, the orbit being dropped with them.
+         */
+        private void writeFully(ByteBuffer bytes) {
+            try {
+                if (spool != null) {
+                    while (bytes.hasRemaining()) {
+                        target.write(bytes);
+                    }
+                    return;
+                }
+                // The document is written by the close of the export as well
+                synchronized (TrajectoryExport.this) {
+                    while (!closed && bytes.hasRemaining()) {
+                        target.write(bytes);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void putText(String text) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            if (buffer.remaining() < bytes.length) {
+                flush();
+            }
+            if (bytes.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes));
+                return;
+            }
+            buffer.put(bytes);
+        }
+
+        /**
+         * Writes a number with a fixed number of decimals, digit by digit, without going through a String.
+         */
+        private void putNumber(double value, int decimals) {
+            double magnitude = Math.abs(value);
+            if (!(magnitude < MAX_FIXED)) {
+                // Out of range or not a number, rare enough to be formatted as text
+                byte[] text = Double.toString(value).getBytes(StandardCharsets.US_ASCII);
+                buffer.put(text);
+                return;
+            }
+            long scaled = Math.round(magnitude * POWERS_OF_TEN[decimals]);
+            if (value < 0 && scaled != 0) {
+                buffer.put((byte) '-');
+            }
+            putDigits(scaled / POWERS_OF_TEN[decimals], 1);
+            buffer.put((byte) '.');
+            putDigits(scaled % POWERS_OF_TEN[decimals], decimals);
+        }
+
+        /**
+         * Writes a positive integer with at least the given number of digits, padded with zeros.
+         */
+        private void putDigits(long number, int minDigits) {
+            int digits = 1;
+            for (long rest = number / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            digits = Math.max(digits, minDigits);
+            int end = buffer.position() + digits;
+            for (int i = end - 1; i >= end - digits; i--) {
+                buffer.put(i, (byte) ('0' + number % 10));
+                number /= 10;
+            }
+            buffer.position(end);
+        }
+    }
+
+    private static String quoteCsv(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static String escapeXml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String quoteJson(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
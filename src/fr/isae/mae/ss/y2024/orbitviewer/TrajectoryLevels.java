@@ -0,0 +1,93 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import gov.nasa.worldwind.View;
+
+import java.util.ArrayList;
+
+/**
+ * TrajectoryLevels holds the levels of detail of a trajectory: the indices of the samples kept by
+ * increasingly coarse simplifications. The level to display is the coarsest one whose error,
+ * projected on the screen at the current eye distance, stays under {@link #MAX_SCREEN_ERROR}.
+ */
+public class TrajectoryLevels {
+    /** Largest error allowed on the screen (pixels). */
+    public static final double MAX_SCREEN_ERROR = 1.;
+
+    // Tolerances of the simplified versions (m), the first one is the full trajectory
+    private static final double[] LEVEL_TOLERANCES = {0., 200., 1000., 5000., 20000., 80000.};
+    // Closest distance used to project the errors, avoids dividing by zero near the path (m)
+    private static final double MIN_DISTANCE = 1000.;
+    // Radius of the globe used to locate the trajectory relative to the eye (m)
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private final ArrayList<int[]> indices = new ArrayList<>();
+    private final double[] tolerances = new double[LEVEL_TOLERANCES.length];
+    private final double minRadius;
+    private final double maxRadius;
+
+    /**
+     * Computes the levels of detail of a trajectory.
+     *
+     * @param trajectory Trajectory to simplify
+     */
+    public TrajectoryLevels(TrajectoryView trajectory) {
+        double minAltitude = 0.;
+        double maxAltitude = 0.;
+        for (int i = 0; i < trajectory.size(); i++) {
+            minAltitude = i == 0 ? trajectory.getAltitude(i) : Math.min(minAltitude, trajectory.getAltitude(i));
+            maxAltitude = i == 0 ? trajectory.getAltitude(i) : Math.max(maxAltitude, trajectory.getAltitude(i));
+        }
+        minRadius = EARTH_RADIUS + minAltitude;
+        maxRadius = EARTH_RADIUS + maxAltitude;
+
+        for (double tolerance : LEVEL_TOLERANCES) {
+            int[] kept = TrajectoryDecimator.simplify(trajectory, tolerance);
+            // Levels that drop nothing more than the previous one are useless
+            if (!indices.isEmpty() && kept.length == indices.get(indices.size() - 1).length) {
+                continue;
+            }
+            tolerances[indices.size()] = tolerance;
+            indices.add(kept);
+        }
+    }
+
+    /**
+     * Returns the number of levels of detail.
+     *
+     * @return Number of levels, the first one being the full trajectory
+     */
+    public int getLevelCount() {
+        return indices.size();
+    }
+
+    /**
+     * Returns the samples kept by a level of detail.
+     *
+     * @param level Index of the level
+     * @return Indices of the kept samples, in increasing order
+     */
+    public int[] getIndices(int level) {
+        return indices.get(level);
+    }
+
+    /**
+     * Chooses the coarsest level whose error, seen from the eye, is below the screen error.
+     *
+     * @param view View of the globe
+     * @return Index of the level to display
+     */
+    public int levelFor(View view) {
+        // The trajectory lies between two spheres centered on the Earth: the closest it can be to
+        // the eye is the distance from the eye to this shell
+        double eyeRadius = view.getEyePoint().getLength3();
+        double distance = Math.max(MIN_DISTANCE, Math.max(eyeRadius - maxRadius, minRadius - eyeRadius));
+        double pixelSize = view.computePixelSizeAtDistance(distance);
+        int level = 0;
+        for (int i = 1; i < indices.size(); i++) {
+            if (tolerances[i] / pixelSize <= MAX_SCREEN_ERROR) {
+                level = i;
+            }
+        }
+        return level;
+    }
+}
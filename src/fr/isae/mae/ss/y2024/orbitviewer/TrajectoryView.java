@@ -0,0 +1,57 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import gov.nasa.worldwind.geom.Position;
+
+import java.util.ArrayList;
+
+/**
+ * Read access to the samples of a trajectory, whether they are held on the heap by a
+ * {@link Trajectory} or mapped from an ephemeris file.
+ */
+public interface TrajectoryView {
+
+    /**
+     * Returns the number of samples.
+     *
+     * @return Number of samples
+     */
+    int size();
+
+    /**
+     * @param i Index of the sample
+     * @return Time since the epoch of the orbit (s)
+     */
+    double getTime(int i);
+
+    /**
+     * @param i Index of the sample
+     * @return Geodetic latitude (rad)
+     */
+    double getLatitude(int i);
+
+    /**
+     * @param i Index of the sample
+     * @return Longitude (rad)
+     */
+    double getLongitude(int i);
+
+    /**
+     * @param i Index of the sample
+     * @return Altitude (m)
+     */
+    double getAltitude(int i);
+
+    /**
+     * Creates the WorldWind positions of the trajectory, for rendering.
+     *
+     * @return List of positions
+     */
+    default ArrayList<Position> toPositions() {
+        int size = size();
+        ArrayList<Position> positions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            positions.add(Position.fromRadians(getLatitude(i), getLongitude(i), getAltitude(i)));
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,271 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import fr.cnes.sirius.patrius.time.AbsoluteDate;
+import fr.cnes.sirius.patrius.time.TimeScalesFactory;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * TwoLineElements holds a Two-Line Element set, the mean elements published for the objects of the
+ * public satellite catalogs and propagated with the SGP4/SDP4 model ({@link Sgp4Propagator}).
+ * Angles are in radians and the mean motion in radians per minute, as used by SGP4.
+ * <p>
+ * Besides its epoch, an element set has the date its propagation starts from. It is the epoch
+ * unless the element set was read from a catalog, whose element sets all start at the latest
+ * epoch of the catalog so that they share the same time axis.
+ */
+public class TwoLineElements {
+    // Julian date of 1950-01-00 and of the Unix epoch
+    private static final double JD_1950 = 2433281.5;
+    private static final double JD_UNIX = 2440587.5;
+    private static final DateTimeFormatter ISO_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS")
+            .withZone(ZoneOffset.UTC);
+
+    private final String line1;
+    private final String line2;
+    private final int satelliteNumber;
+    private final double epoch;
+    private final double meanMotion;
+    private final double ecc;
+    private final double inc;
+    private final double raan;
+    private final double pa;
+    private final double anm;
+    private final double bstar;
+    private final double start;
+
+    /**
+     * Constructs a new TwoLineElements without lines, for instance from Keplerian elements.
+     *
+     * @param satelliteNumber Catalog number of the object
+     * @param epoch           Epoch of the elements, Julian date (UTC)
+     * @param meanMotion      Mean motion (rad/min)
+     * @param ecc             Eccentricity
+     * @param inc             Inclination (rad)
+     * @param raan            Right ascension of ascending node (rad)
+     * @param pa              Argument of perigee (rad)
+     * @param anm             Mean anomaly (rad)
+     * @param bstar           Drag term (1/Earth radii)
+     */
+    public TwoLineElements(int satelliteNumber, double epoch, double meanMotion, double ecc, double inc, double raan, double pa,
+                           double anm, double bstar) {
+        this(null, null, satelliteNumber, epoch, meanMotion, ecc, inc, raan, pa, anm, bstar, epoch);
+    }
+
+    private TwoLineElements(String line1, String line2, int satelliteNumber, double epoch, double meanMotion, double ecc, double inc,
+                            double raan, double pa, double anm, double bstar, double start) {
+        this.line1 = line1;
+        this.line2 = line2;
+        this.satelliteNumber = satelliteNumber;
+        this.epoch = epoch;
+        this.meanMotion = meanMotion;
+        this.ecc = ecc;
+        this.inc = inc;
+        this.raan = raan;
+        this.pa = pa;
+        this.anm = anm;
+        this.bstar = bstar;
+        this.start = start;
+    }
+
+    /**
+     * Parses the two lines of an element set.
+     *
+     * @param line1 First line, starting with {@code 1 }
+     * @param line2 Second line, starting with {@code 2 }
+     * @return The element set
+     * @throws IllegalArgumentException if the lines are not a valid element set
+     */
+    public static TwoLineElements parse(String line1, String line2) {
+        line1 = trimEnd(line1);
+        line2 = trimEnd(line2);
+        if (line1.length() < 68 || line2.length() < 68 || !line1.startsWith("1 ") || !line2.startsWith("2 ")) {
+            throw new IllegalArgumentException("expected the two lines of an element set");
+        }
+        checkSum(line1);
+        checkSum(line2);
+        try {
+            int satelliteNumber = Integer.parseInt(line1.substring(2, 7).trim());
+            if (Integer.parseInt(line2.substring(2, 7).trim()) != satelliteNumber) {
+                throw new IllegalArgumentException("the lines are not of the same object");
+            }
+            // Epoch as a two digit year and a fractional day of the year, 1957 to 2056
+            int year = Integer.parseInt(line1.substring(18, 20).trim());
+            year += year < 57 ? 2000 : 1900;
+            double day = Double.parseDouble(line1.substring(20, 32).trim());
+            double epoch = julianDate(year) + day;
+            double bstar = exponent(line1.substring(53, 61));
+
+            double inc = Math.toRadians(Double.parseDouble(line2.substring(8, 16).trim()));
+            double raan = Math.toRadians(Double.parseDouble(line2.substring(17, 25).trim()));
+            double ecc = Double.parseDouble("." + line2.substring(26, 33).trim());
+            double pa = Math.toRadians(Double.parseDouble(line2.substring(34, 42).trim()));
+            double anm = Math.toRadians(Double.parseDouble(line2.substring(43, 51).trim()));
+            // Revolutions per day to radians per minute
+            double meanMotion = Double.parseDouble(line2.substring(52, 63).trim()) * 2 * Math.PI / 1440.;
+            if (meanMotion <= 0.) {
+                throw new IllegalArgumentException("invalid mean motion");
+            }
+            return new TwoLineElements(line1, line2, satelliteNumber, epoch, meanMotion, ecc, inc, raan, pa, anm, bstar, epoch);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a copy of this element set whose propagation starts at another date.
+     *
+     * @param newStart Start of the propagation, Julian date (UTC)
+     * @return The modified element set
+     */
+    public TwoLineElements startingAt(double newStart) {
+        return new TwoLineElements(line1, line2, satelliteNumber, epoch, meanMotion, ecc, inc, raan, pa, anm, bstar, newStart);
+    }
+
+    /**
+     * Builds the orbit elements shown in the orbit table. The semi-major axis is derived from the
+     * mean motion, the other elements are the mean elements of the set; the element set is kept
+     * with them for the SGP4 mode.
+     *
+     * @param name Name of the orbit
+     * @return The orbit elements, in meters and radians
+     */
+    public OrbitElements toElements(String name) {
+        double sma = Sgp4Propagator.semiMajorAxis(meanMotion, ecc, inc);
+        return new OrbitElements(name, sma, ecc, inc, raan, anm, pa, this);
+    }
+
+    public String getLine1() {
+        return line1;
+    }
+
+    public String getLine2() {
+        return line2;
+    }
+
+    public int getSatelliteNumber() {
+        return satelliteNumber;
+    }
+
+    /**
+     * Returns the epoch of the elements.
+     *
+     * @return Julian date (UTC)
+     */
+    public double getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the epoch of the elements as counted by SGP4.
+     *
+     * @return Days since 1950-01-00 (UTC)
+     */
+    double getEpoch1950() {
+        return epoch - JD_1950;
+    }
+
+    public double getMeanMotion() {
+        return meanMotion;
+    }
+
+    public double getEcc() {
+        return ecc;
+    }
+
+    public double getInc() {
+        return inc;
+    }
+
+    public double getRaan() {
+        return raan;
+    }
+
+    public double getPa() {
+        return pa;
+    }
+
+    public double getAnm() {
+        return anm;
+    }
+
+    public double getBstar() {
+        return bstar;
+    }
+
+    /**
+     * Returns the date the propagation of this element set starts from.
+     *
+     * @return Julian date (UTC)
+     */
+    public double getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the date the propagation of this element set starts from.
+     *
+     * @return Start of the propagation, in the UTC time scale of PATRIUS
+     */
+    public AbsoluteDate getStartDate() {
+        long millis = Math.round((start - JD_UNIX) * 86400000.);
+        return new AbsoluteDate(ISO_FORMAT.format(Instant.ofEpochMilli(millis)), TimeScalesFactory.getUTC());
+    }
+
+    /**
+     * Returns the Julian date of January 0 of a year, at 0 h.
+     */
+    private static double julianDate(int year) {
+        // Meeus, Astronomical Algorithms, 7.1, January being the 13th month of the previous year (30.6001 * 14 = 428)
+        int y = year - 1;
+        int a = y / 100;
+        int b = 2 - a + a / 4;
+        return Math.floor(365.25 * (y + 4716)) + 428 + b - 1524.5;
+    }
+
+    /**
+     * Parses a number in the TLE exponent notation, for instance {@code -11606-4} for -0.11606e-4.
+     */
+    private static double exponent(String field) {
+        String text = field.trim();
+        if (text.isEmpty()) {
+            return 0.;
+        }
+        int sign = 1;
+        if (text.charAt(0) == '-' || text.charAt(0) == '+') {
+            sign = text.charAt(0) == '-' ? -1 : 1;
+            text = text.substring(1);
+        }
+        int split = Math.max(text.lastIndexOf('-'), text.lastIndexOf('+'));
+        if (split <= 0) {
+            return sign * Double.parseDouble("." + text);
+        }
+        return sign * Double.parseDouble("." + text.substring(0, split) + "e" + text.substring(split));
+    }
+
+    private static void checkSum(String line) {
+        int sum = 0;
+        for (int i = 0; i < 68; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sum += c - '0';
+            } else if (c == '-') {
+                sum++;
+            }
+        }
+        // Lines without a checksum are accepted, as some catalogs strip it
+        if (line.length() > 68 && line.charAt(68) != ' ' && line.charAt(68) - '0' != sum % 10) {
+            throw new IllegalArgumentException("wrong checksum on line " + line.charAt(0));
+        }
+    }
+
+    private static String trimEnd(String line) {
+        int end = line.length();
+        while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+}
@@ -0,0 +1,131 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the trajectories written by {@link EphemerisWriter} are read back unchanged by
+ * {@link EphemerisFile}.
+ */
+public class EphemerisFileTest {
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("trajectories", ".eph");
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        // Larger than the write buffer, empty, and a name that is not ASCII
+        Trajectory large = trajectory(10000, 1.);
+        Trajectory empty = trajectory(0, 2.);
+        Trajectory small = trajectory(3, 3.);
+        try (EphemerisWriter writer = new EphemerisWriter(file)) {
+            writer.write("LARGE", large);
+            writer.write("EMPTY", empty);
+            writer.write("Satéllite °", small);
+        }
+        try (EphemerisFile ephemeris = new EphemerisFile(file)) {
+            assertEquals(3, ephemeris.getOrbitCount());
+            assertEquals("LARGE", ephemeris.getName(0));
+            assertEquals("EMPTY", ephemeris.getName(1));
+            assertEquals("Satéllite °", ephemeris.getName(2));
+            assertSame(large, ephemeris.getTrajectory(0));
+            assertSame(empty, ephemeris.getTrajectory(1));
+            assertSame(small, ephemeris.getTrajectory(2));
+        }
+    }
+
+    @Test
+    public void testNoOrbit() throws IOException {
+        new EphemerisWriter(file).close();
+        try (EphemerisFile ephemeris = new EphemerisFile(file)) {
+            assertEquals(0, ephemeris.getOrbitCount());
+        }
+    }
+
+    /**
+     * The orbits of a parallel run are written as they complete, each one in a single piece.
+     */
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        Map<String, Trajectory> trajectories = new HashMap<>();
+        for (int i = 0; i < 16; i++) {
+            trajectories.put("ORBIT " + i, trajectory(500 + 300 * i, i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (EphemerisWriter writer = new EphemerisWriter(file)) {
+            List<Future<?>> writes = new ArrayList<>();
+            for (Map.Entry<String, Trajectory> entry : trajectories.entrySet()) {
+                writes.add(executor.submit(() -> {
+                    writer.write(entry.getKey(), entry.getValue());
+                    return null;
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        try (EphemerisFile ephemeris = new EphemerisFile(file)) {
+            assertEquals(trajectories.size(), ephemeris.getOrbitCount());
+            for (int i = 0; i < ephemeris.getOrbitCount(); i++) {
+                assertSame(trajectories.get(ephemeris.getName(i)), ephemeris.getTrajectory(i));
+            }
+        }
+    }
+
+    @Test
+    public void testNotAnEphemerisFile() throws IOException {
+        Files.write(file.toPath(), "name,time,latitude,longitude,altitude\nISS,0,0,0,400000\n".getBytes(StandardCharsets.US_ASCII));
+        try {
+            new EphemerisFile(file).close();
+            fail("opened " + file);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("is not an ephemeris file"));
+        }
+    }
+
+    // Trajectory whose samples are all different
+    private static Trajectory trajectory(int size, double seed) {
+        Trajectory trajectory = new Trajectory(size);
+        for (int i = 0; i < size; i++) {
+            trajectory.add(10. * i, Math.sin(seed + i) * 1.5, Math.cos(seed * i) * 3., 400e3 + seed * i);
+        }
+        return trajectory;
+    }
+
+    private static void assertSame(TrajectoryView expected, TrajectoryView actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTime(i), actual.getTime(i), 0.);
+            assertEquals(expected.getLatitude(i), actual.getLatitude(i), 0.);
+            assertEquals(expected.getLongitude(i), actual.getLongitude(i), 0.);
+            assertEquals(expected.getAltitude(i), actual.getAltitude(i), 0.);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Checks the parsing of JSON documents and the errors reported for malformed ones.
+ */
+public class JsonParserTest {
+
+    @Test
+    public void testValues() {
+        assertEquals(42., JsonParser.parse("42"));
+        assertEquals(-1.5e-3, JsonParser.parse(" -1.5E-3 "));
+        assertEquals("text", JsonParser.parse("\"text\""));
+        assertEquals(Boolean.TRUE, JsonParser.parse("true"));
+        assertEquals(Boolean.FALSE, JsonParser.parse("false"));
+        assertNull(JsonParser.parse("null"));
+    }
+
+    @Test
+    public void testNested() {
+        Map<?, ?> object = (Map<?, ?>) JsonParser.parse("{\"name\": \"ISS\", \"elements\": [6778.0, 0.0005], \"empty\": {}, \"none\": []}");
+        assertEquals(Arrays.asList("name", "elements", "empty", "none"), Arrays.asList(object.keySet().toArray()));
+        assertEquals("ISS", object.get("name"));
+        assertEquals(Arrays.asList(6778., 0.0005), object.get("elements"));
+        assertTrue(((Map<?, ?>) object.get("empty")).isEmpty());
+        assertTrue(((List<?>) object.get("none")).isEmpty());
+    }
+
+    @Test
+    public void testEscapes() {
+        assertEquals("a\"b\\c/d\n\t\r\b\f", JsonParser.parse("\"a\\\"b\\\\c\\/d\\n\\t\\r\\b\\f\""));
+        assertEquals("\u00b0C \u20ac", JsonParser.parse("\"\\u00B0C \\u20ac\""));
+    }
+
+    @Test
+    public void testTrailingBackslash() {
+        assertError("\"abc\\", "Unterminated string at character 5");
+    }
+
+    @Test
+    public void testTruncatedUnicodeEscape() {
+        assertError("\"\\u12", "Truncated unicode escape at character 3");
+    }
+
+    @Test
+    public void testInvalidUnicodeEscape() {
+        assertError("\"\\u12G4\"", "Invalid unicode escape at character 5");
+    }
+
+    @Test
+    public void testUnterminatedString() {
+        assertError("[\"abc", "Unterminated string at character 5");
+    }
+
+    @Test
+    public void testEndOfDocument() {
+        assertError("[1, ", "Unexpected end of document at character 4");
+        assertError("", "Unexpected end of document at character 0");
+    }
+
+    @Test
+    public void testMissingSeparator() {
+        assertError("{\"a\" 1}", "Expected ':' at character 5");
+        assertError("[1 2]", "Expected ']' at character 3");
+    }
+
+    @Test
+    public void testTrailingCharacters() {
+        assertError("{} x", "Unexpected trailing characters at character 3");
+    }
+
+    @Test
+    public void testUnexpectedCharacter() {
+        assertError("[#]", "Unexpected character '#' at character 1");
+        assertError("tru", "Expected true at character 0");
+    }
+
+    private static void assertError(String text, String message) {
+        try {
+            JsonParser.parse(text);
+            fail("parsed " + text);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import fr.cnes.sirius.patrius.utils.Constants;
+
+/**
+ * Checks the closed-form propagator against the properties of the Keplerian motion, the J2
+ * secular rates and the numerical propagator it replaces.
+ */
+public class KeplerPropagatorTest {
+    private static final double MU = Constants.WGS84_EARTH_MU;
+    private static final double AE = Constants.WGS84_EARTH_EQUATORIAL_RADIUS;
+    // Seconds per day
+    private static final double DAY = 86400.;
+
+    @Test
+    public void testPerigeeAndApogee() {
+        double sma = 26600e3;
+        double ecc = 0.74;
+        KeplerPropagator propagator = new KeplerPropagator(sma, ecc, 0., 0., 0., 0., MU, AE, false);
+        double[] position = propagator.positionAt(0., new double[3]);
+        assertEquals(sma * (1. - ecc), position[0], 1e-6);
+        assertEquals(0., position[1], 1e-6);
+        propagator.positionAt(period(sma) / 2., position);
+        assertEquals(-sma * (1. + ecc), position[0], 1e-3);
+        assertEquals(0., position[1], 1e-3);
+    }
+
+    /**
+     * Without J2, the orbit closes on itself after one period, even for a very eccentric orbit.
+     */
+    @Test
+    public void testClosure() {
+        for (double ecc : new double[] { 0., 0.01, 0.5, 0.95 }) {
+            double sma = 42164e3;
+            KeplerPropagator propagator = new KeplerPropagator(sma, ecc, 1., 2., 3., 4., MU, AE, false);
+            double[] start = propagator.positionAt(0., new double[3]);
+            double[] end = propagator.positionAt(period(sma), new double[3]);
+            for (int i = 0; i < 3; i++) {
+                assertEquals("eccentricity " + ecc, start[i], end[i], 1e-3);
+            }
+        }
+    }
+
+    /**
+     * The radius follows the conic equation at any mean anomaly.
+     */
+    @Test
+    public void testRadius() {
+        double sma = 7000e3;
+        double ecc = 0.2;
+        KeplerPropagator propagator = new KeplerPropagator(sma, ecc, 0.5, 0., 0., 0., MU, AE, false);
+        double[] position = new double[3];
+        for (double t = 0.; t < period(sma); t += 97.) {
+            propagator.positionAt(t, position);
+            double radius = Math.sqrt(position[0] * position[0] + position[1] * position[1] + position[2] * position[2]);
+            assertEquals(sma * (1. - ecc * ecc) / (1. + ecc * Math.cos(trueAnomaly(position))), radius, 1e-3);
+        }
+    }
+
+    /**
+     * An 800 km orbit inclined at 98.6° is sun-synchronous: its plane turns by one revolution a year.
+     */
+    @Test
+    public void testSunSynchronousDrift() {
+        KeplerPropagator propagator = new KeplerPropagator(AE + 800e3, 0., Math.toRadians(98.6), 0., 0., 0., MU, AE, true);
+        assertEquals(360. / 365.2422, Math.toDegrees(propagator.getRaanRate()) * DAY, 2e-3);
+    }
+
+    /**
+     * The perigee of an orbit at the critical inclination does not drift.
+     */
+    @Test
+    public void testCriticalInclination() {
+        KeplerPropagator propagator = new KeplerPropagator(26600e3, 0.74, Math.toRadians(63.4349), 0., 0., 0., MU, AE, true);
+        assertEquals(0., Math.toDegrees(propagator.getPaRate()) * DAY, 1e-4);
+    }
+
+    @Test
+    public void testWithoutJ2() {
+        double sma = 7000e3;
+        KeplerPropagator propagator = new KeplerPropagator(sma, 0.01, 1., 0., 0., 0., MU, AE, false);
+        assertEquals(0., propagator.getRaanRate(), 0.);
+        assertEquals(0., propagator.getPaRate(), 0.);
+        assertEquals(2 * Math.PI / period(sma), propagator.getAnmRate(), 1e-15);
+    }
+
+    /**
+     * The Keplerian mode gives the same samples as the numerical propagator, which only has the
+     * central attraction, over one revolution.
+     */
+    @Test
+    public void testAgreesWithNumericalPropagator() {
+        double[][] orbits = { { AE + 400e3, 0.001, 51.6 }, { AE + 800e3, 0.01, 98.6 }, { 26600e3, 0.74, 63.4 } };
+        for (double[] orbit : orbits) {
+            Trajectory numerical = propagate(PropagationMode.NUMERICAL, orbit);
+            Trajectory kepler = propagate(PropagationMode.KEPLERIAN, orbit);
+            assertEquals(numerical.size(), kepler.size());
+            for (int i = 0; i < kepler.size(); i++) {
+                assertEquals(numerical.getTime(i), kepler.getTime(i), 1e-6);
+                assertEquals(numerical.getLatitude(i), kepler.getLatitude(i), 1e-6);
+                assertEquals(numerical.getLongitude(i), kepler.getLongitude(i), 1e-6);
+                assertEquals(numerical.getAltitude(i), kepler.getAltitude(i), 10.);
+            }
+        }
+    }
+
+    /**
+     * Without a period the span of the propagation is undefined, the orbit must be rejected
+     * instead of being propagated forever.
+     */
+    @Test(expected = IllegalArgumentException.class, timeout = 10000)
+    public void testNegativeSemiMajorAxis() {
+        propagate(PropagationMode.KEPLERIAN, new double[] { -7e6, 0.001, 51.6 });
+    }
+
+    @Test(expected = IllegalArgumentException.class, timeout = 10000)
+    public void testHyperbolicOrbit() {
+        propagate(PropagationMode.J2_SECULAR, new double[] { 7e6, 1.2, 51.6 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParabolicElements() {
+        new KeplerPropagator(7e6, 1., 0., 0., 0., 0., MU, AE, false);
+    }
+
+    private static Trajectory propagate(PropagationMode mode, double[] orbit) {
+        Orbiter orbiter = new Orbiter(PropagatorSettings.DEFAULT.withMode(mode));
+        Trajectory trajectory = new Trajectory();
+        orbiter.propagate(orbit[0], orbit[1], Math.toRadians(orbit[2]), 0.3, 0.2, 0.1, null, trajectory);
+        return trajectory;
+    }
+
+    private static double period(double sma) {
+        return 2 * Math.PI * Math.sqrt(sma * sma * sma / MU);
+    }
+
+    // True anomaly of a position of an orbit whose perigee is on the X axis of its plane
+    private static double trueAnomaly(double[] position) {
+        double inPlane = Math.sqrt(position[1] * position[1] + position[2] * position[2]);
+        return Math.atan2(position[1] >= 0. ? inPlane : -inPlane, position[0]);
+    }
+}
@@ -0,0 +1,143 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks the reading of the CSV, JSON and TLE catalogs.
+ */
+public class OrbitCatalogTest {
+    private static final String VANGUARD_1 = "1 00005U 58002B   00179.78495062  .00000023  00000-0  28098-4 0  4753\n"
+            + "2 00005  34.2682 348.7242 1859667 331.7664  19.3264 10.82419157413667\n";
+    private static final String MOLNIYA = "1 09880U 77021A   06176.56157475  .00000421  00000-0  10000-3 0  9814\n"
+            + "2 09880  64.5968 349.3786 7069051 270.0229  16.3320  2.00813614112380\n";
+
+    // Catalogs written by the test
+    private final List<File> files = new ArrayList<>();
+
+    @After
+    public void deleteFiles() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCsv() throws IOException {
+        List<OrbitElements> orbits = OrbitCatalog.read(write(".csv", "name,sma,ecc,inc,raan,anm,pa\n"
+                + "# Space station\n"
+                + "ISS, 6778, 0.0005, 51.6, 10, 20, 30\n"
+                + "\n"
+                + "GEO,42164,0,0,0,0,0\n"));
+        assertEquals(2, orbits.size());
+        assertOrbit(orbits.get(0), "ISS", 6778e3, 0.0005, 51.6, 10., 20., 30.);
+        assertOrbit(orbits.get(1), "GEO", 42164e3, 0., 0., 0., 0., 0.);
+        assertNull(orbits.get(0).getTwoLineElements());
+    }
+
+    @Test
+    public void testCsvMissingField() throws IOException {
+        assertError(write(".csv", "ISS,6778,0.0005,51.6,10,20,30\nGEO,42164,0,0,0,0\n"), ":2: expected 7 fields");
+    }
+
+    @Test
+    public void testCsvInvalidNumber() throws IOException {
+        assertError(write(".csv", "ISS,6778,0.0005,51.6,10,20,30\nGEO,42164,zero,0,0,0,0\n"), ":2: ");
+    }
+
+    @Test
+    public void testJson() throws IOException {
+        List<OrbitElements> orbits = OrbitCatalog.read(write(".json",
+                "[{\"name\": \"ISS\", \"sma\": 6778, \"ecc\": 0.0005, \"inc\": 51.6, \"raan\": 10, \"anm\": 20, \"pa\": 30}]"));
+        assertEquals(1, orbits.size());
+        assertOrbit(orbits.get(0), "ISS", 6778e3, 0.0005, 51.6, 10., 20., 30.);
+    }
+
+    @Test
+    public void testJsonMissingElement() throws IOException {
+        assertError(write(".json", "[{\"name\": \"ISS\", \"sma\": 6778, \"ecc\": 0.0005, \"inc\": 51.6, \"raan\": 10, \"anm\": 20}]"),
+                ": missing or invalid \"pa\" for orbit ISS");
+    }
+
+    @Test
+    public void testJsonNotAnArray() throws IOException {
+        assertError(write(".json", "{\"name\": \"ISS\"}"), ": expected an array of orbits");
+        assertError(write(".json", "[6778]"), ": expected an orbit object");
+    }
+
+    @Test
+    public void testJsonMalformed() throws IOException {
+        assertError(write(".json", "[{\"name\": \"ISS\\u00\"}]"), ": Invalid unicode escape at character ");
+    }
+
+    @Test
+    public void testTwoLineElements() throws IOException {
+        List<OrbitElements> orbits = OrbitCatalog.read(write(".tle", VANGUARD_1 + MOLNIYA));
+        assertEquals(2, orbits.size());
+        assertEquals("00005", orbits.get(0).getName());
+        assertEquals("09880", orbits.get(1).getName());
+        // Both sets start at the latest epoch
+        TwoLineElements molniya = orbits.get(1).getTwoLineElements();
+        assertEquals(molniya.getEpoch(), molniya.getStart(), 0.);
+        assertEquals(molniya.getEpoch(), orbits.get(0).getTwoLineElements().getStart(), 0.);
+        assertEquals(0.1859667, orbits.get(0).getEcc(), 1e-12);
+    }
+
+    @Test
+    public void testThreeLineElements() throws IOException {
+        List<OrbitElements> orbits = OrbitCatalog.read(write(".3le", "VANGUARD 1\n" + VANGUARD_1 + "0 MOLNIYA 2-9\n" + MOLNIYA));
+        assertEquals("VANGUARD 1", orbits.get(0).getName());
+        assertEquals("MOLNIYA 2-9", orbits.get(1).getName());
+        assertEquals(9880, orbits.get(1).getTwoLineElements().getSatelliteNumber());
+    }
+
+    @Test
+    public void testMissingSecondLine() throws IOException {
+        assertError(write(".tle", VANGUARD_1 + MOLNIYA.substring(0, 70)), ":3: missing the second line of an element set");
+    }
+
+    @Test
+    public void testWrongChecksum() throws IOException {
+        assertError(write(".tle", VANGUARD_1.replace("4753", "4754")), ":2: wrong checksum on line 1");
+    }
+
+    private File write(String extension, String content) throws IOException {
+        File file = File.createTempFile("catalog", extension);
+        files.add(file);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static void assertError(File file, String message) {
+        try {
+            OrbitCatalog.read(file);
+            fail("read " + file);
+        } catch (IOException e) {
+            // The message names the file, and the line for the line based formats
+            assertTrue(e.getMessage(), e.getMessage().startsWith(file + message));
+        }
+    }
+
+    private static void assertOrbit(OrbitElements orbit, String name, double sma, double ecc, double inc, double raan, double anm,
+                                    double pa) {
+        assertEquals(name, orbit.getName());
+        assertEquals(sma, orbit.getSma(), 1e-6);
+        assertEquals(ecc, orbit.getEcc(), 1e-12);
+        assertEquals(Math.toRadians(inc), orbit.getInc(), 1e-12);
+        assertEquals(Math.toRadians(raan), orbit.getRaan(), 1e-12);
+        assertEquals(Math.toRadians(anm), orbit.getAnm(), 1e-12);
+        assertEquals(Math.toRadians(pa), orbit.getPa(), 1e-12);
+    }
+}
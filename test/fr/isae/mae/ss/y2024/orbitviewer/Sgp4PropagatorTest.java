@@ -0,0 +1,86 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks the SGP4/SDP4 propagator against the test vectors published with the revised
+ * implementation of Vallado et al. ("Revisiting Spacetrack Report #3", AIAA 2006-6753). The
+ * positions are compared in the TEME frame, the frame of the propagation being aligned with it.
+ */
+public class Sgp4PropagatorTest {
+    // Largest difference with the published positions (m)
+    private static final double TOLERANCE = 1.;
+
+    /**
+     * Near earth orbit with a perigee below 220 km: simplified drag model.
+     */
+    @Test
+    public void testNearEarth00005() {
+        Sgp4Propagator propagator = propagator("1 00005U 58002B   00179.78495062  .00000023  00000-0  28098-4 0  4753",
+                "2 00005  34.2682 348.7242 1859667 331.7664  19.3264 10.82419157413667");
+        assertPosition(propagator, 0., 7022.46529266, -1400.08296755, 0.03995155);
+        assertPosition(propagator, 360., -7154.03120202, -3783.17682504, -3536.19412294);
+        assertPosition(propagator, 720., -7134.59340119, 6531.68641334, 3260.27186483);
+        assertPosition(propagator, 1080., 5568.53901181, 4492.06992591, 3863.87641983);
+        assertPosition(propagator, 1440., -938.55923943, -6268.18748831, -4294.02924751);
+        assertPosition(propagator, 4320., -9060.47373569, 4658.70952502, 813.68673153);
+    }
+
+    /**
+     * Molniya orbit: deep space model with the 12 h resonance.
+     */
+    @Test
+    public void testTwelveHourResonance09880() {
+        Sgp4Propagator propagator = propagator("1 09880U 77021A   06176.56157475  .00000421  00000-0  10000-3 0  9814",
+                "2 09880  64.5968 349.3786 7069051 270.0229  16.3320  2.00813614112380");
+        assertPosition(propagator, 0., 13020.06750784, -2449.07193500, 1.15896030);
+        assertPosition(propagator, 120., 19190.32482476, 9249.01266902, 26596.71345328);
+        assertPosition(propagator, 240., 11332.67806218, 16517.99124008, 38569.78482991);
+        assertPosition(propagator, 360., 328.74217398, 19554.92047380, 40558.26246145);
+        assertPosition(propagator, 720., 13725.09398980, -2180.70877090, 863.29684523);
+        assertPosition(propagator, 1440., 14369.90303735, -1903.85601062, 1722.15319852);
+        assertPosition(propagator, 2880., 15500.53445068, -1332.90981042, 3419.72315308);
+    }
+
+    /**
+     * Geostationary orbit: deep space model with the 24 h resonance.
+     */
+    @Test
+    public void testSynchronous28626() {
+        Sgp4Propagator propagator = propagator("1 28626U 05008A   06176.46683397 -.00000205  00000-0  10000-3 0  2190",
+                "2 28626   0.0019 286.9433 0000335  13.7918  55.6504  1.00270176  4891");
+        assertPosition(propagator, 0., 42080.71852213, -2646.86387436, 0.81851294);
+        assertPosition(propagator, 120., 37740.00085593, 18802.76872802, 3.45512584);
+        assertPosition(propagator, 240., 23232.82515008, 35187.33981802, 4.98927428);
+        assertPosition(propagator, 360., 2467.44290178, 42093.60909959, 5.15062987);
+        assertPosition(propagator, 720., -42103.20138132, 2291.06228893, -0.13274964);
+        assertPosition(propagator, 1440., 42119.96263499, -1925.77567263, -0.19827433);
+    }
+
+    /**
+     * The position does not depend on the positions computed before, the resonance integration
+     * going back when needed.
+     */
+    @Test
+    public void testBackwardsInTime() {
+        Sgp4Propagator propagator = propagator("1 09880U 77021A   06176.56157475  .00000421  00000-0  10000-3 0  9814",
+                "2 09880  64.5968 349.3786 7069051 270.0229  16.3320  2.00813614112380");
+        propagator.positionAt(2880. * 60., new double[3]);
+        assertPosition(propagator, 120., 19190.32482476, 9249.01266902, 26596.71345328);
+    }
+
+    // Propagator of an element set, in the TEME frame
+    private static Sgp4Propagator propagator(String line1, String line2) {
+        TwoLineElements tle = TwoLineElements.parse(line1, line2);
+        return new Sgp4Propagator(tle, Sgp4Propagator.gstime(tle.getStart()));
+    }
+
+    private static void assertPosition(Sgp4Propagator propagator, double minutes, double x, double y, double z) {
+        double[] position = propagator.positionAt(minutes * 60., new double[3]);
+        assertEquals("x at " + minutes + " min", x * 1000., position[0], TOLERANCE);
+        assertEquals("y at " + minutes + " min", y * 1000., position[1], TOLERANCE);
+        assertEquals("z at " + minutes + " min", z * 1000., position[2], TOLERANCE);
+    }
+}
@@ -0,0 +1,80 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the disk tier of {@link TrajectoryCache}.
+ */
+public class TrajectoryCacheTest {
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("cache").toFile();
+    }
+
+    @After
+    public void deleteDirectory() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testDiskTierSurvivesRestart() {
+        // Keys are digests in the application, any name of 3 characters or more is accepted
+        new TrajectoryCache(0, directory).put("first", trajectory(100));
+        Trajectory trajectory = new TrajectoryCache(0, directory).get("first");
+        assertNotNull(trajectory);
+        assertEquals(100, trajectory.size());
+    }
+
+    @Test
+    public void testDiskTierIsBounded() throws Exception {
+        // Each entry holds 100 samples of 32 bytes, 10 of them fit in the bound
+        TrajectoryCache cache = new TrajectoryCache(0, directory, 10 * 3300);
+        for (int i = 0; i < 30; i++) {
+            cache.put("entry" + i, trajectory(100));
+            new File(directory, "entry" + i + ".traj").setLastModified(1000000000000L + i * 1000L);
+        }
+        long size = 0;
+        for (File file : directory.listFiles()) {
+            size += file.length();
+        }
+        assertTrue(size <= 10 * 3300);
+        // The most recent entries are kept
+        assertNotNull(new TrajectoryCache(0, directory).get("entry29"));
+        assertNull(new TrajectoryCache(0, directory).get("entry0"));
+    }
+
+    @Test
+    public void testUnusableDirectory() throws IOException {
+        // A file where the directory should be, the cache is kept in memory only
+        File file = new File(directory, "file");
+        assertTrue(file.createNewFile());
+        TrajectoryCache cache = new TrajectoryCache(1000, file);
+        cache.put("first", trajectory(10));
+        assertNotNull(cache.get("first"));
+        assertEquals(0, file.length());
+    }
+
+    private static Trajectory trajectory(int size) {
+        Trajectory trajectory = new Trajectory(size);
+        for (int i = 0; i < size; i++) {
+            trajectory.add(i, 0.1 * i, 0.2 * i, 400000. + i);
+        }
+        return trajectory;
+    }
+}
@@ -0,0 +1,127 @@
+package fr.isae.mae.ss.y2024.orbitviewer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+/**
+ * Checks the parsing of the Two-Line Element sets.
+ */
+public class TwoLineElementsTest {
+    private static final String LINE1 = "1 00005U 58002B   00179.78495062  .00000023  00000-0  28098-4 0  4753";
+    private static final String LINE2 = "2 00005  34.2682 348.7242 1859667 331.7664  19.3264 10.82419157413667";
+    // Julian date of the Unix epoch
+    private static final double JD_UNIX = 2440587.5;
+
+    @Test
+    public void testParse() {
+        TwoLineElements tle = TwoLineElements.parse(LINE1, LINE2);
+        assertEquals(5, tle.getSatelliteNumber());
+        // Day 179.78495062 of 2000
+        assertEquals(JD_UNIX + LocalDate.of(2000, 1, 1).toEpochDay() - 1. + 179.78495062, tle.getEpoch(), 1e-8);
+        assertEquals(tle.getEpoch(), tle.getStart(), 0.);
+        assertEquals(Math.toRadians(34.2682), tle.getInc(), 1e-12);
+        assertEquals(Math.toRadians(348.7242), tle.getRaan(), 1e-12);
+        assertEquals(0.1859667, tle.getEcc(), 1e-12);
+        assertEquals(Math.toRadians(331.7664), tle.getPa(), 1e-12);
+        assertEquals(Math.toRadians(19.3264), tle.getAnm(), 1e-12);
+        assertEquals(10.82419157 * 2 * Math.PI / 1440., tle.getMeanMotion(), 1e-12);
+        assertEquals(0.28098e-4, tle.getBstar(), 1e-12);
+        assertEquals(LINE1, tle.getLine1());
+        assertEquals(LINE2, tle.getLine2());
+    }
+
+    @Test
+    public void testExponentNotation() {
+        String line1 = withChecksum("1 00005U 58002B   00179.78495062  .00000023  00000-0 -11606-4 0  475");
+        assertEquals(-0.11606e-4, TwoLineElements.parse(line1, LINE2).getBstar(), 1e-15);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongChecksumFirstLine() {
+        TwoLineElements.parse(LINE1.substring(0, 68) + "4", LINE2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongChecksumSecondLine() {
+        TwoLineElements.parse(LINE1, LINE2.replace("34.2682", "34.2683"));
+    }
+
+    @Test
+    public void testMissingChecksum() {
+        assertEquals(5, TwoLineElements.parse(LINE1.substring(0, 68), LINE2.substring(0, 68)).getSatelliteNumber());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentObjects() {
+        TwoLineElements.parse(LINE1, withChecksum(LINE2.substring(0, 2) + "00006" + LINE2.substring(7, 68)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedLine() {
+        TwoLineElements.parse(LINE1.substring(0, 60), LINE2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNumber() {
+        TwoLineElements.parse(LINE1, withChecksum(LINE2.substring(0, 8) + " 34.2x82" + LINE2.substring(16, 68)));
+    }
+
+    /**
+     * The two digit years 57 to 99 are in the 20th century, 00 to 56 in the 21st.
+     */
+    @Test
+    public void testEpochRollover() {
+        assertEquals(JD_UNIX + LocalDate.of(1957, 1, 1).toEpochDay(), parseWithEpoch("57001.00000000").getEpoch(), 1e-8);
+        assertEquals(JD_UNIX + LocalDate.of(1999, 12, 31).toEpochDay() + 0.5, parseWithEpoch("99365.50000000").getEpoch(), 1e-8);
+        assertEquals(JD_UNIX + LocalDate.of(2000, 1, 1).toEpochDay(), parseWithEpoch("00001.00000000").getEpoch(), 1e-8);
+        assertEquals(JD_UNIX + LocalDate.of(2056, 12, 31).toEpochDay() + 0.25, parseWithEpoch("56366.25000000").getEpoch(), 1e-8);
+    }
+
+    @Test
+    public void testStartingAt() {
+        TwoLineElements tle = TwoLineElements.parse(LINE1, LINE2);
+        TwoLineElements shifted = tle.startingAt(tle.getEpoch() + 1.5);
+        assertEquals(tle.getEpoch(), shifted.getEpoch(), 0.);
+        assertEquals(tle.getEpoch() + 1.5, shifted.getStart(), 0.);
+        assertEquals(tle.getMeanMotion(), shifted.getMeanMotion(), 0.);
+    }
+
+    @Test
+    public void testToElements() {
+        OrbitElements elements = TwoLineElements.parse(LINE1, LINE2).toElements("VANGUARD 1");
+        assertEquals("VANGUARD 1", elements.getName());
+        // 10.82 revolutions per day, about 8 636 km
+        assertEquals(8.636e6, elements.getSma(), 1e3);
+        assertEquals(0.1859667, elements.getEcc(), 1e-12);
+        assertEquals(5, elements.getTwoLineElements().getSatelliteNumber());
+    }
+
+    @Test
+    public void testWithoutLines() {
+        TwoLineElements tle = new TwoLineElements(0, 2455198., 0.06, 0.001, 1., 2., 3., 4., 0.);
+        assertNull(tle.getLine1());
+        assertEquals(2455198., tle.getStart(), 0.);
+    }
+
+    // First line of the test element set with another epoch
+    private static TwoLineElements parseWithEpoch(String epoch) {
+        return TwoLineElements.parse(withChecksum(LINE1.substring(0, 18) + epoch + LINE1.substring(32, 68)), LINE2);
+    }
+
+    // Line of 68 characters followed by its checksum
+    private static String withChecksum(String line) {
+        int sum = 0;
+        for (char c : line.substring(0, 68).toCharArray()) {
+            if (c >= '0' && c <= '9') {
+                sum += c - '0';
+            } else if (c == '-') {
+                sum++;
+            }
+        }
+        return line.substring(0, 68) + sum % 10;
+    }
+}